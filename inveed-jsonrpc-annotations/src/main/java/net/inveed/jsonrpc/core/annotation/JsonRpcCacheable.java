@@ -0,0 +1,37 @@
+package net.inveed.jsonrpc.core.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks a JSON-RPC method, which results may be cached by the server.
+ * Results are cached by the method params, so the method should return
+ * the same result for the same params during the time to live.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface JsonRpcCacheable {
+
+    /**
+     * Time to live of a cached result
+     *
+     * @return time to live in {@link #unit()}
+     */
+    long ttl();
+
+    /**
+     * @return time unit of {@link #ttl()}
+     */
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * Max number of cached results of the method. The least recently used
+     * results are evicted first.
+     *
+     * @return max number of cached results
+     */
+    int maxEntries() default 1000;
+}
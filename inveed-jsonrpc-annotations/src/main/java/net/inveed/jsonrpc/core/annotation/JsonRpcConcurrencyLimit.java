@@ -0,0 +1,22 @@
+package net.inveed.jsonrpc.core.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the number of concurrent calls of a JSON-RPC method. Calls over the
+ * limit are rejected immediately with the "Server overloaded" error instead
+ * of waiting for a thread. The static limit replaces the adaptive limit of
+ * the server for the method.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface JsonRpcConcurrencyLimit {
+
+    /**
+     * @return max number of calls of the method running at the same time
+     */
+    int value();
+}
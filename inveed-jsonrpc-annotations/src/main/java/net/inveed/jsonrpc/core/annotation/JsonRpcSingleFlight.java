@@ -0,0 +1,31 @@
+package net.inveed.jsonrpc.core.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks a JSON-RPC method, which calls with the same params are coalesced.
+ * While the method is invoked, concurrent calls with the same params wait
+ * for the invocation and get its result instead of invoking the method again.
+ * A waiting call doesn't wait longer than its deadline.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface JsonRpcSingleFlight {
+
+    /**
+     * Max time to wait for the invocation, after which the waiting call invokes
+     * the method itself
+     *
+     * @return max wait in {@link #unit()}, 0 to wait while the method is invoked
+     */
+    long maxWait() default 0;
+
+    /**
+     * @return time unit of {@link #maxWait()}
+     */
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+}
@@ -0,0 +1,35 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the hot path suites with the GC profiler, the same as
+ * {@code java -jar benchmarks.jar <suites> -prof gc -rf json}, so the time and
+ * the allocation rate ("gc.alloc.rate.norm", bytes per operation) of every
+ * benchmark are written to a JSON file, which can be compared with a later run.
+ *
+ * Usage: {@code java -cp benchmarks.jar net.inveed.jsonrpc.benchmarks.BaselineRunner [result file]}
+ */
+public class BaselineRunner {
+	private static final String DEFAULT_RESULT = "jmh-baseline.json";
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(RequestHandlerBenchmark.class.getSimpleName())
+				.include(ParamsConversionBenchmark.class.getSimpleName())
+				.include(InvokerBenchmark.class.getSimpleName())
+				.include(ClientBenchmark.class.getSimpleName())
+				.include(BatchResponseBenchmark.class.getSimpleName())
+				.include(IdGeneratorBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result(args.length > 0 ? args[0] : DEFAULT_RESULT)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,73 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.inveed.jsonrpc.client.JsonRpcClient;
+import net.inveed.jsonrpc.client.Transport;
+import net.inveed.jsonrpc.client.builder.BatchRequestBuilder;
+
+/**
+ * Client side of a batch call: validation and writing of the prepared batch,
+ * parsing of the batch response, matching of the responses with the request ids
+ * and conversion of the results. The transport returns a prepared response
+ * without any I/O.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchResponseBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int batchSize;
+
+	private BatchRequestBuilder<Long, Long> batch;
+
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < this.batchSize; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			// Responses of a batch may come in any order
+			long id = this.batchSize - i;
+			sb.append("{\"jsonrpc\":\"2.0\",\"result\":").append(id * 3).append(",\"id\":").append(id).append('}');
+		}
+		final String response = sb.append(']').toString();
+		Transport transport = new Transport() {
+			@Override
+			public String pass(String request) {
+				return response;
+			}
+		};
+
+		BatchRequestBuilder<?, ?> builder = new JsonRpcClient(transport, new ObjectMapper()).createBatchRequest();
+		for (long id = 1; id <= this.batchSize; id++) {
+			builder.add(id, BenchmarkService.NAME + "#sum", id, id * 2);
+		}
+		this.batch = builder.keysType(Long.class).returnType(Long.class);
+	}
+
+	@Benchmark
+	public Map<Long, Long> execute() {
+		return this.batch.execute();
+	}
+}
@@ -0,0 +1,20 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.util.List;
+
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+
+/**
+ * Client interface of {@link BenchmarkService}
+ */
+@JsonRpcService(BenchmarkService.NAME)
+public interface BenchmarkApi {
+
+	@JsonRpcMethod
+	long sum(@JsonRpcParam("a") long a, @JsonRpcParam("b") long b);
+
+	@JsonRpcMethod
+	int describe(@JsonRpcParam("id") long id, @JsonRpcParam("name") String name, @JsonRpcParam("tags") List<String> tags);
+}
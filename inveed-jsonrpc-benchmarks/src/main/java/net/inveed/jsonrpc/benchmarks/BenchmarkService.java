@@ -0,0 +1,50 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+
+/**
+ * Service used as an invocation target by the benchmarks
+ */
+@JsonRpcService(BenchmarkService.NAME)
+public class BenchmarkService {
+	public static final String NAME = "bench";
+
+	private final AtomicLong counter = new AtomicLong();
+
+	@JsonRpcMethod
+	public long counter() {
+		return this.counter.incrementAndGet();
+	}
+
+	@JsonRpcMethod
+	public String echo(@JsonRpcParam("value") String value) {
+		return value;
+	}
+
+	@JsonRpcMethod
+	public long sum(@JsonRpcParam("a") long a, @JsonRpcParam("b") long b) {
+		return a + b;
+	}
+
+	/**
+	 * Method with params of different kinds: a number, a string and a list
+	 */
+	@JsonRpcMethod
+	public int describe(@JsonRpcParam("id") long id, @JsonRpcParam("name") String name, @JsonRpcParam("tags") List<String> tags) {
+		return name.length() + tags.size();
+	}
+
+	/**
+	 * Stands for a method blocked on JDBC or a downstream HTTP call
+	 */
+	@JsonRpcMethod
+	public long sleep(@JsonRpcParam("ms") long ms) throws InterruptedException {
+		Thread.sleep(ms);
+		return ms;
+	}
+}
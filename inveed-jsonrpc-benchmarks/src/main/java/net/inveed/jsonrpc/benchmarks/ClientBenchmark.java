@@ -0,0 +1,84 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.inveed.jsonrpc.client.JsonRpcClient;
+import net.inveed.jsonrpc.client.Transport;
+
+/**
+ * Client overhead of a call through the fluent {@code RequestBuilder} and through
+ * the {@code ObjectApiBuilder} proxy: building and writing the request, parsing
+ * the response and converting the result. The transport returns a prepared
+ * response without any I/O.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientBenchmark {
+	private static final String RESPONSE = "{\"jsonrpc\":\"2.0\",\"result\":42,\"id\":1}";
+	private static final List<String> TAGS = Arrays.asList("red", "green", "blue");
+
+	private JsonRpcClient client;
+	private BenchmarkApi api;
+
+	@Setup
+	public void setup() {
+		Transport transport = new Transport() {
+			@Override
+			public String pass(String request) {
+				return RESPONSE;
+			}
+		};
+		this.client = new JsonRpcClient(transport, new ObjectMapper());
+		this.api = this.client.onDemand(BenchmarkApi.class);
+	}
+
+	@Benchmark
+	public Long requestBuilder() {
+		return this.client.createRequest()
+				.method(BenchmarkService.NAME + "#sum")
+				.id(1L)
+				.param("a", 40)
+				.param("b", 2)
+				.returnAs(Long.class)
+				.execute();
+	}
+
+	@Benchmark
+	public Integer requestBuilderPositional() {
+		return this.client.createRequest()
+				.method(BenchmarkService.NAME + "#describe")
+				.id(1L)
+				.params(42, "order-42", TAGS)
+				.returnAs(Integer.class)
+				.execute();
+	}
+
+	@Benchmark
+	public long objectApi() {
+		return this.api.sum(40, 2);
+	}
+
+	@Benchmark
+	public int objectApiList() {
+		return this.api.describe(42, "order-42", TAGS);
+	}
+}
@@ -0,0 +1,118 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.hk2.utilities.ServiceLocatorUtilities;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.inveed.jsonrpc.server.HK2JsonRpcServiceProvider;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
+import net.inveed.jsonrpc.server.servlet.Headers;
+import net.inveed.jsonrpc.server.servlet.JsonRpcCompressingOutputStream;
+import net.inveed.jsonrpc.server.servlet.JsonRpcRequestHandler;
+import net.inveed.jsonrpc.server.servlet.JsonRpcResponseWriter;
+import net.inveed.rest.jpa.jackson.JsonConfiguration;
+
+/**
+ * CPU cost of writing a batch response with and without compression.
+ * The "bytes" counter is the rate of bytes sent to the socket, divided by the
+ * rate of operations it gives the size of a response.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+	@Param({Headers.ENCODING_IDENTITY, Headers.ENCODING_GZIP, Headers.ENCODING_DEFLATE})
+	public String encoding;
+
+	@Param({"1", "6"})
+	public int level;
+
+	@Param({"10", "10000"})
+	public int batchSize;
+
+	@Param({"1024"})
+	public int threshold;
+
+	private JsonRpcResponseWriter writer;
+	private Object response;
+
+	/**
+	 * Counts written bytes instead of sending them
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Socket extends OutputStream {
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.bytes = 0;
+		}
+
+		@Override
+		public void write(int b) {
+			this.bytes++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			this.bytes += len;
+		}
+	}
+
+	@Setup
+	public void setup() {
+		HK2JsonRpcServiceProvider provider = new HK2JsonRpcServiceProvider();
+		provider.setServiceLocator(ServiceLocatorUtilities.createAndPopulateServiceLocator());
+		provider.registerService(BenchmarkService.NAME, BenchmarkService.class);
+
+		JsonConfiguration jsonConfig = new JsonConfiguration();
+		JsonRpcServerConfiguration configuration = new JsonRpcServerConfiguration();
+		configuration.setStreamingResponses(true);
+		JsonRpcRequestHandler handler = new JsonRpcRequestHandler(jsonConfig, provider, configuration);
+		this.writer = new JsonRpcResponseWriter(jsonConfig.getMapper());
+
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < this.batchSize; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"jsonrpc\":\"2.0\",\"method\":\"")
+				.append(BenchmarkService.NAME).append("#echo\",\"params\":{\"value\":\"order-")
+				.append(i).append(" status=SHIPPED customer=").append(i % 97).append("\"},\"id\":").append(i).append('}');
+		}
+		this.response = handler.handle(new ByteArrayInputStream(sb.append(']').toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Benchmark
+	public void write(Socket socket) throws IOException {
+		if (Headers.ENCODING_IDENTITY.equals(this.encoding)) {
+			this.writer.write(socket, this.response);
+			return;
+		}
+		JsonRpcCompressingOutputStream out = new JsonRpcCompressingOutputStream(socket, this.encoding, this.threshold, this.level, null);
+		this.writer.write(out, this.response);
+		out.finish();
+	}
+}
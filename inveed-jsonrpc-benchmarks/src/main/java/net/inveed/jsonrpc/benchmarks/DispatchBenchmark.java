@@ -0,0 +1,68 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.hk2.utilities.ServiceLocatorUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.inveed.jsonrpc.server.HK2JsonRpcServiceProvider;
+import net.inveed.jsonrpc.server.IJsonRpcServiceProvider;
+import net.inveed.jsonrpc.server.JsonRpcDispatchEntry;
+
+/**
+ * Compares resolving of a "service#method" name through the dispatch table
+ * with the per-call lookup (split and service instance, methods are shared per service class).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+	private static final String METHOD = BenchmarkService.NAME + "#counter";
+
+	private HK2JsonRpcServiceProvider provider;
+	private IJsonRpcServiceProvider lookupProvider;
+
+	@Setup
+	public void setup() {
+		this.provider = new HK2JsonRpcServiceProvider();
+		this.provider.setServiceLocator(ServiceLocatorUtilities.createAndPopulateServiceLocator());
+		this.provider.registerService(BenchmarkService.NAME, BenchmarkService.class);
+
+		// Same provider without a dispatch table: uses the default per-call lookup
+		this.lookupProvider = new IJsonRpcServiceProvider() {
+			@Override
+			public String getMethodName(String requestMethod) {
+				return provider.getMethodName(requestMethod);
+			}
+
+			@Override
+			public Object getService(String requestMethod) {
+				return provider.getService(requestMethod);
+			}
+		};
+	}
+
+	@Benchmark
+	public Object dispatchTable() {
+		JsonRpcDispatchEntry entry = this.provider.resolve(METHOD);
+		return entry.getServiceInstance();
+	}
+
+	@Benchmark
+	public Object perCallLookup() {
+		JsonRpcDispatchEntry entry = this.lookupProvider.resolve(METHOD);
+		return entry.getServiceInstance();
+	}
+}
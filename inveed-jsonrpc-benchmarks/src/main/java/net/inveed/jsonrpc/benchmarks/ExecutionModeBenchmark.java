@@ -0,0 +1,100 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.hk2.utilities.ServiceLocatorUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.inveed.jsonrpc.server.HK2JsonRpcServiceProvider;
+import net.inveed.jsonrpc.server.JsonRpcExecutionMode;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
+import net.inveed.jsonrpc.server.servlet.JsonRpcRequestHandler;
+import net.inveed.rest.jpa.jackson.JsonConfiguration;
+
+/**
+ * Throughput of batches of a sleep-bound method executed on a fixed pool of
+ * platform threads and on virtual threads. Several benchmark threads send
+ * batches at the same time, like concurrent HTTP clients.
+ *
+ * Virtual mode requires a JVM with virtual threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ExecutionModeBenchmark {
+
+	@Param({"platform", "virtual"})
+	public String mode;
+
+	@Param({"64"})
+	public int platformThreads;
+
+	@Param({"100"})
+	public int batchSize;
+
+	@Param({"10"})
+	public long sleepMs;
+
+	private ExecutorService platformExecutor;
+	private JsonRpcRequestHandler handler;
+	private byte[] request;
+
+	@Setup
+	public void setup() {
+		HK2JsonRpcServiceProvider provider = new HK2JsonRpcServiceProvider();
+		provider.setServiceLocator(ServiceLocatorUtilities.createAndPopulateServiceLocator());
+		provider.registerService(BenchmarkService.NAME, BenchmarkService.class);
+
+		JsonRpcServerConfiguration configuration = new JsonRpcServerConfiguration();
+		if ("virtual".equals(this.mode)) {
+			configuration.setExecutionMode(JsonRpcExecutionMode.VIRTUAL_THREADS);
+		} else {
+			this.platformExecutor = Executors.newFixedThreadPool(this.platformThreads);
+			configuration.setBatchExecutor(this.platformExecutor);
+		}
+		this.handler = new JsonRpcRequestHandler(new JsonConfiguration(), provider, configuration);
+
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < this.batchSize; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"jsonrpc\":\"2.0\",\"method\":\"")
+				.append(BenchmarkService.NAME).append("#sleep\",\"params\":[")
+				.append(this.sleepMs).append("],\"id\":").append(i).append('}');
+		}
+		this.request = sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (this.platformExecutor != null) {
+			this.platformExecutor.shutdownNow();
+		}
+	}
+
+	@Benchmark
+	public Object batch() {
+		return this.handler.handle(new ByteArrayInputStream(this.request));
+	}
+}
@@ -0,0 +1,70 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.inveed.jsonrpc.client.generator.AtomicLongIdGenerator;
+import net.inveed.jsonrpc.client.generator.CurrentTimeIdGenerator;
+import net.inveed.jsonrpc.client.generator.IdGenerator;
+import net.inveed.jsonrpc.client.generator.SecureRandomIntIdGenerator;
+import net.inveed.jsonrpc.client.generator.SecureRandomLongIdGenerator;
+import net.inveed.jsonrpc.client.generator.SecureRandomStringIdGenerator;
+
+/**
+ * Request id generators shared by several threads, as a generator of a proxy
+ * is shared by all the callers. Run with {@code -t 1} for the uncontended cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+
+	@Param({"atomicLong", "currentTime", "secureRandomInt", "secureRandomLong", "secureRandomString"})
+	public String generator;
+
+	private IdGenerator<?> idGenerator;
+
+	@Setup
+	public void setup() {
+		switch (this.generator) {
+		case "atomicLong":
+			this.idGenerator = new AtomicLongIdGenerator();
+			break;
+		case "currentTime":
+			this.idGenerator = new CurrentTimeIdGenerator();
+			break;
+		case "secureRandomInt":
+			this.idGenerator = new SecureRandomIntIdGenerator();
+			break;
+		case "secureRandomLong":
+			this.idGenerator = new SecureRandomLongIdGenerator();
+			break;
+		case "secureRandomString":
+			this.idGenerator = new SecureRandomStringIdGenerator();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown generator " + this.generator);
+		}
+	}
+
+	@Benchmark
+	public Object generate() {
+		return this.idGenerator.generate();
+	}
+}
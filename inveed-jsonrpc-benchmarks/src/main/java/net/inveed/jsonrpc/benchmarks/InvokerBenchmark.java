@@ -0,0 +1,68 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.inveed.jsonrpc.server.invoker.IJsonRpcMethodInvoker;
+import net.inveed.jsonrpc.server.invoker.LambdaInvokers;
+import net.inveed.jsonrpc.server.invoker.MethodHandleInvoker;
+import net.inveed.jsonrpc.server.invoker.ReflectiveInvoker;
+
+/**
+ * Invocation of a service method with converted arguments by the invokers,
+ * compared with a direct call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvokerBenchmark {
+	private BenchmarkService service;
+	private Object[] args;
+	private IJsonRpcMethodInvoker reflective;
+	private IJsonRpcMethodInvoker methodHandle;
+	private IJsonRpcMethodInvoker lambda;
+
+	@Setup
+	public void setup() throws Exception {
+		this.service = new BenchmarkService();
+		this.args = new Object[] { Long.valueOf(40), Long.valueOf(2) };
+		Method sum = BenchmarkService.class.getMethod("sum", long.class, long.class);
+		this.reflective = new ReflectiveInvoker(sum);
+		this.methodHandle = new MethodHandleInvoker(sum);
+		this.lambda = LambdaInvokers.create(sum);
+	}
+
+	@Benchmark
+	public Object direct() {
+		return this.service.sum((Long) this.args[0], (Long) this.args[1]);
+	}
+
+	@Benchmark
+	public Object reflective() throws Throwable {
+		return this.reflective.invoke(this.service, this.args);
+	}
+
+	@Benchmark
+	public Object methodHandle() throws Throwable {
+		return this.methodHandle.invoke(this.service, this.args);
+	}
+
+	@Benchmark
+	public Object lambda() throws Throwable {
+		return this.lambda.invoke(this.service, this.args);
+	}
+}
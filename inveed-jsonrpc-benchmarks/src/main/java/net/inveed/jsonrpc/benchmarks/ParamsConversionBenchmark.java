@@ -0,0 +1,71 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.hk2.utilities.ServiceLocatorUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.IntNode;
+
+import net.inveed.jsonrpc.core.domain.Request;
+import net.inveed.jsonrpc.server.HK2JsonRpcServiceProvider;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
+import net.inveed.jsonrpc.server.servlet.JsonRpcMethodInvocationHandler;
+import net.inveed.rest.jpa.jackson.JsonConfiguration;
+
+/**
+ * Conversion of JSON tree params to the method arguments with positional and
+ * named params. The request is parsed once, so an operation is the handling of
+ * a parsed request: filtering of the management params, resolving, conversion
+ * of the params, invocation and serialization of a scalar result.
+ * Conversion itself is private to {@link JsonRpcMethodInvocationHandler},
+ * the "describe" method makes it the dominant part.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParamsConversionBenchmark {
+	private static final String POSITIONAL = "[42, \"order-42\", [\"red\", \"green\", \"blue\"]]";
+	private static final String NAMED = "{\"id\": 42, \"name\": \"order-42\", \"tags\": [\"red\", \"green\", \"blue\"]}";
+
+	@Param({"positional", "named"})
+	public String params;
+
+	private JsonConfiguration jsonConfig;
+	private HK2JsonRpcServiceProvider provider;
+	private JsonRpcServerConfiguration configuration;
+	private Request request;
+
+	@Setup
+	public void setup() throws Exception {
+		this.provider = new HK2JsonRpcServiceProvider();
+		this.provider.setServiceLocator(ServiceLocatorUtilities.createAndPopulateServiceLocator());
+		this.provider.registerService(BenchmarkService.NAME, BenchmarkService.class);
+		this.jsonConfig = new JsonConfiguration();
+		this.configuration = new JsonRpcServerConfiguration();
+
+		ObjectMapper mapper = this.jsonConfig.getMapper();
+		JsonNode params = mapper.readTree("named".equals(this.params) ? NAMED : POSITIONAL);
+		this.request = new Request("2.0", BenchmarkService.NAME + "#describe", params, IntNode.valueOf(1));
+	}
+
+	@Benchmark
+	public Object convert() {
+		return new JsonRpcMethodInvocationHandler(this.jsonConfig, this.request, this.provider, this.configuration).handle();
+	}
+}
@@ -0,0 +1,23 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+
+/**
+ * Service injected with the HTTP request of the current JSON-RPC request
+ */
+@JsonRpcService(RequestContextService.NAME)
+public class RequestContextService {
+	public static final String NAME = "context";
+
+	@Inject
+	private HttpServletRequest request;
+
+	@JsonRpcMethod
+	public String remoteAddr() {
+		return this.request.getRemoteAddr();
+	}
+}
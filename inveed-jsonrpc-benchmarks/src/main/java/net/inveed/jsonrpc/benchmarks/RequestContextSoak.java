@@ -0,0 +1,252 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.glassfish.hk2.api.ServiceLocator;
+
+import net.inveed.jsonrpc.server.JsonRpcRequestScopeSingleton;
+import net.inveed.jsonrpc.server.servlet.JsonRpcServlet;
+
+/**
+ * Soak test of the per-request injection: sends many requests through
+ * {@link JsonRpcServlet} and periodically samples the used heap, the latency of
+ * {@link ServiceLocator#getService(Class)} and the number of
+ * {@link HttpServletRequest} descriptors. {@link #check(List)} fails if any of
+ * them grows between the first and the last sample beyond the bounds below.
+ *
+ * Every request checks that the injected {@link HttpServletRequest} is the
+ * request being handled.
+ *
+ * Usage: RequestContextSoak [requests] [report interval], exits with 1 if the check fails
+ */
+public class RequestContextSoak {
+	private static final int LOOKUPS = 10000;
+
+	/**
+	 * Max growth of the used heap after GC
+	 */
+	public static final long MAX_HEAP_GROWTH = 32L * 1024 * 1024;
+
+	/**
+	 * Max growth of the lookup latency: times the first sample, plus the absolute
+	 * slack for the timer and JIT noise of short samples
+	 */
+	public static final int MAX_LOOKUP_GROWTH_FACTOR = 4;
+	public static final long LOOKUP_SLACK_NANOS = 1000;
+
+	public static final class Sample {
+		public final long requests;
+		public final long heap;
+		public final long lookupNanos;
+		public final int descriptors;
+
+		Sample(long requests, long heap, long lookupNanos, int descriptors) {
+			this.requests = requests;
+			this.heap = heap;
+			this.lookupNanos = lookupNanos;
+			this.descriptors = descriptors;
+		}
+
+		@Override
+		public String toString() {
+			return this.requests + "\t" + this.heap / (1024 * 1024) + "\t" + this.lookupNanos + "\t" + this.descriptors;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		long total = args.length > 0 ? Long.parseLong(args[0]) : 2000000L;
+		long interval = args.length > 1 ? Long.parseLong(args[1]) : 100000L;
+
+		System.out.println("requests\theap, MB\tgetService, ns\tHttpServletRequest descriptors");
+		List<Sample> samples = run(total, interval, System.out::println);
+		try {
+			check(samples);
+		} catch (IllegalStateException e) {
+			System.out.println("FAILED: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Sends the requests through a new servlet
+	 *
+	 * @param total		number of requests
+	 * @param interval	number of requests between samples
+	 * @param listener	gets every sample as soon as it's taken
+	 * @return samples
+	 * @throws IllegalStateException if a service got a wrong HTTP request
+	 */
+	public static List<Sample> run(long total, long interval, Consumer<Sample> listener) throws Exception {
+		JsonRpcServlet servlet = new JsonRpcServlet();
+		servlet.getRpcServiceLocator().registerService(RequestContextService.NAME, RequestContextService.class);
+		ServiceLocator locator = servlet.getServiceLocator();
+		byte[] body = ("{\"jsonrpc\":\"2.0\",\"method\":\"" + RequestContextService.NAME + "#remoteAddr\",\"id\":1}")
+				.getBytes(StandardCharsets.UTF_8);
+
+		List<Sample> samples = new ArrayList<>();
+		for (long i = 1; i <= total; i++) {
+			String addr = "10.0." + ((i >> 8) & 0xff) + "." + (i & 0xff);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			servlet.service(request(body, addr), response(out));
+			String result = new String(out.toByteArray(), StandardCharsets.UTF_8);
+			if (!result.contains("\"" + addr + "\"")) {
+				throw new IllegalStateException("Request " + i + " got a wrong HTTP request: " + result);
+			}
+			if (i % interval == 0) {
+				Sample sample = sample(i, locator);
+				samples.add(sample);
+				listener.accept(sample);
+			}
+		}
+		return samples;
+	}
+
+	/**
+	 * Checks that the samples stay flat
+	 *
+	 * @throws IllegalStateException if a value grows beyond its bound
+	 */
+	public static void check(List<Sample> samples) {
+		if (samples.size() < 2) {
+			throw new IllegalStateException("At least two samples are needed");
+		}
+		Sample first = samples.get(0);
+		Sample last = samples.get(samples.size() - 1);
+		for (Sample s : samples) {
+			if (s.descriptors != first.descriptors) {
+				throw new IllegalStateException("HttpServletRequest descriptors changed from " + first.descriptors
+						+ " to " + s.descriptors + " after " + s.requests + " requests");
+			}
+		}
+		if (last.heap - first.heap > MAX_HEAP_GROWTH) {
+			throw new IllegalStateException("Used heap grew by " + (last.heap - first.heap) / 1024 + " KB, more than "
+					+ MAX_HEAP_GROWTH / 1024 + " KB");
+		}
+		long maxLookup = first.lookupNanos * MAX_LOOKUP_GROWTH_FACTOR + LOOKUP_SLACK_NANOS;
+		if (last.lookupNanos > maxLookup) {
+			throw new IllegalStateException("getService latency grew from " + first.lookupNanos + " ns to "
+					+ last.lookupNanos + " ns, more than " + maxLookup + " ns");
+		}
+	}
+
+	private static Sample sample(long requests, ServiceLocator locator) {
+		System.gc();
+		Runtime rt = Runtime.getRuntime();
+		long heap = rt.totalMemory() - rt.freeMemory();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < LOOKUPS; i++) {
+			locator.getService(JsonRpcRequestScopeSingleton.class);
+		}
+		long lookup = (System.nanoTime() - start) / LOOKUPS;
+
+		int descriptors = locator.getAllServiceHandles(HttpServletRequest.class).size();
+		return new Sample(requests, heap, lookup, descriptors);
+	}
+
+	private static HttpServletRequest request(byte[] body, String remoteAddr) {
+		final ServletInputStream in = new ServletInputStream() {
+			private final ByteArrayInputStream data = new ByteArrayInputStream(body);
+
+			@Override
+			public int read() throws IOException {
+				return this.data.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return this.data.read(b, off, len);
+			}
+
+			@Override
+			public boolean isFinished() {
+				return this.data.available() == 0;
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setReadListener(ReadListener readListener) {
+				throw new UnsupportedOperationException();
+			}
+		};
+		return (HttpServletRequest) Proxy.newProxyInstance(
+				RequestContextSoak.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class },
+				(proxy, method, margs) -> {
+					switch (method.getName()) {
+					case "getMethod":
+						return "POST";
+					case "getProtocol":
+						return "HTTP/1.1";
+					case "getInputStream":
+						return in;
+					case "getRemoteAddr":
+						return remoteAddr;
+					default:
+						return defaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private static HttpServletResponse response(ByteArrayOutputStream out) {
+		final ServletOutputStream os = new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+				throw new UnsupportedOperationException();
+			}
+		};
+		return (HttpServletResponse) Proxy.newProxyInstance(
+				RequestContextSoak.class.getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class },
+				(proxy, method, margs) -> {
+					if ("getOutputStream".equals(method.getName())) {
+						return os;
+					}
+					return defaultValue(method.getReturnType());
+				});
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == long.class) {
+			return 0L;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,84 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.hk2.utilities.ServiceLocatorUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.inveed.jsonrpc.server.HK2JsonRpcServiceProvider;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
+import net.inveed.jsonrpc.server.servlet.JsonRpcRequestHandler;
+import net.inveed.rest.jpa.jackson.JsonConfiguration;
+
+/**
+ * {@link JsonRpcRequestHandler#handle(java.io.InputStream)} from the request bytes
+ * to the response objects. A batch of size 1 is sent as a single request object,
+ * not as an array. Batch elements are executed sequentially.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestHandlerBenchmark {
+
+	@Param({"1", "10", "100", "1000"})
+	public int batchSize;
+
+	@Param({"false", "true"})
+	public boolean streamingRequests;
+
+	private JsonRpcRequestHandler handler;
+	private byte[] request;
+
+	@Setup
+	public void setup() {
+		HK2JsonRpcServiceProvider provider = new HK2JsonRpcServiceProvider();
+		provider.setServiceLocator(ServiceLocatorUtilities.createAndPopulateServiceLocator());
+		provider.registerService(BenchmarkService.NAME, BenchmarkService.class);
+
+		JsonRpcServerConfiguration configuration = new JsonRpcServerConfiguration();
+		configuration.setStreamingRequests(this.streamingRequests);
+		this.handler = new JsonRpcRequestHandler(new JsonConfiguration(), provider, configuration);
+
+		StringBuilder sb = new StringBuilder();
+		if (this.batchSize > 1) {
+			sb.append('[');
+		}
+		for (int i = 0; i < this.batchSize; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			// Named and positional params alternate
+			sb.append("{\"jsonrpc\":\"2.0\",\"method\":\"").append(BenchmarkService.NAME);
+			if (i % 2 == 0) {
+				sb.append("#sum\",\"params\":{\"a\":").append(i).append(",\"b\":").append(i * 31).append('}');
+			} else {
+				sb.append("#echo\",\"params\":[\"value-").append(i).append("\"]");
+			}
+			sb.append(",\"id\":").append(i).append('}');
+		}
+		if (this.batchSize > 1) {
+			sb.append(']');
+		}
+		this.request = sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public Object handle() {
+		return this.handler.handle(new ByteArrayInputStream(this.request));
+	}
+}
@@ -0,0 +1,39 @@
+package net.inveed.jsonrpc.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.benchmarks.RequestContextSoak.Sample;
+
+public class RequestContextSoakTest extends TestCase {
+	private static final long MB = 1024 * 1024;
+
+	/**
+	 * Shorter version of the soak, the descriptors, the heap and the lookup latency should stay flat
+	 */
+	public void testInjectionStaysFlat() throws Exception {
+		List<Sample> samples = RequestContextSoak.run(200000, 20000, s -> { });
+		assertEquals(10, samples.size());
+		RequestContextSoak.check(samples);
+	}
+
+	public void testCheckFailsOnGrowth() {
+		Sample first = new Sample(1000, 50 * MB, 100, 1);
+		RequestContextSoak.check(Arrays.asList(first, new Sample(2000, 60 * MB, 300, 1)));
+
+		assertCheckFails(first, new Sample(2000, 50 * MB, 100, 2));
+		assertCheckFails(first, new Sample(2000, 50 * MB + RequestContextSoak.MAX_HEAP_GROWTH + 1, 100, 1));
+		assertCheckFails(first, new Sample(2000, 50 * MB, 100 * RequestContextSoak.MAX_LOOKUP_GROWTH_FACTOR
+				+ RequestContextSoak.LOOKUP_SLACK_NANOS + 1, 1));
+	}
+
+	private static void assertCheckFails(Sample first, Sample last) {
+		try {
+			RequestContextSoak.check(Arrays.asList(first, last));
+			fail("Check should fail for " + last);
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package net.inveed.jsonrpc.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Transport, which passes JSON-RPC messages without blocking the calling thread.
+ * The deadline and the trace parent of a call are available through
+ * {@link net.inveed.jsonrpc.core.deadline.Deadline#getCurrent()} and
+ * {@link net.inveed.jsonrpc.core.trace.TraceParent#getCurrent()} when {@link #passAsync} is called, not in the callbacks.
+ *
+ * Builders use other transports asynchronously through {@link net.inveed.jsonrpc.client.transport.ExecutorAsyncTransport},
+ * which takes an executor thread for every outstanding call. Only implementations of this interface,
+ * e.g. {@link net.inveed.jsonrpc.client.transport.SocketTransport}, wait for responses without a thread per call.
+ */
+public interface AsyncTransport extends StreamingTransport {
+
+    /**
+     * Passes a JSON-RPC request to a backend. The writer and the reader may be
+     * called in other threads, the reader is called when the response is available.
+     *
+     * @param request  writer of the request
+     * @param response reader of the response, it gets an empty stream if the backend returned no content
+     * @param <T>      type of the read response
+     * @return future completed with the response returned by the reader,
+     * or completed exceptionally with an {@link IOException} when cannot send request
+     */
+    <T> CompletableFuture<T> passAsync(RequestWriter request, ResponseReader<T> response);
+
+    /**
+     * Passes a request and waits for the response
+     */
+    @Override
+    default <T> T pass(RequestWriter request, ResponseReader<T> response) throws IOException {
+        try {
+            return passAsync(request, response).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
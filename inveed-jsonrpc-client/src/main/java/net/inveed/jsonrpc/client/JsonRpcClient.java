@@ -3,12 +3,16 @@ package net.inveed.jsonrpc.client;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import net.inveed.jsonrpc.client.builder.BatchRequestBuilder;
+import net.inveed.jsonrpc.client.builder.CallBatcher;
 import net.inveed.jsonrpc.client.builder.NotificationRequestBuilder;
 import net.inveed.jsonrpc.client.builder.ObjectApiBuilder;
 import net.inveed.jsonrpc.client.builder.RequestBuilder;
 import net.inveed.jsonrpc.client.generator.IdGenerator;
+import net.inveed.jsonrpc.client.transport.ExecutorAsyncTransport;
 
 import java.lang.reflect.Proxy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JSON-RPC client. Represents a factory for a fluent client API {@link net.inveed.jsonrpc.client.builder.RequestBuilder}.
@@ -46,6 +50,20 @@ public class JsonRpcClient {
         this.mapper = mapper;
     }
 
+    /**
+     * Constructs a new JSON-RPC client, which executes asynchronous calls through a blocking
+     * transport by the specified executor instead of the shared unbounded pool.
+     * Every outstanding asynchronous call takes a thread of the executor, unless the transport
+     * is an {@link AsyncTransport}, which is used as is.
+     *
+     * @param transport     transport implementation
+     * @param mapper        JSON mapper
+     * @param asyncExecutor executor of asynchronous calls, e.g. a fixed pool with a bounded queue
+     */
+    public JsonRpcClient( Transport transport,  ObjectMapper mapper,  Executor asyncExecutor) {
+        this(transport instanceof AsyncTransport ? transport : new ExecutorAsyncTransport(transport, asyncExecutor), mapper);
+    }
+
     /**
      * Creates a builder of a JSON-RPC request in initial state
      *
@@ -90,6 +108,56 @@ public class JsonRpcClient {
                 new ObjectApiBuilder(clazz, transport, mapper, null, null));
     }
 
+    /**
+     * Creates a new proxy for accessing a remote JSON-RPC service through an interface
+     * with a timeout of every call
+     *
+     * @param clazz   interface metadata
+     * @param timeout timeout of a call, 0 for no timeout
+     * @param unit    unit of the timeout
+     * @param <T>     interface type
+     * @return a new proxy
+     */
+    @SuppressWarnings("unchecked")
+
+    public <T> T onDemand( Class<T> clazz, long timeout, TimeUnit unit) {
+        ObjectApiBuilder builder = new ObjectApiBuilder(clazz, transport, mapper, null, null);
+        builder.setTimeout(timeout, unit);
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{clazz}, builder);
+    }
+
+    /**
+     * Creates a batcher, which sends concurrent calls through the transport of the client in batches
+     *
+     * @param window   max time between the first call of a batch and sending it
+     * @param unit     unit of the window
+     * @param maxCalls max number of calls in a batch
+     * @param maxBytes max size of a batch in bytes
+     * @return a new batcher
+     */
+
+    public CallBatcher createBatcher(long window, TimeUnit unit, int maxCalls, int maxBytes) {
+        return new CallBatcher(transport, mapper, window, unit, maxCalls, maxBytes);
+    }
+
+    /**
+     * Creates a new proxy for accessing a remote JSON-RPC service through an interface,
+     * which sends calls in batches. Calls issued concurrently through proxies sharing the batcher
+     * are sent together, each call gets its own result or error.
+     *
+     * @param clazz   interface metadata
+     * @param batcher batcher of the calls, see {@link #createBatcher}
+     * @param <T>     interface type
+     * @return a new proxy
+     */
+    @SuppressWarnings("unchecked")
+
+    public <T> T onDemand( Class<T> clazz, CallBatcher batcher) {
+        ObjectApiBuilder builder = new ObjectApiBuilder(clazz, transport, mapper, null, null);
+        builder.setBatcher(batcher);
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{clazz}, builder);
+    }
+
     /**
      * Creates a new proxy for accessing a remote JSON-RPC service through an interface
      * with a custom id generator that overrides the interface generator.
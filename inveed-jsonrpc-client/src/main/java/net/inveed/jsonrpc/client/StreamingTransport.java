@@ -0,0 +1,129 @@
+package net.inveed.jsonrpc.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Transport, which passes JSON-RPC messages as UTF-8 bytes without building strings.
+ * A request is written directly into a stream supplied by the transport and
+ * a response is read directly from a stream of the transport.
+ *
+ * Transports based on NIO channels and buffers can adapt them with
+ * {@link java.nio.channels.Channels#newOutputStream} and {@link java.nio.channels.Channels#newInputStream}.
+ * Text transports, which implement only {@link Transport}, are still supported by the builders.
+ *
+ * A transport sending messages in a binary format (e.g. Smile or CBOR) passes the Jackson factory
+ * of the format to the writer and the reader, so they generate and parse the format directly.
+ */
+public interface StreamingTransport extends Transport {
+
+    /**
+     * Writes a request to a backend
+     */
+    public interface RequestWriter {
+
+        /**
+         * @param out stream of the transport, shouldn't be closed by the writer
+         * @throws IOException when cannot write the request
+         */
+        void writeTo(OutputStream out) throws IOException;
+
+        /**
+         * Writes a request in a wire format. The default implementation writes
+         * JSON into a buffer and converts it token by token, writers able to
+         * generate the format should override it.
+         *
+         * @param out     stream of the transport, shouldn't be closed by the writer
+         * @param factory Jackson factory of the format
+         * @throws IOException when cannot write the request
+         */
+        default void writeTo(OutputStream out, JsonFactory factory) throws IOException {
+            ByteArrayOutputStream json = new ByteArrayOutputStream();
+            writeTo(json);
+            try (JsonParser p = new JsonFactory().createParser(json.toByteArray());
+                 JsonGenerator g = factory.createGenerator(out)) {
+                g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                while (p.nextToken() != null) {
+                    g.copyCurrentEvent(p);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a response of a backend
+     *
+     * @param <T> type of the read response
+     */
+    public interface ResponseReader<T> {
+
+        /**
+         * @param in stream of the transport, shouldn't be closed by the reader
+         * @return read response
+         * @throws IOException when cannot read the response
+         */
+        T readFrom(InputStream in) throws IOException;
+
+        /**
+         * Reads a response in a wire format. The default implementation converts
+         * it to JSON token by token into a buffer, readers able to parse
+         * the format should override it.
+         *
+         * @param in      stream of the transport, shouldn't be closed by the reader
+         * @param factory Jackson factory of the format
+         * @return read response
+         * @throws IOException when cannot read the response
+         */
+        default T readFrom(InputStream in, JsonFactory factory) throws IOException {
+            ByteArrayOutputStream json = new ByteArrayOutputStream();
+            try (JsonParser p = factory.createParser(in);
+                 JsonGenerator g = new JsonFactory().createGenerator(json)) {
+                p.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+                while (p.nextToken() != null) {
+                    g.copyCurrentEvent(p);
+                }
+            }
+            return readFrom(new ByteArrayInputStream(json.toByteArray()));
+        }
+    }
+
+    /**
+     * Passes a JSON-RPC request to a backend and reads a JSON-RPC response
+     *
+     * @param request  writer of the request
+     * @param response reader of the response, it gets an empty stream if the backend returned no content
+     * @param <T>      type of the read response
+     * @return response returned by the reader
+     * @throws IOException when cannot send request
+     */
+    <T> T pass(RequestWriter request, ResponseReader<T> response) throws IOException;
+
+    @Override
+    default String pass(final String request) throws IOException {
+        return pass(new RequestWriter() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(request.getBytes(StandardCharsets.UTF_8));
+            }
+        }, new ResponseReader<String>() {
+            @Override
+            public String readFrom(InputStream in) throws IOException {
+                ByteArrayOutputStream ret = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int len;
+                while ((len = in.read(buffer)) != -1) {
+                    ret.write(buffer, 0, len);
+                }
+                return new String(ret.toByteArray(), StandardCharsets.UTF_8);
+            }
+        });
+    }
+}
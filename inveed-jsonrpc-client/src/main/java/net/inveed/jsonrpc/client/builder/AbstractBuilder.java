@@ -1,14 +1,32 @@
 package net.inveed.jsonrpc.client.builder;
 
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.ValueNode;
 
+import net.inveed.jsonrpc.client.AsyncTransport;
+import net.inveed.jsonrpc.client.StreamingTransport;
 import net.inveed.jsonrpc.client.Transport;
+import net.inveed.jsonrpc.client.exception.JsonRpcException;
+import net.inveed.jsonrpc.client.transport.ExecutorAsyncTransport;
+import net.inveed.jsonrpc.core.deadline.Deadline;
+import net.inveed.jsonrpc.core.domain.ErrorMessage;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Abstract builder for JSON-RPC requests
@@ -24,8 +42,11 @@ public class AbstractBuilder {
     protected static final String METHOD = "method";
     protected static final String PARAMS = "params";
 
+    private static final ErrorMessage DEADLINE_EXCEEDED = new ErrorMessage(-32002, "Deadline exceeded");
+
     /**
-     * Transport for performing a text request and returning a text response
+     * Transport for performing a request and returning a response.
+     * If it's a {@link StreamingTransport}, messages are passed as bytes, otherwise as strings.
      */
     
     protected final Transport transport;
@@ -36,6 +57,11 @@ public class AbstractBuilder {
     
     protected final ObjectMapper mapper;
 
+    /**
+     * Asynchronous view of the transport, created on the first asynchronous call
+     */
+    private volatile AsyncTransport asyncTransport;
+
     public AbstractBuilder( Transport transport,  ObjectMapper mapper) {
         this.transport = transport;
         this.mapper = mapper;
@@ -94,4 +120,204 @@ public class AbstractBuilder {
         }
         return requestNode;
     }
+
+    /**
+     * Computes the deadline of a call: the timeout of the call or the deadline
+     * inherited from the call handled by the current thread, whichever is earlier
+     *
+     * @param timeoutNanos timeout of the call in nanoseconds, 0 for no timeout
+     * @return deadline or null if the call has no deadline
+     * @throws JsonRpcException if the deadline has already passed
+     */
+    protected static Deadline deadline(long timeoutNanos) {
+        Deadline deadline = Deadline.getCurrent();
+        if (timeoutNanos > 0) {
+            deadline = Deadline.after(timeoutNanos, TimeUnit.NANOSECONDS).min(deadline);
+        }
+        if (deadline != null && deadline.isExpired()) {
+            throw new JsonRpcException(DEADLINE_EXCEEDED);
+        }
+        return deadline;
+    }
+
+    /**
+     * Adds the deadline to object params as the {@link Deadline#PARAM} management param.
+     * Array params cannot carry it, the transport sends it then, e.g. as a header.
+     *
+     * @param params   request params
+     * @param deadline deadline or null
+     * @return params to send
+     */
+    protected JsonNode withDeadline(JsonNode params, Deadline deadline) {
+        if (deadline == null || !params.isObject()) {
+            return params;
+        }
+        ObjectNode ret = ((ObjectNode) params).deepCopy();
+        ret.put(Deadline.PARAM, deadline.toString());
+        return ret;
+    }
+
+    /**
+     * Passes a request through the transport. The deadline is available to
+     * the transport through {@link Deadline#getCurrent()}.
+     *
+     * @param request  request as a string
+     * @param deadline deadline or null
+     * @return response as a string
+     * @throws IOException when cannot send request
+     */
+    protected String pass(String request, Deadline deadline) throws IOException {
+        if (deadline == null) {
+            return transport.pass(request);
+        }
+        Deadline previous = Deadline.getCurrent();
+        Deadline.setCurrent(deadline);
+        try {
+            return transport.pass(request);
+        } finally {
+            Deadline.setCurrent(previous);
+        }
+    }
+
+    /**
+     * Passes a request through the transport and parses a response.
+     * A {@link StreamingTransport} gets the request serialized directly into its stream
+     * and the response is parsed directly from its stream, without intermediate strings.
+     *
+     * @param request  request as a JSON tree
+     * @param deadline deadline or null
+     * @return response as a JSON tree, null if the response is empty
+     * @throws IllegalArgumentException if the request cannot be converted to JSON
+     * @throws IOException              when cannot send request or parse a response
+     */
+    protected JsonNode pass(JsonNode request, Deadline deadline) throws IOException {
+        if (!(transport instanceof StreamingTransport)) {
+            return mapper.readTree(pass(toJson(request), deadline));
+        }
+        StreamingTransport streamingTransport = (StreamingTransport) transport;
+        StreamingTransport.RequestWriter writer = writer(request);
+        StreamingTransport.ResponseReader<JsonNode> reader = reader();
+        if (deadline == null) {
+            return streamingTransport.pass(writer, reader);
+        }
+        Deadline previous = Deadline.getCurrent();
+        Deadline.setCurrent(deadline);
+        try {
+            return streamingTransport.pass(writer, reader);
+        } finally {
+            Deadline.setCurrent(previous);
+        }
+    }
+
+    /**
+     * Passes a request through the transport without blocking and parses a response.
+     * A transport, which isn't an {@link AsyncTransport}, is called by {@link ExecutorAsyncTransport},
+     * so the call still takes a thread of its executor until the response is read.
+     *
+     * @param request  request as a JSON tree
+     * @param deadline deadline or null
+     * @return future of the response as a JSON tree, null if the response is empty;
+     * it fails with {@link IllegalArgumentException} if the request cannot be converted to JSON
+     * and with {@link IllegalStateException} if the request or the response processing failed
+     */
+    protected CompletableFuture<JsonNode> passAsync(JsonNode request, Deadline deadline) {
+        return passAsync(writer(request), deadline);
+    }
+
+    CompletableFuture<JsonNode> passAsync(StreamingTransport.RequestWriter writer, Deadline deadline) {
+        AsyncTransport asyncTransport = asyncTransport();
+        CompletableFuture<JsonNode> response;
+        Deadline previous = Deadline.getCurrent();
+        Deadline.setCurrent(deadline);
+        try {
+            response = asyncTransport.passAsync(writer, reader());
+        } catch (RuntimeException e) {
+            return failed(e);
+        } finally {
+            Deadline.setCurrent(previous);
+        }
+        final CompletableFuture<JsonNode> ret = new CompletableFuture<JsonNode>();
+        response.whenComplete((result, e) -> {
+            if (e == null) {
+                ret.complete(result);
+                return;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof JsonProcessingException && !(cause instanceof JsonGenerationException)) {
+                ret.completeExceptionally(new IllegalStateException("Unable parse a JSON response", cause));
+            } else if (cause instanceof IOException) {
+                ret.completeExceptionally(new IllegalStateException("I/O error during a request processing", cause));
+            } else {
+                ret.completeExceptionally(cause);
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * @return the transport if it's asynchronous, otherwise an adapter executing its calls
+     * by the shared pool of {@link ExecutorAsyncTransport}
+     */
+    private AsyncTransport asyncTransport() {
+        AsyncTransport ret = asyncTransport;
+        if (ret == null) {
+            ret = transport instanceof AsyncTransport ? (AsyncTransport) transport : new ExecutorAsyncTransport(transport);
+            asyncTransport = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * @param e exception
+     * @return future completed exceptionally
+     */
+    protected static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> ret = new CompletableFuture<T>();
+        ret.completeExceptionally(e);
+        return ret;
+    }
+
+    private StreamingTransport.RequestWriter writer(final JsonNode request) {
+        return new StreamingTransport.RequestWriter() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                writeTo(out, mapper.getFactory());
+            }
+
+            @Override
+            public void writeTo(OutputStream out, JsonFactory factory) throws IOException {
+                try (JsonGenerator generator = factory.createGenerator(out)) {
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    mapper.writeValue(generator, request);
+                } catch (JsonGenerationException | JsonMappingException e) {
+                    throw new IllegalArgumentException("Unable convert " + request + " to JSON", e);
+                }
+            }
+        };
+    }
+
+    private StreamingTransport.ResponseReader<JsonNode> reader() {
+        return new StreamingTransport.ResponseReader<JsonNode>() {
+            @Override
+            public JsonNode readFrom(InputStream in) throws IOException {
+                return readFrom(in, mapper.getFactory());
+            }
+
+            @Override
+            public JsonNode readFrom(InputStream in, JsonFactory factory) throws IOException {
+                try (JsonParser parser = factory.createParser(in)) {
+                    parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+                    return mapper.readTree(parser);
+                }
+            }
+        };
+    }
+
+    private String toJson(JsonNode request) {
+        try {
+            return mapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable convert " + request + " to JSON", e);
+        }
+    }
 }
@@ -17,6 +17,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 
@@ -58,6 +60,12 @@ public class BatchRequestBuilder<K, V> extends AbstractBuilder {
 
     private final JavaType returnType;
 
+    /**
+     * Timeout of the batch in nanoseconds, 0 for no timeout
+     */
+
+    private long timeoutNanos;
+
     /**
      * Creates a new batch request builder in an initial state
      *
@@ -412,7 +420,8 @@ public class BatchRequestBuilder<K, V> extends AbstractBuilder {
      * @return a new builder
      */
     public <NK> BatchRequestBuilder<NK, V> keysType( Class<NK> keysClass) {
-        return new BatchRequestBuilder<NK, V>(transport, mapper, requests, returnTypes, keysClass, returnType);
+        return new BatchRequestBuilder<NK, V>(transport, mapper, requests, returnTypes, keysClass, returnType)
+                .timeoutNanos(timeoutNanos);
     }
 
     /**
@@ -426,7 +435,7 @@ public class BatchRequestBuilder<K, V> extends AbstractBuilder {
     @SuppressWarnings("deprecation")
 	public <NV> BatchRequestBuilder<K, NV> returnType( Class<NV> valuesClass) {
         return new BatchRequestBuilder<K, NV>(transport, mapper, requests, returnTypes, keysType,
-                SimpleType.construct(valuesClass));
+                SimpleType.construct(valuesClass)).timeoutNanos(timeoutNanos);
     }
 
     /**
@@ -438,7 +447,24 @@ public class BatchRequestBuilder<K, V> extends AbstractBuilder {
      */
     public <NV> BatchRequestBuilder<K, NV> returnType( TypeReference<NV> tr) {
         return new BatchRequestBuilder<K, NV>(transport, mapper, requests, returnTypes, keysType,
-                mapper.constructType(tr.getType()));
+                mapper.constructType(tr.getType())).timeoutNanos(timeoutNanos);
+    }
+
+    /**
+     * Sets a timeout of the batch. All the requests of the batch share the deadline:
+     * the server doesn't start the requests and cancels running ones after it.
+     *
+     * @param timeout timeout, 0 for no timeout
+     * @param unit    unit of the timeout
+     * @return the current builder
+     */
+    public BatchRequestBuilder<K, V> timeout(long timeout, TimeUnit unit) {
+        return timeoutNanos(unit.toNanos(timeout));
+    }
+
+    private BatchRequestBuilder<K, V> timeoutNanos(long timeoutNanos) {
+        this.timeoutNanos = timeoutNanos;
+        return this;
     }
 
     /**
@@ -449,8 +475,25 @@ public class BatchRequestBuilder<K, V> extends AbstractBuilder {
     
     public Map<K, V> execute() {
         validateRequest();
-        String textResponse = executeRequest();
-        return processBatchResponse(textResponse);
+        JsonNode response = executeRequest();
+        return processBatchResponse(response);
+    }
+
+    /**
+     * Validates, executes the request without blocking and process response
+     *
+     * @return future of map of responses by request ids. It fails with {@link JsonRpcBatchException}
+     * if some of the requests failed
+     */
+
+    public CompletableFuture<Map<K, V>> executeAsync() {
+        try {
+            validateRequest();
+            return passAsync(mapper.createArrayNode().addAll(requests), deadline(timeoutNanos))
+                    .thenApply(this::processBatchResponse);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
     }
 
     /**
@@ -481,12 +524,14 @@ public class BatchRequestBuilder<K, V> extends AbstractBuilder {
     /**
      * Executes the request through the transport
      *
-     * @return backend response as a string
+     * @return backend response as a JSON tree, null if it's empty
      */
     
-    private String executeRequest() {
+    private JsonNode executeRequest() {
         try {
-            return transport.pass(mapper.writeValueAsString(requests));
+            return pass(mapper.createArrayNode().addAll(requests), deadline(timeoutNanos));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable parse a JSON response", e);
         } catch (IOException e) {
             throw new IllegalStateException("I/O error during a request processing", e);
         }
@@ -495,23 +540,26 @@ public class BatchRequestBuilder<K, V> extends AbstractBuilder {
     /**
      * Processes JSON-RPC batch response
      *
-     * @param textResponse response as a string
+     * @param jsonResponses response as a JSON tree
      * @return map of responses (Java objects) by request ids
      */
     
     @SuppressWarnings("unchecked")
-    private Map<K, V> processBatchResponse( String textResponse) {
+    private Map<K, V> processBatchResponse( JsonNode jsonResponses) {
         Map<Object, Object> successes = new HashMap<Object, Object>();
         Map<Object, ErrorMessage> errors = new HashMap<Object, ErrorMessage>();
         List<?> requestIds = requestIds();
 
         try {
-            JsonNode jsonResponses = mapper.readTree(textResponse);
             // If it's an empty response
-            if (jsonResponses.isTextual() && jsonResponses.asText().isEmpty() && requestIds.isEmpty()) {
+            if ((jsonResponses == null || jsonResponses.isTextual() && jsonResponses.asText().isEmpty())
+                    && requestIds.isEmpty()) {
                 return new HashMap<K, V>();
             }
             // Not an array
+            if (jsonResponses == null) {
+                throw new IllegalStateException("Expected array but the response is empty");
+            }
             if (jsonResponses.getNodeType() != JsonNodeType.ARRAY) {
                 throw new IllegalStateException("Expected array but was " + jsonResponses.getNodeType());
             }
@@ -519,8 +567,8 @@ public class BatchRequestBuilder<K, V> extends AbstractBuilder {
             for (JsonNode responseNode : (ArrayNode) jsonResponses) {
                 processSingleResponse(responseNode, requestIds, successes, errors);
             }
-        } catch (IOException e) {
-            throw new IllegalStateException("Unable parse a JSON response: " + textResponse, e);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable parse a JSON response: " + jsonResponses, e);
         }
         if (!errors.isEmpty()) {
             throw new JsonRpcBatchException("Errors happened during batch request processing", successes, errors);
@@ -0,0 +1,276 @@
+package net.inveed.jsonrpc.client.builder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+
+import net.inveed.jsonrpc.client.StreamingTransport;
+import net.inveed.jsonrpc.client.Transport;
+import net.inveed.jsonrpc.core.deadline.Deadline;
+import net.inveed.jsonrpc.core.trace.TraceParent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects requests issued concurrently, e.g. through proxies of {@link ObjectApiBuilder},
+ * and sends them as JSON-RPC batch requests.
+ * A batch is sent when the window since its first request is over, or when it reaches
+ * the max number of requests or the max size. Responses are routed back to the requests by ids,
+ * so every caller gets its own result or error.
+ *
+ * A request with the same id as another request of the current batch starts a new batch.
+ * The transport gets the latest deadline of the requests in a batch, the deadlines of
+ * the requests with object params are sent in the params as usual.
+ * The transport gets the trace parent of the calling threads if all the requests
+ * of a batch share it, otherwise the batch is sent without it.
+ */
+public class CallBatcher extends AbstractBuilder {
+
+    private static final class SchedulerHolder {
+        private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "jsonrpc-client-batcher");
+            t.setDaemon(true);
+            return t;
+        });
+
+        static {
+            SCHEDULER.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    private static final class Call {
+        private final byte[] request;
+        private final Deadline deadline;
+        private final TraceParent traceParent = TraceParent.getCurrent();
+        private final CompletableFuture<JsonNode> response = new CompletableFuture<JsonNode>();
+
+        private Call(byte[] request, Deadline deadline) {
+            this.request = request;
+            this.deadline = deadline;
+        }
+    }
+
+    private static final class Batch {
+        /**
+         * Calls by ids in the JSON form
+         */
+        private final Map<String, Call> calls = new LinkedHashMap<String, Call>();
+        private int size;
+        private ScheduledFuture<?> timer;
+    }
+
+    private final long windowNanos;
+    private final int maxCalls;
+    private final int maxBytes;
+
+    /**
+     * Batch collecting requests, guarded by this
+     */
+    private Batch current;
+
+    /**
+     * @param transport transport for sending batches
+     * @param mapper    mapper for JSON processing
+     * @param window    max time between the first request of a batch and sending it
+     * @param unit      unit of the window
+     * @param maxCalls  max number of requests in a batch
+     * @param maxBytes  max size of a batch in bytes, a bigger request is sent alone
+     */
+    public CallBatcher(Transport transport, ObjectMapper mapper, long window, TimeUnit unit, int maxCalls, int maxBytes) {
+        super(transport, mapper);
+        if (window < 0) {
+            throw new IllegalArgumentException("Window should not be negative");
+        }
+        if (maxCalls < 1) {
+            throw new IllegalArgumentException("Max number of calls should be positive");
+        }
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Max size should be positive");
+        }
+        this.windowNanos = unit.toNanos(window);
+        this.maxCalls = maxCalls;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Adds a request to the current batch
+     *
+     * @param request  request with an id
+     * @param deadline deadline of the request or null
+     * @return future of the response to the request
+     * @throws IllegalArgumentException if the request has no id or cannot be converted to JSON
+     */
+    public CompletableFuture<JsonNode> submit(ObjectNode request, Deadline deadline) {
+        JsonNode id = request.get(ID);
+        if (id == null) {
+            throw new IllegalArgumentException("Only requests with ids can be batched");
+        }
+        String key = key(id);
+        Call call;
+        try {
+            call = new Call(mapper.writeValueAsBytes(request), deadline);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable convert " + request + " to JSON", e);
+        }
+
+        Batch full = null;
+        Batch sent = null;
+        synchronized (this) {
+            if (current != null && (current.calls.containsKey(key) || current.size + call.request.length + 1 > maxBytes)) {
+                full = current;
+                current = null;
+            }
+            if (current == null) {
+                final Batch batch = new Batch();
+                batch.timer = SchedulerHolder.SCHEDULER.schedule(() -> flush(batch), windowNanos, TimeUnit.NANOSECONDS);
+                current = batch;
+            }
+            current.calls.put(key, call);
+            current.size += call.request.length + 1;
+            if (current.calls.size() >= maxCalls || current.size >= maxBytes) {
+                sent = current;
+                current = null;
+            }
+        }
+        send(full);
+        send(sent);
+        return call.response;
+    }
+
+    /**
+     * Sends the batch if it's still collecting requests, called when the window is over
+     */
+    private void flush(Batch batch) {
+        synchronized (this) {
+            if (current != batch) {
+                return;
+            }
+            current = null;
+        }
+        send(batch);
+    }
+
+    private void send(final Batch batch) {
+        if (batch == null) {
+            return;
+        }
+        batch.timer.cancel(false);
+
+        Deadline deadline = null;
+        for (Call call : batch.calls.values()) {
+            if (call.deadline == null) {
+                deadline = null;
+                break;
+            }
+            if (deadline == null || call.deadline.getRemaining(TimeUnit.NANOSECONDS) > deadline.getRemaining(TimeUnit.NANOSECONDS)) {
+                deadline = call.deadline;
+            }
+        }
+
+        // The trace of the calling threads is continued only if all the calls share it
+        Iterator<Call> calls = batch.calls.values().iterator();
+        TraceParent traceParent = calls.next().traceParent;
+        while (traceParent != null && calls.hasNext()) {
+            if (!traceParent.equals(calls.next().traceParent)) {
+                traceParent = null;
+            }
+        }
+
+        CompletableFuture<JsonNode> sent;
+        TraceParent previous = TraceParent.getCurrent();
+        TraceParent.setCurrent(traceParent);
+        try {
+            sent = passAsync(new StreamingTransport.RequestWriter() {
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    // A single request is sent as is
+                    boolean array = batch.calls.size() > 1;
+                    if (array) {
+                        out.write('[');
+                    }
+                    boolean first = true;
+                    for (Call call : batch.calls.values()) {
+                        if (!first) {
+                            out.write(',');
+                        }
+                        out.write(call.request);
+                        first = false;
+                    }
+                    if (array) {
+                        out.write(']');
+                    }
+                }
+
+                @Override
+                public void writeTo(OutputStream out, JsonFactory factory) throws IOException {
+                    // The serialized calls are copied into the wire format token by token
+                    try (JsonGenerator generator = factory.createGenerator(out)) {
+                        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                        boolean array = batch.calls.size() > 1;
+                        if (array) {
+                            generator.writeStartArray();
+                        }
+                        for (Call call : batch.calls.values()) {
+                            try (JsonParser parser = mapper.getFactory().createParser(call.request)) {
+                                parser.nextToken();
+                                generator.copyCurrentStructure(parser);
+                            }
+                        }
+                        if (array) {
+                            generator.writeEndArray();
+                        }
+                    }
+                }
+            }, deadline);
+        } finally {
+            TraceParent.setCurrent(previous);
+        }
+        sent.whenComplete((response, e) -> {
+            if (e != null) {
+                for (Call call : batch.calls.values()) {
+                    call.response.completeExceptionally(e);
+                }
+            } else if (response != null && response.isArray()) {
+                for (JsonNode responseNode : response) {
+                    JsonNode id = responseNode.get(ID);
+                    Call call = id == null ? null : batch.calls.remove(key(id));
+                    if (call != null) {
+                        call.response.complete(responseNode);
+                    }
+                }
+                for (Map.Entry<String, Call> call : batch.calls.entrySet()) {
+                    call.getValue().response.completeExceptionally(
+                            new IllegalStateException("No response to the request with id " + call.getKey()));
+                }
+            } else {
+                // A response to a single request or an error of the whole batch
+                for (Call call : batch.calls.values()) {
+                    call.response.complete(response);
+                }
+            }
+        });
+    }
+
+    /**
+     * Ids of requests and responses are compared in the JSON form, e.g. 1 and "1" differ
+     */
+    private String key(JsonNode id) {
+        if (id instanceof POJONode) {
+            return mapper.valueToTree(((POJONode) id).getPojo()).toString();
+        }
+        return id.toString();
+    }
+}
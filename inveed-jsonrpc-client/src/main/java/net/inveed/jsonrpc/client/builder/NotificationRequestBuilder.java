@@ -2,6 +2,9 @@ package net.inveed.jsonrpc.client.builder;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import net.inveed.jsonrpc.client.Transport;
 
 /**
@@ -71,6 +74,17 @@ public class NotificationRequestBuilder {
         return new NotificationRequestBuilder(requestBuilder.params(values));
     }
 
+    /**
+     * Sets a timeout of the request, after which the server doesn't start the call
+     *
+     * @param timeout timeout, 0 for no timeout
+     * @param unit    unit of the timeout
+     * @return new builder
+     */
+    public NotificationRequestBuilder timeout(long timeout, TimeUnit unit) {
+        return new NotificationRequestBuilder(requestBuilder.timeout(timeout, unit));
+    }
+
     /**
      * Execute a request through {@link Transport}
      */
@@ -78,4 +92,13 @@ public class NotificationRequestBuilder {
         requestBuilder.executeRequest();
     }
 
+    /**
+     * Execute a request through {@link Transport} without blocking
+     *
+     * @return future completed when the request is passed
+     */
+    public CompletableFuture<Void> executeAsync() {
+        return requestBuilder.executeRequestAsync().thenApply(response -> (Void) null);
+    }
+
 }
@@ -13,14 +13,21 @@ import net.inveed.jsonrpc.client.generator.IdGenerator;
 import net.inveed.jsonrpc.client.metadata.ClassMetadata;
 import net.inveed.jsonrpc.client.metadata.MethodMetadata;
 import net.inveed.jsonrpc.client.metadata.ParameterMetadata;
+import net.inveed.jsonrpc.core.deadline.Deadline;
 import net.inveed.jsonrpc.core.domain.ErrorMessage;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Proxy for accessing a remote JSON-RPC service trough an interface.
+ * Methods returning {@code CompletableFuture<T>} or {@code CompletionStage<T>} don't block,
+ * the future is completed with the result converted to {@code T}.
  */
 public class ObjectApiBuilder extends AbstractBuilder implements InvocationHandler {
 
@@ -33,6 +40,10 @@ public class ObjectApiBuilder extends AbstractBuilder implements InvocationHandl
     
     private ClassMetadata classMetadata;
 
+    private volatile long timeoutNanos;
+
+    private volatile CallBatcher batcher;
+
     /**
      * Crate a new proxy for an interface
      *
@@ -50,6 +61,26 @@ public class ObjectApiBuilder extends AbstractBuilder implements InvocationHandl
         this.userIdGenerator = userIdGenerator;
     }
 
+    /**
+     * Sets a timeout of the calls through the proxy
+     *
+     * @param timeout timeout, 0 for no timeout
+     * @param unit    unit of the timeout
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Sets a batcher, which sends the calls through the proxy in batches.
+     * The calls of methods, which don't return futures, wait for their batches.
+     *
+     * @param batcher batcher, null to send every call separately
+     */
+    public void setBatcher(CallBatcher batcher) {
+        this.batcher = batcher;
+    }
+
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         // Check that it's a JSON-RPC method
@@ -65,15 +96,69 @@ public class ObjectApiBuilder extends AbstractBuilder implements InvocationHandl
 
         //  Construct a request
         ValueNode id = new POJONode(idGenerator.generate());
-        String textResponse = execute(request(id, methodName, params));
+        JavaType returnType = mapper.getTypeFactory().constructType(method.getGenericReturnType());
+        if (isAsync(returnType)) {
+            final JavaType resultType = returnType.containedTypeOrUnknown(0);
+            try {
+                Deadline deadline = deadline(timeoutNanos);
+                return send(request(id, methodName, withDeadline(params, deadline)), deadline)
+                        .thenApply(responseNode -> {
+                            try {
+                                return convert(responseNode, resultType);
+                            } catch (JsonProcessingException e) {
+                                throw new IllegalStateException("Unable parse a JSON response", e);
+                            }
+                        });
+            } catch (RuntimeException e) {
+                return failed(e);
+            }
+        }
+        Deadline deadline = deadline(timeoutNanos);
+        ObjectNode request = request(id, methodName, withDeadline(params, deadline));
+        JsonNode responseNode;
+        CallBatcher batcher = this.batcher;
+        if (batcher != null) {
+            try {
+                responseNode = batcher.submit(request, deadline).get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a response", e);
+            }
+        } else {
+            responseNode = execute(request, deadline);
+        }
+        return convert(responseNode, returnType);
+    }
+
+    private CompletableFuture<JsonNode> send(ObjectNode request, Deadline deadline) {
+        CallBatcher batcher = this.batcher;
+        return batcher != null ? batcher.submit(request, deadline) : passAsync(request, deadline);
+    }
+
+    /**
+     * Methods returning {@link CompletableFuture} or {@link CompletionStage} are called without blocking
+     */
+    private static boolean isAsync(JavaType returnType) {
+        return returnType.getRawClass() == CompletableFuture.class || returnType.getRawClass() == CompletionStage.class;
+    }
 
-        // Parse a response
-        JsonNode responseNode = mapper.readTree(textResponse);
+    /**
+     * Parse a response
+     *
+     * @param responseNode response
+     * @param returnType   expected type of the result
+     * @return converted result
+     */
+    private Object convert(JsonNode responseNode, JavaType returnType) throws JsonProcessingException {
+        if (responseNode == null) {
+            throw new IllegalStateException("Empty response");
+        }
         JsonNode result = responseNode.get(RESULT);
         JsonNode error = responseNode.get(ERROR);
         if (result != null) {
-            JavaType returnType = mapper.getTypeFactory().constructType(method.getGenericReturnType());
-            if (returnType.getRawClass() == void.class) {
+            if (returnType.getRawClass() == void.class || returnType.getRawClass() == Void.class) {
                 return null;
             }
             return mapper.convertValue(result, returnType);
@@ -116,17 +201,18 @@ public class ObjectApiBuilder extends AbstractBuilder implements InvocationHandl
     }
 
     /**
-     * Execute a request on a remote service and return a textual representation of a response
+     * Execute a request on a remote service and return a parsed response
      *
-     * @param request json representation of a request
-     * @return service response as a string
+     * @param request  json representation of a request
+     * @param deadline deadline of the request or null
+     * @return service response as a JSON tree
      */
     
-    private String execute( ObjectNode request) {
+    private JsonNode execute( ObjectNode request, Deadline deadline) {
         try {
-            return transport.pass(mapper.writeValueAsString(request));
+            return pass(request, deadline);
         } catch (JsonProcessingException e) {
-            throw new IllegalArgumentException("Unable convert " + request + " to JSON", e);
+            throw new IllegalStateException("Unable parse a JSON response", e);
         } catch (IOException e) {
             throw new IllegalStateException("I/O error during request processing", e);
         }
@@ -10,6 +10,7 @@ import com.fasterxml.jackson.databind.type.SimpleType;
 
 import net.inveed.jsonrpc.client.Transport;
 import net.inveed.jsonrpc.client.exception.JsonRpcException;
+import net.inveed.jsonrpc.core.deadline.Deadline;
 import net.inveed.jsonrpc.core.domain.ErrorMessage;
 
 import java.io.IOException;
@@ -17,6 +18,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Type-safe builder of JSON-RPC requests.
@@ -58,6 +61,12 @@ public class RequestBuilder<T> extends AbstractBuilder {
     
     private final JavaType javaType;
 
+    /**
+     * Timeout of the request in nanoseconds, 0 for no timeout
+     */
+
+    private final long timeoutNanos;
+
     /**
      * Creates a new default request builder without actual parameters
      *
@@ -72,6 +81,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
         arrayParams = mapper.createArrayNode();
         method = "";
         javaType = SimpleType.construct(Object.class);
+        timeoutNanos = 0;
     }
 
     /**
@@ -84,16 +94,18 @@ public class RequestBuilder<T> extends AbstractBuilder {
      * @param objectParams new object params
      * @param arrayParams  new array params
      * @param javaType     new response type
+     * @param timeoutNanos new timeout
      */
     private RequestBuilder( Transport transport,  ObjectMapper mapper,  String method,
                             ValueNode id,  ObjectNode objectParams,  ArrayNode arrayParams,
-                            JavaType javaType) {
+                            JavaType javaType, long timeoutNanos) {
         super(transport, mapper);
         this.method = method;
         this.id = id;
         this.objectParams = objectParams;
         this.arrayParams = arrayParams;
         this.javaType = javaType;
+        this.timeoutNanos = timeoutNanos;
     }
 
     /**
@@ -104,7 +116,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
      */
     
     public RequestBuilder<T> id( Long id) {
-        return new RequestBuilder<T>(transport, mapper, method, new LongNode(id), objectParams, arrayParams, javaType);
+        return new RequestBuilder<T>(transport, mapper, method, new LongNode(id), objectParams, arrayParams, javaType, timeoutNanos);
     }
 
     /**
@@ -115,7 +127,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
      */
     
     public RequestBuilder<T> id( Integer id) {
-        return new RequestBuilder<T>(transport, mapper, method, new IntNode(id), objectParams, arrayParams, javaType);
+        return new RequestBuilder<T>(transport, mapper, method, new IntNode(id), objectParams, arrayParams, javaType, timeoutNanos);
     }
 
     /**
@@ -126,7 +138,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
      */
     
     public RequestBuilder<T> id( String id) {
-        return new RequestBuilder<T>(transport, mapper, method, new TextNode(id), objectParams, arrayParams, javaType);
+        return new RequestBuilder<T>(transport, mapper, method, new TextNode(id), objectParams, arrayParams, javaType, timeoutNanos);
     }
 
     /**
@@ -137,7 +149,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
      */
     
     public RequestBuilder<T> method( String method) {
-        return new RequestBuilder<T>(transport, mapper, method, id, objectParams, arrayParams, javaType);
+        return new RequestBuilder<T>(transport, mapper, method, id, objectParams, arrayParams, javaType, timeoutNanos);
     }
 
     /**
@@ -151,7 +163,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
     public RequestBuilder<T> param( String name,  Object value) {
         ObjectNode newObjectParams = objectParams.deepCopy();
         newObjectParams.set(name, mapper.valueToTree(value));
-        return new RequestBuilder<T>(transport, mapper, method, id, newObjectParams, arrayParams, javaType);
+        return new RequestBuilder<T>(transport, mapper, method, id, newObjectParams, arrayParams, javaType, timeoutNanos);
     }
 
     /**
@@ -163,7 +175,21 @@ public class RequestBuilder<T> extends AbstractBuilder {
      */
     
     public RequestBuilder<T> params( Object... values) {
-        return new RequestBuilder<T>(transport, mapper, method, id, objectParams, arrayParams(values), javaType);
+        return new RequestBuilder<T>(transport, mapper, method, id, objectParams, arrayParams(values), javaType, timeoutNanos);
+    }
+
+    /**
+     * Sets a timeout of the request. The server refuses or cancels the call
+     * after the timeout and the client stops waiting for the response.
+     * A deadline inherited from the call handled by the current thread applies as well.
+     *
+     * @param timeout timeout, 0 for no timeout
+     * @param unit    unit of the timeout
+     * @return new builder
+     */
+
+    public RequestBuilder<T> timeout(long timeout, TimeUnit unit) {
+        return new RequestBuilder<T>(transport, mapper, method, id, objectParams, arrayParams, javaType, unit.toNanos(timeout));
     }
 
     /**
@@ -177,7 +203,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
     @SuppressWarnings("deprecation")
 	public <NT> RequestBuilder<NT> returnAs( Class<NT> responseType) {
         return new RequestBuilder<NT>(transport, mapper, method, id, objectParams, arrayParams,
-                SimpleType.construct(responseType));
+                SimpleType.construct(responseType), timeoutNanos);
     }
 
     /**
@@ -190,7 +216,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
     
     public <E> RequestBuilder<List<E>> returnAsList( Class<E> elementType) {
         return new RequestBuilder<List<E>>(transport, mapper, method, id, objectParams, arrayParams,
-                mapper.getTypeFactory().constructCollectionType(List.class, elementType));
+                mapper.getTypeFactory().constructCollectionType(List.class, elementType), timeoutNanos);
     }
 
     /**
@@ -203,7 +229,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
     
     public <E> RequestBuilder<Set<E>> returnAsSet( Class<E> elementType) {
         return new RequestBuilder<Set<E>>(transport, mapper, method, id, objectParams, arrayParams,
-                mapper.getTypeFactory().constructCollectionType(Set.class, elementType));
+                mapper.getTypeFactory().constructCollectionType(Set.class, elementType), timeoutNanos);
     }	
 
 
@@ -219,7 +245,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
     public <E> RequestBuilder<Collection<E>> returnAsCollection( Class<? extends Collection<?>> collectionType,
                                                                  Class<E> elementType) {
         return new RequestBuilder<Collection<E>>(transport, mapper, method, id, objectParams, arrayParams,
-                mapper.getTypeFactory().constructCollectionType(collectionType, elementType));
+                mapper.getTypeFactory().constructCollectionType(collectionType, elementType), timeoutNanos);
     }
 
     /**
@@ -232,7 +258,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
     
     public <E> RequestBuilder<E[]> returnAsArray(Class<E> elementType) {
         return new RequestBuilder<E[]>(transport, mapper, method, id, objectParams, arrayParams,
-                mapper.getTypeFactory().constructArrayType(elementType));
+                mapper.getTypeFactory().constructArrayType(elementType), timeoutNanos);
     }
 
     /**
@@ -250,7 +276,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
     public <V> RequestBuilder<Map<String, V>> returnAsMap( Class<? extends Map<?,?>> mapClass,
                                                            Class<V> valueType) {
         return new RequestBuilder<Map<String, V>>(transport, mapper, method, id, objectParams, arrayParams,
-                mapper.getTypeFactory().constructMapType(mapClass, String.class, valueType));
+                mapper.getTypeFactory().constructMapType(mapClass, String.class, valueType), timeoutNanos);
     }
 
     /**
@@ -263,7 +289,7 @@ public class RequestBuilder<T> extends AbstractBuilder {
     
     public <NT> RequestBuilder<NT> returnAs( TypeReference<NT> tr) {
         return new RequestBuilder<NT>(transport, mapper, method, id, objectParams, arrayParams,
-                mapper.getTypeFactory().constructType(tr.getType()));
+                mapper.getTypeFactory().constructType(tr.getType()), timeoutNanos);
     }
 
     /**
@@ -293,12 +319,43 @@ public class RequestBuilder<T> extends AbstractBuilder {
         return executeAndConvert();
     }
 
+    /**
+     * Execute a request through {@link Transport} without blocking and convert a not null response to an expected type
+     *
+     * @return future of expected not null response. It fails with {@link JsonRpcException} in case of JSON-RPC error,
+     * returned by the server, and with {@link IllegalStateException} if the response is null
+     */
+
+    public CompletableFuture<T> executeAsync() {
+        return executeNullableAsync().thenApply(result -> {
+            if (result == null) {
+                throw new IllegalStateException("Response is null. Use 'executeNullableAsync' if this is acceptable");
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Execute a request through {@link Transport} without blocking and convert a nullable response to an expected type
+     *
+     * @return future of expected response. It fails with {@link JsonRpcException} in case of JSON-RPC error,
+     * returned by the server
+     */
+
+    public CompletableFuture<T> executeNullableAsync() {
+        return executeRequestAsync().thenApply(this::convert);
+    }
+
    
     private T executeAndConvert() {
-        String textResponse = executeRequest();
+        return convert(executeRequest());
+    }
 
+    private T convert(JsonNode responseNode) {
         try {
-            JsonNode responseNode = mapper.readTree(textResponse);
+            if (responseNode == null) {
+                throw new IllegalStateException("Empty response");
+            }
             JsonNode result = responseNode.get(RESULT);
             JsonNode error = responseNode.get(ERROR);
             JsonNode version = responseNode.get(JSONRPC);
@@ -325,27 +382,29 @@ public class RequestBuilder<T> extends AbstractBuilder {
                 throw new JsonRpcException(errorMessage);
             }
         } catch (JsonProcessingException e) {
-            throw new IllegalStateException("Unable parse a JSON response: " + textResponse, e);
-        } catch (IOException e) {
-            throw new IllegalStateException("I/O error during a response processing", e);
+            throw new IllegalStateException("Unable parse a JSON response: " + responseNode, e);
         }
     }
 
-    String executeRequest() {
-        ObjectNode requestNode = request(id, method, params());
-        String textRequest;
-        String textResponse;
+    JsonNode executeRequest() {
+        Deadline deadline = deadline(timeoutNanos);
+        ObjectNode requestNode = request(id, method, withDeadline(params(), deadline));
         try {
-            textRequest = mapper.writeValueAsString(requestNode);
+            return pass(requestNode, deadline);
         } catch (JsonProcessingException e) {
-            throw new IllegalArgumentException("Unable convert " + requestNode + " to JSON", e);
-        }
-        try {
-            textResponse = transport.pass(textRequest);
+            throw new IllegalStateException("Unable parse a JSON response", e);
         } catch (IOException e) {
             throw new IllegalStateException("I/O error during a request processing", e);
         }
-        return textResponse;
+    }
+
+    CompletableFuture<JsonNode> executeRequestAsync() {
+        try {
+            Deadline deadline = deadline(timeoutNanos);
+            return passAsync(request(id, method, withDeadline(params(), deadline)), deadline);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
     }
 
     
@@ -0,0 +1,111 @@
+package net.inveed.jsonrpc.client.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.inveed.jsonrpc.client.AsyncTransport;
+import net.inveed.jsonrpc.client.StreamingTransport;
+import net.inveed.jsonrpc.client.Transport;
+import net.inveed.jsonrpc.core.deadline.Deadline;
+import net.inveed.jsonrpc.core.trace.TraceParent;
+
+/**
+ * Asynchronous adapter of a blocking transport: calls are executed by an executor,
+ * so the calling thread isn't blocked, but every outstanding call still takes an executor thread.
+ * The default executor is an unbounded cached pool, which grows with the number of outstanding calls;
+ * pass a bounded executor to cap the threads, calls rejected by it fail with {@link RejectedExecutionException}.
+ * The deadline and the trace parent of the calling thread are passed to the executor thread,
+ * so the transport sends them, e.g. through a {@link TraceParentInjector} header.
+ */
+public class ExecutorAsyncTransport implements AsyncTransport {
+
+    private static final class DefaultExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory());
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "jsonrpc-client-async-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    private final Transport transport;
+    private final Executor executor;
+
+    /**
+     * Creates an adapter executing the calls by a shared cached pool of daemon threads
+     *
+     * @param transport blocking transport
+     */
+    public ExecutorAsyncTransport(Transport transport) {
+        this(transport, DefaultExecutorHolder.EXECUTOR);
+    }
+
+    /**
+     * @param transport blocking transport
+     * @param executor  executor of the calls, e.g. a fixed pool with a bounded queue
+     */
+    public ExecutorAsyncTransport(Transport transport, Executor executor) {
+        this.transport = transport;
+        this.executor = executor;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> passAsync(final RequestWriter request, final ResponseReader<T> response) {
+        final CompletableFuture<T> ret = new CompletableFuture<T>();
+        final Deadline deadline = Deadline.getCurrent();
+        final TraceParent traceParent = TraceParent.getCurrent();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Deadline previous = Deadline.getCurrent();
+                    TraceParent previousTrace = TraceParent.getCurrent();
+                    Deadline.setCurrent(deadline);
+                    TraceParent.setCurrent(traceParent);
+                    try {
+                        ret.complete(pass(request, response));
+                    } catch (Throwable e) {
+                        ret.completeExceptionally(e);
+                    } finally {
+                        Deadline.setCurrent(previous);
+                        TraceParent.setCurrent(previousTrace);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            ret.completeExceptionally(e);
+        }
+        return ret;
+    }
+
+    @Override
+    public <T> T pass(RequestWriter request, ResponseReader<T> response) throws IOException {
+        if (transport instanceof StreamingTransport) {
+            return ((StreamingTransport) transport).pass(request, response);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        request.writeTo(out);
+        String textResponse = transport.pass(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        return response.readFrom(new ByteArrayInputStream(textResponse.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public String pass(String request) throws IOException {
+        return transport.pass(request);
+    }
+}
@@ -0,0 +1,296 @@
+package net.inveed.jsonrpc.client.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.function.Supplier;
+import java.util.zip.InflaterInputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+import net.inveed.jsonrpc.client.StreamingTransport;
+import net.inveed.jsonrpc.core.deadline.Deadline;
+
+/**
+ * HTTP transport based on {@link HttpURLConnection}.
+ * JSON messages are streamed to and from the connection: small requests are sent
+ * with the content length, bigger ones in chunks.
+ * If compression is enabled, requests bigger than the threshold are sent
+ * gzip-compressed and compressed responses are accepted.
+ * If a wire format is set, messages are sent in the format (e.g. Smile or CBOR):
+ * its factory is passed to the request writer and the response reader, which generate
+ * and parse the format directly on the connection streams.
+ * A JSON response is still accepted, e.g. from a server not supporting the format.
+ * The deadline of a call is sent in the {@link Deadline#HEADER} header and limits the read timeout.
+ */
+public class HttpTransport implements StreamingTransport {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final String MEDIA_TYPE_JSON = "application/json";
+
+    private final URL url;
+    private final Map<String, String> headers = new LinkedHashMap<String, String>();
+    private final Map<String, Supplier<String>> dynamicHeaders = new LinkedHashMap<String, Supplier<String>>();
+    private int connectTimeout;
+    private int readTimeout;
+    private boolean compression;
+    private int compressionThreshold = 1024;
+    private String mediaType = MEDIA_TYPE_JSON;
+    private JsonFactory wireFactory;
+
+    /**
+     * @param url URL of the JSON-RPC servlet
+     */
+    public HttpTransport(URL url) {
+        this.url = url;
+    }
+
+    /**
+     * Adds a header to all the requests
+     *
+     * @param name  header name
+     * @param value header value
+     * @return this transport
+     */
+    public HttpTransport setHeader(String name, String value) {
+        this.headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * Adds a header, which value is computed for every request,
+     * e.g. {@code setHeader(TraceParent.HEADER, new TraceParentInjector())}
+     *
+     * @param name  header name
+     * @param value header value supplier, returning null to omit the header
+     * @return this transport
+     */
+    public HttpTransport setHeader(String name, Supplier<String> value) {
+        this.dynamicHeaders.put(name, value);
+        return this;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @param connectTimeout connect timeout in milliseconds, 0 for no timeout
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * @param readTimeout read timeout in milliseconds, 0 for no timeout
+     */
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * @param compression {@code true} to compress requests and accept compressed responses
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * @param compressionThreshold min size of a request body in bytes to compress it
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException("Compression threshold should not be negative");
+        }
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Sets a binary format of messages, e.g. {@code ("application/x-jackson-smile", new SmileFactory())}
+     *
+     * @param mediaType media type of the format
+     * @param factory   Jackson factory of the format, null for JSON
+     */
+    public void setWireFormat(String mediaType, JsonFactory factory) {
+        this.mediaType = factory == null ? MEDIA_TYPE_JSON : mediaType;
+        this.wireFactory = factory;
+    }
+
+    @Override
+    public <T> T pass(RequestWriter request, ResponseReader<T> response) throws IOException {
+        int timeout = readTimeout;
+        Deadline deadline = Deadline.getCurrent();
+        if (deadline != null) {
+            long remaining = deadline.getRemaining(TimeUnit.MILLISECONDS);
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("Deadline exceeded");
+            }
+            timeout = (int) Math.min(timeout == 0 ? Integer.MAX_VALUE : timeout, remaining);
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(timeout);
+            connection.setRequestProperty("Content-Type", wireFactory == null ? MEDIA_TYPE_JSON + "; charset=utf-8" : mediaType);
+            connection.setRequestProperty("Accept", mediaType + ", " + MEDIA_TYPE_JSON + ";q=0.5");
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            if (deadline != null) {
+                connection.setRequestProperty(Deadline.HEADER, deadline.toString());
+            }
+            for (Map.Entry<String, Supplier<String>> header : dynamicHeaders.entrySet()) {
+                String value = header.getValue().get();
+                if (value != null) {
+                    connection.setRequestProperty(header.getKey(), value);
+                }
+            }
+            if (compression) {
+                connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+            }
+            // Not closed on failure, a partial request is dropped by disconnect
+            RequestBody body = new RequestBody(connection, compression, compression ? compressionThreshold : BUFFER_SIZE);
+            if (wireFactory == null) {
+                request.writeTo(body);
+            } else {
+                request.writeTo(body, wireFactory);
+            }
+            body.close();
+
+            int status = connection.getResponseCode();
+            InputStream in = status >= HttpURLConnection.HTTP_BAD_REQUEST
+                    ? connection.getErrorStream()
+                    : connection.getInputStream();
+            if (in == null) {
+                throw new IOException("HTTP " + status + " " + connection.getResponseMessage());
+            }
+            try (InputStream decoded = decode(in, connection.getContentEncoding())) {
+                if (wireFactory != null && isMediaType(connection.getContentType(), mediaType)) {
+                    return response.readFrom(decoded, wireFactory);
+                }
+                return response.readFrom(decoded);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static boolean isMediaType(String contentType, String mediaType) {
+        if (contentType == null) {
+            return false;
+        }
+        int i = contentType.indexOf(';');
+        return (i < 0 ? contentType : contentType.substring(0, i)).trim().equalsIgnoreCase(mediaType);
+    }
+
+    private static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return in;
+        }
+        String coding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+        if ("deflate".equals(coding)) {
+            return new InflaterInputStream(in);
+        }
+        if (coding.isEmpty() || "identity".equals(coding)) {
+            return in;
+        }
+        throw new IOException("Unsupported content encoding: " + contentEncoding);
+    }
+
+    /**
+     * Body of a request. Small requests are buffered and sent with the content length,
+     * requests bigger than the limit are streamed to the connection in chunks,
+     * gzip-compressed if the compression is enabled: only the head of the request
+     * up to the limit is buffered before the first chunk is sent.
+     */
+    private static final class RequestBody extends OutputStream {
+
+        private final HttpURLConnection connection;
+        private final boolean compression;
+        private final int limit;
+        private final ByteArrayOutputStream buffer;
+        private OutputStream out;
+
+        RequestBody(HttpURLConnection connection, boolean compression, int limit) {
+            this.connection = connection;
+            this.compression = compression;
+            this.limit = limit;
+            this.buffer = new ByteArrayOutputStream(Math.min(limit, BUFFER_SIZE));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (out == null && buffer.size() + len <= limit) {
+                buffer.write(b, off, len);
+                return;
+            }
+            if (out == null) {
+                if (compression) {
+                    connection.setRequestProperty("Content-Encoding", "gzip");
+                }
+                connection.setChunkedStreamingMode(BUFFER_SIZE);
+                out = connection.getOutputStream();
+                if (compression) {
+                    out = new GZIPOutputStream(out, BUFFER_SIZE);
+                }
+                buffer.writeTo(out);
+            }
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // A small request is sent as a whole when it's closed
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out == null) {
+                connection.setFixedLengthStreamingMode(buffer.size());
+                out = connection.getOutputStream();
+                buffer.writeTo(out);
+            }
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package net.inveed.jsonrpc.client.transport;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import net.inveed.jsonrpc.client.AsyncTransport;
+import net.inveed.jsonrpc.core.deadline.Deadline;
+
+/**
+ * Transport over a few persistent TCP connections to a JSON-RPC socket endpoint.
+ * Requests and responses are newline-delimited JSON, many requests are sent over
+ * a connection without waiting for the responses, and the responses are matched
+ * to the requests by ids. The ids should be unique among the outstanding requests,
+ * e.g. from {@link net.inveed.jsonrpc.client.generator.AtomicLongIdGenerator};
+ * a request with the id of an outstanding one fails.
+ *
+ * Notifications are completed with an empty response as soon as they are written.
+ * The deadline of a call fails it with {@link SocketTimeoutException}, a late response is dropped.
+ * A response without an id can't be matched to its request, so it closes the connection
+ * and fails its outstanding requests.
+ * Responses are read by a thread per connection, which completes the futures,
+ * unless a callback executor is set. Connections are opened on demand and reopened after failures.
+ */
+public class SocketTransport implements AsyncTransport, Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final class SchedulerHolder {
+        private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "jsonrpc-socket-deadlines");
+            t.setDaemon(true);
+            return t;
+        });
+
+        static {
+            SCHEDULER.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    private final InetSocketAddress address;
+    private final Connection[] connections;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger connectionCounter = new AtomicInteger();
+    private int connectTimeout;
+    private int maxFrameSize = 16 * 1024 * 1024;
+    private Executor callbackExecutor;
+    private volatile boolean closed;
+
+    /**
+     * @param address     address of the endpoint
+     * @param connections number of connections
+     */
+    public SocketTransport(InetSocketAddress address, int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("Number of connections should be positive");
+        }
+        this.address = address;
+        this.connections = new Connection[connections];
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @param connectTimeout connect timeout in milliseconds, 0 for no timeout
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /**
+     * @param maxFrameSize max size of a response line in bytes, a connection receiving a bigger one is closed
+     */
+    public void setMaxFrameSize(int maxFrameSize) {
+        if (maxFrameSize <= 0) {
+            throw new IllegalArgumentException("Max frame size should be positive");
+        }
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    /**
+     * @param callbackExecutor executor completing the futures, null to complete them
+     *                         on the reading thread, then the callbacks shouldn't block
+     */
+    public void setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> passAsync(RequestWriter request, ResponseReader<T> response) {
+        Call<T> call = new Call<T>(response);
+        try {
+            if (closed) {
+                throw new IOException("Transport is closed");
+            }
+            Deadline deadline = Deadline.getCurrent();
+            if (deadline != null && deadline.isExpired()) {
+                throw new SocketTimeoutException("Deadline exceeded");
+            }
+
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(BUFFER_SIZE);
+            request.writeTo(frame);
+            byte[] bytes = frame.toByteArray();
+            // JSON text has no line breaks, except the ones of pretty printing
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == '\n' || bytes[i] == '\r') {
+                    bytes[i] = ' ';
+                }
+            }
+            call.ids = ids(bytes);
+
+            Connection connection = connection();
+            if (!call.ids.isEmpty()) {
+                connection.register(call);
+                if (deadline != null) {
+                    call.timer = SchedulerHolder.SCHEDULER.schedule(
+                            () -> call.fail(new SocketTimeoutException("Deadline exceeded")),
+                            deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+                }
+            }
+            connection.write(bytes);
+            if (call.ids.isEmpty()) {
+                // Notifications get no response
+                call.complete(new byte[0]);
+            }
+        } catch (Throwable e) {
+            call.fail(e);
+        }
+        return call.future;
+    }
+
+    /**
+     * Closes the connections, outstanding requests fail
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (connections) {
+            for (Connection connection : connections) {
+                if (connection != null) {
+                    connection.close(new IOException("Transport is closed"));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return open connection, connections are used in turn
+     */
+    private Connection connection() throws IOException {
+        int i = Math.floorMod(next.getAndIncrement(), connections.length);
+        synchronized (connections) {
+            Connection connection = connections[i];
+            if (connection != null && !connection.closed) {
+                return connection;
+            }
+        }
+        // Connecting may take long, the other connections are used meanwhile
+        Socket socket = new Socket();
+        Connection connection;
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(address, connectTimeout);
+            connection = new Connection(socket);
+        } catch (IOException e) {
+            closeQuietly(socket);
+            throw e;
+        }
+        synchronized (connections) {
+            Connection current = connections[i];
+            if (closed) {
+                closeQuietly(socket);
+                throw new IOException("Transport is closed");
+            }
+            if (current != null && !current.closed) {
+                // Another call has connected first
+                closeQuietly(socket);
+                return current;
+            }
+            connections[i] = connection;
+        }
+        Thread reader = new Thread(connection, "jsonrpc-socket-client-" + connectionCounter.incrementAndGet());
+        reader.setDaemon(true);
+        reader.start();
+        return connection;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+        }
+    }
+
+    /**
+     * @return ids of a request or a response, of all the elements of a batch
+     */
+    private static List<String> ids(byte[] frame) throws IOException {
+        List<String> ret = new ArrayList<String>();
+        try (JsonParser p = JSON_FACTORY.createParser(frame)) {
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.START_OBJECT) {
+                addId(p, ret);
+            } else if (t == JsonToken.START_ARRAY) {
+                while ((t = p.nextToken()) != JsonToken.END_ARRAY && t != null) {
+                    if (t == JsonToken.START_OBJECT) {
+                        addId(p, ret);
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Reads an object and adds its id in the JSON form, e.g. 1 and "1" differ
+     */
+    private static void addId(JsonParser p, List<String> ids) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            if ("id".equals(name) && value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                ids.add(value == JsonToken.VALUE_STRING ? '"' + p.getText() : p.getText());
+            } else {
+                p.skipChildren();
+            }
+        }
+    }
+
+    private static boolean isBlank(byte[] frame) {
+        for (byte b : frame) {
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class Call<T> {
+        private final ResponseReader<T> reader;
+        private final CompletableFuture<T> future = new CompletableFuture<T>();
+        private List<String> ids;
+        private Connection connection;
+        private ScheduledFuture<?> timer;
+
+        private Call(ResponseReader<T> reader) {
+            this.reader = reader;
+        }
+
+        private void complete(final byte[] frame) {
+            if (!remove()) {
+                return;
+            }
+            Executor executor = callbackExecutor;
+            if (executor == null) {
+                read(frame);
+            } else {
+                try {
+                    executor.execute(() -> read(frame));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
+
+        private void read(byte[] frame) {
+            try {
+                future.complete(reader.readFrom(new ByteArrayInputStream(frame)));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void fail(Throwable e) {
+            if (remove()) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * @return {@code false} if the call is already completed
+         */
+        private boolean remove() {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            if (connection != null && ids != null) {
+                for (String id : ids) {
+                    connection.calls.remove(id, this);
+                }
+            }
+            return !future.isDone();
+        }
+    }
+
+    private final class Connection implements Runnable {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        /**
+         * Outstanding calls by ids in the JSON form, a batch is there by all its ids
+         */
+        private final Map<String, Call<?>> calls = new ConcurrentHashMap<String, Call<?>>();
+        private volatile boolean closed;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = socket.getInputStream();
+            this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+        }
+
+        private void register(Call<?> call) throws IOException {
+            call.connection = this;
+            for (int i = 0; i < call.ids.size(); i++) {
+                if (calls.putIfAbsent(call.ids.get(i), call) != null) {
+                    for (int j = 0; j < i; j++) {
+                        calls.remove(call.ids.get(j), call);
+                    }
+                    call.connection = null;
+                    throw new IOException("Request with id " + call.ids.get(i) + " is already outstanding");
+                }
+            }
+            if (closed) {
+                throw new IOException("Connection is closed");
+            }
+        }
+
+        private void write(byte[] frame) throws IOException {
+            synchronized (out) {
+                try {
+                    out.write(frame);
+                    out.write('\n');
+                    out.flush();
+                } catch (IOException e) {
+                    close(e);
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            IOException failure = new IOException("Connection is closed by the server");
+            try {
+                ByteArrayOutputStream line = new ByteArrayOutputStream(BUFFER_SIZE);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int len;
+                while ((len = in.read(buffer)) != -1) {
+                    int start = 0;
+                    for (int i = 0; i < len; i++) {
+                        if (buffer[i] == '\n') {
+                            line.write(buffer, start, i - start);
+                            if (line.size() > maxFrameSize) {
+                                failure = new IOException("Response is bigger than " + maxFrameSize + " bytes");
+                                return;
+                            }
+                            dispatch(line.toByteArray());
+                            line.reset();
+                            start = i + 1;
+                        }
+                    }
+                    line.write(buffer, start, len - start);
+                    if (line.size() > maxFrameSize) {
+                        failure = new IOException("Response is bigger than " + maxFrameSize + " bytes");
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                close(failure);
+            }
+        }
+
+        /**
+         * Completes the call of a response. Responses to completed calls, e.g. late ones, are dropped.
+         * A response without ids, e.g. an error of a request the server couldn't parse, cannot be matched
+         * to its call, so the connection is closed and all its outstanding calls fail.
+         */
+        private void dispatch(byte[] frame) {
+            List<String> ids;
+            try {
+                ids = ids(frame);
+            } catch (IOException e) {
+                close(new IOException("Cannot parse a response: " + e.getMessage(), e));
+                return;
+            }
+            if (ids.isEmpty()) {
+                if (!isBlank(frame)) {
+                    close(new IOException("Response without id: " + new String(frame, StandardCharsets.UTF_8)));
+                }
+                return;
+            }
+            for (String id : ids) {
+                Call<?> call = calls.get(id);
+                if (call != null) {
+                    call.complete(frame);
+                    return;
+                }
+            }
+        }
+
+        private void close(IOException cause) {
+            closed = true;
+            closeQuietly(socket);
+            for (Call<?> call : calls.values()) {
+                call.fail(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package net.inveed.jsonrpc.client.transport;
+
+import java.util.function.Supplier;
+
+import net.inveed.jsonrpc.core.trace.TraceParent;
+
+/**
+ * Supplies the "traceparent" header of outgoing requests, continuing the trace
+ * of the JSON-RPC call handled by the current thread:
+ * <pre>
+ * transport.setHeader(TraceParent.HEADER, new TraceParentInjector());
+ * </pre>
+ */
+public class TraceParentInjector implements Supplier<String> {
+
+    private final boolean startTraces;
+
+    /**
+     * Creates an injector, which propagates existing traces only
+     */
+    public TraceParentInjector() {
+        this(false);
+    }
+
+    /**
+     * @param startTraces {@code true} to start a new trace if the current thread
+     *                    doesn't handle a traced call
+     */
+    public TraceParentInjector(boolean startTraces) {
+        this.startTraces = startTraces;
+    }
+
+    @Override
+    public String get() {
+        TraceParent current = TraceParent.getCurrent();
+        if (current != null) {
+            return current.newChild().toString();
+        }
+        return startTraces ? TraceParent.newRoot().toString() : null;
+    }
+}
@@ -0,0 +1,94 @@
+package net.inveed.jsonrpc.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class StreamingTransportTest extends TestCase {
+
+    private static final String REQUEST = "{\"jsonrpc\":\"2.0\",\"method\":\"echo\",\"params\":[\"été\"],\"id\":1}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
+    /**
+     * Transport answering with the written request, the streams aren't closed by the writer and the reader
+     */
+    private static final class EchoTransport implements StreamingTransport {
+        private boolean closed;
+
+        @Override
+        public <T> T pass(RequestWriter request, ResponseReader<T> response) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    closed = true;
+                }
+            };
+            request.writeTo(out);
+            InputStream in = new ByteArrayInputStream(out.toByteArray()) {
+                @Override
+                public void close() {
+                    closed = true;
+                }
+            };
+            return response.readFrom(in);
+        }
+    }
+
+    public void testTextRequestIsPassedAsUtf8() throws IOException {
+        EchoTransport transport = new EchoTransport();
+        assertEquals(REQUEST, transport.pass(REQUEST));
+        assertFalse(transport.closed);
+    }
+
+    public void testEmptyResponse() throws IOException {
+        StreamingTransport transport = new StreamingTransport() {
+            @Override
+            public <T> T pass(RequestWriter request, ResponseReader<T> response) throws IOException {
+                request.writeTo(new ByteArrayOutputStream());
+                return response.readFrom(new ByteArrayInputStream(new byte[0]));
+            }
+        };
+        assertEquals("", transport.pass(REQUEST));
+    }
+
+    public void testDefaultWriterConvertsToWireFormat() throws IOException {
+        StreamingTransport.RequestWriter writer = new StreamingTransport.RequestWriter() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(REQUEST.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        final boolean[] closed = new boolean[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        writer.writeTo(out, new SmileFactory());
+        assertFalse(closed[0]);
+        assertEquals(mapper.readTree(REQUEST), smileMapper.readTree(out.toByteArray()));
+    }
+
+    public void testDefaultReaderConvertsFromWireFormat() throws IOException {
+        StreamingTransport.ResponseReader<JsonNode> reader = new StreamingTransport.ResponseReader<JsonNode>() {
+            @Override
+            public JsonNode readFrom(InputStream in) throws IOException {
+                return mapper.readTree(in);
+            }
+        };
+        byte[] smile = smileMapper.writeValueAsBytes(mapper.readTree(REQUEST));
+        assertEquals(mapper.readTree(REQUEST), reader.readFrom(new ByteArrayInputStream(smile), new SmileFactory()));
+    }
+}
@@ -0,0 +1,297 @@
+package net.inveed.jsonrpc.client.builder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.client.AsyncTransport;
+import net.inveed.jsonrpc.client.StreamingTransport.ResponseReader;
+import net.inveed.jsonrpc.core.deadline.Deadline;
+import net.inveed.jsonrpc.core.trace.TraceParent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class CallBatcherTest extends TestCase {
+
+    /**
+     * Request sent through the transport, which is answered by the test
+     */
+    private static final class Sent<T> {
+        private final JsonNode request;
+        private final Deadline deadline;
+        private final TraceParent traceParent = TraceParent.getCurrent();
+        private final ResponseReader<T> reader;
+        private final CompletableFuture<T> future = new CompletableFuture<T>();
+
+        private Sent(JsonNode request, Deadline deadline, ResponseReader<T> reader) {
+            this.request = request;
+            this.deadline = deadline;
+            this.reader = reader;
+        }
+
+        private void respond(String response) throws IOException {
+            future.complete(reader.readFrom(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8))));
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final BlockingQueue<Sent<?>> sent = new LinkedBlockingQueue<Sent<?>>();
+
+    private final AsyncTransport transport = new AsyncTransport() {
+        @Override
+        public <T> CompletableFuture<T> passAsync(RequestWriter request, ResponseReader<T> response) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                request.writeTo(out);
+                Sent<T> s = new Sent<T>(mapper.readTree(out.toByteArray()), Deadline.getCurrent(), response);
+                sent.add(s);
+                return s.future;
+            } catch (IOException e) {
+                CompletableFuture<T> ret = new CompletableFuture<T>();
+                ret.completeExceptionally(e);
+                return ret;
+            }
+        }
+
+        @Override
+        public String pass(String request) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private CallBatcher batcher(long windowMillis, int maxCalls, int maxBytes) {
+        return new CallBatcher(transport, mapper, windowMillis, TimeUnit.MILLISECONDS, maxCalls, maxBytes);
+    }
+
+    private ObjectNode request(Object id) {
+        ObjectNode ret = mapper.createObjectNode();
+        ret.put("jsonrpc", "2.0");
+        ret.put("method", "echo");
+        ret.set("id", mapper.valueToTree(id));
+        return ret;
+    }
+
+    private Sent<?> nextSent() throws InterruptedException {
+        Sent<?> ret = sent.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Nothing is sent", ret);
+        return ret;
+    }
+
+    private static JsonNode get(CompletableFuture<JsonNode> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    public void testResponsesAreRoutedByIds() throws Exception {
+        CallBatcher batcher = batcher(TimeUnit.HOURS.toMillis(1), 3, 1 << 20);
+        CompletableFuture<JsonNode> a = batcher.submit(request(1), null);
+        CompletableFuture<JsonNode> b = batcher.submit(request("b"), null);
+        assertTrue(sent.isEmpty());
+        CompletableFuture<JsonNode> c = batcher.submit(request(3), null);
+
+        // The batch is sent when it reaches the max number of calls
+        Sent<?> batch = nextSent();
+        assertTrue(batch.request.isArray());
+        assertEquals(3, batch.request.size());
+        batch.respond("[{\"jsonrpc\":\"2.0\",\"result\":\"c\",\"id\":3},"
+                + "{\"jsonrpc\":\"2.0\",\"result\":\"a\",\"id\":1},"
+                + "{\"jsonrpc\":\"2.0\",\"error\":{\"code\":-32000,\"message\":\"b\"},\"id\":\"b\"}]");
+        assertEquals("a", get(a).get("result").asText());
+        assertEquals("b", get(b).get("error").get("message").asText());
+        assertEquals("c", get(c).get("result").asText());
+    }
+
+    public void testIdsAreComparedInJsonForm() throws Exception {
+        CallBatcher batcher = batcher(TimeUnit.HOURS.toMillis(1), 2, 1 << 20);
+        CompletableFuture<JsonNode> number = batcher.submit(request(1), null);
+        CompletableFuture<JsonNode> string = batcher.submit(request("1"), null);
+        nextSent().respond("[{\"jsonrpc\":\"2.0\",\"result\":\"string\",\"id\":\"1\"},"
+                + "{\"jsonrpc\":\"2.0\",\"result\":\"number\",\"id\":1}]");
+        assertEquals("number", get(number).get("result").asText());
+        assertEquals("string", get(string).get("result").asText());
+    }
+
+    public void testWindowFlushesBatch() throws Exception {
+        CallBatcher batcher = batcher(20, 100, 1 << 20);
+        CompletableFuture<JsonNode> a = batcher.submit(request(1), null);
+        CompletableFuture<JsonNode> b = batcher.submit(request(2), null);
+        Sent<?> batch = nextSent();
+        assertEquals(2, batch.request.size());
+        batch.respond("[{\"jsonrpc\":\"2.0\",\"result\":1,\"id\":1},{\"jsonrpc\":\"2.0\",\"result\":2,\"id\":2}]");
+        assertEquals(1, get(a).get("result").asInt());
+        assertEquals(2, get(b).get("result").asInt());
+
+        // The next request starts a new window
+        batcher.submit(request(3), null);
+        assertEquals(3, nextSent().request.get("id").asInt());
+        assertTrue(sent.isEmpty());
+    }
+
+    public void testSingleRequestIsSentAsIs() throws Exception {
+        CallBatcher batcher = batcher(TimeUnit.HOURS.toMillis(1), 1, 1 << 20);
+        CompletableFuture<JsonNode> a = batcher.submit(request(1), null);
+        Sent<?> batch = nextSent();
+        assertTrue(batch.request.isObject());
+        assertEquals(1, batch.request.get("id").asInt());
+        batch.respond("{\"jsonrpc\":\"2.0\",\"result\":\"a\",\"id\":1}");
+        assertEquals("a", get(a).get("result").asText());
+    }
+
+    public void testDuplicateIdStartsNewBatch() throws Exception {
+        CallBatcher batcher = batcher(TimeUnit.HOURS.toMillis(1), 2, 1 << 20);
+        CompletableFuture<JsonNode> first = batcher.submit(request(1), null);
+        CompletableFuture<JsonNode> second = batcher.submit(request(1), null);
+
+        // The batch with the first request is sent, the second one waits in a new batch
+        Sent<?> batch = nextSent();
+        assertEquals(1, batch.request.get("id").asInt());
+        assertTrue(sent.isEmpty());
+        batch.respond("{\"jsonrpc\":\"2.0\",\"result\":\"first\",\"id\":1}");
+        assertEquals("first", get(first).get("result").asText());
+        assertFalse(second.isDone());
+
+        CompletableFuture<JsonNode> other = batcher.submit(request(2), null);
+        batch = nextSent();
+        assertEquals(2, batch.request.size());
+        batch.respond("[{\"jsonrpc\":\"2.0\",\"result\":\"second\",\"id\":1},{\"jsonrpc\":\"2.0\",\"result\":\"other\",\"id\":2}]");
+        assertEquals("second", get(second).get("result").asText());
+        assertEquals("other", get(other).get("result").asText());
+    }
+
+    public void testMaxBytes() throws Exception {
+        int size = mapper.writeValueAsBytes(request(1)).length;
+        CallBatcher batcher = batcher(TimeUnit.HOURS.toMillis(1), 100, 2 * size + 2);
+        batcher.submit(request(1), null);
+        assertTrue(sent.isEmpty());
+        batcher.submit(request(2), null);
+        assertEquals(2, nextSent().request.size());
+
+        // A request, which doesn't fit, sends the current batch
+        batcher = batcher(TimeUnit.HOURS.toMillis(1), 100, size + 5);
+        batcher.submit(request(1), null);
+        batcher.submit(request(2), null);
+        assertEquals(1, nextSent().request.get("id").asInt());
+    }
+
+    public void testMissingResponseFailsCall() throws Exception {
+        CallBatcher batcher = batcher(TimeUnit.HOURS.toMillis(1), 2, 1 << 20);
+        CompletableFuture<JsonNode> a = batcher.submit(request(1), null);
+        CompletableFuture<JsonNode> b = batcher.submit(request(2), null);
+        nextSent().respond("[{\"jsonrpc\":\"2.0\",\"result\":1,\"id\":1}]");
+        assertEquals(1, get(a).get("result").asInt());
+        try {
+            get(b);
+            fail("No response to the request is expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    public void testBatchErrorIsPassedToAllCalls() throws Exception {
+        CallBatcher batcher = batcher(TimeUnit.HOURS.toMillis(1), 2, 1 << 20);
+        CompletableFuture<JsonNode> a = batcher.submit(request(1), null);
+        CompletableFuture<JsonNode> b = batcher.submit(request(2), null);
+        nextSent().respond("{\"jsonrpc\":\"2.0\",\"error\":{\"code\":-32600,\"message\":\"Invalid Request\"},\"id\":null}");
+        assertEquals(-32600, get(a).get("error").get("code").asInt());
+        assertEquals(-32600, get(b).get("error").get("code").asInt());
+    }
+
+    public void testTransportFailureFailsAllCalls() throws Exception {
+        CallBatcher batcher = batcher(TimeUnit.HOURS.toMillis(1), 2, 1 << 20);
+        CompletableFuture<JsonNode> a = batcher.submit(request(1), null);
+        CompletableFuture<JsonNode> b = batcher.submit(request(2), null);
+        nextSent().future.completeExceptionally(new IOException("Connection reset"));
+        for (CompletableFuture<JsonNode> f : new CompletableFuture[]{a, b}) {
+            try {
+                get(f);
+                fail("The call should fail");
+            } catch (ExecutionException e) {
+                assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IllegalStateException);
+                assertTrue(e.getCause().getCause() instanceof IOException);
+            }
+        }
+    }
+
+    public void testLatestDeadlineIsPassed() throws Exception {
+        Deadline early = Deadline.after(1, TimeUnit.MINUTES);
+        Deadline late = Deadline.after(1, TimeUnit.HOURS);
+        CallBatcher batcher = batcher(TimeUnit.HOURS.toMillis(1), 2, 1 << 20);
+        batcher.submit(request(1), early);
+        batcher.submit(request(2), late);
+        assertSame(late, nextSent().deadline);
+
+        // A request without a deadline lifts the deadline of the batch
+        batcher.submit(request(1), early);
+        batcher.submit(request(2), null);
+        assertNull(nextSent().deadline);
+    }
+
+    public void testRequestWithoutId() {
+        ObjectNode notification = request(1);
+        notification.remove("id");
+        try {
+            batcher(1, 2, 1 << 20).submit(notification, null);
+            fail("Notifications cannot be batched");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    public void testInvalidSettings() {
+        try {
+            batcher(-1, 2, 100);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            batcher(1, 0, 100);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            batcher(1, 2, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    public void testSharedTraceIsPassedToTransport() throws Exception {
+        TraceParent trace = TraceParent.newRoot();
+        CallBatcher batcher = batcher(TimeUnit.HOURS.toMillis(1), 2, 1 << 20);
+        try {
+            TraceParent.setCurrent(trace);
+            batcher.submit(request(1), null);
+            batcher.submit(request(2), null);
+            assertEquals(trace, nextSent().traceParent);
+
+            // Calls of different traces are sent without a trace
+            batcher.submit(request(3), null);
+            TraceParent.setCurrent(TraceParent.newRoot());
+            batcher.submit(request(4), null);
+            assertNull(nextSent().traceParent);
+        } finally {
+            TraceParent.setCurrent(null);
+        }
+
+        // The batch sent at the end of the window gets the trace of its calls
+        batcher = batcher(20, 100, 1 << 20);
+        TraceParent.setCurrent(trace);
+        try {
+            batcher.submit(request(5), null);
+        } finally {
+            TraceParent.setCurrent(null);
+        }
+        assertEquals(trace, nextSent().traceParent);
+    }
+}
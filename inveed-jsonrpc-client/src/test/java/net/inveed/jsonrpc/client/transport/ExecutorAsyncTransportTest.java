@@ -0,0 +1,167 @@
+package net.inveed.jsonrpc.client.transport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.client.JsonRpcClient;
+import net.inveed.jsonrpc.client.StreamingTransport;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+import net.inveed.jsonrpc.core.deadline.Deadline;
+import net.inveed.jsonrpc.core.trace.TraceParent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ExecutorAsyncTransportTest extends TestCase {
+
+    @JsonRpcService("async")
+    public interface AsyncService {
+        @JsonRpcMethod
+        CompletableFuture<String> echo(@JsonRpcParam("s") String s);
+    }
+
+    /**
+     * Call of the blocking transport, as seen by it
+     */
+    private static final class Passed {
+        private final Thread thread;
+        private final Deadline deadline;
+        private final TraceParent traceParent;
+        private final String traceHeader;
+
+        private Passed(Thread thread, Deadline deadline, TraceParent traceParent, String traceHeader) {
+            this.thread = thread;
+            this.deadline = deadline;
+            this.traceParent = traceParent;
+            this.traceHeader = traceHeader;
+        }
+    }
+
+    private static final TraceParent TRACE = TraceParent.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final BlockingQueue<Passed> passed = new LinkedBlockingQueue<Passed>();
+    private final TraceParentInjector injector = new TraceParentInjector();
+
+    /**
+     * Blocking transport answering with the first param of the request
+     */
+    private final StreamingTransport transport = new StreamingTransport() {
+        @Override
+        public <T> T pass(RequestWriter request, ResponseReader<T> response) throws IOException {
+            passed.add(new Passed(Thread.currentThread(), Deadline.getCurrent(), TraceParent.getCurrent(), injector.get()));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            request.writeTo(out);
+            JsonNode requestNode = mapper.readTree(out.toByteArray());
+            JsonNode params = requestNode.get("params");
+            ObjectNode ret = mapper.createObjectNode();
+            ret.put("jsonrpc", "2.0");
+            ret.set("result", params.isArray() ? params.get(0) : params.get("s"));
+            ret.set("id", requestNode.get("id"));
+            return response.readFrom(new ByteArrayInputStream(mapper.writeValueAsBytes(ret)));
+        }
+    };
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @Override
+    protected void tearDown() {
+        executor.shutdownNow();
+        TraceParent.setCurrent(null);
+    }
+
+    private Passed nextPassed() throws InterruptedException {
+        Passed ret = passed.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Nothing is passed", ret);
+        return ret;
+    }
+
+    /**
+     * @return trace parent of the executor thread
+     */
+    private TraceParent executorTrace() throws Exception {
+        return executor.submit(TraceParent::getCurrent).get(5, TimeUnit.SECONDS);
+    }
+
+    public void testExecuteAsync() throws Exception {
+        JsonRpcClient client = new JsonRpcClient(transport, mapper, executor);
+        TraceParent.setCurrent(TRACE);
+        CompletableFuture<String> result = client.createRequest()
+                .method("echo")
+                .id(1)
+                .params("x")
+                .timeout(1, TimeUnit.MINUTES)
+                .returnAs(String.class)
+                .executeAsync();
+        assertEquals("x", result.get(5, TimeUnit.SECONDS));
+
+        Passed call = nextPassed();
+        assertNotSame(Thread.currentThread(), call.thread);
+        assertNotNull(call.deadline);
+        assertEquals(TRACE, call.traceParent);
+        // The header continues the trace of the calling thread
+        assertEquals(TRACE.getTraceId(), TraceParent.parse(call.traceHeader).getTraceId());
+        // The executor thread doesn't keep the trace
+        assertNull(executorTrace());
+    }
+
+    public void testAsyncProxyMethod() throws Exception {
+        AsyncService service = new JsonRpcClient(transport, mapper, executor).onDemand(AsyncService.class);
+        TraceParent.setCurrent(TRACE);
+        CompletableFuture<String> result = service.echo("y");
+        assertEquals("y", result.get(5, TimeUnit.SECONDS));
+        Passed call = nextPassed();
+        assertNotSame(Thread.currentThread(), call.thread);
+        assertEquals(TRACE, call.traceParent);
+
+        // Calls without a trace don't get the trace of an earlier call
+        TraceParent.setCurrent(null);
+        assertEquals("z", service.echo("z").get(5, TimeUnit.SECONDS));
+        call = nextPassed();
+        assertNull(call.traceParent);
+        assertNull(call.traceHeader);
+    }
+
+    public void testRejectedCallFails() throws Exception {
+        JsonRpcClient client = new JsonRpcClient(transport, mapper, command -> {
+            throw new RejectedExecutionException("Queue is full");
+        });
+        CompletableFuture<String> result = client.createRequest()
+                .method("echo")
+                .id(1)
+                .params("x")
+                .returnAs(String.class)
+                .executeAsync();
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("The call is rejected");
+        } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof RejectedExecutionException);
+        }
+        assertTrue(passed.isEmpty());
+    }
+
+    public void testSyncCallIsPassedOnCallingThread() throws Exception {
+        JsonRpcClient client = new JsonRpcClient(transport, mapper, executor);
+        assertEquals("x", client.createRequest().method("echo").id(1).params("x").returnAs(String.class).execute());
+        assertSame(Thread.currentThread(), nextPassed().thread);
+    }
+}
@@ -0,0 +1,230 @@
+package net.inveed.jsonrpc.client.transport;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.client.StreamingTransport.RequestWriter;
+import net.inveed.jsonrpc.client.StreamingTransport.ResponseReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+public class HttpTransportTest extends TestCase {
+
+    private static final String SMILE = "application/x-jackson-smile";
+
+    /**
+     * Request received by the server
+     */
+    private static final class Received {
+        private volatile String contentType;
+        private volatile String contentLength;
+        private volatile String transferEncoding;
+        private volatile String contentEncoding;
+        private volatile byte[] body;
+    }
+
+    /**
+     * Answers a request received by the server
+     */
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+    private final Received received = new Received();
+    private volatile Handler handler;
+    private HttpServer server;
+    private HttpTransport transport;
+
+    @Override
+    protected void setUp() throws IOException {
+        handler = this::echo;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                received.contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+                received.contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+                received.transferEncoding = exchange.getRequestHeaders().getFirst("Transfer-Encoding");
+                received.contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+                handler.handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        transport = new HttpTransport(new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/"));
+        transport.setReadTimeout(5000);
+    }
+
+    @Override
+    protected void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * Returns the decoded request body as a response
+     */
+    private void echo(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equals(received.contentEncoding)) {
+            in = new GZIPInputStream(in);
+        }
+        received.body = readAll(in);
+        exchange.getResponseHeaders().set("Content-Type", received.contentType);
+        exchange.sendResponseHeaders(200, received.body.length);
+        exchange.getResponseBody().write(received.body);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream ret = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            ret.write(buffer, 0, len);
+        }
+        return ret.toByteArray();
+    }
+
+    /**
+     * @return JSON-RPC request with a string param of the size
+     */
+    private static String request(int size) {
+        char[] param = new char[size];
+        Arrays.fill(param, 'x');
+        return "{\"jsonrpc\":\"2.0\",\"method\":\"echo\",\"params\":[\"" + new String(param) + "\"],\"id\":1}";
+    }
+
+    public void testSmallRequestHasFixedLength() throws IOException {
+        String request = request(100);
+        assertEquals(request, transport.pass(request));
+        assertEquals(Integer.toString(request.length()), received.contentLength);
+        assertNull(received.transferEncoding);
+        assertTrue(received.contentType.startsWith("application/json"));
+    }
+
+    public void testBigRequestIsChunked() throws IOException {
+        String request = request(100000);
+        assertEquals(request, transport.pass(request));
+        assertNull(received.contentLength);
+        assertEquals("chunked", received.transferEncoding);
+    }
+
+    public void testCompressionThreshold() throws IOException {
+        transport.setCompression(true);
+        transport.setCompressionThreshold(1000);
+
+        String request = request(100);
+        assertEquals(request, transport.pass(request));
+        assertEquals(Integer.toString(request.length()), received.contentLength);
+        assertNull(received.contentEncoding);
+
+        request = request(2000);
+        assertEquals(request, transport.pass(request));
+        assertEquals("chunked", received.transferEncoding);
+        assertEquals("gzip", received.contentEncoding);
+        assertEquals(request, new String(received.body, StandardCharsets.UTF_8));
+    }
+
+    public void testRequestIsStreamedBeforeItIsWritten() throws IOException {
+        final byte[] head = request(100000).getBytes(StandardCharsets.UTF_8);
+        final CountDownLatch headReceived = new CountDownLatch(1);
+        handler = exchange -> {
+            InputStream in = exchange.getRequestBody();
+            int read = 0;
+            while (read < head.length && in.read() != -1) {
+                read++;
+            }
+            headReceived.countDown();
+            received.body = readAll(in);
+            exchange.sendResponseHeaders(204, -1);
+        };
+        Boolean streamed = transport.pass(new RequestWriter() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(head);
+                out.flush();
+                try {
+                    // A buffered request would reach the server only after the writer returns
+                    if (!headReceived.await(5, TimeUnit.SECONDS)) {
+                        throw new IOException("The head of the request isn't received");
+                    }
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                out.write("tail".getBytes(StandardCharsets.UTF_8));
+            }
+        }, in -> readAll(in).length == 0);
+        assertTrue(streamed);
+        assertEquals("tail", new String(received.body, StandardCharsets.UTF_8));
+    }
+
+    public void testWireFormatIsWrittenAndReadDirectly() throws IOException {
+        transport.setWireFormat(SMILE, new SmileFactory());
+        final JsonNode request = mapper.readTree(request(100));
+        RequestWriter writer = new RequestWriter() {
+            @Override
+            public void writeTo(OutputStream out) {
+                throw new AssertionError("The request should be written in the wire format");
+            }
+
+            @Override
+            public void writeTo(OutputStream out, JsonFactory factory) throws IOException {
+                assertTrue(factory instanceof SmileFactory);
+                try (JsonGenerator generator = factory.createGenerator(out)) {
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    mapper.writeTree(generator, request);
+                }
+            }
+        };
+        ResponseReader<JsonNode> reader = new ResponseReader<JsonNode>() {
+            @Override
+            public JsonNode readFrom(InputStream in) {
+                throw new AssertionError("The response should be read in the wire format");
+            }
+
+            @Override
+            public JsonNode readFrom(InputStream in, JsonFactory factory) throws IOException {
+                assertTrue(factory instanceof SmileFactory);
+                try (JsonParser parser = factory.createParser(in)) {
+                    return mapper.readTree(parser);
+                }
+            }
+        };
+        assertEquals(request, transport.pass(writer, reader));
+        assertEquals(SMILE, received.contentType);
+        assertEquals(request, smileMapper.readTree(received.body));
+    }
+
+    public void testJsonResponseToWireFormatRequest() throws IOException {
+        transport.setWireFormat(SMILE, new SmileFactory());
+        handler = exchange -> {
+            received.body = readAll(exchange.getRequestBody());
+            byte[] response = "{\"jsonrpc\":\"2.0\",\"result\":1,\"id\":1}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        };
+        // Writers and readers speaking only JSON are converted by the default methods
+        String response = transport.pass(request(10));
+        assertEquals(mapper.readTree(request(10)), smileMapper.readTree(received.body));
+        assertEquals("{\"jsonrpc\":\"2.0\",\"result\":1,\"id\":1}", response);
+    }
+}
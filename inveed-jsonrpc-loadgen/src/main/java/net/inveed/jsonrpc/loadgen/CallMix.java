@@ -0,0 +1,68 @@
+package net.inveed.jsonrpc.loadgen;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted mix of call types, e.g. "single=70,batch=20,notification=10"
+ */
+public class CallMix {
+
+	public enum CallType {
+		SINGLE, BATCH, NOTIFICATION
+	}
+
+	private final int[] weights = new int[CallType.values().length];
+	private final int total;
+
+	/**
+	 * @param spec comma separated "type=weight" pairs, omitted types aren't sent
+	 * @throws IllegalArgumentException if the spec is not valid
+	 */
+	public CallMix(String spec) {
+		int sum = 0;
+		for (String part : spec.split(",")) {
+			String[] kv = part.trim().split("=");
+			if (kv.length != 2) {
+				throw new IllegalArgumentException("Invalid call mix '" + spec + "', expected type=weight pairs");
+			}
+			int weight = Integer.parseInt(kv[1].trim());
+			if (weight < 0) {
+				throw new IllegalArgumentException("Weight of " + kv[0] + " should not be negative");
+			}
+			this.weights[CallType.valueOf(kv[0].trim().toUpperCase()).ordinal()] = weight;
+			sum += weight;
+		}
+		if (sum == 0) {
+			throw new IllegalArgumentException("Call mix '" + spec + "' is empty");
+		}
+		this.total = sum;
+	}
+
+	/**
+	 * @return randomly chosen call type according to the weights
+	 */
+	public CallType next() {
+		int r = ThreadLocalRandom.current().nextInt(this.total);
+		for (CallType t : CallType.values()) {
+			r -= this.weights[t.ordinal()];
+			if (r < 0) {
+				return t;
+			}
+		}
+		throw new IllegalStateException();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (CallType t : CallType.values()) {
+			if (this.weights[t.ordinal()] > 0) {
+				if (sb.length() > 0) {
+					sb.append(',');
+				}
+				sb.append(t.name().toLowerCase()).append('=').append(this.weights[t.ordinal()]);
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,258 @@
+package net.inveed.jsonrpc.loadgen;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import net.inveed.jsonrpc.client.JsonRpcClient;
+import net.inveed.jsonrpc.client.builder.BatchRequestBuilder;
+import net.inveed.jsonrpc.client.transport.SocketTransport;
+import net.inveed.jsonrpc.loadgen.CallMix.CallType;
+import net.inveed.jsonrpc.server.servlet.JsonRpcServlet;
+import net.inveed.jsonrpc.server.socket.JsonRpcSocketServer;
+
+/**
+ * Drives {@link JsonRpcServlet} through {@link JsonRpcClient} and
+ * {@link ServletTransport} at a fixed rate and reports throughput, error rate
+ * and latency percentiles of the calls. With {@code --transport socket} the
+ * calls go through {@link SocketTransport} and {@link JsonRpcSocketServer}
+ * listening on the loopback interface instead.
+ *
+ * In the open loop, calls are scheduled at fixed intervals regardless of the
+ * responses and are executed by a pool of client threads. A call waits in the
+ * queue if all the threads are busy, and the wait counts to its latency.
+ * In the closed loop, every client thread sends its next call after the
+ * previous one is completed, paced to its share of the rate. Calls, which
+ * couldn't be sent because of a slow response, are counted by
+ * {@link LoadRecorder#recordClosed}. Use the open loop for capacity planning:
+ * a closed loop slows down with the server and understates the latency.
+ *
+ * Usage: LoadGenerator [--mode open|closed] [--rate calls/s] [--duration s]
+ * [--warmup s] [--threads n] [--mix single=80,batch=15,notification=5]
+ * [--batch-size n] [--work n] [--transport servlet|socket] [--connections n]
+ *
+ * A rate of 0 runs a closed loop as fast as possible.
+ */
+public class LoadGenerator {
+	private static final String METHOD = LoadService.NAME + "#work";
+
+	private String mode = "open";
+	private long rate = 1000;
+	private long durationSeconds = 30;
+	private long warmupSeconds = 5;
+	private int threads = 16;
+	private CallMix mix = new CallMix("single=80,batch=15,notification=5");
+	private int batchSize = 10;
+	private int work = 100;
+	private String transport = "servlet";
+	private int connections = 2;
+
+	private final AtomicLong ids = new AtomicLong();
+	private final AtomicBoolean errorPrinted = new AtomicBoolean();
+	private JsonRpcClient client;
+
+	public static void main(String[] args) throws Exception {
+		LoadGenerator generator = new LoadGenerator();
+		generator.parse(args);
+		generator.run();
+	}
+
+	private void parse(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Value of " + args[i] + " is missing");
+			}
+			String value = args[++i];
+			switch (args[i - 1]) {
+			case "--mode":
+				if (!"open".equals(value) && !"closed".equals(value)) {
+					throw new IllegalArgumentException("Mode should be open or closed");
+				}
+				this.mode = value;
+				break;
+			case "--rate":
+				this.rate = Long.parseLong(value);
+				break;
+			case "--duration":
+				this.durationSeconds = Long.parseLong(value);
+				break;
+			case "--warmup":
+				this.warmupSeconds = Long.parseLong(value);
+				break;
+			case "--threads":
+				this.threads = Integer.parseInt(value);
+				break;
+			case "--mix":
+				this.mix = new CallMix(value);
+				break;
+			case "--batch-size":
+				this.batchSize = Integer.parseInt(value);
+				break;
+			case "--work":
+				this.work = Integer.parseInt(value);
+				break;
+			case "--transport":
+				if (!"servlet".equals(value) && !"socket".equals(value)) {
+					throw new IllegalArgumentException("Transport should be servlet or socket");
+				}
+				this.transport = value;
+				break;
+			case "--connections":
+				this.connections = Integer.parseInt(value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+			}
+		}
+		if (this.rate <= 0 && "open".equals(this.mode)) {
+			throw new IllegalArgumentException("Open loop requires a positive rate");
+		}
+		if (this.rate > TimeUnit.SECONDS.toNanos(1) && "open".equals(this.mode)) {
+			// Calls are scheduled at whole nanoseconds
+			throw new IllegalArgumentException("Open loop rate should not exceed " + TimeUnit.SECONDS.toNanos(1) + " calls/s");
+		}
+	}
+
+	private void run() throws InterruptedException, IOException {
+		JsonRpcServlet servlet = new JsonRpcServlet();
+		servlet.getRpcServiceLocator().registerService(LoadService.NAME, LoadService.class);
+		JsonRpcSocketServer server = null;
+		SocketTransport socketTransport = null;
+		if ("socket".equals(this.transport)) {
+			server = new JsonRpcSocketServer(servlet.getJsonConfiguration(), servlet.getRpcServiceLocator(), servlet.getConfiguration());
+			server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+			socketTransport = new SocketTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()), this.connections);
+			this.client = new JsonRpcClient(socketTransport);
+		} else {
+			this.client = new JsonRpcClient(new ServletTransport(servlet));
+		}
+
+		try {
+			System.out.println("Mode: " + this.mode + ", rate: " + (this.rate > 0 ? this.rate + " calls/s" : "unlimited")
+					+ ", threads: " + this.threads + ", mix: " + this.mix + ", batch size: " + this.batchSize
+					+ ", transport: " + this.transport);
+			if (this.warmupSeconds > 0) {
+				System.out.println("Warming up for " + this.warmupSeconds + " s");
+				this.run(new LoadRecorder(), TimeUnit.SECONDS.toNanos(this.warmupSeconds));
+			}
+			System.out.println("Measuring for " + this.durationSeconds + " s");
+			LoadRecorder recorder = new LoadRecorder();
+			long elapsed = this.run(recorder, TimeUnit.SECONDS.toNanos(this.durationSeconds));
+			recorder.print(System.out, elapsed);
+		} finally {
+			if (socketTransport != null) {
+				socketTransport.close();
+			}
+			if (server != null) {
+				server.close();
+			}
+		}
+	}
+
+	/**
+	 * @return time until the last call was completed
+	 */
+	private long run(LoadRecorder recorder, long durationNanos) throws InterruptedException {
+		return "open".equals(this.mode) ? this.runOpen(recorder, durationNanos) : this.runClosed(recorder, durationNanos);
+	}
+
+	private long runOpen(LoadRecorder recorder, long durationNanos) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		long interval = TimeUnit.SECONDS.toNanos(1) / this.rate;
+		long start = System.nanoTime();
+		long calls = durationNanos / interval;
+		for (long i = 0; i < calls; i++) {
+			final long intended = start + i * interval;
+			long delay = intended - System.nanoTime();
+			if (delay > 0) {
+				LockSupport.parkNanos(delay);
+			}
+			final CallType type = this.mix.next();
+			executor.execute(() -> {
+				long sent = System.nanoTime();
+				boolean failed = !this.call(type);
+				recorder.record(type, intended, sent, System.nanoTime(), failed);
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.HOURS);
+		return System.nanoTime() - start;
+	}
+
+	private long runClosed(LoadRecorder recorder, long durationNanos) throws InterruptedException {
+		long interval = this.rate > 0 ? TimeUnit.SECONDS.toNanos(1) * this.threads / this.rate : 0;
+		long start = System.nanoTime();
+		long end = start + durationNanos;
+		Thread[] workers = new Thread[this.threads];
+		for (int t = 0; t < this.threads; t++) {
+			workers[t] = new Thread(() -> {
+				long next = System.nanoTime();
+				while (next < end) {
+					long delay = next - System.nanoTime();
+					if (delay > 0) {
+						LockSupport.parkNanos(delay);
+					}
+					CallType type = this.mix.next();
+					long sent = System.nanoTime();
+					boolean failed = !this.call(type);
+					long completed = System.nanoTime();
+					recorder.recordClosed(type, sent, completed, failed, interval);
+					// A late loop doesn't send a burst to catch up
+					next = interval > 0 ? Math.max(next + interval, completed) : completed;
+				}
+			}, "loadgen-" + t);
+			workers[t].start();
+		}
+		for (Thread w : workers) {
+			w.join();
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * @return {@code false} if the call failed
+	 */
+	private boolean call(CallType type) {
+		try {
+			switch (type) {
+			case SINGLE:
+				long id = this.ids.incrementAndGet();
+				this.client.createRequest()
+						.method(METHOD)
+						.id(id)
+						.param("value", "v" + id)
+						.param("work", this.work)
+						.returnAs(Long.class)
+						.execute();
+				break;
+			case BATCH:
+				BatchRequestBuilder<?, ?> batch = this.client.createBatchRequest();
+				for (int i = 0; i < this.batchSize; i++) {
+					long elementId = this.ids.incrementAndGet();
+					batch.add(elementId, METHOD, "v" + elementId, this.work);
+				}
+				batch.keysType(Long.class).returnType(Long.class).execute();
+				break;
+			case NOTIFICATION:
+				this.client.createNotification()
+						.method(METHOD)
+						.param("value", "n")
+						.param("work", this.work)
+						.execute();
+				break;
+			}
+			return true;
+		} catch (RuntimeException e) {
+			if (this.errorPrinted.compareAndSet(false, true)) {
+				System.err.println("First failed call (" + type + "): " + e);
+			}
+			return false;
+		}
+	}
+}
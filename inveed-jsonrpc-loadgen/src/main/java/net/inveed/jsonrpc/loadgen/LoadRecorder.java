@@ -0,0 +1,127 @@
+package net.inveed.jsonrpc.loadgen;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.inveed.jsonrpc.loadgen.CallMix.CallType;
+import net.inveed.jsonrpc.server.metrics.JsonRpcLatencyHistogram;
+
+/**
+ * Latencies and errors of the calls by call type.
+ *
+ * The response time of a call is measured from the time the call was
+ * scheduled to be sent, not from the time it was actually sent. If the system
+ * stalls, the calls which should have been sent during the stall are counted
+ * with the time they waited, instead of being silently omitted (coordinated
+ * omission). The service time, measured from the actual send, is recorded too,
+ * the difference shows how much of the latency is queueing.
+ */
+public class LoadRecorder {
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+
+	private static final class Stats {
+		private final JsonRpcLatencyHistogram responseTime = new JsonRpcLatencyHistogram();
+		private final JsonRpcLatencyHistogram serviceTime = new JsonRpcLatencyHistogram();
+		private final LongAdder errors = new LongAdder();
+	}
+
+	private final Stats[] stats = new Stats[CallType.values().length];
+	private final Stats all = new Stats();
+
+	public LoadRecorder() {
+		for (int i = 0; i < this.stats.length; i++) {
+			this.stats[i] = new Stats();
+		}
+	}
+
+	/**
+	 * Records a call
+	 *
+	 * @param type		call type
+	 * @param intended	time the call was scheduled to be sent, {@link System#nanoTime()}
+	 * @param sent		time the call was sent
+	 * @param completed	time the response was received
+	 * @param failed	{@code true} if the call failed
+	 */
+	public void record(CallType type, long intended, long sent, long completed, boolean failed) {
+		Stats s = this.stats[type.ordinal()];
+		long responseTime = completed - intended;
+		long serviceTime = completed - sent;
+		s.responseTime.record(responseTime);
+		s.serviceTime.record(serviceTime);
+		this.all.responseTime.record(responseTime);
+		this.all.serviceTime.record(serviceTime);
+		if (failed) {
+			s.errors.increment();
+			this.all.errors.increment();
+		}
+	}
+
+	/**
+	 * Records a call of a closed loop, where the next call is sent only after the
+	 * previous one is completed. If the call took longer than the interval between
+	 * the calls, the calls, which the loop couldn't send meanwhile, are recorded
+	 * with the latencies they would have had, like HdrHistogram's
+	 * {@code recordValueWithExpectedInterval}.
+	 *
+	 * @param interval	expected interval between the calls in nanoseconds, 0 if the loop isn't paced
+	 */
+	public void recordClosed(CallType type, long sent, long completed, boolean failed, long interval) {
+		this.record(type, sent, sent, completed, failed);
+		if (interval <= 0) {
+			return;
+		}
+		Stats s = this.stats[type.ordinal()];
+		for (long missed = completed - sent - interval; missed >= interval; missed -= interval) {
+			s.responseTime.record(missed);
+			this.all.responseTime.record(missed);
+		}
+	}
+
+	/**
+	 * Prints throughput, error rate and latency percentiles by call type
+	 *
+	 * @param out			stream to print to
+	 * @param elapsedNanos	duration of the measurement
+	 */
+	public void print(PrintStream out, long elapsedNanos) {
+		double seconds = elapsedNanos / 1e9;
+		StringBuilder header = new StringBuilder(String.format(Locale.ROOT, "%-14s %-9s %10s %10s %8s", "calls", "latency", "count", "ops/s", "errors%"));
+		for (double p : PERCENTILES) {
+			header.append(String.format(Locale.ROOT, " %9s", "p" + (p == Math.rint(p) ? String.valueOf((long) p) : String.valueOf(p))));
+		}
+		header.append(String.format(Locale.ROOT, " %9s", "max"));
+		out.println(header);
+		for (CallType t : CallType.values()) {
+			this.print(out, t.name().toLowerCase(), this.stats[t.ordinal()], seconds);
+		}
+		this.print(out, "all", this.all, seconds);
+		out.println("Latencies are in milliseconds. Response time is counted from the scheduled send time, service time from the actual one.");
+	}
+
+	private void print(PrintStream out, String name, Stats s, double seconds) {
+		long count = s.serviceTime.getCount();
+		if (count == 0) {
+			return;
+		}
+		double errors = 100.0 * s.errors.sum() / count;
+		this.printRow(out, name, "response", s.responseTime, count, seconds, errors);
+		this.printRow(out, "", "service", s.serviceTime, count, seconds, errors);
+	}
+
+	private void printRow(PrintStream out, String name, String latency, JsonRpcLatencyHistogram h, long count, double seconds, double errors) {
+		StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "%-14s %-9s %10d %10.1f %8.3f",
+				name, latency, count, count / seconds, errors));
+		for (double p : PERCENTILES) {
+			sb.append(String.format(Locale.ROOT, " %9.3f", toMillis(h.getPercentile(p))));
+		}
+		sb.append(String.format(Locale.ROOT, " %9.3f", toMillis(h.getMax())));
+		out.println(sb);
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
@@ -0,0 +1,37 @@
+package net.inveed.jsonrpc.loadgen;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+
+/**
+ * Service called by the load generator. It's injected with the HTTP request,
+ * so every call goes through the request scope and the HK2 lookups.
+ * Calls over the socket endpoint have no HTTP request.
+ */
+@JsonRpcService(LoadService.NAME)
+public class LoadService {
+	public static final String NAME = "load";
+
+	@Inject
+	private HttpServletRequest request;
+
+	/**
+	 * Does some CPU work
+	 *
+	 * @param value	value to hash
+	 * @param work	number of hashing rounds
+	 * @return hash of the value and the client address
+	 */
+	@JsonRpcMethod
+	public long work(@JsonRpcParam("value") String value, @JsonRpcParam("work") int work) {
+		long h = this.request != null ? this.request.getRemoteAddr().hashCode() : 0;
+		for (int i = 0; i < work; i++) {
+			h = h * 31 + value.hashCode() + i;
+		}
+		return h;
+	}
+}
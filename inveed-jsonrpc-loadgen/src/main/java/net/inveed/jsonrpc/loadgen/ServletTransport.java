@@ -0,0 +1,152 @@
+package net.inveed.jsonrpc.loadgen;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.inveed.jsonrpc.client.StreamingTransport;
+import net.inveed.jsonrpc.server.servlet.JsonRpcServlet;
+
+/**
+ * Client transport calling {@link JsonRpcServlet#service} in the calling thread,
+ * like a servlet container without the network. Messages are passed as bytes.
+ * Requests come from the addresses 10.0.0.0 - 10.0.255.255 in turn.
+ */
+public class ServletTransport implements StreamingTransport {
+	private final JsonRpcServlet servlet;
+	private int counter;
+
+	public ServletTransport(JsonRpcServlet servlet) {
+		this.servlet = servlet;
+	}
+
+	@Override
+	public <T> T pass(RequestWriter request, ResponseReader<T> response) throws IOException {
+		int n;
+		synchronized (this) {
+			n = this.counter++;
+		}
+		String addr = "10.0." + ((n >> 8) & 0xff) + "." + (n & 0xff);
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		request.writeTo(body);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int[] status = { HttpServletResponse.SC_OK };
+		try {
+			this.servlet.service(request(body.toByteArray(), addr), response(out, status));
+		} catch (ServletException e) {
+			throw new IOException(e);
+		}
+		if (status[0] >= 500 && out.size() == 0) {
+			throw new IOException("HTTP " + status[0]);
+		}
+		return response.readFrom(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	private static HttpServletRequest request(byte[] body, String remoteAddr) {
+		final ServletInputStream in = new ServletInputStream() {
+			private final ByteArrayInputStream data = new ByteArrayInputStream(body);
+
+			@Override
+			public int read() throws IOException {
+				return this.data.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return this.data.read(b, off, len);
+			}
+
+			@Override
+			public boolean isFinished() {
+				return this.data.available() == 0;
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setReadListener(ReadListener readListener) {
+				throw new UnsupportedOperationException();
+			}
+		};
+		return (HttpServletRequest) Proxy.newProxyInstance(
+				ServletTransport.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class },
+				(proxy, method, margs) -> {
+					switch (method.getName()) {
+					case "getMethod":
+						return "POST";
+					case "getProtocol":
+						return "HTTP/1.1";
+					case "getContentType":
+						return "application/json";
+					case "getInputStream":
+						return in;
+					case "getRemoteAddr":
+						return remoteAddr;
+					default:
+						return defaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private static HttpServletResponse response(ByteArrayOutputStream out, int[] status) {
+		final ServletOutputStream os = new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+				throw new UnsupportedOperationException();
+			}
+		};
+		return (HttpServletResponse) Proxy.newProxyInstance(
+				ServletTransport.class.getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class },
+				(proxy, method, margs) -> {
+					switch (method.getName()) {
+					case "getOutputStream":
+						return os;
+					case "setStatus":
+						status[0] = (Integer) margs[0];
+						return null;
+					default:
+						return defaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == long.class) {
+			return 0L;
+		}
+		return null;
+	}
+}
@@ -10,12 +10,15 @@ import org.slf4j.LoggerFactory;
 
 import net.inveed.jsonrpc.server.typeutils.JsonRpcTypeExt;
 import net.inveed.commons.reflection.BeanTypeDesc;
+import net.inveed.commons.reflection.JavaTypeDesc;
+import net.inveed.commons.reflection.JavaTypeRegistry;
 
 public class HK2JsonRpcServiceProvider implements IJsonRpcServiceProvider {
 	private static final Logger LOG = LoggerFactory.getLogger(HK2JsonRpcServiceProvider.class);
 	
 	private ServiceLocator locator;
 	private final HashMap<String, Class<?>> services = new HashMap<>();
+	private final JsonRpcDispatchTable dispatchTable = new JsonRpcDispatchTable();
 
 	@Override
 	public Object getService(String requestMethod) {
@@ -25,12 +28,48 @@ public class HK2JsonRpcServiceProvider implements IJsonRpcServiceProvider {
 		}
 		
 		BeanTypeDesc<?> retType = JsonRpcTypeExt.getService(ma[0]);
-		
+		if (retType == null) {
+			return null;
+		}
+		return this.createService(retType);
+	}
+
+	@Override
+	public JsonRpcDispatchEntry resolve(String requestMethod) {
+		JsonRpcDispatchEntry entry = this.dispatchTable.get(requestMethod);
+		if (entry != null) {
+			return entry;
+		}
+
+		// Not registered yet: look for the service among the known JSON-RPC types
+		// and put the method to the table, so next calls will find it
+		String normalized = JsonRpcDispatchTable.normalize(requestMethod);
+		if (normalized == null) {
+			LOG.warn("Cannot find service#method for method {}", requestMethod);
+			return null;
+		}
+		String serviceName = JsonRpcDispatchTable.getServiceName(normalized);
+		final BeanTypeDesc<?> serviceType = JsonRpcTypeExt.getService(serviceName);
+		if (serviceType == null) {
+			LOG.warn("Cannot find service for method {}", requestMethod);
+			return null;
+		}
+		entry = this.dispatchTable.register(
+				serviceName, 
+				JsonRpcDispatchTable.getMethodName(normalized), 
+				serviceType, 
+				() -> this.createService(serviceType));
+		if (entry == null) {
+			LOG.error("Unable find a method: '" + requestMethod + "' in a " + serviceType.getFullName());
+		}
+		return entry;
+	}
+
+	private Object createService(BeanTypeDesc<?> type) {
 		if (this.getServiceLocator() == null) {
-			return retType.newInstance();
+			return type.newInstance();
 		}
-		
-		return this.getServiceLocator().getService(retType.getType());
+		return this.getServiceLocator().getService(type.getType());
 	}
 
 	@Override
@@ -56,6 +95,16 @@ public class HK2JsonRpcServiceProvider implements IJsonRpcServiceProvider {
 		assert(name != null);
 		this.services.put(name, service);
 		ServiceLocatorUtilities.addClasses(this.getServiceLocator(), service);
+
+		JavaTypeDesc<?> type = JavaTypeRegistry.getType(service);
+		if (type instanceof BeanTypeDesc<?>) {
+			final BeanTypeDesc<?> serviceType = (BeanTypeDesc<?>) type;
+			this.dispatchTable.register(name, serviceType, () -> this.createService(serviceType));
+		}
+	}
+
+	public JsonRpcDispatchTable getDispatchTable() {
+		return this.dispatchTable;
 	}
 
 	public void registerService(BeanTypeDesc<?> service) {
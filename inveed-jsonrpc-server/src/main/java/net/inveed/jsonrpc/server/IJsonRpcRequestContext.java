@@ -5,10 +5,23 @@ import java.io.Closeable;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import net.inveed.jsonrpc.core.trace.TraceParent;
+
 public interface IJsonRpcRequestContext extends Closeable {
 	public void registerCloseable(Closeable o);
 	public void setHttpServletRequest(HttpServletRequest req);
 	public HttpServletRequest getHttpServletRequest();
 	public void setHttpServletResponse(HttpServletResponse resp);
 	public HttpServletResponse getHttpServletResponse();
+
+	/**
+	 * Keeps the trace parent of the request, so the elements of a batch share it.
+	 * Contexts, which don't keep it, get the trace parent parsed for every call.
+	 */
+	public default void setTraceParent(TraceParent traceParent) {
+	}
+
+	public default TraceParent getTraceParent() {
+		return null;
+	}
 }
@@ -6,4 +6,15 @@ public interface IJsonRpcServiceProvider {
 
 	Object getService(String requestMethod);
 
+	/**
+	 * Resolves a JSON-RPC request method to the service and its methods.
+	 * Default implementation gets the service instance on every call and
+	 * shares the methods found for its class, see {@link JsonRpcDispatchEntry#lookup}.
+	 *
+	 * @param requestMethod JSON-RPC request method ("service#method")
+	 * @return resolved entry or null if the method cannot be found
+	 */
+	default JsonRpcDispatchEntry resolve(String requestMethod) {
+		return JsonRpcDispatchEntry.lookup(this, requestMethod);
+	}
 }
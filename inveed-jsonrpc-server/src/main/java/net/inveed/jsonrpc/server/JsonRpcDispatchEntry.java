@@ -0,0 +1,173 @@
+package net.inveed.jsonrpc.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.inveed.commons.reflection.BeanTypeDesc;
+import net.inveed.commons.reflection.JavaTypeDesc;
+import net.inveed.commons.reflection.JavaTypeRegistry;
+import net.inveed.commons.reflection.MethodMetadata;
+import net.inveed.jsonrpc.server.typeutils.JsonRpcMethodExt;
+import net.inveed.jsonrpc.server.typeutils.JsonRpcOverloadIndex;
+
+/**
+ * Resolved target of a JSON-RPC "service#method" name: the service type,
+ * a factory for service instances and all the JSON-RPC methods sharing the name.
+ */
+public class JsonRpcDispatchEntry {
+	private static final Logger LOG = LoggerFactory.getLogger(JsonRpcDispatchEntry.class);
+
+	/**
+	 * Entries found by {@link #lookup}, by service class and method name.
+	 * They have no service factory: lookups share their methods and overload index.
+	 */
+	private static final ClassValue<ConcurrentHashMap<String, JsonRpcDispatchEntry>> RESOLVED =
+			new ClassValue<ConcurrentHashMap<String, JsonRpcDispatchEntry>>() {
+		@Override
+		protected ConcurrentHashMap<String, JsonRpcDispatchEntry> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private final String serviceName;
+	private final String methodName;
+	private final BeanTypeDesc<?> serviceType;
+	private final List<JsonRpcMethodExt> methods;
+	private final Supplier<?> serviceFactory;
+	private final JsonRpcOverloadIndex overloads;
+
+	public JsonRpcDispatchEntry(String serviceName,
+								String methodName,
+								BeanTypeDesc<?> serviceType,
+								List<JsonRpcMethodExt> methods,
+								Supplier<?> serviceFactory) {
+		this.serviceName = serviceName;
+		this.methodName = methodName;
+		this.serviceType = serviceType;
+		this.methods = Collections.unmodifiableList(methods);
+		this.serviceFactory = serviceFactory;
+		this.overloads = methods.size() > 1 ? new JsonRpcOverloadIndex(methods) : null;
+	}
+
+	private JsonRpcDispatchEntry(JsonRpcDispatchEntry resolved, Supplier<?> serviceFactory) {
+		this.serviceName = resolved.serviceName;
+		this.methodName = resolved.methodName;
+		this.serviceType = resolved.serviceType;
+		this.methods = resolved.methods;
+		this.serviceFactory = serviceFactory;
+		this.overloads = resolved.overloads;
+	}
+
+	public String getServiceName() {
+		return this.serviceName;
+	}
+
+	public String getMethodName() {
+		return this.methodName;
+	}
+
+	public BeanTypeDesc<?> getServiceType() {
+		return this.serviceType;
+	}
+
+	/**
+	 * @return JSON-RPC methods (overloads) with the requested name, never empty
+	 */
+	public List<JsonRpcMethodExt> getMethods() {
+		return this.methods;
+	}
+
+	/**
+	 * @return index of the overloads or null if there is a single method
+	 */
+	public JsonRpcOverloadIndex getOverloads() {
+		return this.overloads;
+	}
+
+	/**
+	 * @return service instance to invoke the method on
+	 */
+	public Object getServiceInstance() {
+		return this.serviceFactory.get();
+	}
+
+	/**
+	 * Finds all the methods of a type with the specified name, annotated for JSON-RPC invocation
+	 *
+	 * @param type			service type
+	 * @param methodName	java method name
+	 * @return list of methods, empty if there is no such method
+	 */
+	public static List<JsonRpcMethodExt> findMethods(BeanTypeDesc<?> type, String methodName) {
+		List<MethodMetadata> methodsForName = type.getMethods(methodName, null);
+		if (methodsForName == null || methodsForName.size() == 0) {
+			return Collections.emptyList();
+		}
+		ArrayList<JsonRpcMethodExt> ret = new ArrayList<>(methodsForName.size());
+		for (MethodMetadata method : methodsForName) {
+			JsonRpcMethodExt me = method.getExtension(JsonRpcMethodExt.class);
+			if (me == null) {
+				// Method wasn't annotated for JSON-RPC invocation
+				continue;
+			}
+			ret.add(me);
+		}
+		return ret;
+	}
+
+	/**
+	 * Resolves a request method through {@link IJsonRpcServiceProvider#getService(String)} and
+	 * {@link IJsonRpcServiceProvider#getMethodName(String)} on every call.
+	 * Methods of a service class are searched once: returned entries share them and
+	 * their overload index, differing only by the service instance.
+	 * Used by providers without a dispatch table.
+	 *
+	 * @param provider		service provider
+	 * @param requestMethod	JSON-RPC request method ("service#method")
+	 * @return resolved entry or null if the method cannot be found
+	 */
+	public static JsonRpcDispatchEntry lookup(IJsonRpcServiceProvider provider, String requestMethod) {
+		final Object serviceInstance = provider.getService(requestMethod);
+		if (serviceInstance == null) {
+			LOG.warn("Cannot find service for method {}", requestMethod);
+			return null;
+		}
+		LOG.debug("Got service object with type {}", serviceInstance.getClass().getName());
+
+		String methodName = provider.getMethodName(requestMethod);
+		if (methodName == null) {
+			LOG.warn("Cannot find service#method for method {}", requestMethod);
+			return null;
+		}
+
+		ConcurrentHashMap<String, JsonRpcDispatchEntry> resolved = RESOLVED.get(serviceInstance.getClass());
+		JsonRpcDispatchEntry entry = resolved.get(methodName);
+		if (entry == null) {
+			JavaTypeDesc<?> javaType = JavaTypeRegistry.getType(serviceInstance.getClass());
+			if (!(javaType instanceof BeanTypeDesc<?>)) {
+				LOG.warn(serviceInstance.getClass() + " is not available as a JSON-RPC 2.0 service");
+				return null;
+			}
+
+			BeanTypeDesc<?> classMetadata = (BeanTypeDesc<?>) javaType;
+			List<JsonRpcMethodExt> methods = findMethods(classMetadata, methodName);
+			if (methods.size() == 0) {
+				// Unknown methods are not cached: the table would grow with every misspelled name
+				LOG.error("Unable find a method: '" + methodName + "' in a " + serviceInstance.getClass());
+				return null;
+			}
+			entry = new JsonRpcDispatchEntry(null, methodName, classMetadata, methods, null);
+			JsonRpcDispatchEntry existing = resolved.putIfAbsent(methodName, entry);
+			if (existing != null) {
+				entry = existing;
+			}
+		}
+		return new JsonRpcDispatchEntry(entry, () -> serviceInstance);
+	}
+}
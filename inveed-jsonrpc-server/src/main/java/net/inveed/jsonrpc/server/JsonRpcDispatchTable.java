@@ -0,0 +1,149 @@
+package net.inveed.jsonrpc.server;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import net.inveed.commons.reflection.BeanTypeDesc;
+import net.inveed.jsonrpc.server.typeutils.JsonRpcMethodExt;
+
+/**
+ * Maps JSON-RPC wire method names ("service#method") to resolved {@link JsonRpcDispatchEntry}.
+ *
+ * Lookups are lock-free reads of an immutable map. Registrations copy the map and
+ * publish the new one, so services may be registered while requests are being served.
+ */
+public class JsonRpcDispatchTable {
+	public static final char SEPARATOR = '#';
+
+	private volatile Map<String, JsonRpcDispatchEntry> entries = Collections.emptyMap();
+
+	/**
+	 * Finds an entry by a request method as it came from the wire.
+	 *
+	 * @param requestMethod JSON-RPC request method
+	 * @return entry or null if the method wasn't registered
+	 */
+	public JsonRpcDispatchEntry get(String requestMethod) {
+		if (requestMethod == null) {
+			return null;
+		}
+		Map<String, JsonRpcDispatchEntry> current = this.entries;
+		JsonRpcDispatchEntry ret = current.get(requestMethod);
+		if (ret != null) {
+			return ret;
+		}
+		String normalized = normalize(requestMethod);
+		if (normalized == null || normalized.equals(requestMethod)) {
+			return null;
+		}
+		return current.get(normalized);
+	}
+
+	/**
+	 * Registers all the JSON-RPC methods declared by a service type.
+	 *
+	 * @param serviceName		service name
+	 * @param serviceType		service type
+	 * @param serviceFactory	factory of service instances
+	 */
+	public void register(String serviceName, BeanTypeDesc<?> serviceType, Supplier<?> serviceFactory) {
+		serviceName = normalizeService(serviceName);
+		HashMap<String, JsonRpcDispatchEntry> added = new HashMap<>();
+		for (String methodName : serviceType.getDeclaredMethods().keySet()) {
+			JsonRpcDispatchEntry entry = createEntry(serviceName, methodName, serviceType, serviceFactory);
+			if (entry != null) {
+				added.put(key(serviceName, methodName), entry);
+			}
+		}
+		this.putAll(added);
+	}
+
+	/**
+	 * Registers a single method of a service type, including inherited ones.
+	 *
+	 * @param serviceName		service name
+	 * @param methodName		method name
+	 * @param serviceType		service type
+	 * @param serviceFactory	factory of service instances
+	 * @return registered entry or null if the type has no JSON-RPC method with such name
+	 */
+	public JsonRpcDispatchEntry register(String serviceName, String methodName, BeanTypeDesc<?> serviceType, Supplier<?> serviceFactory) {
+		serviceName = normalizeService(serviceName);
+		JsonRpcDispatchEntry entry = createEntry(serviceName, methodName, serviceType, serviceFactory);
+		if (entry == null) {
+			return null;
+		}
+		this.putAll(Collections.singletonMap(key(serviceName, methodName), entry));
+		return entry;
+	}
+
+	/**
+	 * @return snapshot of all registered entries
+	 */
+	public Map<String, JsonRpcDispatchEntry> getEntries() {
+		return this.entries;
+	}
+
+	private synchronized void putAll(Map<String, JsonRpcDispatchEntry> added) {
+		if (added.isEmpty()) {
+			return;
+		}
+		HashMap<String, JsonRpcDispatchEntry> copy = new HashMap<>(this.entries);
+		copy.putAll(added);
+		this.entries = Collections.unmodifiableMap(copy);
+	}
+
+	private static JsonRpcDispatchEntry createEntry(String serviceName, String methodName, BeanTypeDesc<?> serviceType, Supplier<?> serviceFactory) {
+		List<JsonRpcMethodExt> methods = JsonRpcDispatchEntry.findMethods(serviceType, methodName);
+		if (methods.size() == 0) {
+			return null;
+		}
+		return new JsonRpcDispatchEntry(serviceName, methodName, serviceType, methods, serviceFactory);
+	}
+
+	private static String key(String serviceName, String methodName) {
+		return serviceName + SEPARATOR + methodName;
+	}
+
+	private static String normalizeService(String serviceName) {
+		return serviceName.trim().toLowerCase();
+	}
+
+	/**
+	 * Brings a request method to the form used as a table key:
+	 * service name is trimmed and lower-cased, method name is kept as is.
+	 *
+	 * @param requestMethod JSON-RPC request method
+	 * @return normalized method or null if it's not a "service#method" string
+	 */
+	public static String normalize(String requestMethod) {
+		int idx = requestMethod.indexOf(SEPARATOR);
+		if (idx < 0 || idx == requestMethod.length() - 1 || requestMethod.indexOf(SEPARATOR, idx + 1) >= 0) {
+			return null;
+		}
+		String serviceName = normalizeService(requestMethod.substring(0, idx));
+		if (serviceName.length() == 0) {
+			return null;
+		}
+		return key(serviceName, requestMethod.substring(idx + 1));
+	}
+
+	/**
+	 * @param normalizedMethod method returned by {@link #normalize(String)}
+	 * @return service part of the method
+	 */
+	public static String getServiceName(String normalizedMethod) {
+		return normalizedMethod.substring(0, normalizedMethod.indexOf(SEPARATOR));
+	}
+
+	/**
+	 * @param normalizedMethod method returned by {@link #normalize(String)}
+	 * @return method part of the method
+	 */
+	public static String getMethodName(String normalizedMethod) {
+		return normalizedMethod.substring(normalizedMethod.indexOf(SEPARATOR) + 1);
+	}
+}
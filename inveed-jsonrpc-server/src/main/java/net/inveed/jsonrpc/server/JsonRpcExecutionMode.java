@@ -0,0 +1,18 @@
+package net.inveed.jsonrpc.server;
+
+/**
+ * Threads, on which JSON-RPC methods are invoked
+ */
+public enum JsonRpcExecutionMode {
+	/**
+	 * Requests are handled on the container threads or on the executors set in
+	 * {@link JsonRpcServerConfiguration}
+	 */
+	CONTAINER_THREADS,
+
+	/**
+	 * Each request and each batch element is handled on its own virtual thread,
+	 * unless an executor is set explicitly. Requires a JVM with virtual threads.
+	 */
+	VIRTUAL_THREADS
+}
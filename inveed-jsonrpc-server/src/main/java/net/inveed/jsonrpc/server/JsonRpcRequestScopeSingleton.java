@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.inject.Singleton;
 
@@ -24,6 +25,12 @@ public class JsonRpcRequestScopeSingleton implements Context<JsonRpcRequestScope
 
         private final AtomicInteger referenceCounter;
 
+        /**
+         * Instance may be shared by the tasks of a parallel batch. A lock instead of
+         * synchronized, which pins virtual threads while services are created.
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+
         private Instance() {
             this.store = new HashMap<ActiveDescriptor<?>, Object>();
             this.referenceCounter = new AtomicInteger(1);
@@ -37,27 +44,48 @@ public class JsonRpcRequestScopeSingleton implements Context<JsonRpcRequestScope
 
         @SuppressWarnings("unchecked")
         <T> T get(ActiveDescriptor<T> descriptor) {
-            return (T) store.get(descriptor);
+            lock.lock();
+            try {
+                return (T) store.get(descriptor);
+            } finally {
+                lock.unlock();
+            }
         }
 
         @SuppressWarnings("unchecked")
         <T> T put(ActiveDescriptor<T> descriptor, T value) {
-            if(store.containsKey(descriptor)) {
-            	return null;
+            lock.lock();
+            try {
+                if(store.containsKey(descriptor)) {
+                	return null;
+                }
+                return (T) store.put(descriptor, value);
+            } finally {
+                lock.unlock();
             }
-            return (T) store.put(descriptor, value);
         }
 
         @SuppressWarnings("unchecked")
         <T> void remove(ActiveDescriptor<T> descriptor) {
-            final T removed = (T) store.remove(descriptor);
+            final T removed;
+            lock.lock();
+            try {
+                removed = (T) store.remove(descriptor);
+            } finally {
+                lock.unlock();
+            }
             if (removed != null) {
                 descriptor.dispose(removed);
             }
         }
 
         private <T> boolean contains(ActiveDescriptor<T> provider) {
-            return store.containsKey(provider);
+            lock.lock();
+            try {
+                return store.containsKey(provider);
+            } finally {
+                lock.unlock();
+            }
         }
 
         public void release() {
@@ -87,12 +115,17 @@ public class JsonRpcRequestScopeSingleton implements Context<JsonRpcRequestScope
 
         final Instance instance = current();
 
-        U retVal = instance.get(activeDescriptor);
-        if (retVal == null) {
-            retVal = activeDescriptor.create(root);
-            instance.put(activeDescriptor, retVal);
+        instance.lock.lock();
+        try {
+            U retVal = instance.get(activeDescriptor);
+            if (retVal == null) {
+                retVal = activeDescriptor.create(root);
+                instance.put(activeDescriptor, retVal);
+            }
+            return retVal;
+        } finally {
+            instance.lock.unlock();
         }
-        return retVal;
     }
 
     @Override
@@ -123,7 +156,12 @@ public class JsonRpcRequestScopeSingleton implements Context<JsonRpcRequestScope
     }
 
     private void resumeCurrent(Instance instance) {
-        currentScopeInstance.set(instance);
+        if (instance == null) {
+            // Don't keep an empty entry on pooled threads
+            currentScopeInstance.remove();
+        } else {
+            currentScopeInstance.set(instance);
+        }
     }
     
     @Override
@@ -143,6 +181,25 @@ public class JsonRpcRequestScopeSingleton implements Context<JsonRpcRequestScope
         }
     }
 
+    /**
+     * Runs a task in an existing request scope, e.g. on a thread of an executor.
+     * The instance reference is released after the task is finished.
+     *
+     * @param instance scope instance reference returned by {@link #suspendCurrent()}
+     *                 or {@link #referenceCurrent()}
+     * @param task     task to run
+     */
+    public void runInScope(Instance instance, Runnable task) {
+        final Instance oldInstance = retrieveCurrent();
+        try {
+            setCurrent(instance);
+            task.run();
+        } finally {
+            instance.release();
+            resumeCurrent(oldInstance);
+        }
+    }
+
     /**
      * Request scope injection binder.
      */
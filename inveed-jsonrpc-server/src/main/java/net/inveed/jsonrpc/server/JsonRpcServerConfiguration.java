@@ -0,0 +1,380 @@
+package net.inveed.jsonrpc.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.zip.Deflater;
+
+import net.inveed.jsonrpc.server.interceptor.IJsonRpcInterceptor;
+import net.inveed.jsonrpc.server.interceptor.JsonRpcInterceptorChain;
+import net.inveed.jsonrpc.server.limit.JsonRpcConcurrencyLimits;
+import net.inveed.jsonrpc.server.metrics.JsonRpcMetrics;
+
+/**
+ * Settings of JSON-RPC request processing
+ */
+public class JsonRpcServerConfiguration {
+	private boolean streamingRequests;
+	private boolean streamingResponses;
+	private Executor batchExecutor;
+	private int batchParallelism;
+	private boolean batchCompletionOrder = true;
+	private Executor asyncExecutor;
+	private long asyncTimeout;
+	private long maxRequestSize = 16 * 1024 * 1024;
+	private JsonRpcExecutionMode executionMode = JsonRpcExecutionMode.CONTAINER_THREADS;
+	private volatile ExecutorService virtualThreadExecutor;
+	private boolean responseCompression;
+	private int compressionThreshold = 1024;
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	private long maxDecodedRequestSize = 64 * 1024 * 1024;
+	private JsonRpcMetrics metrics;
+	private boolean metricsMethod;
+	private JsonRpcConcurrencyLimits concurrencyLimits;
+	private boolean deadlineCancellation = true;
+	private volatile ScheduledExecutorService deadlineScheduler;
+	private final List<JsonRpcWireFormat> wireFormats = new CopyOnWriteArrayList<>(Arrays.asList(
+			JsonRpcWireFormat.JSON, JsonRpcWireFormat.SMILE, JsonRpcWireFormat.CBOR));
+	private final List<IJsonRpcInterceptor> interceptors = new ArrayList<>();
+	private volatile JsonRpcInterceptorChain interceptorChain = JsonRpcInterceptorChain.EMPTY;
+
+	/**
+	 * @return {@code true} if requests are read with a streaming parser and
+	 *         params are bound directly to the method arguments
+	 */
+	public boolean isStreamingRequests() {
+		return this.streamingRequests;
+	}
+
+	public void setStreamingRequests(boolean streamingRequests) {
+		this.streamingRequests = streamingRequests;
+	}
+
+	/**
+	 * @return {@code true} if responses are written directly to the output stream
+	 *         without building a JSON tree of the whole response
+	 */
+	public boolean isStreamingResponses() {
+		return this.streamingResponses;
+	}
+
+	public void setStreamingResponses(boolean streamingResponses) {
+		this.streamingResponses = streamingResponses;
+	}
+
+	/**
+	 * @return executor for the elements of batch requests or null if they are
+	 *         handled one after another on the request thread
+	 */
+	public Executor getBatchExecutor() {
+		if (this.batchExecutor == null && this.executionMode == JsonRpcExecutionMode.VIRTUAL_THREADS) {
+			return this.getVirtualThreadExecutor();
+		}
+		return this.batchExecutor;
+	}
+
+	public void setBatchExecutor(Executor batchExecutor) {
+		this.batchExecutor = batchExecutor;
+	}
+
+	/**
+	 * @return max number of elements of a single batch running at the same time,
+	 *         0 if it's limited by the executor only
+	 */
+	public int getBatchParallelism() {
+		return this.batchParallelism;
+	}
+
+	public void setBatchParallelism(int batchParallelism) {
+		if (batchParallelism < 0) {
+			throw new IllegalArgumentException("Batch parallelism should not be negative");
+		}
+		this.batchParallelism = batchParallelism;
+	}
+
+	/**
+	 * @return {@code true} if responses of a parallel batch are returned in the
+	 *         order they were completed, {@code false} to keep the order of requests
+	 */
+	public boolean isBatchCompletionOrder() {
+		return this.batchCompletionOrder;
+	}
+
+	public void setBatchCompletionOrder(boolean batchCompletionOrder) {
+		this.batchCompletionOrder = batchCompletionOrder;
+	}
+
+	/**
+	 * @return executor for the requests processed asynchronously or null if the
+	 *         servlet processes requests on the container thread. Async mode
+	 *         requires the servlet to be registered with async support.
+	 */
+	public Executor getAsyncExecutor() {
+		if (this.asyncExecutor == null && this.executionMode == JsonRpcExecutionMode.VIRTUAL_THREADS) {
+			return this.getVirtualThreadExecutor();
+		}
+		return this.asyncExecutor;
+	}
+
+	public void setAsyncExecutor(Executor asyncExecutor) {
+		this.asyncExecutor = asyncExecutor;
+	}
+
+	/**
+	 * @return timeout of asynchronously processed requests in milliseconds,
+	 *         0 to keep the timeout of the container
+	 */
+	public long getAsyncTimeout() {
+		return this.asyncTimeout;
+	}
+
+	public void setAsyncTimeout(long asyncTimeout) {
+		this.asyncTimeout = asyncTimeout;
+	}
+
+	/**
+	 * @return max size of a request body in bytes, which is buffered by the servlet
+	 *         in async mode. Bigger requests are answered with 413 status.
+	 */
+	public long getMaxRequestSize() {
+		return this.maxRequestSize;
+	}
+
+	public void setMaxRequestSize(long maxRequestSize) {
+		if (maxRequestSize <= 0) {
+			throw new IllegalArgumentException("Max request size should be positive");
+		}
+		this.maxRequestSize = maxRequestSize;
+	}
+
+	public JsonRpcExecutionMode getExecutionMode() {
+		return this.executionMode;
+	}
+
+	/**
+	 * @param executionMode threads, on which requests are handled
+	 * @throws UnsupportedOperationException if virtual threads are requested,
+	 *         but not supported by the JVM
+	 */
+	public void setExecutionMode(JsonRpcExecutionMode executionMode) {
+		if (executionMode == JsonRpcExecutionMode.VIRTUAL_THREADS) {
+			if (!VirtualThreadsUtil.isSupported()) {
+				throw new UnsupportedOperationException("Virtual threads are not supported by the JVM");
+			}
+			// Created here, so requests get it without locking
+			this.getVirtualThreadExecutor();
+		}
+		this.executionMode = executionMode;
+	}
+
+	/**
+	 * @return {@code true} if responses are compressed with gzip or deflate,
+	 *         when the client accepts it
+	 */
+	public boolean isResponseCompression() {
+		return this.responseCompression;
+	}
+
+	public void setResponseCompression(boolean responseCompression) {
+		this.responseCompression = responseCompression;
+	}
+
+	/**
+	 * @return min size of a response body in bytes to compress it
+	 */
+	public int getCompressionThreshold() {
+		return this.compressionThreshold;
+	}
+
+	public void setCompressionThreshold(int compressionThreshold) {
+		if (compressionThreshold < 0) {
+			throw new IllegalArgumentException("Compression threshold should not be negative");
+		}
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	/**
+	 * @return compression level from 0 to 9 or -1 for the default level of {@link Deflater}
+	 */
+	public int getCompressionLevel() {
+		return this.compressionLevel;
+	}
+
+	public void setCompressionLevel(int compressionLevel) {
+		if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+			throw new IllegalArgumentException("Compression level should be from -1 to 9");
+		}
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * @return max size in bytes of a compressed request body after decoding.
+	 *         Bigger requests are answered with 413 status.
+	 */
+	public long getMaxDecodedRequestSize() {
+		return this.maxDecodedRequestSize;
+	}
+
+	public void setMaxDecodedRequestSize(long maxDecodedRequestSize) {
+		if (maxDecodedRequestSize <= 0) {
+			throw new IllegalArgumentException("Max decoded request size should be positive");
+		}
+		this.maxDecodedRequestSize = maxDecodedRequestSize;
+	}
+
+	/**
+	 * @return formats of messages accepted by the server, JSON first
+	 */
+	public List<JsonRpcWireFormat> getWireFormats() {
+		return Collections.unmodifiableList(this.wireFormats);
+	}
+
+	/**
+	 * Adds a format of messages or replaces the format with the same media type
+	 * 
+	 * @param format format of messages
+	 */
+	public synchronized void addWireFormat(JsonRpcWireFormat format) {
+		this.removeWireFormat(format.getMediaType());
+		this.wireFormats.add(format);
+	}
+
+	/**
+	 * @param mediaType media type of the format, JSON cannot be removed
+	 */
+	public synchronized void removeWireFormat(String mediaType) {
+		if (JsonRpcWireFormat.JSON.matches(mediaType)) {
+			throw new IllegalArgumentException("JSON format cannot be removed");
+		}
+		this.wireFormats.removeIf(f -> f.matches(mediaType));
+	}
+
+	/**
+	 * @param contentType value of the Content-Type header
+	 * @return format of the content type or null if it's not supported
+	 */
+	public JsonRpcWireFormat findWireFormat(String contentType) {
+		for (JsonRpcWireFormat f : this.wireFormats) {
+			if (f.matches(contentType)) {
+				return f;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return metrics registry or null if metrics aren't recorded
+	 */
+	public JsonRpcMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	public void setMetrics(JsonRpcMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return {@code true} if the metrics are available through the reserved
+	 *         "rpc#metrics" JSON-RPC method
+	 */
+	public boolean isMetricsMethod() {
+		return this.metricsMethod;
+	}
+
+	public void setMetricsMethod(boolean metricsMethod) {
+		this.metricsMethod = metricsMethod;
+	}
+
+	/**
+	 * @return adaptive concurrency limits of methods or null if only static
+	 *         limits of the methods are applied
+	 */
+	public JsonRpcConcurrencyLimits getConcurrencyLimits() {
+		return this.concurrencyLimits;
+	}
+
+	public void setConcurrencyLimits(JsonRpcConcurrencyLimits concurrencyLimits) {
+		this.concurrencyLimits = concurrencyLimits;
+	}
+
+	/**
+	 * @return {@code true} if threads invoking methods are interrupted when
+	 *         the deadline of the call passes
+	 */
+	public boolean isDeadlineCancellation() {
+		return this.deadlineCancellation;
+	}
+
+	public void setDeadlineCancellation(boolean deadlineCancellation) {
+		this.deadlineCancellation = deadlineCancellation;
+	}
+
+	/**
+	 * @return scheduler of cancellations of calls, a single daemon thread by default
+	 */
+	public ScheduledExecutorService getDeadlineScheduler() {
+		ScheduledExecutorService ret = this.deadlineScheduler;
+		if (ret != null) {
+			return ret;
+		}
+		synchronized (this) {
+			if (this.deadlineScheduler == null) {
+				ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+					Thread t = new Thread(r, "jsonrpc-deadlines");
+					t.setDaemon(true);
+					return t;
+				});
+				scheduler.setRemoveOnCancelPolicy(true);
+				this.deadlineScheduler = scheduler;
+			}
+			return this.deadlineScheduler;
+		}
+	}
+
+	public synchronized void setDeadlineScheduler(ScheduledExecutorService deadlineScheduler) {
+		this.deadlineScheduler = deadlineScheduler;
+	}
+
+	/**
+	 * Adds an interceptor, called after the interceptors added before it.
+	 * Interceptors should be added before the server starts handling requests.
+	 * 
+	 * @param interceptor interceptor of JSON-RPC calls
+	 */
+	public synchronized void addInterceptor(IJsonRpcInterceptor interceptor) {
+		this.interceptors.add(interceptor);
+		this.interceptorChain = new JsonRpcInterceptorChain(this.interceptors);
+	}
+
+	public synchronized void removeInterceptor(IJsonRpcInterceptor interceptor) {
+		if (this.interceptors.remove(interceptor)) {
+			this.interceptorChain = new JsonRpcInterceptorChain(this.interceptors);
+		}
+	}
+
+	/**
+	 * @return interceptors compiled for calling, empty if there are no interceptors
+	 */
+	public JsonRpcInterceptorChain getInterceptorChain() {
+		return this.interceptorChain;
+	}
+
+	private ExecutorService getVirtualThreadExecutor() {
+		ExecutorService ret = this.virtualThreadExecutor;
+		if (ret != null) {
+			return ret;
+		}
+		synchronized (this) {
+			if (this.virtualThreadExecutor == null) {
+				this.virtualThreadExecutor = VirtualThreadsUtil.newExecutor();
+			}
+			return this.virtualThreadExecutor;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package net.inveed.jsonrpc.server;
+
+import java.util.Locale;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Format of JSON-RPC messages on the wire, identified by a media type.
+ *
+ * Messages are read and written with the JSON factory of the format, while
+ * values are still converted by the object mapper of the server. Other Jackson
+ * formats may be registered in {@link JsonRpcServerConfiguration}, e.g.
+ * MessagePack with {@code new JsonRpcWireFormat(MEDIA_TYPE_MSGPACK, new MessagePackFactory())}.
+ */
+public class JsonRpcWireFormat {
+	public static final String MEDIA_TYPE_JSON = "application/json";
+	public static final String MEDIA_TYPE_SMILE = "application/x-jackson-smile";
+	public static final String MEDIA_TYPE_CBOR = "application/cbor";
+	public static final String MEDIA_TYPE_MSGPACK = "application/x-msgpack";
+
+	/**
+	 * Plain JSON, written with the factory of the object mapper
+	 */
+	public static final JsonRpcWireFormat JSON = new JsonRpcWireFormat(MEDIA_TYPE_JSON, null);
+	public static final JsonRpcWireFormat SMILE = new JsonRpcWireFormat(MEDIA_TYPE_SMILE, new SmileFactory());
+	public static final JsonRpcWireFormat CBOR = new JsonRpcWireFormat(MEDIA_TYPE_CBOR, new CBORFactory());
+
+	private final String mediaType;
+	private final JsonFactory factory;
+
+	/**
+	 * 
+	 * @param mediaType	media type of the format
+	 * @param factory	factory of parsers and generators of the format, null for
+	 * 					the factory of the object mapper
+	 */
+	public JsonRpcWireFormat(String mediaType, JsonFactory factory) {
+		if (mediaType == null) {
+			throw new NullPointerException();
+		}
+		this.mediaType = mediaType.toLowerCase(Locale.ROOT);
+		this.factory = factory;
+	}
+
+	public String getMediaType() {
+		return this.mediaType;
+	}
+
+	/**
+	 * @param mapper object mapper of the server
+	 * @return factory of parsers and generators of the format
+	 */
+	public JsonFactory getFactory(ObjectMapper mapper) {
+		return this.factory == null ? mapper.getFactory() : this.factory;
+	}
+
+	/**
+	 * @return {@code true} if the format is a textual JSON
+	 */
+	public boolean isTextual() {
+		return this.factory == null || JsonFactory.FORMAT_NAME_JSON.equals(this.factory.getFormatName());
+	}
+
+	/**
+	 * @param contentType value of the Content-Type header
+	 * @return {@code true} if the content type is the media type of the format
+	 */
+	public boolean matches(String contentType) {
+		if (contentType == null) {
+			return false;
+		}
+		int i = contentType.indexOf(';');
+		String type = i < 0 ? contentType : contentType.substring(0, i);
+		return this.mediaType.equalsIgnoreCase(type.trim());
+	}
+
+	@Override
+	public String toString() {
+		return this.mediaType;
+	}
+}
@@ -0,0 +1,46 @@
+package net.inveed.jsonrpc.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads on JDKs which support them,
+ * the library itself is compiled for Java 8.
+ */
+public class VirtualThreadsUtil {
+	private static final Method NEW_EXECUTOR = findExecutorFactory();
+
+	/**
+	 * On JDK 19 and 20 virtual threads are a preview feature: the method exists,
+	 * but fails without --enable-preview, so an executor is created once to check it.
+	 */
+	private static Method findExecutorFactory() {
+		try {
+			Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			((ExecutorService) m.invoke(null)).shutdown();
+			return m;
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			return null;
+		}
+	}
+
+	public static boolean isSupported() {
+		return NEW_EXECUTOR != null;
+	}
+
+	/**
+	 * @return executor, which starts a new virtual thread for each task
+	 * @throws UnsupportedOperationException if the JVM has no virtual threads
+	 */
+	public static ExecutorService newExecutor() {
+		if (NEW_EXECUTOR == null) {
+			throw new UnsupportedOperationException("Virtual threads are not supported by the JVM");
+		}
+		try {
+			return (ExecutorService) NEW_EXECUTOR.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("Cannot create virtual thread executor", e);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package net.inveed.jsonrpc.server.cache;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ContainerNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import net.inveed.jsonrpc.server.typeutils.JsonRpcMethodParamExt;
+
+/**
+ * Canonical key of a method call, used to find calls with the same params.
+ */
+public final class JsonRpcCallKey {
+
+	private JsonRpcCallKey() {
+	}
+
+	/**
+	 * Creates a key of a call with the request params. Params are taken in the order of
+	 * the method signature, so positional and named params with the same values give
+	 * the same key. Fields of the objects are sorted by name.
+	 * 
+	 * @param methodParams	params of the method
+	 * @param params		request params (object or array), without management params
+	 * @param deep			JSON serialization deep of the result
+	 * @return call key
+	 */
+	public static String create(List<JsonRpcMethodParamExt> methodParams, ContainerNode<?> params, int deep) {
+		return create(methodParams, params, deep, null);
+	}
+
+	/**
+	 * Creates a key of a call with the request params and the requested result fields
+	 * 
+	 * @param methodParams	params of the method
+	 * @param params		request params (object or array), without management params
+	 * @param deep			JSON serialization deep of the result
+	 * @param fields		canonical form of the requested result fields or null if all
+	 *        the fields are requested
+	 * @return call key
+	 */
+	public static String create(List<JsonRpcMethodParamExt> methodParams, ContainerNode<?> params, int deep, String fields) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(deep);
+		if (fields != null) {
+			sb.append('|').append(TextNode.valueOf(fields).toString());
+		}
+		sb.append(':');
+		for (JsonRpcMethodParamExt p : methodParams) {
+			JsonNode value;
+			if (params.isArray()) {
+				value = params.get(p.getIndex());
+			} else {
+				value = p.getName() == null ? null : params.get(p.getName());
+			}
+			if (p.getIndex() > 0) {
+				sb.append(',');
+			}
+			appendCanonical(sb, value);
+		}
+		return sb.toString();
+	}
+
+	private static void appendCanonical(StringBuilder sb, JsonNode value) {
+		if (value == null || value.isNull() || value.isMissingNode()) {
+			sb.append("null");
+		} else if (value.isObject()) {
+			TreeMap<String, JsonNode> fields = new TreeMap<>();
+			Iterator<Map.Entry<String, JsonNode>> it = value.fields();
+			while (it.hasNext()) {
+				Map.Entry<String, JsonNode> e = it.next();
+				fields.put(e.getKey(), e.getValue());
+			}
+			sb.append('{');
+			boolean first = true;
+			for (Map.Entry<String, JsonNode> e : fields.entrySet()) {
+				if (!first) {
+					sb.append(',');
+				}
+				first = false;
+				// Field names are quoted by the text node
+				sb.append(TextNode.valueOf(e.getKey()).toString()).append(':');
+				appendCanonical(sb, e.getValue());
+			}
+			sb.append('}');
+		} else if (value.isArray()) {
+			sb.append('[');
+			for (int i = 0; i < value.size(); i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				appendCanonical(sb, value.get(i));
+			}
+			sb.append(']');
+		} else {
+			sb.append(value.toString());
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package net.inveed.jsonrpc.server.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import net.inveed.jsonrpc.core.deadline.Deadline;
+
+/**
+ * Calls of a method, which are being executed now.
+ *
+ * The first call with a key is executed, concurrent calls with the same key
+ * wait for it and get a copy of its result. The call is forgotten as soon as
+ * it's completed, so results are never reused after that.
+ *
+ * A waiting call gives up at its own deadline. If the executed call fails, or its
+ * result isn't shareable (e.g. it's an error of the caller), or it takes longer
+ * than the max wait, the waiting call is executed itself.
+ *
+ * @param <T> call result type
+ */
+public class JsonRpcInFlightCalls<T> {
+	private final ConcurrentHashMap<String, CompletableFuture<T>> calls = new ConcurrentHashMap<>();
+	private final LongAdder executed = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final long maxWaitNanos;
+
+	/**
+	 * Creates calls, which wait for the executed call while it's running
+	 */
+	public JsonRpcInFlightCalls() {
+		this(0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param maxWait	max time to wait for the executed call, 0 to wait while it's running
+	 * @param unit		unit of the max wait
+	 */
+	public JsonRpcInFlightCalls(long maxWait, TimeUnit unit) {
+		if (maxWait < 0) {
+			throw new IllegalArgumentException("Max wait should not be negative");
+		}
+		this.maxWaitNanos = unit.toNanos(maxWait);
+	}
+
+	/**
+	 * Executes the call or waits for a call with the same key
+	 * 
+	 * @param key		call key, see {@link JsonRpcCallKey}
+	 * @param call		call to execute
+	 * @param share		creates the result of a waiting call from the result of the executed one
+	 * @param shareable	tells if the result of the executed call may be given to the waiting calls
+	 * @param deadline	deadline of the call or null
+	 * @return call result
+	 * @throws TimeoutException if the deadline has passed while waiting for another call
+	 * @throws InterruptedException if the thread is interrupted while waiting for another call
+	 */
+	public T execute(String key, Supplier<T> call, UnaryOperator<T> share, Predicate<? super T> shareable, Deadline deadline)
+			throws TimeoutException, InterruptedException {
+		long waitUntil = this.maxWaitNanos == 0 ? 0 : System.nanoTime() + this.maxWaitNanos;
+		CompletableFuture<T> own = new CompletableFuture<>();
+		CompletableFuture<T> running;
+		while ((running = this.calls.putIfAbsent(key, own)) != null) {
+			T result;
+			try {
+				result = this.await(running, deadline, waitUntil);
+			} catch (ExecutionException e) {
+				// The executed call has failed or its result isn't shareable, so try again
+				this.calls.remove(key, running);
+				continue;
+			} catch (TimeoutException e) {
+				if (deadline != null && deadline.isExpired()) {
+					throw e;
+				}
+				// The executed call takes too long, so don't wait for it anymore
+				return this.run(call, own, shareable);
+			}
+			this.coalesced.increment();
+			return share.apply(result);
+		}
+
+		try {
+			return this.run(call, own, shareable);
+		} finally {
+			this.calls.remove(key, own);
+		}
+	}
+
+	private T run(Supplier<T> call, CompletableFuture<T> own, Predicate<? super T> shareable) {
+		this.executed.increment();
+		try {
+			T result = call.get();
+			if (shareable.test(result)) {
+				own.complete(result);
+			} else {
+				own.completeExceptionally(new IllegalStateException("Result is not shareable"));
+			}
+			return result;
+		} catch (RuntimeException | Error e) {
+			own.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Waits for the executed call until the deadline or the max wait, whichever comes first
+	 */
+	private T await(CompletableFuture<T> running, Deadline deadline, long waitUntil)
+			throws ExecutionException, TimeoutException, InterruptedException {
+		long timeout = deadline == null ? Long.MAX_VALUE : deadline.getRemaining(TimeUnit.NANOSECONDS);
+		if (waitUntil != 0) {
+			timeout = Math.min(timeout, waitUntil - System.nanoTime());
+		}
+		if (timeout == Long.MAX_VALUE) {
+			return running.get();
+		}
+		if (timeout <= 0) {
+			throw new TimeoutException();
+		}
+		return running.get(timeout, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return number of calls being executed now
+	 */
+	public int size() {
+		return this.calls.size();
+	}
+
+	/**
+	 * @return number of executed calls
+	 */
+	public long getExecuted() {
+		return this.executed.sum();
+	}
+
+	/**
+	 * @return number of calls, which got the result of another call
+	 */
+	public long getCoalesced() {
+		return this.coalesced.sum();
+	}
+}
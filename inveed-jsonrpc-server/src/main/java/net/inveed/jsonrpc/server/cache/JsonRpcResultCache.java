@@ -0,0 +1,145 @@
+package net.inveed.jsonrpc.server.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.inveed.jsonrpc.core.annotation.JsonRpcCacheable;
+
+/**
+ * Cache of serialized results of a JSON-RPC method.
+ *
+ * Results are kept as UTF-8 JSON bytes, which are shared by all the hits and
+ * written to the response as is. The least recently used result is evicted
+ * when the cache is full, expired results are evicted when they are requested.
+ */
+public class JsonRpcResultCache {
+
+	private static final class CachedResult {
+		private final byte[] value;
+		private final long expiresAt;
+
+		private CachedResult(byte[] value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private final long ttlNanos;
+	private final int maxEntries;
+	private final LinkedHashMap<String, CachedResult> entries;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * 
+	 * @param ttl			time to live of a result
+	 * @param unit			time unit of the ttl
+	 * @param maxEntries	max number of cached results
+	 */
+	public JsonRpcResultCache(long ttl, TimeUnit unit, int maxEntries) {
+		if (ttl <= 0) {
+			throw new IllegalArgumentException("TTL should be positive");
+		}
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("Max entries should be positive");
+		}
+		this.ttlNanos = unit.toNanos(ttl);
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+				if (this.size() > JsonRpcResultCache.this.maxEntries) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public JsonRpcResultCache(JsonRpcCacheable annotation) {
+		this(annotation.ttl(), annotation.unit(), annotation.maxEntries());
+	}
+
+	/**
+	 * Returns a cached result
+	 * 
+	 * @param key result key, see {@link JsonRpcCallKey}
+	 * @return serialized result or null if there is no result for the key or it's expired,
+	 *         the array is shared and should not be changed
+	 */
+	public byte[] get(String key) {
+		CachedResult e;
+		synchronized (this.entries) {
+			e = this.entries.get(key);
+			if (e != null && e.expiresAt - System.nanoTime() <= 0) {
+				this.entries.remove(key);
+				this.evictions.increment();
+				e = null;
+			}
+		}
+		if (e == null) {
+			this.misses.increment();
+			return null;
+		}
+		this.hits.increment();
+		return e.value;
+	}
+
+	/**
+	 * Puts a result to the cache
+	 * 
+	 * @param key	result key, see {@link JsonRpcCallKey}
+	 * @param value	serialized result, it's not copied and should not be changed
+	 */
+	public void put(String key, byte[] value) {
+		CachedResult e = new CachedResult(value, System.nanoTime() + this.ttlNanos);
+		synchronized (this.entries) {
+			this.entries.put(key, e);
+		}
+	}
+
+	/**
+	 * Removes all the cached results
+	 */
+	public void clear() {
+		synchronized (this.entries) {
+			this.entries.clear();
+		}
+	}
+
+	/**
+	 * @return number of cached results, including expired but not yet evicted ones
+	 */
+	public int size() {
+		synchronized (this.entries) {
+			return this.entries.size();
+		}
+	}
+
+	public int getMaxEntries() {
+		return this.maxEntries;
+	}
+
+	public long getTtl(TimeUnit unit) {
+		return unit.convert(this.ttlNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	public long getEvictions() {
+		return this.evictions.sum();
+	}
+}
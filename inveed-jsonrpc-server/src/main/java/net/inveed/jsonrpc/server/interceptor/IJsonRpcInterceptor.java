@@ -0,0 +1,62 @@
+package net.inveed.jsonrpc.server.interceptor;
+
+/**
+ * Callback around the phases of a single JSON-RPC call. Every method is optional:
+ * {@link JsonRpcInterceptorChain} calls an interceptor only in the phases it overrides.
+ * If an interceptor throws an exception before the response is written,
+ * the call gets "Internal error" response.
+ *
+ * Interceptors are shared by all the calls and should be thread-safe; per-call
+ * state may be kept in {@link JsonRpcCall#setAttribute(String, Object)}.
+ */
+public interface IJsonRpcInterceptor {
+	/**
+	 * Called when the request envelope was read and validated
+	 */
+	default void afterParse(JsonRpcCall call) {
+	}
+
+	/**
+	 * Called when the request method was resolved to the service method(s)
+	 */
+	default void afterResolve(JsonRpcCall call) {
+	}
+
+	/**
+	 * Called when params were converted to the arguments of the selected method.
+	 * Arguments may be replaced with {@link JsonRpcCall#setArgs(Object[])}.
+	 */
+	default void afterBind(JsonRpcCall call) {
+	}
+
+	/**
+	 * Called when the method returned or threw an exception
+	 */
+	default void afterInvoke(JsonRpcCall call) {
+	}
+
+	/**
+	 * Called when the response of the call is built, also if the call failed
+	 * in an earlier phase, on the thread, which has handled the call. The response
+	 * may be replaced with {@link JsonRpcCall#setResponse(net.inveed.jsonrpc.core.domain.Response)}.
+	 * With streaming responses the result is serialized after this call.
+	 */
+	default void beforeSerialize(JsonRpcCall call) {
+	}
+
+	/**
+	 * Called on the thread, which has handled the call, when the handling is over,
+	 * also if it failed with an exception, so thread-bound state set in the earlier
+	 * phases may be cleaned up here. The response may be null. Exceptions are only logged.
+	 */
+	default void afterCall(JsonRpcCall call) {
+	}
+
+	/**
+	 * Called when the response of the call has been written to the client
+	 * (or dropped, if the call is a notification), possibly on another thread.
+	 * The response cannot be changed anymore. Exceptions are only logged.
+	 */
+	default void afterSerialize(JsonRpcCall call) {
+	}
+}
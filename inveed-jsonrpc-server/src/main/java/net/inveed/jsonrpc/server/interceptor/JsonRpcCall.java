@@ -0,0 +1,159 @@
+package net.inveed.jsonrpc.server.interceptor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import net.inveed.jsonrpc.core.domain.Request;
+import net.inveed.jsonrpc.core.domain.Response;
+import net.inveed.jsonrpc.core.trace.TraceParent;
+import net.inveed.jsonrpc.server.IJsonRpcRequestContext;
+import net.inveed.jsonrpc.server.JsonRpcDispatchEntry;
+import net.inveed.jsonrpc.server.typeutils.JsonRpcMethodExt;
+
+/**
+ * State of a single JSON-RPC call passed to the interceptors.
+ * Fields are filled in as the call goes through the phases.
+ */
+public class JsonRpcCall {
+	private final Request request;
+	private final IJsonRpcRequestContext requestContext;
+	private final Map<String, JsonNode> managementParams;
+	private JsonRpcDispatchEntry entry;
+	private JsonRpcMethodExt method;
+	private Object[] args;
+	private Object result;
+	private Throwable error;
+	private Response response;
+	private TraceParent traceParent;
+	private HashMap<String, Object> attributes;
+
+	public JsonRpcCall(Request request, IJsonRpcRequestContext requestContext) {
+		this(request, requestContext, Collections.<String, JsonNode>emptyMap());
+	}
+
+	/**
+	 * @param request			JSON-RPC request
+	 * @param requestContext	context of the HTTP request or null
+	 * @param managementParams	management params of the request, filled in before
+	 *        {@link IJsonRpcInterceptor#afterParse(JsonRpcCall)}
+	 */
+	public JsonRpcCall(Request request, IJsonRpcRequestContext requestContext, Map<String, JsonNode> managementParams) {
+		this.request = request;
+		this.requestContext = requestContext;
+		this.managementParams = managementParams;
+	}
+
+	public Request getRequest() {
+		return this.request;
+	}
+
+	/**
+	 * Returns a management param ("#" or "." prefixed) of the request. Management
+	 * params aren't passed to the method and are available for the bound requests
+	 * too, which have no params tree.
+	 *
+	 * @param name param name with the prefix
+	 * @return param value or null
+	 */
+	public JsonNode getManagementParam(String name) {
+		return this.managementParams.get(name);
+	}
+
+	/**
+	 * @return context of the HTTP request or null if the call isn't handled by the servlet
+	 */
+	public IJsonRpcRequestContext getRequestContext() {
+		return this.requestContext;
+	}
+
+	/**
+	 * @return resolved request method, null before {@link IJsonRpcInterceptor#afterResolve(JsonRpcCall)}
+	 */
+	public JsonRpcDispatchEntry getEntry() {
+		return this.entry;
+	}
+
+	public void setEntry(JsonRpcDispatchEntry entry) {
+		this.entry = entry;
+	}
+
+	/**
+	 * @return selected method, null before {@link IJsonRpcInterceptor#afterBind(JsonRpcCall)}
+	 */
+	public JsonRpcMethodExt getMethod() {
+		return this.method;
+	}
+
+	public void setMethod(JsonRpcMethodExt method) {
+		this.method = method;
+	}
+
+	/**
+	 * @return arguments of the selected method
+	 */
+	public Object[] getArgs() {
+		return this.args;
+	}
+
+	public void setArgs(Object[] args) {
+		this.args = args;
+	}
+
+	/**
+	 * @return value returned by the method
+	 */
+	public Object getResult() {
+		return this.result;
+	}
+
+	public void setResult(Object result) {
+		this.result = result;
+	}
+
+	/**
+	 * @return exception thrown by the method or null
+	 */
+	public Throwable getError() {
+		return this.error;
+	}
+
+	public void setError(Throwable error) {
+		this.error = error;
+	}
+
+	/**
+	 * @return response of the call, null if it wasn't built because of an exception
+	 */
+	public Response getResponse() {
+		return this.response;
+	}
+
+	public void setResponse(Response response) {
+		this.response = response;
+	}
+
+	/**
+	 * @return trace parent of the call, set by {@link TraceContextInterceptor}
+	 */
+	public TraceParent getTraceParent() {
+		return this.traceParent;
+	}
+
+	public void setTraceParent(TraceParent traceParent) {
+		this.traceParent = traceParent;
+	}
+
+	public Object getAttribute(String name) {
+		return this.attributes == null ? null : this.attributes.get(name);
+	}
+
+	public void setAttribute(String name, Object value) {
+		if (this.attributes == null) {
+			this.attributes = new HashMap<>(4);
+		}
+		this.attributes.put(name, value);
+	}
+}
@@ -0,0 +1,173 @@
+package net.inveed.jsonrpc.server.interceptor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable list of interceptors compiled to an array per phase. An interceptor
+ * is put only to the arrays of the phases it overrides, so calls don't go through
+ * no-op callbacks. Exceptions of the interceptors are wrapped in
+ * {@link JsonRpcInterceptorException}.
+ */
+public final class JsonRpcInterceptorChain {
+	public static final JsonRpcInterceptorChain EMPTY = new JsonRpcInterceptorChain(new ArrayList<>());
+
+	private final IJsonRpcInterceptor[] all;
+	private final IJsonRpcInterceptor[] afterParse;
+	private final IJsonRpcInterceptor[] afterResolve;
+	private final IJsonRpcInterceptor[] afterBind;
+	private final IJsonRpcInterceptor[] afterInvoke;
+	private final IJsonRpcInterceptor[] beforeSerialize;
+	private final IJsonRpcInterceptor[] afterCall;
+	private final IJsonRpcInterceptor[] afterSerialize;
+
+	/**
+	 * @param interceptors interceptors in the order they are called
+	 */
+	public JsonRpcInterceptorChain(Collection<? extends IJsonRpcInterceptor> interceptors) {
+		this.all = interceptors.toArray(new IJsonRpcInterceptor[0]);
+		this.afterParse = compile(this.all, "afterParse");
+		this.afterResolve = compile(this.all, "afterResolve");
+		this.afterBind = compile(this.all, "afterBind");
+		this.afterInvoke = compile(this.all, "afterInvoke");
+		this.beforeSerialize = compile(this.all, "beforeSerialize");
+		this.afterCall = compile(this.all, "afterCall");
+		this.afterSerialize = compile(this.all, "afterSerialize");
+	}
+
+	private static IJsonRpcInterceptor[] compile(IJsonRpcInterceptor[] interceptors, String phase) {
+		List<IJsonRpcInterceptor> ret = new ArrayList<>(interceptors.length);
+		for (IJsonRpcInterceptor i : interceptors) {
+			try {
+				if (i.getClass().getMethod(phase, JsonRpcCall.class).getDeclaringClass() != IJsonRpcInterceptor.class) {
+					ret.add(i);
+				}
+			} catch (NoSuchMethodException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return ret.toArray(new IJsonRpcInterceptor[0]);
+	}
+
+	/**
+	 * @return interceptors in the order they are called
+	 */
+	public List<IJsonRpcInterceptor> getInterceptors() {
+		List<IJsonRpcInterceptor> ret = new ArrayList<>(this.all.length);
+		for (IJsonRpcInterceptor i : this.all) {
+			ret.add(i);
+		}
+		return ret;
+	}
+
+	/**
+	 * @return {@code true} if there are no interceptors
+	 */
+	public boolean isEmpty() {
+		return this.all.length == 0;
+	}
+
+	public void afterParse(JsonRpcCall call) {
+		for (IJsonRpcInterceptor i : this.afterParse) {
+			try {
+				i.afterParse(call);
+			} catch (RuntimeException e) {
+				throw new JsonRpcInterceptorException(i, "afterParse", e);
+			}
+		}
+	}
+
+	public void afterResolve(JsonRpcCall call) {
+		for (IJsonRpcInterceptor i : this.afterResolve) {
+			try {
+				i.afterResolve(call);
+			} catch (RuntimeException e) {
+				throw new JsonRpcInterceptorException(i, "afterResolve", e);
+			}
+		}
+	}
+
+	public void afterBind(JsonRpcCall call) {
+		for (IJsonRpcInterceptor i : this.afterBind) {
+			try {
+				i.afterBind(call);
+			} catch (RuntimeException e) {
+				throw new JsonRpcInterceptorException(i, "afterBind", e);
+			}
+		}
+	}
+
+	public void afterInvoke(JsonRpcCall call) {
+		for (IJsonRpcInterceptor i : this.afterInvoke) {
+			try {
+				i.afterInvoke(call);
+			} catch (RuntimeException e) {
+				throw new JsonRpcInterceptorException(i, "afterInvoke", e);
+			}
+		}
+	}
+
+	/**
+	 * Calls the interceptors in reverse order, so the first interceptor
+	 * builds the response last. All the interceptors are called, even if
+	 * some of them fail; the first failure is thrown.
+	 */
+	public void beforeSerialize(JsonRpcCall call) {
+		JsonRpcInterceptorException failure = null;
+		for (int i = this.beforeSerialize.length - 1; i >= 0; i--) {
+			try {
+				this.beforeSerialize[i].beforeSerialize(call);
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = new JsonRpcInterceptorException(this.beforeSerialize[i], "beforeSerialize", e);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Calls the interceptors in reverse order, so the first interceptor
+	 * cleans up last. All the interceptors are called, even if
+	 * some of them fail; the first failure is thrown.
+	 */
+	public void afterCall(JsonRpcCall call) {
+		JsonRpcInterceptorException failure = null;
+		for (int i = this.afterCall.length - 1; i >= 0; i--) {
+			try {
+				this.afterCall[i].afterCall(call);
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = new JsonRpcInterceptorException(this.afterCall[i], "afterCall", e);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Calls the interceptors in reverse order, so the first interceptor
+	 * completes the call last. All the interceptors are called, even if
+	 * some of them fail; the first failure is thrown.
+	 */
+	public void afterSerialize(JsonRpcCall call) {
+		JsonRpcInterceptorException failure = null;
+		for (int i = this.afterSerialize.length - 1; i >= 0; i--) {
+			try {
+				this.afterSerialize[i].afterSerialize(call);
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = new JsonRpcInterceptorException(this.afterSerialize[i], "afterSerialize", e);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package net.inveed.jsonrpc.server.interceptor;
+
+/**
+ * Exception thrown by an interceptor, wrapped by {@link JsonRpcInterceptorChain}
+ * so the handler tells it from the exceptions of the invoked method.
+ */
+public class JsonRpcInterceptorException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final transient IJsonRpcInterceptor interceptor;
+	private final String phase;
+
+	public JsonRpcInterceptorException(IJsonRpcInterceptor interceptor, String phase, Throwable cause) {
+		super(interceptor.getClass().getName() + "." + phase + " has failed: " + cause, cause);
+		this.interceptor = interceptor;
+		this.phase = phase;
+	}
+
+	public IJsonRpcInterceptor getInterceptor() {
+		return this.interceptor;
+	}
+
+	/**
+	 * @return name of the interceptor method, which has failed
+	 */
+	public String getPhase() {
+		return this.phase;
+	}
+}
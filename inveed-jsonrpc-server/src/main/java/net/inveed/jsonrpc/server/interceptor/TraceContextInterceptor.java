@@ -0,0 +1,63 @@
+package net.inveed.jsonrpc.server.interceptor;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import net.inveed.jsonrpc.core.trace.TraceParent;
+import net.inveed.jsonrpc.server.IJsonRpcRequestContext;
+
+/**
+ * Propagates W3C Trace Context of the caller. The trace parent of a call is taken
+ * from its ".trace" management param or from the "traceparent" header of the HTTP
+ * request. The header is parsed once and kept in {@link IJsonRpcRequestContext#getTraceParent()}.
+ * While the call is handled, its trace parent is available through
+ * {@link TraceParent#getCurrent()}, so outgoing calls of the service continue the trace.
+ * The previous trace parent of the thread is restored in {@link #afterCall(JsonRpcCall)},
+ * also if the call has failed, so the trace doesn't leak to the next call of the thread.
+ */
+public class TraceContextInterceptor implements IJsonRpcInterceptor {
+	private static final String PREVIOUS = TraceContextInterceptor.class.getName() + ".previous";
+
+	@Override
+	public void afterParse(JsonRpcCall call) {
+		JsonNode param = call.getManagementParam(TraceParent.PARAM);
+		TraceParent traceParent = param == null || !param.isTextual() ? null : TraceParent.parse(param.textValue());
+		if (traceParent == null && call.getRequestContext() != null) {
+			traceParent = this.fromHeader(call.getRequestContext());
+		}
+		if (traceParent == null) {
+			return;
+		}
+		TraceParent previous = TraceParent.getCurrent();
+		if (previous != null) {
+			call.setAttribute(PREVIOUS, previous);
+		}
+		TraceParent.setCurrent(traceParent);
+		call.setTraceParent(traceParent);
+	}
+
+	@Override
+	public void afterCall(JsonRpcCall call) {
+		if (call.getTraceParent() != null) {
+			TraceParent.setCurrent((TraceParent) call.getAttribute(PREVIOUS));
+		}
+	}
+
+	/**
+	 * Parses the header once per HTTP request, the elements of a batch share it
+	 */
+	private TraceParent fromHeader(IJsonRpcRequestContext ctx) {
+		TraceParent ret = ctx.getTraceParent();
+		if (ret != null) {
+			return ret;
+		}
+		HttpServletRequest req = ctx.getHttpServletRequest();
+		if (req == null) {
+			return null;
+		}
+		ret = TraceParent.parse(req.getHeader(TraceParent.HEADER));
+		ctx.setTraceParent(ret);
+		return ret;
+	}
+}
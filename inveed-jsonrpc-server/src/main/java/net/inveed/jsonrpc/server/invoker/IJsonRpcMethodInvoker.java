@@ -0,0 +1,17 @@
+package net.inveed.jsonrpc.server.invoker;
+
+/**
+ * Invokes a JSON-RPC service method with already converted arguments
+ */
+public interface IJsonRpcMethodInvoker {
+
+	/**
+	 * Invokes the method
+	 * 
+	 * @param target	service instance
+	 * @param args		method arguments
+	 * @return method result or null for void methods
+	 * @throws Throwable exception thrown by the method
+	 */
+	Object invoke(Object target, Object[] args) throws Throwable;
+}
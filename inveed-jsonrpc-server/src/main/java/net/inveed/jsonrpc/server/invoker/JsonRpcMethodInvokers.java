@@ -0,0 +1,35 @@
+package net.inveed.jsonrpc.server.invoker;
+
+import java.lang.invoke.LambdaConversionException;
+import java.lang.reflect.Method;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class JsonRpcMethodInvokers {
+	private static final Logger LOG = LoggerFactory.getLogger(JsonRpcMethodInvokers.class);
+
+	private JsonRpcMethodInvokers() {
+	}
+
+	/**
+	 * Creates the fastest available invoker for a method: a class spun by {@link LambdaInvokers},
+	 * then a method handle. Falls back to reflection if a method handle cannot be created.
+	 * 
+	 * @param method method to invoke
+	 * @return method invoker
+	 */
+	public static IJsonRpcMethodInvoker create(Method method) {
+		try {
+			return LambdaInvokers.create(method);
+		} catch (IllegalAccessException | LambdaConversionException | RuntimeException e) {
+			LOG.debug("Cannot spin an invoker for " + method + ", method handle will be used: " + e.getMessage());
+		}
+		try {
+			return new MethodHandleInvoker(method);
+		} catch (IllegalAccessException | RuntimeException e) {
+			LOG.debug("Cannot create method handle for " + method + ", reflection will be used", e);
+			return new ReflectiveInvoker(method);
+		}
+	}
+}
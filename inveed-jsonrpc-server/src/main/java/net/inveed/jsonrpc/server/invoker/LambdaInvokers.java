@@ -0,0 +1,239 @@
+package net.inveed.jsonrpc.server.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Creates invokers implemented by classes spun by {@link LambdaMetafactory}, one class per method.
+ * The spun class calls the method with invokevirtual/invokeinterface, so the target is a constant
+ * for the JIT compiler and the method can be inlined, unlike a {@link MethodHandle} held in a field.
+ *
+ * The functional interfaces below have a fixed arity, their default {@code invoke} spreads the
+ * argument array. Static and non-public methods, methods with more than {@link #MAX_ARITY} params
+ * and methods with types that are not public or not visible from the class loader of this class
+ * are not supported.
+ */
+public final class LambdaInvokers {
+	public static final int MAX_ARITY = 5;
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+	private static final Class<?>[] INVOKERS = {
+			Invoker0.class, Invoker1.class, Invoker2.class, Invoker3.class, Invoker4.class, Invoker5.class };
+	private static final Class<?>[] VOID_INVOKERS = {
+			VoidInvoker0.class, VoidInvoker1.class, VoidInvoker2.class, VoidInvoker3.class, VoidInvoker4.class, VoidInvoker5.class };
+
+	private LambdaInvokers() {
+	}
+
+	/**
+	 * @param method method to invoke
+	 * @return invoker of the method
+	 * @throws IllegalArgumentException if the method is not supported
+	 * @throws IllegalAccessException if the method is not accessible
+	 * @throws LambdaConversionException if the class cannot be spun
+	 */
+	public static IJsonRpcMethodInvoker create(Method method) throws IllegalAccessException, LambdaConversionException {
+		int arity = method.getParameterCount();
+		if (Modifier.isStatic(method.getModifiers()) || !Modifier.isPublic(method.getModifiers())) {
+			throw new IllegalArgumentException("Method " + method + " is not a public instance method");
+		}
+		if (arity > MAX_ARITY) {
+			throw new IllegalArgumentException("Method " + method + " has more than " + MAX_ARITY + " params");
+		}
+		// The spun class is defined by the loader of this class and references the types by names,
+		// it has no access to non-public types even if the method is made accessible
+		checkVisible(method.getDeclaringClass());
+		checkVisible(method.getReturnType());
+		for (Class<?> p : method.getParameterTypes()) {
+			checkVisible(p);
+		}
+
+		boolean isVoid = method.getReturnType() == void.class;
+		Class<?> iface = isVoid ? VOID_INVOKERS[arity] : INVOKERS[arity];
+		Class<?>[] erased = new Class<?>[arity + 1];
+		Class<?>[] instantiated = new Class<?>[arity + 1];
+		erased[0] = Object.class;
+		instantiated[0] = method.getDeclaringClass();
+		for (int i = 0; i < arity; i++) {
+			erased[i + 1] = Object.class;
+			instantiated[i + 1] = wrap(method.getParameterTypes()[i]);
+		}
+		Class<?> erasedReturn = isVoid ? void.class : Object.class;
+		Class<?> instantiatedReturn = isVoid ? void.class : wrap(method.getReturnType());
+
+		MethodHandle impl = LOOKUP.unreflect(method);
+		CallSite site = LambdaMetafactory.metafactory(
+				LOOKUP,
+				"call",
+				MethodType.methodType(iface),
+				MethodType.methodType(erasedReturn, erased),
+				impl,
+				MethodType.methodType(instantiatedReturn, instantiated));
+		try {
+			return (IJsonRpcMethodInvoker) site.getTarget().invoke();
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void checkVisible(Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		if (type.isPrimitive()) {
+			return;
+		}
+		for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+			if (!Modifier.isPublic(c.getModifiers())) {
+				throw new IllegalArgumentException(type + " is not public");
+			}
+		}
+		Class<?> visible;
+		try {
+			visible = Class.forName(type.getName(), false, LambdaInvokers.class.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			visible = null;
+		}
+		if (visible != type) {
+			throw new IllegalArgumentException(type + " is not visible from the class loader of " + LambdaInvokers.class);
+		}
+	}
+
+	private static Class<?> wrap(Class<?> type) {
+		return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+	}
+
+	@FunctionalInterface
+	public interface Invoker0 extends IJsonRpcMethodInvoker {
+		Object call(Object target) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return call(target);
+		}
+	}
+
+	@FunctionalInterface
+	public interface Invoker1 extends IJsonRpcMethodInvoker {
+		Object call(Object target, Object a0) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return call(target, args[0]);
+		}
+	}
+
+	@FunctionalInterface
+	public interface Invoker2 extends IJsonRpcMethodInvoker {
+		Object call(Object target, Object a0, Object a1) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return call(target, args[0], args[1]);
+		}
+	}
+
+	@FunctionalInterface
+	public interface Invoker3 extends IJsonRpcMethodInvoker {
+		Object call(Object target, Object a0, Object a1, Object a2) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return call(target, args[0], args[1], args[2]);
+		}
+	}
+
+	@FunctionalInterface
+	public interface Invoker4 extends IJsonRpcMethodInvoker {
+		Object call(Object target, Object a0, Object a1, Object a2, Object a3) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return call(target, args[0], args[1], args[2], args[3]);
+		}
+	}
+
+	@FunctionalInterface
+	public interface Invoker5 extends IJsonRpcMethodInvoker {
+		Object call(Object target, Object a0, Object a1, Object a2, Object a3, Object a4) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			return call(target, args[0], args[1], args[2], args[3], args[4]);
+		}
+	}
+
+	@FunctionalInterface
+	public interface VoidInvoker0 extends IJsonRpcMethodInvoker {
+		void call(Object target) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			call(target);
+			return null;
+		}
+	}
+
+	@FunctionalInterface
+	public interface VoidInvoker1 extends IJsonRpcMethodInvoker {
+		void call(Object target, Object a0) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			call(target, args[0]);
+			return null;
+		}
+	}
+
+	@FunctionalInterface
+	public interface VoidInvoker2 extends IJsonRpcMethodInvoker {
+		void call(Object target, Object a0, Object a1) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			call(target, args[0], args[1]);
+			return null;
+		}
+	}
+
+	@FunctionalInterface
+	public interface VoidInvoker3 extends IJsonRpcMethodInvoker {
+		void call(Object target, Object a0, Object a1, Object a2) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			call(target, args[0], args[1], args[2]);
+			return null;
+		}
+	}
+
+	@FunctionalInterface
+	public interface VoidInvoker4 extends IJsonRpcMethodInvoker {
+		void call(Object target, Object a0, Object a1, Object a2, Object a3) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			call(target, args[0], args[1], args[2], args[3]);
+			return null;
+		}
+	}
+
+	@FunctionalInterface
+	public interface VoidInvoker5 extends IJsonRpcMethodInvoker {
+		void call(Object target, Object a0, Object a1, Object a2, Object a3, Object a4) throws Throwable;
+
+		@Override
+		default Object invoke(Object target, Object[] args) throws Throwable {
+			call(target, args[0], args[1], args[2], args[3], args[4]);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package net.inveed.jsonrpc.server.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invokes a method through a {@link MethodHandle} adapted to (Object, Object[])Object.
+ * Unlike {@link Method#invoke(Object, Object...)} it has no per-call access checks, but the handle
+ * is not a constant for the JIT compiler, so the method isn't inlined. Used for the methods
+ * {@link LambdaInvokers} doesn't support.
+ */
+public class MethodHandleInvoker implements IJsonRpcMethodInvoker {
+	private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+	private final MethodHandle handle;
+
+	/**
+	 * @param method method to invoke
+	 * @throws IllegalAccessException if the method is not accessible
+	 */
+	public MethodHandleInvoker(Method method) throws IllegalAccessException {
+		MethodHandle mh = MethodHandles.publicLookup().unreflect(method).asFixedArity();
+		int count = method.getParameterCount();
+		if (Modifier.isStatic(method.getModifiers())) {
+			mh = MethodHandles.dropArguments(mh, 0, Object.class);
+		}
+		this.handle = mh.asSpreader(Object[].class, count).asType(INVOKER_TYPE);
+	}
+
+	@Override
+	public Object invoke(Object target, Object[] args) throws Throwable {
+		return (Object) this.handle.invokeExact(target, args);
+	}
+}
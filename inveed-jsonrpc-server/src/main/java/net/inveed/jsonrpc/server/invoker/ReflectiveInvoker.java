@@ -0,0 +1,19 @@
+package net.inveed.jsonrpc.server.invoker;
+
+import java.lang.reflect.Method;
+
+/**
+ * Invokes a method through core reflection
+ */
+public class ReflectiveInvoker implements IJsonRpcMethodInvoker {
+	private final Method method;
+
+	public ReflectiveInvoker(Method method) {
+		this.method = method;
+	}
+
+	@Override
+	public Object invoke(Object target, Object[] args) throws Throwable {
+		return this.method.invoke(target, args);
+	}
+}
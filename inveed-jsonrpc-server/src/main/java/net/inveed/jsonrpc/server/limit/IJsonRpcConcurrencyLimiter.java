@@ -0,0 +1,33 @@
+package net.inveed.jsonrpc.server.limit;
+
+/**
+ * Admission control of the calls of a JSON-RPC method.
+ * Implementations should not block or take locks.
+ */
+public interface IJsonRpcConcurrencyLimiter {
+	/**
+	 * Admits a call if the number of running calls is below the limit
+	 * 
+	 * @return {@code true} if the call may be invoked, then {@link #release(long, boolean)}
+	 *         should be called when it's completed
+	 */
+	boolean tryAcquire();
+
+	/**
+	 * Completes an admitted call
+	 * 
+	 * @param rttNanos	time of the call in nanoseconds
+	 * @param dropped	{@code true} if the call was aborted because of overload, e.g. timed out
+	 */
+	void release(long rttNanos, boolean dropped);
+
+	/**
+	 * @return current max number of running calls
+	 */
+	int getLimit();
+
+	/**
+	 * @return number of running calls
+	 */
+	int getInFlight();
+}
@@ -0,0 +1,74 @@
+package net.inveed.jsonrpc.server.limit;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import net.inveed.jsonrpc.server.typeutils.JsonRpcMethodExt;
+
+/**
+ * Registry of the adaptive concurrency limits of JSON-RPC methods.
+ * Overloads of a method share the limit. Methods with a static
+ * {@link net.inveed.jsonrpc.core.annotation.JsonRpcConcurrencyLimit}
+ * use their own limiter instead.
+ */
+public class JsonRpcConcurrencyLimits {
+	private final Supplier<? extends IJsonRpcConcurrencyLimiter> factory;
+	private final ConcurrentHashMap<JsonRpcMethodExt, IJsonRpcConcurrencyLimiter> byMethod = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, IJsonRpcConcurrencyLimiter> byName = new ConcurrentHashMap<>();
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * Creates limits with the default {@link JsonRpcVegasLimiter}
+	 */
+	public JsonRpcConcurrencyLimits() {
+		this(JsonRpcVegasLimiter::new);
+	}
+
+	/**
+	 * @param factory factory of the limiters of methods
+	 */
+	public JsonRpcConcurrencyLimits(Supplier<? extends IJsonRpcConcurrencyLimiter> factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * @param method JSON-RPC method
+	 * @return limiter of the method
+	 */
+	public IJsonRpcConcurrencyLimiter forMethod(JsonRpcMethodExt method) {
+		IJsonRpcConcurrencyLimiter ret = this.byMethod.get(method);
+		if (ret == null) {
+			ret = this.byName.computeIfAbsent(method.getQualifiedName(), k -> this.factory.get());
+			this.byMethod.putIfAbsent(method, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Counts a call rejected by a limiter
+	 */
+	public void recordRejected() {
+		this.rejected.increment();
+	}
+
+	/**
+	 * @return number of calls rejected by the limiters
+	 */
+	public long getRejected() {
+		return this.rejected.sum();
+	}
+
+	/**
+	 * @return current limits by "service#method"
+	 */
+	public Map<String, Integer> getLimits() {
+		TreeMap<String, Integer> ret = new TreeMap<>();
+		for (Map.Entry<String, IJsonRpcConcurrencyLimiter> e : this.byName.entrySet()) {
+			ret.put(e.getKey(), e.getValue().getLimit());
+		}
+		return ret;
+	}
+}
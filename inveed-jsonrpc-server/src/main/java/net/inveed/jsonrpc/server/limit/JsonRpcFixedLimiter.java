@@ -0,0 +1,38 @@
+package net.inveed.jsonrpc.server.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limiter with a static limit
+ */
+public class JsonRpcFixedLimiter implements IJsonRpcConcurrencyLimiter {
+	private final int limit;
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	public JsonRpcFixedLimiter(int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Concurrency limit should be positive");
+		}
+		this.limit = limit;
+	}
+
+	@Override
+	public boolean tryAcquire() {
+		return JsonRpcVegasLimiter.tryAcquire(this.inFlight, this.limit);
+	}
+
+	@Override
+	public void release(long rttNanos, boolean dropped) {
+		this.inFlight.decrementAndGet();
+	}
+
+	@Override
+	public int getLimit() {
+		return this.limit;
+	}
+
+	@Override
+	public int getInFlight() {
+		return this.inFlight.get();
+	}
+}
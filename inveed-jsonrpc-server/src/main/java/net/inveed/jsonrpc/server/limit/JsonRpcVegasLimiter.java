@@ -0,0 +1,153 @@
+package net.inveed.jsonrpc.server.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive limiter in the style of TCP Vegas. The queue of a method is estimated
+ * from the ratio of the min observed latency (no load) to the latency of a call:
+ * {@code queue = limit * (1 - minRtt / rtt)}. The limit grows while the queue is
+ * small and shrinks when it grows or calls are dropped.
+ *
+ * The min latency is re-probed after {@link #getProbeInterval()} samples taken while
+ * less than a half of the limit is used, so the limiter follows changes of the method
+ * latency. All the state is updated with CAS. The limit is the integer part of the
+ * estimated limit, which is the single field the limit is published through, so
+ * concurrent releases cannot publish a limit of an outdated estimate.
+ */
+public class JsonRpcVegasLimiter implements IJsonRpcConcurrencyLimiter {
+	private final int minLimit;
+	private final int maxLimit;
+	private final double smoothing;
+	private final int probeInterval;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong estimatedLimit;
+	private final AtomicLong minRtt = new AtomicLong();
+	private final AtomicInteger samples = new AtomicInteger();
+
+	/**
+	 * Creates a limiter starting from 20 calls, limited to [1; 1000]
+	 */
+	public JsonRpcVegasLimiter() {
+		this(20, 1, 1000, 1.0, 1000);
+	}
+
+	/**
+	 * @param initialLimit	limit before any calls are measured
+	 * @param minLimit		min limit
+	 * @param maxLimit		max limit
+	 * @param smoothing		weight of a new limit from 0 (exclusive) to 1
+	 * @param probeInterval	number of low load samples between probes of the min latency
+	 */
+	public JsonRpcVegasLimiter(int initialLimit, int minLimit, int maxLimit, double smoothing, int probeInterval) {
+		if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+			throw new IllegalArgumentException("Limits should be positive and min <= initial <= max");
+		}
+		if (smoothing <= 0 || smoothing > 1) {
+			throw new IllegalArgumentException("Smoothing should be in (0; 1]");
+		}
+		if (probeInterval < 1) {
+			throw new IllegalArgumentException("Probe interval should be positive");
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.smoothing = smoothing;
+		this.probeInterval = probeInterval;
+		this.estimatedLimit = new AtomicLong(Double.doubleToLongBits(initialLimit));
+	}
+
+	static boolean tryAcquire(AtomicInteger inFlight, int limit) {
+		for (;;) {
+			int current = inFlight.get();
+			if (current >= limit) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public boolean tryAcquire() {
+		return tryAcquire(this.inFlight, this.getLimit());
+	}
+
+	@Override
+	public void release(long rttNanos, boolean dropped) {
+		int running = this.inFlight.getAndDecrement();
+		if (rttNanos <= 0) {
+			return;
+		}
+		boolean idle = running * 2 < this.getLimit();
+		if (idle && this.samples.incrementAndGet() >= this.probeInterval) {
+			// Forget the min latency, the next calls will measure it again.
+			// Latency of a loaded method includes the queue, so it's probed only under low load.
+			this.samples.set(0);
+			this.minRtt.set(rttNanos);
+			return;
+		}
+		long noLoad = this.minRtt.get();
+		while (noLoad == 0 || rttNanos < noLoad) {
+			if (this.minRtt.compareAndSet(noLoad, rttNanos)) {
+				noLoad = rttNanos;
+				break;
+			}
+			noLoad = this.minRtt.get();
+		}
+		for (;;) {
+			long bits = this.estimatedLimit.get();
+			double current = Double.longBitsToDouble(bits);
+			double next = this.nextLimit(current, idle, noLoad, rttNanos, dropped);
+			if (next == current || this.estimatedLimit.compareAndSet(bits, Double.doubleToLongBits(next))) {
+				return;
+			}
+		}
+	}
+
+	private double nextLimit(double current, boolean idle, long noLoad, long rtt, boolean dropped) {
+		double log = Math.max(1, Math.log10(current));
+		double target;
+		if (dropped) {
+			target = current - log;
+		} else if (idle) {
+			// The method isn't loaded enough to judge the limit
+			return current;
+		} else {
+			double queue = Math.ceil(current * (1 - (double) noLoad / rtt));
+			if (queue <= log) {
+				target = current + 6 * log;
+			} else if (queue < 3 * log) {
+				target = current + log;
+			} else if (queue > 6 * log) {
+				target = current - log;
+			} else {
+				return current;
+			}
+		}
+		target = Math.max(this.minLimit, Math.min(this.maxLimit, target));
+		return (1 - this.smoothing) * current + this.smoothing * target;
+	}
+
+	@Override
+	public int getLimit() {
+		return (int) Double.longBitsToDouble(this.estimatedLimit.get());
+	}
+
+	@Override
+	public int getInFlight() {
+		return this.inFlight.get();
+	}
+
+	/**
+	 * @return min observed latency in nanoseconds, 0 before any calls are measured
+	 */
+	public long getMinRtt() {
+		return this.minRtt.get();
+	}
+
+	public int getProbeInterval() {
+		return this.probeInterval;
+	}
+}
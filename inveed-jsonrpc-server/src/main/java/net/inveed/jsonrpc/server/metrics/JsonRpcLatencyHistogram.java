@@ -0,0 +1,119 @@
+package net.inveed.jsonrpc.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ *
+ * Buckets are preallocated: every power of two is split into 32 linear
+ * sub-buckets, so a recorded value is reported with an error below 3%,
+ * like a HdrHistogram with 2 significant digits. Values of 2^43 ns
+ * (about 2.4 hours) and above are counted in the last bucket, which
+ * reports the max value.
+ */
+public class JsonRpcLatencyHistogram {
+	private static final int SUB_BITS = 5;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 42;
+	private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	public JsonRpcLatencyHistogram() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			this.buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * @param nanos duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		this.buckets[bucketOf(nanos)].increment();
+		this.count.increment();
+		this.total.add(nanos);
+		long m = this.max.get();
+		while (nanos > m && !this.max.compareAndSet(m, nanos)) {
+			m = this.max.get();
+		}
+	}
+
+	static int bucketOf(long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int shift = exponent - SUB_BITS;
+		int sub = (int) (value >>> shift) - SUB_COUNT;
+		return (shift + 1) * SUB_COUNT + sub;
+	}
+
+	/**
+	 * @return highest value counted in the bucket
+	 */
+	static long highestOf(int bucket) {
+		if (bucket < SUB_COUNT) {
+			return bucket;
+		}
+		int shift = bucket / SUB_COUNT - 1;
+		long sub = bucket % SUB_COUNT;
+		return ((SUB_COUNT + sub + 1) << shift) - 1;
+	}
+
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	/**
+	 * @return max recorded value in nanoseconds
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 * @return mean value in nanoseconds
+	 */
+	public double getMean() {
+		long c = this.count.sum();
+		return c == 0 ? 0 : (double) this.total.sum() / c;
+	}
+
+	/**
+	 * Returns a percentile. Values recorded while the percentile is computed
+	 * may be counted or not.
+	 * 
+	 * @param percentile percentile from 0 to 100
+	 * @return value in nanoseconds, not less than the percentile of the recorded values
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = new long[BUCKET_COUNT];
+		long c = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = this.buckets[i].sum();
+			c += counts[i];
+		}
+		if (c == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * c));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return i == BUCKET_COUNT - 1 ? this.max.get() : Math.min(highestOf(i), this.max.get());
+			}
+		}
+		return this.max.get();
+	}
+}
@@ -0,0 +1,162 @@
+package net.inveed.jsonrpc.server.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.inveed.jsonrpc.server.cache.JsonRpcResultCache;
+
+/**
+ * Metrics of a JSON-RPC method. Recording doesn't lock and doesn't allocate.
+ */
+public class JsonRpcMethodMetrics {
+	private static final int ERROR_CODE_SLOTS = 16;
+	private static final long EMPTY_SLOT = Long.MIN_VALUE;
+
+	private final String name;
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder inFlight = new LongAdder();
+	private final LongAdder allocatedBytes = new LongAdder();
+	private final JsonRpcLatencyHistogram latency = new JsonRpcLatencyHistogram();
+	private final CopyOnWriteArrayList<JsonRpcResultCache> resultCaches = new CopyOnWriteArrayList<>();
+
+	// Small open-addressed table of error codes, other codes are counted together
+	private final AtomicLongArray errorCodes = new AtomicLongArray(ERROR_CODE_SLOTS);
+	private final LongAdder[] errorCounts = new LongAdder[ERROR_CODE_SLOTS];
+	private final LongAdder otherErrors = new LongAdder();
+
+	public JsonRpcMethodMetrics(String name) {
+		this.name = name;
+		for (int i = 0; i < ERROR_CODE_SLOTS; i++) {
+			this.errorCodes.set(i, EMPTY_SLOT);
+			this.errorCounts[i] = new LongAdder();
+		}
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Called when the method is going to be invoked
+	 */
+	public void enter() {
+		this.inFlight.increment();
+	}
+
+	/**
+	 * Called when the invocation, started by {@link #enter()}, is completed
+	 */
+	public void exit() {
+		this.inFlight.decrement();
+	}
+
+	/**
+	 * Records a completed call
+	 * 
+	 * @param nanos				duration of the call
+	 * @param allocatedBytes	bytes allocated by the call or a negative value if unknown
+	 */
+	public void recordSuccess(long nanos, long allocatedBytes) {
+		this.calls.increment();
+		this.latency.record(nanos);
+		if (allocatedBytes > 0) {
+			this.allocatedBytes.add(allocatedBytes);
+		}
+	}
+
+	/**
+	 * Records a call completed with an error
+	 * 
+	 * @param nanos				duration of the call
+	 * @param code				JSON-RPC error code
+	 * @param allocatedBytes	bytes allocated by the call or a negative value if unknown
+	 */
+	public void recordError(long nanos, long code, long allocatedBytes) {
+		this.recordSuccess(nanos, allocatedBytes);
+		this.errors.increment();
+		int start = (int) (code ^ (code >>> 32)) & (ERROR_CODE_SLOTS - 1);
+		for (int i = 0; i < ERROR_CODE_SLOTS; i++) {
+			int slot = (start + i) & (ERROR_CODE_SLOTS - 1);
+			long c = this.errorCodes.get(slot);
+			if (c == EMPTY_SLOT && this.errorCodes.compareAndSet(slot, EMPTY_SLOT, code)) {
+				c = code;
+			} else if (c == EMPTY_SLOT) {
+				c = this.errorCodes.get(slot);
+			}
+			if (c == code) {
+				this.errorCounts[slot].increment();
+				return;
+			}
+		}
+		this.otherErrors.increment();
+	}
+
+	public long getCalls() {
+		return this.calls.sum();
+	}
+
+	public long getErrors() {
+		return this.errors.sum();
+	}
+
+	public long getInFlight() {
+		return this.inFlight.sum();
+	}
+
+	/**
+	 * @return bytes allocated by the calls, if allocation tracking is enabled
+	 */
+	public long getAllocatedBytes() {
+		return this.allocatedBytes.sum();
+	}
+
+	public JsonRpcLatencyHistogram getLatency() {
+		return this.latency;
+	}
+
+	/**
+	 * @return number of errors by JSON-RPC error code
+	 */
+	public Map<Long, Long> getErrorsByCode() {
+		TreeMap<Long, Long> ret = new TreeMap<>();
+		for (int i = 0; i < ERROR_CODE_SLOTS; i++) {
+			long code = this.errorCodes.get(i);
+			if (code != EMPTY_SLOT) {
+				ret.put(code, this.errorCounts[i].sum());
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return number of errors with codes, which didn't fit to the table of codes
+	 */
+	public long getOtherErrors() {
+		return this.otherErrors.sum();
+	}
+
+	/**
+	 * Adds a result cache of the method, counters of the caches of the overloads are summed
+	 * 
+	 * @param cache result cache
+	 */
+	public void addResultCache(JsonRpcResultCache cache) {
+		this.resultCaches.addIfAbsent(cache);
+	}
+
+	public List<JsonRpcResultCache> getResultCaches() {
+		return this.resultCaches;
+	}
+
+	/**
+	 * @return current values of the metrics
+	 */
+	public JsonRpcMethodSnapshot getSnapshot() {
+		return new JsonRpcMethodSnapshot(this);
+	}
+}
@@ -0,0 +1,119 @@
+package net.inveed.jsonrpc.server.metrics;
+
+import java.util.Map;
+
+import net.inveed.jsonrpc.server.cache.JsonRpcResultCache;
+
+/**
+ * Values of the metrics of a JSON-RPC method at some moment.
+ * Durations are in microseconds.
+ */
+public class JsonRpcMethodSnapshot {
+	private static final double NANOS_IN_MICRO = 1000d;
+
+	private final String name;
+	private final long calls;
+	private final long errors;
+	private final long inFlight;
+	private final Map<Long, Long> errorsByCode;
+	private final double latencyMean;
+	private final double latencyP50;
+	private final double latencyP99;
+	private final double latencyP999;
+	private final double latencyMax;
+	private final long allocatedBytes;
+	private long cacheHits;
+	private long cacheMisses;
+	private long cacheEvictions;
+	private long cacheSize;
+
+	JsonRpcMethodSnapshot(JsonRpcMethodMetrics metrics) {
+		this.name = metrics.getName();
+		this.calls = metrics.getCalls();
+		this.errors = metrics.getErrors();
+		this.inFlight = metrics.getInFlight();
+		this.errorsByCode = metrics.getErrorsByCode();
+		JsonRpcLatencyHistogram h = metrics.getLatency();
+		this.latencyMean = h.getMean() / NANOS_IN_MICRO;
+		this.latencyP50 = h.getPercentile(50) / NANOS_IN_MICRO;
+		this.latencyP99 = h.getPercentile(99) / NANOS_IN_MICRO;
+		this.latencyP999 = h.getPercentile(99.9) / NANOS_IN_MICRO;
+		this.latencyMax = h.getMax() / NANOS_IN_MICRO;
+		this.allocatedBytes = metrics.getAllocatedBytes();
+		for (JsonRpcResultCache c : metrics.getResultCaches()) {
+			this.cacheHits += c.getHits();
+			this.cacheMisses += c.getMisses();
+			this.cacheEvictions += c.getEvictions();
+			this.cacheSize += c.size();
+		}
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public long getCalls() {
+		return this.calls;
+	}
+
+	public long getErrors() {
+		return this.errors;
+	}
+
+	public long getInFlight() {
+		return this.inFlight;
+	}
+
+	public Map<Long, Long> getErrorsByCode() {
+		return this.errorsByCode;
+	}
+
+	public double getLatencyMean() {
+		return this.latencyMean;
+	}
+
+	public double getLatencyP50() {
+		return this.latencyP50;
+	}
+
+	public double getLatencyP99() {
+		return this.latencyP99;
+	}
+
+	public double getLatencyP999() {
+		return this.latencyP999;
+	}
+
+	public double getLatencyMax() {
+		return this.latencyMax;
+	}
+
+	/**
+	 * @return bytes allocated per call, 0 if allocation tracking is disabled
+	 */
+	public long getAllocatedBytesPerCall() {
+		return this.calls == 0 ? 0 : this.allocatedBytes / this.calls;
+	}
+
+	/**
+	 * @return hits of the result cache, 0 if the method isn't cacheable
+	 */
+	public long getCacheHits() {
+		return this.cacheHits;
+	}
+
+	public long getCacheMisses() {
+		return this.cacheMisses;
+	}
+
+	/**
+	 * @return results evicted from the result cache, because it's full or they are expired
+	 */
+	public long getCacheEvictions() {
+		return this.cacheEvictions;
+	}
+
+	public long getCacheSize() {
+		return this.cacheSize;
+	}
+}
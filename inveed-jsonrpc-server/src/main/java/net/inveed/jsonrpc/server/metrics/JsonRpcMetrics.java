@@ -0,0 +1,161 @@
+package net.inveed.jsonrpc.server.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.inveed.jsonrpc.server.typeutils.JsonRpcMethodExt;
+
+/**
+ * Registry of the metrics of JSON-RPC methods.
+ *
+ * Overloads of a method share the metrics. Calls, which cannot be resolved to
+ * a method, are recorded to the {@link #UNRESOLVED} metrics, so unknown method
+ * names don't add new entries.
+ */
+public class JsonRpcMetrics implements JsonRpcMetricsMXBean {
+	/**
+	 * Name of the metrics of invalid requests and unknown methods
+	 */
+	public static final String UNRESOLVED = "#unresolved";
+
+	private static final String OBJECT_NAME_PREFIX = "net.inveed.jsonrpc:type=Metrics,name=";
+
+	private final ConcurrentHashMap<JsonRpcMethodExt, JsonRpcMethodMetrics> byMethod = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, JsonRpcMethodMetrics> byName = new ConcurrentHashMap<>();
+	private final JsonRpcMethodMetrics unresolved = new JsonRpcMethodMetrics(UNRESOLVED);
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder requestBytes = new LongAdder();
+	private final LongAdder responseBytes = new LongAdder();
+	private volatile com.sun.management.ThreadMXBean allocationBean;
+
+	/**
+	 * @param method JSON-RPC method
+	 * @return metrics of the method
+	 */
+	public JsonRpcMethodMetrics forMethod(JsonRpcMethodExt method) {
+		JsonRpcMethodMetrics ret = this.byMethod.get(method);
+		if (ret == null) {
+			ret = this.byName.computeIfAbsent(method.getQualifiedName(), JsonRpcMethodMetrics::new);
+			if (method.getResultCache() != null) {
+				ret.addResultCache(method.getResultCache());
+			}
+			this.byMethod.putIfAbsent(method, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * @return metrics of invalid requests and unknown methods
+	 */
+	public JsonRpcMethodMetrics getUnresolved() {
+		return this.unresolved;
+	}
+
+	/**
+	 * Records sizes of an HTTP request and its response
+	 * 
+	 * @param requestBytes	size of the request body
+	 * @param responseBytes	size of the response body
+	 */
+	public void recordRequest(long requestBytes, long responseBytes) {
+		this.requests.increment();
+		this.requestBytes.add(requestBytes);
+		this.responseBytes.add(responseBytes);
+	}
+
+	/**
+	 * Enables recording of bytes allocated by the calls. Allocated bytes are read
+	 * from {@link com.sun.management.ThreadMXBean}, which may allocate a bit itself.
+	 * 
+	 * @param allocationTracking {@code true} to record allocated bytes
+	 * @throws UnsupportedOperationException if the JVM cannot measure allocated bytes
+	 */
+	public void setAllocationTracking(boolean allocationTracking) {
+		if (!allocationTracking) {
+			this.allocationBean = null;
+			return;
+		}
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)
+				|| !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			throw new UnsupportedOperationException("Allocated memory cannot be measured by the JVM");
+		}
+		com.sun.management.ThreadMXBean ab = (com.sun.management.ThreadMXBean) bean;
+		ab.setThreadAllocatedMemoryEnabled(true);
+		this.allocationBean = ab;
+	}
+
+	public boolean isAllocationTracking() {
+		return this.allocationBean != null;
+	}
+
+	/**
+	 * @return bytes allocated by the current thread or -1 if allocation tracking is disabled
+	 */
+	public long getCurrentThreadAllocatedBytes() {
+		com.sun.management.ThreadMXBean ab = this.allocationBean;
+		return ab == null ? -1 : ab.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	@Override
+	public long getRequests() {
+		return this.requests.sum();
+	}
+
+	@Override
+	public long getRequestBytes() {
+		return this.requestBytes.sum();
+	}
+
+	@Override
+	public long getResponseBytes() {
+		return this.responseBytes.sum();
+	}
+
+	@Override
+	public Map<String, JsonRpcMethodSnapshot> getMethods() {
+		TreeMap<String, JsonRpcMethodSnapshot> ret = new TreeMap<>();
+		for (JsonRpcMethodMetrics m : this.byName.values()) {
+			ret.put(m.getName(), m.getSnapshot());
+		}
+		if (this.unresolved.getCalls() > 0) {
+			ret.put(UNRESOLVED, this.unresolved.getSnapshot());
+		}
+		return ret;
+	}
+
+	/**
+	 * Registers the metrics in the platform MBean server
+	 * 
+	 * @param name name of the metrics, e.g. name of the servlet
+	 * @return object name of the MBean
+	 * @throws JMException if the MBean cannot be registered
+	 */
+	public ObjectName registerMBean(String name) throws JMException {
+		ObjectName on = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+		return on;
+	}
+
+	/**
+	 * Unregisters the metrics registered by {@link #registerMBean(String)}
+	 * 
+	 * @param name name of the metrics
+	 * @throws JMException if the MBean cannot be unregistered
+	 */
+	public void unregisterMBean(String name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName on = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+		if (server.isRegistered(on)) {
+			server.unregisterMBean(on);
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package net.inveed.jsonrpc.server.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX interface of {@link JsonRpcMetrics}
+ */
+public interface JsonRpcMetricsMXBean {
+
+	/**
+	 * @return number of HTTP requests
+	 */
+	long getRequests();
+
+	/**
+	 * @return total size of HTTP request bodies as received
+	 */
+	long getRequestBytes();
+
+	/**
+	 * @return total size of HTTP response bodies as sent
+	 */
+	long getResponseBytes();
+
+	/**
+	 * @return metrics of the JSON-RPC methods by "service#method" name
+	 */
+	Map<String, JsonRpcMethodSnapshot> getMethods();
+}
@@ -0,0 +1,306 @@
+package net.inveed.jsonrpc.server.projection;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Fields of a method result requested by the "#fields" management param.
+ *
+ * The param is either a string with a GraphQL-like selection, e.g.
+ * {@code "id, name, owner { name, email }"}, where {@code "owner.name"} is
+ * a short form of {@code "owner { name }"}, or an array of such selections
+ * and JSON pointers, e.g. {@code ["id", "/owner/name"]}. A field without
+ * nested selection is written as a whole. Arrays and collections are
+ * transparent: the selection applies to each of their elements.
+ *
+ * The result is serialized through a property filter, so getters of the
+ * fields, which weren't requested, are never called and lazy associations
+ * behind them are never loaded.
+ */
+public class JsonRpcFieldProjection {
+	public static final String PARAM = "#fields";
+
+	private final HashMap<String, JsonRpcFieldProjection> fields = new HashMap<>();
+
+	JsonRpcFieldProjection() {
+	}
+
+	/**
+	 * Parses the value of the "#fields" param
+	 *
+	 * @param value param value
+	 * @return projection or null if the value is null
+	 * @throws IllegalArgumentException if the value is not a valid field selection
+	 */
+	public static JsonRpcFieldProjection parse(JsonNode value) {
+		if (value == null || value.isNull()) {
+			return null;
+		}
+		JsonRpcFieldProjection ret = new JsonRpcFieldProjection();
+		if (value.isTextual()) {
+			new Parser(value.textValue()).parseList(ret, false);
+		} else if (value.isArray()) {
+			for (JsonNode item : value) {
+				if (!item.isTextual()) {
+					throw new IllegalArgumentException("Field selection should be a string");
+				}
+				String text = item.textValue();
+				if (text.startsWith("/")) {
+					ret.addPointer(text);
+				} else {
+					new Parser(text).parseList(ret, false);
+				}
+			}
+		} else {
+			throw new IllegalArgumentException("Fields should be a string or an array of strings");
+		}
+		if (ret.fields.isEmpty()) {
+			throw new IllegalArgumentException("No fields are selected");
+		}
+		return ret;
+	}
+
+	/**
+	 * @param name property name
+	 * @return {@code true} if the property is requested
+	 */
+	public boolean includes(String name) {
+		return this.fields.containsKey(name);
+	}
+
+	/**
+	 * @param name property name
+	 * @return selection of the property value or null if it's requested as a whole
+	 */
+	public JsonRpcFieldProjection get(String name) {
+		return this.fields.get(name);
+	}
+
+	/**
+	 * Serializes a value to a JSON tree, writing only the requested fields
+	 *
+	 * @param mapper	object mapper of the server
+	 * @param value		value to serialize
+	 * @return JSON tree of the value
+	 */
+	public JsonNode serializeToNode(ObjectMapper mapper, Object value) {
+		if (value instanceof JsonNode) {
+			return this.apply((JsonNode) value);
+		}
+		TokenBuffer buf = new TokenBuffer(mapper, false);
+		try {
+			this.writeValue(mapper, buf, value);
+			JsonParser p = buf.asParser();
+			JsonNode ret = mapper.readTree(p);
+			p.close();
+			return ret;
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Writes a value to a generator, writing only the requested fields.
+	 * The value may be written inside of an enclosing object, e.g. as the result
+	 * of a JSON-RPC response: the selection applies to the value itself.
+	 *
+	 * @param mapper	object mapper of the server
+	 * @param gen		generator to write to
+	 * @param value		value to write
+	 * @throws IOException if the value cannot be written
+	 */
+	public void writeValue(ObjectMapper mapper, JsonGenerator gen, Object value) throws IOException {
+		if (value == null) {
+			gen.writeNull();
+		} else if (value instanceof JsonNode) {
+			gen.writeTree(this.apply((JsonNode) value));
+		} else {
+			JsonRpcProjectionFilter.writer(mapper, this, gen.getOutputContext())
+					.forType(value.getClass())
+					.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+					.writeValue(gen, value);
+		}
+	}
+
+	/**
+	 * Removes the fields, which weren't requested, from a JSON tree
+	 *
+	 * @param node JSON tree
+	 * @return copy of the tree with the requested fields
+	 */
+	public JsonNode apply(JsonNode node) {
+		if (node.isArray()) {
+			ArrayNode ret = ((ArrayNode) node).arrayNode(node.size());
+			for (JsonNode element : node) {
+				ret.add(this.apply(element));
+			}
+			return ret;
+		}
+		if (!node.isObject()) {
+			return node;
+		}
+		ObjectNode ret = ((ObjectNode) node).objectNode();
+		Iterator<Map.Entry<String, JsonNode>> it = node.fields();
+		while (it.hasNext()) {
+			Map.Entry<String, JsonNode> e = it.next();
+			if (!this.fields.containsKey(e.getKey())) {
+				continue;
+			}
+			JsonRpcFieldProjection nested = this.fields.get(e.getKey());
+			ret.set(e.getKey(), nested == null ? e.getValue() : nested.apply(e.getValue()));
+		}
+		return ret;
+	}
+
+	private void add(String name, JsonRpcFieldProjection nested) {
+		if (!this.fields.containsKey(name)) {
+			this.fields.put(name, nested);
+			return;
+		}
+		JsonRpcFieldProjection existing = this.fields.get(name);
+		if (existing == null) {
+			// Already requested as a whole
+			return;
+		}
+		if (nested == null) {
+			this.fields.put(name, null);
+			return;
+		}
+		for (Map.Entry<String, JsonRpcFieldProjection> e : nested.fields.entrySet()) {
+			existing.add(e.getKey(), e.getValue());
+		}
+	}
+
+	private void addPointer(String pointer) {
+		String[] segments = pointer.substring(1).split("/", -1);
+		JsonRpcFieldProjection nested = null;
+		for (int i = segments.length - 1; i >= 0; i--) {
+			String name = segments[i].replace("~1", "/").replace("~0", "~");
+			if (name.isEmpty()) {
+				throw new IllegalArgumentException("Empty field name in " + pointer);
+			}
+			JsonRpcFieldProjection p = new JsonRpcFieldProjection();
+			p.fields.put(name, nested);
+			nested = p;
+		}
+		for (Map.Entry<String, JsonRpcFieldProjection> e : nested.fields.entrySet()) {
+			this.add(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * @return canonical form of the selection with the fields sorted by name,
+	 *         equal selections give equal strings
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		this.appendTo(sb);
+		return sb.toString();
+	}
+
+	private void appendTo(StringBuilder sb) {
+		boolean first = true;
+		for (Map.Entry<String, JsonRpcFieldProjection> e : new TreeMap<>(this.fields).entrySet()) {
+			if (!first) {
+				sb.append(',');
+			}
+			first = false;
+			sb.append(e.getKey());
+			if (e.getValue() != null) {
+				sb.append('{');
+				e.getValue().appendTo(sb);
+				sb.append('}');
+			}
+		}
+	}
+
+	private static final class Parser {
+		private final String text;
+		private int pos;
+
+		private Parser(String text) {
+			this.text = text;
+		}
+
+		/**
+		 * Parses selections separated by commas or spaces up to the end
+		 * of the text or, if nested, up to the closing brace
+		 */
+		private void parseList(JsonRpcFieldProjection target, boolean nested) {
+			while (true) {
+				while (this.pos < this.text.length()
+						&& (this.text.charAt(this.pos) == ',' || Character.isWhitespace(this.text.charAt(this.pos)))) {
+					this.pos++;
+				}
+				if (this.pos >= this.text.length()) {
+					if (nested) {
+						throw this.error("'}' expected");
+					}
+					return;
+				}
+				if (this.text.charAt(this.pos) == '}') {
+					if (!nested) {
+						throw this.error("Unexpected '}'");
+					}
+					this.pos++;
+					return;
+				}
+				this.parseSelection(target);
+			}
+		}
+
+		private void parseSelection(JsonRpcFieldProjection target) {
+			int start = this.pos;
+			while (this.pos < this.text.length() && !isSeparator(this.text.charAt(this.pos))) {
+				this.pos++;
+			}
+			if (this.pos == start) {
+				throw this.error("Field name expected");
+			}
+			String name = this.text.substring(start, this.pos);
+			this.skipWhitespace();
+			JsonRpcFieldProjection nested = null;
+			if (this.pos < this.text.length() && this.text.charAt(this.pos) == '.') {
+				this.pos++;
+				this.skipWhitespace();
+				nested = new JsonRpcFieldProjection();
+				this.parseSelection(nested);
+			} else if (this.pos < this.text.length() && this.text.charAt(this.pos) == '{') {
+				this.pos++;
+				nested = new JsonRpcFieldProjection();
+				this.parseList(nested, true);
+				if (nested.fields.isEmpty()) {
+					throw this.error("No fields are selected in '" + name + "'");
+				}
+			}
+			target.add(name, nested);
+		}
+
+		private void skipWhitespace() {
+			while (this.pos < this.text.length() && Character.isWhitespace(this.text.charAt(this.pos))) {
+				this.pos++;
+			}
+		}
+
+		private static boolean isSeparator(char c) {
+			return c == ',' || c == '.' || c == '{' || c == '}' || Character.isWhitespace(c);
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at position " + this.pos + " of '" + this.text + "'");
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package net.inveed.jsonrpc.server.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+/**
+ * Property filter writing the fields of a {@link JsonRpcFieldProjection}.
+ *
+ * The filter is applied to all beans and maps by a copy of the server mapper,
+ * which assigns a filter id to every class. The selection of the object being
+ * written is found by the field names of the enclosing objects in the
+ * generator output context, up to the context the value is written in.
+ */
+class JsonRpcProjectionFilter extends SimpleBeanPropertyFilter {
+	private static final String FILTER_ID = JsonRpcProjectionFilter.class.getName();
+
+	private static final class CachedMapper {
+		private final ObjectMapper mapper;
+		private final ObjectMapper filtering;
+
+		private CachedMapper(ObjectMapper mapper, ObjectMapper filtering) {
+			this.mapper = mapper;
+			this.filtering = filtering;
+		}
+	}
+
+	private static final class FilterIdIntrospector extends NopAnnotationIntrospector {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Object findFilterId(Annotated a) {
+			return a instanceof AnnotatedClass ? FILTER_ID : null;
+		}
+	}
+
+	private static volatile CachedMapper cached;
+
+	private final JsonRpcFieldProjection projection;
+	private final JsonStreamContext base;
+
+	private JsonRpcProjectionFilter(JsonRpcFieldProjection projection, JsonStreamContext base) {
+		this.projection = projection;
+		this.base = base;
+	}
+
+	/**
+	 * Returns a writer, which serializes the requested fields only. The mapper copy
+	 * is created once and reused while the same mapper is used.
+	 *
+	 * @param mapper		object mapper of the server
+	 * @param projection	requested fields
+	 * @param base			output context of the generator, which the value is written in
+	 * @return object writer
+	 */
+	static ObjectWriter writer(ObjectMapper mapper, JsonRpcFieldProjection projection, JsonStreamContext base) {
+		CachedMapper c = cached;
+		if (c == null || c.mapper != mapper) {
+			ObjectMapper filtering = mapper.copy();
+			filtering.setAnnotationIntrospector(AnnotationIntrospector.pair(
+					mapper.getSerializationConfig().getAnnotationIntrospector(),
+					new FilterIdIntrospector()));
+			c = new CachedMapper(mapper, filtering);
+			cached = c;
+		}
+		// Classes with their own filter id get the projection filter too
+		return c.filtering.writer(new SimpleFilterProvider().setDefaultFilter(new JsonRpcProjectionFilter(projection, base)));
+	}
+
+	@Override
+	public void serializeAsField(Object pojo, JsonGenerator gen, SerializerProvider provider, PropertyWriter writer) throws Exception {
+		JsonRpcFieldProjection selection = this.find(gen.getOutputContext());
+		if (selection == null || selection.includes(writer.getName())) {
+			writer.serializeAsField(pojo, gen, provider);
+		} else if (!gen.canOmitFields()) {
+			writer.serializeAsOmittedField(pojo, gen, provider);
+		}
+	}
+
+	/**
+	 * @param ctx context of an object or an array being written
+	 * @return selection of its fields or null if all the fields are written
+	 */
+	private JsonRpcFieldProjection find(JsonStreamContext ctx) {
+		JsonStreamContext parent = ctx.getParent();
+		if (parent == null || parent == this.base) {
+			return this.projection;
+		}
+		if (parent.inArray()) {
+			return this.find(parent);
+		}
+		JsonRpcFieldProjection enclosing = this.find(parent);
+		return enclosing == null ? null : enclosing.get(parent.getCurrentName());
+	}
+}
@@ -0,0 +1,167 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.fasterxml.jackson.databind.node.ValueNode;
+
+import net.inveed.jsonrpc.core.domain.SuccessResponse;
+
+/**
+ * Successful JSON-RPC response with a result taken from the result cache.
+ * The result is already serialized and is written to the response as is:
+ * a UTF-8 generator copies the cached bytes without decoding them to a string.
+ */
+public class CachedSuccessResponse extends SuccessResponse {
+	private final byte[] serializedResult;
+
+	/**
+	 * 
+	 * @param id				request id
+	 * @param serializedResult	result serialized to JSON (UTF-8), it's not copied and should not be changed
+	 */
+	public CachedSuccessResponse(ValueNode id, byte[] serializedResult) {
+		super(id, null);
+		this.serializedResult = serializedResult;
+	}
+
+	@Override
+	public Object getResult() {
+		return new RawValue(new SerializedResult(this.serializedResult));
+	}
+
+	/**
+	 * @param id request id
+	 * @return response with the same result for another request
+	 */
+	public CachedSuccessResponse withId(ValueNode id) {
+		return new CachedSuccessResponse(id, this.serializedResult);
+	}
+
+	/**
+	 * @return result serialized to JSON (UTF-8)
+	 */
+	@JsonIgnore
+	public byte[] getSerializedResult() {
+		return this.serializedResult;
+	}
+
+	/**
+	 * Raw JSON value in UTF-8. The unquoted forms are the bytes themselves,
+	 * the string is only created for generators writing chars.
+	 */
+	private static final class SerializedResult implements SerializableString {
+		private final byte[] utf8;
+		private String value;
+
+		private SerializedResult(byte[] utf8) {
+			this.utf8 = utf8;
+		}
+
+		@Override
+		public String getValue() {
+			if (this.value == null) {
+				this.value = new String(this.utf8, StandardCharsets.UTF_8);
+			}
+			return this.value;
+		}
+
+		@Override
+		public int charLength() {
+			return this.getValue().length();
+		}
+
+		@Override
+		public char[] asQuotedChars() {
+			return JsonStringEncoder.getInstance().quoteAsString(this.getValue());
+		}
+
+		@Override
+		public byte[] asUnquotedUTF8() {
+			return this.utf8;
+		}
+
+		@Override
+		public byte[] asQuotedUTF8() {
+			return JsonStringEncoder.getInstance().quoteAsUTF8(this.getValue());
+		}
+
+		@Override
+		public int appendQuotedUTF8(byte[] buffer, int offset) {
+			return append(this.asQuotedUTF8(), buffer, offset);
+		}
+
+		@Override
+		public int appendQuoted(char[] buffer, int offset) {
+			return append(this.asQuotedChars(), buffer, offset);
+		}
+
+		@Override
+		public int appendUnquotedUTF8(byte[] buffer, int offset) {
+			return append(this.utf8, buffer, offset);
+		}
+
+		@Override
+		public int appendUnquoted(char[] buffer, int offset) {
+			return append(this.getValue().toCharArray(), buffer, offset);
+		}
+
+		@Override
+		public int writeQuotedUTF8(OutputStream out) throws IOException {
+			byte[] quoted = this.asQuotedUTF8();
+			out.write(quoted);
+			return quoted.length;
+		}
+
+		@Override
+		public int writeUnquotedUTF8(OutputStream out) throws IOException {
+			out.write(this.utf8);
+			return this.utf8.length;
+		}
+
+		@Override
+		public int putQuotedUTF8(ByteBuffer buffer) throws IOException {
+			return put(this.asQuotedUTF8(), buffer);
+		}
+
+		@Override
+		public int putUnquotedUTF8(ByteBuffer buffer) throws IOException {
+			return put(this.utf8, buffer);
+		}
+
+		@Override
+		public String toString() {
+			return this.getValue();
+		}
+
+		private static int append(byte[] src, byte[] buffer, int offset) {
+			if (offset + src.length > buffer.length) {
+				return -1;
+			}
+			System.arraycopy(src, 0, buffer, offset, src.length);
+			return src.length;
+		}
+
+		private static int append(char[] src, char[] buffer, int offset) {
+			if (offset + src.length > buffer.length) {
+				return -1;
+			}
+			System.arraycopy(src, 0, buffer, offset, src.length);
+			return src.length;
+		}
+
+		private static int put(byte[] src, ByteBuffer buffer) {
+			if (src.length > buffer.remaining()) {
+				return -1;
+			}
+			buffer.put(src);
+			return src.length;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Collection;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ValueNode;
+
+import net.inveed.jsonrpc.core.domain.SuccessResponse;
+import net.inveed.jsonrpc.server.projection.JsonRpcFieldProjection;
+import net.inveed.rest.jpa.jackson.JsonConfiguration;
+
+/**
+ * Successful JSON-RPC response, which keeps the method result as a Java object.
+ *
+ * The result is serialized only when the response is written by
+ * {@link JsonRpcResponseWriter}. Results with a "#fields" projection are written
+ * straight to the generator through the projection filter. Other collections and
+ * arrays are written element by element with the depth limit of "#deep", so
+ * a JSON tree of the whole result is never built.
+ * {@link #getResult()} still returns a JSON tree for the callers, which need it.
+ */
+public class DeferredSuccessResponse extends SuccessResponse {
+	private final JsonConfiguration jsonConf;
+	private final Object value;
+	private final int deep;
+	private final JsonRpcFieldProjection projection;
+	private JsonNode result;
+
+	/**
+	 *
+	 * @param id		request id
+	 * @param value		method result
+	 * @param deep		JSON serialization deep
+	 * @param jsonConf	JSON Configuration for result serialization
+	 */
+	public DeferredSuccessResponse(ValueNode id, Object value, int deep, JsonConfiguration jsonConf) {
+		this(id, value, deep, null, jsonConf);
+	}
+
+	/**
+	 *
+	 * @param id			request id
+	 * @param value			method result
+	 * @param deep			JSON serialization deep
+	 * @param projection	requested fields of the result or null
+	 * @param jsonConf		JSON Configuration for result serialization
+	 */
+	public DeferredSuccessResponse(ValueNode id, Object value, int deep, JsonRpcFieldProjection projection, JsonConfiguration jsonConf) {
+		super(id, null);
+		this.jsonConf = jsonConf;
+		this.value = value;
+		this.deep = deep;
+		this.projection = projection;
+	}
+
+	@Override
+	public Object getResult() {
+		if (this.result == null && this.value != null) {
+			this.result = this.serialize(this.value);
+		}
+		return this.result;
+	}
+
+	/**
+	 * @return method result as it was returned by the method
+	 */
+	@JsonIgnore
+	public Object getValue() {
+		return this.value;
+	}
+
+	/**
+	 * @param id request id
+	 * @return response with the same result for another request
+	 */
+	public DeferredSuccessResponse withId(ValueNode id) {
+		return new DeferredSuccessResponse(id, this.value, this.deep, this.projection, this.jsonConf);
+	}
+
+	/**
+	 * Writes the result to the generator
+	 *
+	 * @param gen JSON generator
+	 * @throws IOException if the result cannot be written
+	 */
+	public void writeResult(JsonGenerator gen) throws IOException {
+		if (this.result != null) {
+			gen.writeTree(this.result);
+		} else if (this.value == null) {
+			gen.writeNull();
+		} else if (this.projection != null) {
+			// "#deep" doesn't apply to projections, the filter limits the output
+			this.projection.writeValue(this.jsonConf.getMapper(), gen, this.value);
+		} else if (this.value instanceof Collection<?>) {
+			Collection<?> c = (Collection<?>) this.value;
+			gen.writeStartArray(c.size());
+			for (Object o : c) {
+				this.writeElement(gen, o);
+			}
+			gen.writeEndArray();
+		} else if (isPlain(this.value)) {
+			// Nothing to limit by deep here
+			gen.writeObject(this.value);
+		} else if (this.value.getClass().isArray()) {
+			int size = Array.getLength(this.value);
+			gen.writeStartArray(size);
+			for (int i = 0; i < size; i++) {
+				this.writeElement(gen, Array.get(this.value, i));
+			}
+			gen.writeEndArray();
+		} else {
+			// The depth limit is implemented by JsonConfiguration on a JSON tree only
+			gen.writeTree(this.serialize(this.value));
+		}
+	}
+
+	private JsonNode serialize(Object value) {
+		if (this.projection != null) {
+			return this.projection.serializeToNode(this.jsonConf.getMapper(), value);
+		}
+		return this.jsonConf.serializeToNode(value, this.deep);
+	}
+
+	private static boolean isPlain(Object value) {
+		return value instanceof String
+				|| value instanceof Number
+				|| value instanceof Boolean
+				|| (value.getClass().isArray() && value.getClass().getComponentType().isPrimitive());
+	}
+
+	private void writeElement(JsonGenerator gen, Object element) throws IOException {
+		if (element == null) {
+			gen.writeNull();
+		} else if (isPlain(element)) {
+			gen.writeObject(element);
+		} else {
+			// Every element is serialized with the same deep as the result itself,
+			// only one element is kept as a JSON tree at a time
+			gen.writeTree(this.serialize(element));
+		}
+	}
+}
@@ -6,18 +6,28 @@ public class Headers {
 	public static final String SEPARATOR = ",";
 	
 	public static final String HEADER_ACCEPT = "Accept";
+	public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
 	public static final String HEADER_ACCESS_CONTROL_ALLOW_CREDENTIALS = "Access-Control-Allow-Credentials";
 	public static final String HEADER_ACCESS_CONTROL_ALLOW_HEADERS = "Access-Control-Allow-Headers";
 	public static final String HEADER_ACCESS_CONTROL_ALLOW_METHODS = "Access-Control-Allow-Methods";
 	public static final String HEADER_ACCESS_CONTROL_ALLOW_ORIGIN = "Access-Control-Allow-Origin";
 	public static final String HEADER_ACCESS_CONTROL_REQUEST_HEADERS = "Access-Control-Request-Headers";
+	public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
 	public static final String HEADER_CONTENT_TYPE = "Content-Type";
+	public static final String HEADER_DEADLINE = "X-JsonRpc-Deadline";
 	public static final String HEADER_COOKIE = "Cookie";
 	public static final String HEADER_ORIGIN = "Origin";
 	public static final String HEADER_SET_COOKIE = "Set-Cookie";
+	public static final String HEADER_TRACEPARENT = "traceparent";
+	public static final String HEADER_VARY = "Vary";
 	public static final String HEADER_X_AUTH_TOKEN = "X-Auth-Token";
 	public static final String HEADER_X_REQUEST_WITH = "X-Requested-With";
 	
+	public static final String ENCODING_GZIP = "gzip";
+	public static final String ENCODING_X_GZIP = "x-gzip";
+	public static final String ENCODING_DEFLATE = "deflate";
+	public static final String ENCODING_IDENTITY = "identity";
+	
 	public static final String METHOD_GET = "GET";
 	public static final String METHOD_POST = "POST";
 	public static final String METHOD_PUT = "PUT";
@@ -0,0 +1,34 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+
+import org.glassfish.hk2.api.Factory;
+
+import net.inveed.jsonrpc.server.IJsonRpcRequestContext;
+
+/**
+ * Provides the HTTP request of the current JSON-RPC request scope.
+ *
+ * The factory is bound once, in {@link net.inveed.jsonrpc.core.annotation.JsonRpcRequestScope},
+ * so every request gets its own {@link HttpServletRequest} without adding
+ * descriptors to the service locator.
+ */
+public class HttpServletRequestFactory implements Factory<HttpServletRequest> {
+	private final IJsonRpcRequestContext context;
+
+	@Inject
+	public HttpServletRequestFactory(IJsonRpcRequestContext context) {
+		this.context = context;
+	}
+
+	@Override
+	public HttpServletRequest provide() {
+		return this.context.getHttpServletRequest();
+	}
+
+	@Override
+	public void dispose(HttpServletRequest instance) {
+		// Request is owned by the container
+	}
+}
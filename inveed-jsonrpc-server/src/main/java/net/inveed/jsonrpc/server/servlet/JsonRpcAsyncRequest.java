@@ -0,0 +1,247 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Request processed by {@link JsonRpcServlet} in async mode.
+ *
+ * The body is read with a {@link ReadListener} without blocking the container
+ * thread, the request is handled on the async executor of the servlet
+ * configuration, and the response is written with a {@link WriteListener}
+ * as soon as the client is ready to accept it.
+ *
+ * The handling thread never touches the container response: the status, the
+ * headers and the body are kept by a {@link JsonRpcDetachedResponse} and copied
+ * to the container response by the thread, which claims the response first.
+ * A timeout claims it for the 503 status and interrupts the handling thread.
+ */
+class JsonRpcAsyncRequest implements ReadListener, WriteListener, AsyncListener {
+	private static final int BUFFER_SIZE = 8192;
+	private static final byte[] EMPTY = new byte[0];
+
+	private static final Logger LOG = LoggerFactory.getLogger(JsonRpcAsyncRequest.class);
+
+	private final JsonRpcServlet servlet;
+	private final HttpServletRequest req;
+	private final HttpServletResponse resp;
+	private final JsonRpcDetachedResponse detached;
+	private final long maxRequestSize;
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	/**
+	 * Set by the thread, which claims the container response
+	 */
+	private final AtomicBoolean completed = new AtomicBoolean();
+	private final AtomicBoolean finished = new AtomicBoolean();
+
+	private volatile JsonRpcCallCanceller worker;
+	private AsyncContext asyncContext;
+	private ServletInputStream in;
+	private ServletOutputStream out;
+	private volatile byte[] output;
+	private boolean writing;
+	private int written;
+
+	JsonRpcAsyncRequest(JsonRpcServlet servlet, HttpServletRequest req, HttpServletResponse resp) {
+		this.servlet = servlet;
+		this.req = req;
+		this.resp = resp;
+		this.detached = new JsonRpcDetachedResponse(resp);
+		this.maxRequestSize = servlet.getConfiguration().getMaxRequestSize();
+	}
+
+	/**
+	 * Puts the request into async mode and starts reading the body
+	 *
+	 * @throws IOException if the body cannot be read
+	 */
+	void start() throws IOException {
+		this.asyncContext = this.req.startAsync(this.req, this.resp);
+		long timeout = this.servlet.getConfiguration().getAsyncTimeout();
+		if (timeout > 0) {
+			this.asyncContext.setTimeout(timeout);
+		}
+		this.asyncContext.addListener(this);
+		if (this.req.getContentLengthLong() > this.maxRequestSize) {
+			LOG.warn("Request body of {} bytes exceeds the limit of {} bytes", this.req.getContentLengthLong(), this.maxRequestSize);
+			this.reject(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+			return;
+		}
+		this.in = this.req.getInputStream();
+		this.in.setReadListener(this);
+	}
+
+	@Override
+	public void onDataAvailable() throws IOException {
+		int len;
+		while (!this.completed.get() && this.in.isReady() && (len = this.in.read(this.buffer)) != -1) {
+			if (this.body.size() + len > this.maxRequestSize) {
+				// The rest of the body is not read
+				LOG.warn("Request body exceeds the limit of {} bytes", this.maxRequestSize);
+				this.reject(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+				return;
+			}
+			this.body.write(this.buffer, 0, len);
+		}
+	}
+
+	@Override
+	public void onAllDataRead() throws IOException {
+		if (this.completed.get()) {
+			return;
+		}
+		try {
+			this.servlet.getConfiguration().getAsyncExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					process();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			LOG.warn("Request was rejected by the async executor");
+			this.reject(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		}
+	}
+
+	private void process() {
+		JsonRpcCallCanceller canceller = new JsonRpcCallCanceller();
+		this.worker = canceller;
+		try {
+			if (this.completed.get()) {
+				// Timed out while waiting for the executor
+				return;
+			}
+			ByteArrayOutputStream response = new ByteArrayOutputStream();
+			try {
+				this.servlet.handleRequest(this.req, this.detached, new ByteArrayInputStream(this.body.toByteArray()), response);
+				this.output = response.toByteArray();
+			} catch (RuntimeException e) {
+				LOG.error("Cannot handle JSON-RPC request", e);
+				this.detached.reset();
+				this.detached.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+				this.output = EMPTY;
+			}
+		} finally {
+			this.worker = null;
+			canceller.complete();
+		}
+
+		synchronized (this) {
+			// Once the request is completed, the container may recycle the response
+			if (this.completed.get()) {
+				return;
+			}
+			try {
+				this.out = this.resp.getOutputStream();
+				this.out.setWriteListener(this);
+			} catch (IOException | IllegalStateException e) {
+				LOG.error("Cannot write JSON-RPC response", e);
+				this.abort();
+			}
+		}
+	}
+
+	@Override
+	public void onWritePossible() throws IOException {
+		if (!this.writing) {
+			if (!this.completed.compareAndSet(false, true)) {
+				// Timed out
+				return;
+			}
+			this.writing = true;
+			this.detached.copyTo(this.resp, this.output.length);
+		}
+		while (this.out.isReady()) {
+			if (this.written >= this.output.length) {
+				this.finish();
+				return;
+			}
+			int len = Math.min(BUFFER_SIZE, this.output.length - this.written);
+			this.out.write(this.output, this.written, len);
+			this.written += len;
+		}
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		LOG.warn("Async I/O error: {}", t.getMessage());
+		this.abort();
+	}
+
+	@Override
+	public void onComplete(AsyncEvent event) throws IOException {
+		this.completed.set(true);
+		this.finished.set(true);
+	}
+
+	@Override
+	public void onTimeout(AsyncEvent event) throws IOException {
+		LOG.warn("JSON-RPC request timed out");
+		synchronized (this) {
+			if (this.completed.compareAndSet(false, true)) {
+				this.resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			}
+			this.finish();
+		}
+		this.cancel();
+	}
+
+	@Override
+	public void onError(AsyncEvent event) throws IOException {
+		LOG.warn("Async request error", event.getThrowable());
+		this.abort();
+	}
+
+	@Override
+	public void onStartAsync(AsyncEvent event) throws IOException {
+	}
+
+	/**
+	 * Completes the request with a status, if the response isn't claimed yet
+	 */
+	private void reject(int status) {
+		if (this.completed.compareAndSet(false, true)) {
+			this.resp.setStatus(status);
+			this.finish();
+		}
+	}
+
+	/**
+	 * Completes the request as it is and interrupts the handling thread
+	 */
+	private void abort() {
+		this.completed.set(true);
+		this.finish();
+		this.cancel();
+	}
+
+	private void cancel() {
+		JsonRpcCallCanceller w = this.worker;
+		if (w != null) {
+			w.run();
+		}
+	}
+
+	private void finish() {
+		if (this.finished.compareAndSet(false, true)) {
+			this.asyncContext.complete();
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.inveed.jsonrpc.core.domain.ErrorMessage;
+import net.inveed.jsonrpc.core.domain.ErrorResponse;
+import net.inveed.jsonrpc.core.domain.Response;
+import net.inveed.jsonrpc.server.JsonRpcRequestScopeSingleton;
+
+/**
+ * Runs the elements of a batch request on an executor.
+ *
+ * Every element runs in the request scope of the calling thread. The number of
+ * elements running at the same time is limited by the batch parallelism, the
+ * calling thread waits until all the elements are completed.
+ */
+class JsonRpcBatchExecutor {
+	private static final ErrorMessage INTERNAL_ERROR = new ErrorMessage(-32603, "Internal error", null);
+
+	private static final Logger LOG = LoggerFactory.getLogger(JsonRpcBatchExecutor.class);
+
+	private final Executor executor;
+	private final int parallelism;
+	private final boolean completionOrder;
+	private final JsonRpcRequestScopeSingleton requestScope;
+
+	/**
+	 *
+	 * @param executor			executor for the elements
+	 * @param parallelism		max number of running elements, 0 for no limit
+	 * @param completionOrder	return responses in the order of completion
+	 * @param requestScope		request scope, may be null
+	 */
+	JsonRpcBatchExecutor(Executor executor, int parallelism, boolean completionOrder, JsonRpcRequestScopeSingleton requestScope) {
+		this.executor = executor;
+		this.parallelism = parallelism;
+		this.completionOrder = completionOrder;
+		this.requestScope = requestScope;
+	}
+
+	/**
+	 * Runs the elements and collects their responses
+	 *
+	 * @param elements batch elements, returning null for notifications
+	 * @return responses except the null ones
+	 */
+	List<Response> execute(List<Supplier<Response>> elements) {
+		final int size = elements.size();
+		final Response[] ordered = this.completionOrder ? null : new Response[size];
+		final List<Response> completed = this.completionOrder ? Collections.synchronizedList(new ArrayList<>(size)) : null;
+		final CountDownLatch done = new CountDownLatch(size);
+		final Semaphore permits = this.parallelism > 0 ? new Semaphore(this.parallelism) : null;
+		boolean interrupted = false;
+
+		for (int i = 0; i < size; i++) {
+			final int index = i;
+			final Supplier<Response> element = elements.get(i);
+			final JsonRpcRequestScopeSingleton.Instance scope = this.suspendScope();
+			Runnable task = new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Response response = runElement(element, scope);
+						if (response == null) {
+							return;
+						}
+						if (ordered != null) {
+							ordered[index] = response;
+						} else {
+							completed.add(response);
+						}
+					} finally {
+						if (permits != null) {
+							permits.release();
+						}
+						done.countDown();
+					}
+				}
+			};
+
+			if (permits != null) {
+				while (true) {
+					try {
+						permits.acquire();
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+			try {
+				this.executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				LOG.warn("Batch element was rejected by the executor, running it on the request thread");
+				task.run();
+			}
+		}
+
+		while (true) {
+			try {
+				done.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (ordered != null) {
+			return Arrays.stream(ordered).filter(Objects::nonNull).collect(Collectors.toList());
+		}
+		synchronized (completed) {
+			return new ArrayList<>(completed);
+		}
+	}
+
+	private JsonRpcRequestScopeSingleton.Instance suspendScope() {
+		if (this.requestScope == null) {
+			return null;
+		}
+		return this.requestScope.suspendCurrent();
+	}
+
+	private Response runElement(final Supplier<Response> element, JsonRpcRequestScopeSingleton.Instance scope) {
+		final Response[] ret = new Response[1];
+		Runnable run = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					ret[0] = element.get();
+				} catch (RuntimeException e) {
+					LOG.error("Cannot handle batch element", e);
+					ret[0] = new ErrorResponse(INTERNAL_ERROR, 500);
+				}
+			}
+		};
+		if (scope == null) {
+			run.run();
+		} else {
+			this.requestScope.runInScope(scope, run);
+		}
+		return ret[0];
+	}
+}
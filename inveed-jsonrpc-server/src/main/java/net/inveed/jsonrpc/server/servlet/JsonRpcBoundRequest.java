@@ -0,0 +1,102 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ValueNode;
+
+import net.inveed.jsonrpc.core.domain.Request;
+import net.inveed.jsonrpc.server.JsonRpcDispatchEntry;
+import net.inveed.jsonrpc.server.typeutils.JsonRpcMethodExt;
+
+/**
+ * JSON-RPC request read by {@link JsonRpcStreamingRequestReader}.
+ *
+ * If the target method was known while params were read, params are already
+ * converted to the method arguments and {@link Request#getParams()} is null.
+ * Otherwise the request keeps params as a JSON tree and is handled as usual.
+ */
+public class JsonRpcBoundRequest {
+	private final Request request;
+	private final boolean notification;
+	private final boolean valid;
+	private final JsonRpcDispatchEntry entry;
+	private final JsonRpcMethodExt method;
+	private final Object[] args;
+	private final Map<String, JsonNode> managementParams;
+
+	/**
+	 * Creates an invalid request
+	 */
+	JsonRpcBoundRequest() {
+		this(null, false, false, null, null, null, Collections.<String, JsonNode>emptyMap());
+	}
+
+	JsonRpcBoundRequest(Request request, boolean notification, boolean valid,
+			JsonRpcDispatchEntry entry, JsonRpcMethodExt method, Object[] args,
+			Map<String, JsonNode> managementParams) {
+		this.request = request;
+		this.notification = notification;
+		this.valid = valid;
+		this.entry = entry;
+		this.method = method;
+		this.args = args;
+		this.managementParams = managementParams;
+	}
+
+	/**
+	 * @return request envelope or null if the request is not a valid JSON-RPC object
+	 */
+	public Request getRequest() {
+		return this.request;
+	}
+
+	public ValueNode getId() {
+		return this.request == null ? null : this.request.getId();
+	}
+
+	/**
+	 * @return {@code true} if the request has no "id" member
+	 */
+	public boolean isNotification() {
+		return this.notification;
+	}
+
+	/**
+	 * @return {@code false} if the request is not a JSON-RPC request object
+	 */
+	public boolean isValid() {
+		return this.valid;
+	}
+
+	/**
+	 * @return {@code true} if params were bound while reading the request
+	 */
+	public boolean isBound() {
+		return this.method != null;
+	}
+
+	public JsonRpcDispatchEntry getEntry() {
+		return this.entry;
+	}
+
+	public JsonRpcMethodExt getMethod() {
+		return this.method;
+	}
+
+	/**
+	 * @return method arguments or null if params don't match the method
+	 */
+	public Object[] getArgs() {
+		return this.args;
+	}
+
+	/**
+	 * @return management params ("#" and "." prefixed) read with the bound params,
+	 *         empty if the params are kept as a JSON tree
+	 */
+	public Map<String, JsonNode> getManagementParams() {
+		return this.managementParams;
+	}
+}
@@ -0,0 +1,72 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import net.inveed.jsonrpc.core.deadline.Deadline;
+
+/**
+ * Interrupts the thread invoking a method when the deadline of the call passes.
+ * The interrupt never outlives the invocation: it's delivered only before
+ * {@link #complete()}, which also clears it. An interrupt, which the canceller
+ * hasn't delivered itself, e.g. the thread was already interrupted, is kept.
+ */
+final class JsonRpcCallCanceller implements Runnable {
+	private final Thread thread = Thread.currentThread();
+	private ScheduledFuture<?> task;
+	private boolean completed;
+	private boolean cancelled;
+	private boolean interrupted;
+
+	/**
+	 * Schedules cancellation of the invocation running on the current thread
+	 * 
+	 * @param scheduler	scheduler of cancellations
+	 * @param deadline	deadline of the call
+	 * @return canceller, which should be completed after the invocation
+	 */
+	static JsonRpcCallCanceller schedule(ScheduledExecutorService scheduler, Deadline deadline) {
+		JsonRpcCallCanceller ret = new JsonRpcCallCanceller();
+		try {
+			ret.task = scheduler.schedule(ret, deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			// Scheduler is shut down, the deadline is still checked after the invocation
+		}
+		return ret;
+	}
+
+	@Override
+	public synchronized void run() {
+		if (!this.completed) {
+			this.cancelled = true;
+			if (!this.thread.isInterrupted()) {
+				this.interrupted = true;
+				this.thread.interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Completes the invocation and clears the interrupt caused by the canceller
+	 * 
+	 * @return {@code true} if the invocation was interrupted
+	 */
+	boolean complete() {
+		boolean clear;
+		boolean ret;
+		synchronized (this) {
+			this.completed = true;
+			clear = this.interrupted;
+			ret = this.cancelled;
+		}
+		if (this.task != null) {
+			this.task.cancel(false);
+		}
+		if (clear) {
+			Thread.interrupted();
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,156 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream, which compresses the data if it's bigger than a threshold.
+ *
+ * Up to threshold bytes are buffered. If more data is written, the listener is
+ * called (so the Content-Encoding header can be set while the response isn't
+ * committed yet) and all the data is compressed to the target stream.
+ * Otherwise the buffered data is written as is by {@link #finish()}.
+ */
+public class JsonRpcCompressingOutputStream extends OutputStream {
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final class LevelGzipOutputStream extends GZIPOutputStream {
+		private LevelGzipOutputStream(OutputStream out, int level) throws IOException {
+			super(out, BUFFER_SIZE);
+			this.def.setLevel(level);
+		}
+
+		private Deflater getDeflater() {
+			return this.def;
+		}
+	}
+
+	private final OutputStream out;
+	private final String encoding;
+	private final int level;
+	private final Runnable listener;
+	private final byte[] buffer;
+	private int count;
+	private Deflater deflater;
+	private DeflaterOutputStream compressed;
+	private boolean finished;
+
+	/**
+	 * 
+	 * @param out		target stream
+	 * @param encoding	{@link Headers#ENCODING_GZIP} or {@link Headers#ENCODING_DEFLATE}
+	 * @param threshold	min size of the data to compress it
+	 * @param level		compression level, see {@link Deflater}
+	 * @param listener	called once when the compression is started, may be null
+	 */
+	public JsonRpcCompressingOutputStream(OutputStream out, String encoding, int threshold, int level, Runnable listener) {
+		if (!Headers.ENCODING_GZIP.equals(encoding) && !Headers.ENCODING_DEFLATE.equals(encoding)) {
+			throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+		}
+		this.out = out;
+		this.encoding = encoding;
+		this.level = level;
+		this.listener = listener;
+		this.buffer = new byte[threshold];
+	}
+
+	/**
+	 * @return {@code true} if the data is compressed
+	 */
+	public boolean isCompressed() {
+		return this.compressed != null;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		this.write(new byte[] {(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (this.finished) {
+			throw new IOException("Stream is finished");
+		}
+		if (this.compressed != null) {
+			this.compressed.write(b, off, len);
+		} else if (this.count + len <= this.buffer.length) {
+			System.arraycopy(b, off, this.buffer, this.count, len);
+			this.count += len;
+		} else {
+			this.startCompression();
+			this.compressed.write(this.buffer, 0, this.count);
+			this.compressed.write(b, off, len);
+		}
+	}
+
+	private void startCompression() throws IOException {
+		if (this.listener != null) {
+			this.listener.run();
+		}
+		if (Headers.ENCODING_GZIP.equals(this.encoding)) {
+			LevelGzipOutputStream gzip = new LevelGzipOutputStream(this.out, this.level);
+			this.deflater = gzip.getDeflater();
+			this.compressed = gzip;
+		} else {
+			// HTTP "deflate" is the zlib format
+			this.deflater = new Deflater(this.level);
+			this.compressed = new DeflaterOutputStream(this.out, this.deflater, BUFFER_SIZE);
+		}
+	}
+
+	/**
+	 * Flushes the compressed data. Buffered data isn't written until the stream is
+	 * finished or the threshold is exceeded.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (this.compressed != null) {
+			this.compressed.flush();
+		}
+	}
+
+	/**
+	 * Writes the rest of the data without closing the target stream
+	 * 
+	 * @throws IOException if the data cannot be written
+	 */
+	public void finish() throws IOException {
+		if (this.finished) {
+			return;
+		}
+		this.finished = true;
+		if (this.compressed != null) {
+			try {
+				this.compressed.finish();
+			} finally {
+				this.deflater.end();
+			}
+		} else {
+			this.out.write(this.buffer, 0, this.count);
+		}
+		this.out.flush();
+	}
+
+	/**
+	 * Releases the deflater without writing the rest of the data, e.g. when
+	 * the response cannot be written. Does nothing if the stream is finished.
+	 */
+	public void end() {
+		this.finished = true;
+		if (this.deflater != null) {
+			this.deflater.end();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			this.finish();
+		} finally {
+			this.out.close();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content codings of HTTP request and response bodies
+ */
+final class JsonRpcContentEncoding {
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * Decoded body, which fails when more than the max number of bytes is read
+	 */
+	private static final class LimitedInputStream extends FilterInputStream {
+		private final long limit;
+		private long count;
+		private boolean exceeded;
+
+		private LimitedInputStream(InputStream in, long limit) {
+			super(in);
+			this.limit = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int ret = this.in.read();
+			if (ret != -1) {
+				this.count(1);
+			}
+			return ret;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int ret = this.in.read(b, off, len);
+			if (ret > 0) {
+				this.count(ret);
+			}
+			return ret;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long ret = this.in.skip(n);
+			this.count(ret);
+			return ret;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		private void count(long n) throws IOException {
+			this.count += n;
+			if (this.count > this.limit) {
+				this.exceeded = true;
+				throw new IOException("Decoded request body exceeds " + this.limit + " bytes");
+			}
+		}
+	}
+
+	private JsonRpcContentEncoding() {
+	}
+
+	/**
+	 * Chooses a coding of the response body
+	 * 
+	 * @param acceptEncoding value of the Accept-Encoding header
+	 * @return {@link Headers#ENCODING_GZIP}, {@link Headers#ENCODING_DEFLATE} or null
+	 *         if the response should not be compressed
+	 */
+	static String negotiate(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+		double gzip = -1;
+		double deflate = -1;
+		double any = -1;
+		for (String coding : acceptEncoding.split(Headers.SEPARATOR)) {
+			String[] parts = coding.split(";");
+			String name = parts[0].trim().toLowerCase(Locale.ROOT);
+			double q = 1;
+			for (int i = 1; i < parts.length; i++) {
+				String param = parts[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						q = Double.parseDouble(param.substring(2).trim());
+					} catch (NumberFormatException e) {
+						q = 0;
+					}
+				}
+			}
+			if (Headers.ENCODING_GZIP.equals(name) || Headers.ENCODING_X_GZIP.equals(name)) {
+				gzip = q;
+			} else if (Headers.ENCODING_DEFLATE.equals(name)) {
+				deflate = q;
+			} else if (Headers.ASTERISK.equals(name)) {
+				any = q;
+			}
+		}
+		if (gzip < 0) {
+			gzip = any;
+		}
+		if (deflate < 0) {
+			deflate = any;
+		}
+		if (gzip > 0 && gzip >= deflate) {
+			return Headers.ENCODING_GZIP;
+		}
+		if (deflate > 0) {
+			return Headers.ENCODING_DEFLATE;
+		}
+		return null;
+	}
+
+	/**
+	 * Decodes the request body. Reading more than the max decoded size from
+	 * the decoded body fails, see {@link #isTooLarge(InputStream)}.
+	 * 
+	 * @param in				request body
+	 * @param contentEncoding	value of the Content-Encoding header
+	 * @param maxDecodedSize	max size of the decoded body in bytes
+	 * @return decoded body or null if the coding isn't supported
+	 * @throws IOException if the body isn't encoded with the coding
+	 */
+	static InputStream decode(InputStream in, String contentEncoding, long maxDecodedSize) throws IOException {
+		if (contentEncoding == null) {
+			return in;
+		}
+		String coding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+		if (coding.isEmpty() || Headers.ENCODING_IDENTITY.equals(coding)) {
+			return in;
+		}
+		if (Headers.ENCODING_GZIP.equals(coding) || Headers.ENCODING_X_GZIP.equals(coding)) {
+			return new LimitedInputStream(new GZIPInputStream(in, BUFFER_SIZE), maxDecodedSize);
+		}
+		if (Headers.ENCODING_DEFLATE.equals(coding)) {
+			return new LimitedInputStream(new InflaterInputStream(in), maxDecodedSize);
+		}
+		return null;
+	}
+
+	/**
+	 * @param body body returned by {@link #decode(InputStream, String, long)}
+	 * @return {@code true} if reading of the body has failed because of its decoded size
+	 */
+	static boolean isTooLarge(InputStream body) {
+		return body instanceof LimitedInputStream && ((LimitedInputStream) body).exceeded;
+	}
+}
@@ -0,0 +1,257 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response of an async request, which keeps the status and the headers set
+ * while the request is handled instead of passing them to the container response.
+ *
+ * The container may complete and recycle its response when the request times
+ * out, while the handling thread is still running. The kept values are copied
+ * to the container response with {@link #copyTo(HttpServletResponse, int)} only
+ * by the thread, which writes the body.
+ * The body itself is written to a separate stream, so {@link #getOutputStream()}
+ * and {@link #getWriter()} are not available.
+ */
+class JsonRpcDetachedResponse extends HttpServletResponseWrapper {
+	private int status = SC_OK;
+	private final TreeMap<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	private final List<Cookie> cookies = new ArrayList<>();
+	private String contentType;
+	private String characterEncoding;
+	private Locale locale;
+
+	/**
+	 *
+	 * @param response container response, only its read-only methods are used
+	 */
+	JsonRpcDetachedResponse(HttpServletResponse response) {
+		super(response);
+	}
+
+	/**
+	 * Sets the kept status and headers on the container response
+	 *
+	 * @param response		container response
+	 * @param contentLength	length of the body
+	 */
+	synchronized void copyTo(HttpServletResponse response, int contentLength) {
+		response.setStatus(this.status);
+		for (Map.Entry<String, List<String>> e : this.headers.entrySet()) {
+			boolean first = true;
+			for (String value : e.getValue()) {
+				if (first) {
+					response.setHeader(e.getKey(), value);
+					first = false;
+				} else {
+					response.addHeader(e.getKey(), value);
+				}
+			}
+		}
+		for (Cookie cookie : this.cookies) {
+			response.addCookie(cookie);
+		}
+		if (this.locale != null) {
+			response.setLocale(this.locale);
+		}
+		if (this.contentType != null) {
+			response.setContentType(this.contentType);
+		}
+		if (this.characterEncoding != null) {
+			response.setCharacterEncoding(this.characterEncoding);
+		}
+		response.setContentLength(contentLength);
+	}
+
+	@Override
+	public synchronized void setStatus(int sc) {
+		this.status = sc;
+	}
+
+	@Override
+	@Deprecated
+	public synchronized void setStatus(int sc, String sm) {
+		this.status = sc;
+	}
+
+	@Override
+	public synchronized void sendError(int sc) {
+		this.status = sc;
+	}
+
+	@Override
+	public synchronized void sendError(int sc, String msg) {
+		this.status = sc;
+	}
+
+	@Override
+	public synchronized void sendRedirect(String location) {
+		this.status = SC_FOUND;
+		this.setHeader("Location", location);
+	}
+
+	@Override
+	public synchronized int getStatus() {
+		return this.status;
+	}
+
+	@Override
+	public synchronized void setHeader(String name, String value) {
+		List<String> values = new ArrayList<>(1);
+		values.add(value);
+		this.headers.put(name, values);
+	}
+
+	@Override
+	public synchronized void addHeader(String name, String value) {
+		this.headers.computeIfAbsent(name, n -> new ArrayList<>(1)).add(value);
+	}
+
+	@Override
+	public void setIntHeader(String name, int value) {
+		this.setHeader(name, Integer.toString(value));
+	}
+
+	@Override
+	public void addIntHeader(String name, int value) {
+		this.addHeader(name, Integer.toString(value));
+	}
+
+	@Override
+	public void setDateHeader(String name, long date) {
+		this.setHeader(name, formatDate(date));
+	}
+
+	@Override
+	public void addDateHeader(String name, long date) {
+		this.addHeader(name, formatDate(date));
+	}
+
+	@Override
+	public synchronized boolean containsHeader(String name) {
+		return this.headers.containsKey(name);
+	}
+
+	@Override
+	public synchronized String getHeader(String name) {
+		List<String> values = this.headers.get(name);
+		return values == null ? null : values.get(0);
+	}
+
+	@Override
+	public synchronized Collection<String> getHeaders(String name) {
+		List<String> values = this.headers.get(name);
+		return values == null ? Collections.<String>emptyList() : new ArrayList<>(values);
+	}
+
+	@Override
+	public synchronized Collection<String> getHeaderNames() {
+		return new ArrayList<>(this.headers.keySet());
+	}
+
+	@Override
+	public synchronized void addCookie(Cookie cookie) {
+		this.cookies.add(cookie);
+	}
+
+	@Override
+	public synchronized void setContentType(String type) {
+		this.contentType = type;
+	}
+
+	@Override
+	public synchronized String getContentType() {
+		return this.contentType;
+	}
+
+	@Override
+	public synchronized void setCharacterEncoding(String charset) {
+		this.characterEncoding = charset;
+	}
+
+	@Override
+	public synchronized String getCharacterEncoding() {
+		return this.characterEncoding == null ? "ISO-8859-1" : this.characterEncoding;
+	}
+
+	@Override
+	public synchronized void setLocale(Locale loc) {
+		this.locale = loc;
+	}
+
+	@Override
+	public synchronized Locale getLocale() {
+		return this.locale == null ? Locale.getDefault() : this.locale;
+	}
+
+	@Override
+	public void setContentLength(int len) {
+		// The length of the written body is set by copyTo
+	}
+
+	@Override
+	public void setContentLengthLong(long len) {
+		// The length of the written body is set by copyTo
+	}
+
+	@Override
+	public void setBufferSize(int size) {
+	}
+
+	@Override
+	public int getBufferSize() {
+		return 0;
+	}
+
+	@Override
+	public void flushBuffer() {
+	}
+
+	@Override
+	public void resetBuffer() {
+	}
+
+	@Override
+	public boolean isCommitted() {
+		return false;
+	}
+
+	@Override
+	public synchronized void reset() {
+		this.status = SC_OK;
+		this.headers.clear();
+		this.cookies.clear();
+		this.contentType = null;
+		this.characterEncoding = null;
+		this.locale = null;
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() {
+		throw new IllegalStateException("Body of an async response is written to a buffer");
+	}
+
+	@Override
+	public PrintWriter getWriter() {
+		throw new IllegalStateException("Body of an async response is written to a buffer");
+	}
+
+	private static String formatDate(long date) {
+		return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date).atZone(ZoneOffset.UTC));
+	}
+}
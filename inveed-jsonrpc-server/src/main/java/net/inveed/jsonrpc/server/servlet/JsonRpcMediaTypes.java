@@ -0,0 +1,81 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.util.List;
+import java.util.Locale;
+
+import net.inveed.jsonrpc.server.JsonRpcWireFormat;
+
+/**
+ * Negotiation of the format of JSON-RPC responses
+ */
+final class JsonRpcMediaTypes {
+
+	private JsonRpcMediaTypes() {
+	}
+
+	/**
+	 * Chooses a format of the response by the Accept header. If the client accepts
+	 * several formats with the same quality, the format of the request is preferred.
+	 * 
+	 * @param accept		value of the Accept header
+	 * @param formats		formats supported by the server
+	 * @param requestFormat	format of the request
+	 * @return format of the response, the request format if the client accepts none of the formats
+	 */
+	static JsonRpcWireFormat select(String accept, List<JsonRpcWireFormat> formats, JsonRpcWireFormat requestFormat) {
+		if (accept == null || accept.trim().isEmpty()) {
+			return requestFormat;
+		}
+		JsonRpcWireFormat ret = null;
+		double best = 0;
+		for (JsonRpcWireFormat f : formats) {
+			double q = quality(accept, f.getMediaType());
+			if (q > best || (q == best && q > 0 && f == requestFormat)) {
+				ret = f;
+				best = q;
+			}
+		}
+		return ret == null ? requestFormat : ret;
+	}
+
+	/**
+	 * @return quality of the media type in the Accept header, 0 if it's not accepted
+	 */
+	private static double quality(String accept, String mediaType) {
+		String type = mediaType.substring(0, mediaType.indexOf('/'));
+		double ret = 0;
+		int specificity = -1;
+		for (String range : accept.split(Headers.SEPARATOR)) {
+			String[] parts = range.split(";");
+			String name = parts[0].trim().toLowerCase(Locale.ROOT);
+			int s;
+			if (name.equals(mediaType)) {
+				s = 2;
+			} else if (name.equals(type + "/*")) {
+				s = 1;
+			} else if (name.equals("*/*")) {
+				s = 0;
+			} else {
+				continue;
+			}
+			if (s < specificity) {
+				continue;
+			}
+			double q = 1;
+			for (int i = 1; i < parts.length; i++) {
+				String param = parts[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						q = Double.parseDouble(param.substring(2).trim());
+					} catch (NumberFormatException e) {
+						q = 0;
+					}
+				}
+			}
+			// The most specific range defines the quality
+			specificity = s;
+			ret = q;
+		}
+		return ret;
+	}
+}
@@ -1,30 +1,40 @@
 package net.inveed.jsonrpc.server.servlet;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ContainerNode;
+import com.fasterxml.jackson.databind.node.NullNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.ValueNode;
 
 import net.inveed.commons.INumberedException;
-import net.inveed.commons.utils.ReflectionUtils;
 import net.inveed.jsonrpc.core.IHttpMethodException;
 import net.inveed.jsonrpc.core.annotation.JsonRpcError;
+import net.inveed.jsonrpc.core.deadline.Deadline;
 import net.inveed.jsonrpc.core.domain.*;
 import net.inveed.jsonrpc.core.domain.ErrorMessage.ExtendedAttributes;
+import net.inveed.jsonrpc.server.IJsonRpcRequestContext;
 import net.inveed.jsonrpc.server.IJsonRpcServiceProvider;
+import net.inveed.jsonrpc.server.JsonRpcDispatchEntry;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
 import net.inveed.jsonrpc.server.StringsUtil;
 import net.inveed.jsonrpc.server.ThrowablesUtil;
+import net.inveed.jsonrpc.server.cache.JsonRpcCallKey;
+import net.inveed.jsonrpc.server.cache.JsonRpcInFlightCalls;
+import net.inveed.jsonrpc.server.cache.JsonRpcResultCache;
+import net.inveed.jsonrpc.server.interceptor.JsonRpcCall;
+import net.inveed.jsonrpc.server.interceptor.JsonRpcInterceptorChain;
+import net.inveed.jsonrpc.server.interceptor.JsonRpcInterceptorException;
+import net.inveed.jsonrpc.server.limit.IJsonRpcConcurrencyLimiter;
+import net.inveed.jsonrpc.server.limit.JsonRpcConcurrencyLimits;
+import net.inveed.jsonrpc.server.metrics.JsonRpcMethodMetrics;
+import net.inveed.jsonrpc.server.metrics.JsonRpcMetrics;
+import net.inveed.jsonrpc.server.projection.JsonRpcFieldProjection;
 import net.inveed.jsonrpc.server.typeutils.JsonRpcMethodExt;
 import net.inveed.jsonrpc.server.typeutils.JsonRpcMethodParamExt;
 import net.inveed.rest.jpa.jackson.JsonConfiguration;
-import net.inveed.commons.reflection.BeanTypeDesc;
-import net.inveed.commons.reflection.JavaTypeDesc;
-import net.inveed.commons.reflection.JavaTypeRegistry;
-import net.inveed.commons.reflection.MethodMetadata;
-import net.inveed.commons.reflection.ParameterMetadata;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,14 +43,21 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class JsonRpcMethodInvocationHandler {
 
 	// Error messages
 	private static final ErrorMessage METHOD_NOT_FOUND = new ErrorMessage(-32601, "Method not found");
 	private static final ErrorMessage INVALID_REQUEST = new ErrorMessage(-32600, "Invalid Request");
+	private static final ErrorMessage INVALID_PARAMS = new ErrorMessage(-32602, "Invalid params");
+	private static final ErrorMessage SERVER_OVERLOADED = new ErrorMessage(-32001, "Server overloaded");
+	private static final ErrorMessage DEADLINE_EXCEEDED = new ErrorMessage(-32002, "Deadline exceeded");
+	private static final ErrorMessage INTERNAL_ERROR = new ErrorMessage(-32603, "Internal error");
 	
 
 	private static final int MIN_SERVER_ERROR_CODE = -32099;
@@ -49,13 +66,22 @@ public class JsonRpcMethodInvocationHandler {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(JsonRpcMethodInvocationHandler.class);
 	private static final String VERSION = "2.0";
+	private static final String METRICS_METHOD = "rpc#metrics";
+	private static final long INTERNAL_ERROR_CODE = -32603;
 
 	private final JsonConfiguration jsonConf;
 	private final ObjectMapper mapper;
 	private final IJsonRpcServiceProvider serviceProvider;
 	private final Request request;
+	private final JsonRpcServerConfiguration configuration;
+	private final JsonRpcInterceptorChain interceptors;
 
-	private HashMap<String, JsonNode> managementParams = new HashMap<>();
+	private Map<String, JsonNode> managementParams = new HashMap<>();
+	private JsonRpcFieldProjection projection;
+	private JsonRpcMethodMetrics methodMetrics;
+	private IJsonRpcRequestContext requestContext;
+	private JsonRpcCall call;
+	private Deadline deadline;
 
 	/**
 	 * 
@@ -66,10 +92,41 @@ public class JsonRpcMethodInvocationHandler {
 	public JsonRpcMethodInvocationHandler(JsonConfiguration jsonConf, 
 										  Request request,
 										  IJsonRpcServiceProvider serviceProvider) {
+		this(jsonConf, request, serviceProvider, new JsonRpcServerConfiguration());
+	}
+
+	/**
+	 * 
+	 * @param jsonConf – JSON Configuration for request deserialization
+	 * @param request  – JSON-RPC Request
+	 * @param serviceProvider Service Provider
+	 * @param configuration Request processing settings
+	 */
+	public JsonRpcMethodInvocationHandler(JsonConfiguration jsonConf, 
+										  Request request,
+										  IJsonRpcServiceProvider serviceProvider,
+										  JsonRpcServerConfiguration configuration) {
 		this.mapper = jsonConf.getMapper();
 		this.jsonConf = jsonConf;
 		this.serviceProvider = serviceProvider;
 		this.request = request;
+		this.configuration = configuration;
+		this.interceptors = configuration.getInterceptorChain();
+	}
+
+	/**
+	 * @param deadline deadline of the HTTP request or null,
+	 *        an earlier {@link Deadline#PARAM} of the call overrides it
+	 */
+	public void setDeadline(Deadline deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * @param requestContext context of the HTTP request, passed to the interceptors
+	 */
+	public void setRequestContext(IJsonRpcRequestContext requestContext) {
+		this.requestContext = requestContext;
 	}
 	
 	/**
@@ -87,7 +144,7 @@ public class JsonRpcMethodInvocationHandler {
 		Throwable rootCause = ThrowablesUtil.getRootCause(ex);
 		
 		int httpCode = 500;
-		long jsonRpcCode = -32603;
+		long jsonRpcCode = INTERNAL_ERROR_CODE;
 		String message = rootCause.getMessage();
 		ExtendedAttributes ea = null;
 		
@@ -124,87 +181,436 @@ public class JsonRpcMethodInvocationHandler {
 	 * @return JSON-RPC response as a Java object
 	 */
 	public Response handle() {
+		return this.handleCall(false, null, null, null);
+	}
+
+	private Response handleParams() {
 		ValueNode id     = request.getId();
 		JsonNode  params = request.getParams();
-		
-		ContainerNode<?> notNullParams = this.filterParams((ContainerNode<?>) params);
-
-		LOG.debug("Handling JSON-RPC request for method {} with {} params", request.getMethod(), notNullParams.size());
 
-		if (request.getProtocolVersion() == null || request.getMethod() == null) {
-			LOG.error("Not a JSON-RPC request: " + request);
-			return new ErrorResponse(id, INVALID_REQUEST);
+		ErrorResponse invalid = this.validate();
+		if (invalid != null) {
+			return invalid;
+		}
+		ContainerNode<?> notNullParams = this.filterParams(params);
+		invalid = this.applyManagementParams();
+		if (invalid != null) {
+			return invalid;
+		}
+		if (this.call != null) {
+			this.interceptors.afterParse(this.call);
 		}
 
-		if (!request.getProtocolVersion().equals(VERSION)) {
-			LOG.error("Not a JSON-RPC 2.0 request: " + request);
-			return new ErrorResponse(id, INVALID_REQUEST);
+		if (METRICS_METHOD.equals(request.getMethod()) && this.configuration.isMetricsMethod()
+				&& this.configuration.getMetrics() != null) {
+			JsonRpcMetrics metrics = this.configuration.getMetrics();
+			ObjectNode ret = this.mapper.createObjectNode();
+			ret.put("requests", metrics.getRequests());
+			ret.put("requestBytes", metrics.getRequestBytes());
+			ret.put("responseBytes", metrics.getResponseBytes());
+			ret.set("methods", this.mapper.valueToTree(metrics.getMethods()));
+			JsonRpcConcurrencyLimits limits = this.configuration.getConcurrencyLimits();
+			if (limits != null) {
+				ret.put("rejected", limits.getRejected());
+				ret.set("limits", this.mapper.valueToTree(limits.getLimits()));
+			}
+			return new SuccessResponse(id, ret);
 		}
 
-		if (!params.isObject() && !params.isArray() && !params.isNull()) {
-			LOG.error("Params of request: '" + request + "' should be an object, an array or null");
-			return new ErrorResponse(id, INVALID_REQUEST);
+		LOG.debug("Handling JSON-RPC request for method {} with {} params", request.getMethod(), notNullParams.size());
+
+		JsonRpcDispatchEntry entry = serviceProvider.resolve(request.getMethod());
+		if (entry == null) {
+			return new ErrorResponse(id, METHOD_NOT_FOUND);
+		}
+		if (this.call != null) {
+			this.call.setEntry(entry);
+			this.interceptors.afterResolve(this.call);
 		}
 
-		Object serviceInstance = serviceProvider.getService(request.getMethod());
+		Object serviceInstance = entry.getServiceInstance();
 		if (serviceInstance == null) {
 			LOG.warn("Cannot find service for method {}", request.getMethod());
 			return new ErrorResponse(id, METHOD_NOT_FOUND);
 		}
-		LOG.debug("Got service object with type {}", serviceInstance.getClass().getName());
 
-		String methodName = serviceProvider.getMethodName(request.getMethod());
-		if (methodName == null) {
-			LOG.warn("Cannot find service#method for method {}", request.getMethod());
-			return new ErrorResponse(id, METHOD_NOT_FOUND);
+		LOG.debug("Found {} methods with name {}", entry.getMethods().size(), entry.getMethodName());
+		final JsonRpcMethodExt method;
+		final Object[] converted;
+
+		// Overloads are ordered by how well the params match them,
+		// the next one is tried only if the params cannot be converted
+		List<JsonRpcMethodExt> candidates = entry.getOverloads() == null
+				? entry.getMethods()
+				: entry.getOverloads().select(notNullParams);
+		if (candidates.size() == 1) {
+			// A single method is admitted before its params are converted, so rejected calls stay cheap
+			method = candidates.get(0);
+			converted = null;
+		} else {
+			JsonRpcMethodExt selectedMethod = null;
+			Object[] methodParams = null;
+			for (JsonRpcMethodExt me : candidates) {
+				methodParams = convertToMethodParams(notNullParams, me);
+				if (methodParams != null) {
+					selectedMethod = me;
+					break;
+				}
+			}
+			if (selectedMethod == null) {
+				LOG.error("Cannot find method '{}' with required params in a {}", entry.getMethodName(), serviceInstance.getClass());
+				return new ErrorResponse(id, METHOD_NOT_FOUND);
+			}
+			method = selectedMethod;
+			converted = methodParams;
 		}
 
-		JavaTypeDesc<?> javaType = JavaTypeRegistry.getType(serviceInstance.getClass());
-		if (!(javaType instanceof BeanTypeDesc<?>)) {
-			LOG.warn(serviceInstance.getClass() + " is not available as a JSON-RPC 2.0 service");
-			return new ErrorResponse(id, METHOD_NOT_FOUND);
+		this.enter(method);
+		if (!method.isKeyedByParams()) {
+			return this.execute(method, this.bound(method, converted, notNullParams, args -> this.invoke(serviceInstance, method, args)));
+		}
+		String key = JsonRpcCallKey.create(method.getParams(), notNullParams, this.getDeep(),
+				this.projection == null ? null : this.projection.toString());
+		JsonRpcResultCache cache = method.getResultCache();
+		if (cache != null) {
+			byte[] cached = cache.get(key);
+			if (cached != null) {
+				return new CachedSuccessResponse(id, cached);
+			}
 		}
 
-		BeanTypeDesc<?> classMetadata = (BeanTypeDesc<?>) javaType;
-		List<MethodMetadata> methodsForName = classMetadata.getMethods(methodName, null);
-		if (methodsForName == null || methodsForName.size() == 0) {
-			LOG.error("Unable find a method: '" + methodName + "' in a " + serviceInstance.getClass());
-			return new ErrorResponse(id, METHOD_NOT_FOUND);
+		Function<Object[], Response> call = cache == null
+				? args -> this.invoke(serviceInstance, method, args)
+				: args -> this.invokeCacheable(serviceInstance, method, args, cache, key);
+		JsonRpcInFlightCalls<Response> inFlight = method.getInFlightCalls();
+		if (inFlight == null) {
+			return this.execute(method, this.bound(method, converted, notNullParams, call));
 		}
+		// Concurrent calls with the same params share the response,
+		// but the deadline and the admission are checked for every caller
+		return this.execute(method, this.bound(method, converted, notNullParams,
+				args -> this.coalesce(inFlight, key, () -> call.apply(args))));
+	}
 
-		LOG.debug("Found {} methods with name {}", methodsForName.size(), methodName);
-		MethodMetadata selectedMethod = null;
-		Object[] methodParams = null;
+	/**
+	 * Returns an invocation, which converts the params to the method arguments
+	 * unless they are converted already, passes them to the interceptors and invokes the method.
+	 * Passed to {@link #execute(JsonRpcMethodExt, Supplier)}, it converts the params
+	 * only if the call is admitted.
+	 *
+	 * @param converted	method arguments or null to convert the params
+	 * @param params	params of the request
+	 * @param invocation	invokes the method with the arguments
+	 * @return invocation giving "Method not found" error if the params don't match the method
+	 */
+	private Supplier<Response> bound(JsonRpcMethodExt method, Object[] converted, ContainerNode<?> params, Function<Object[], Response> invocation) {
+		return () -> {
+			Object[] args = converted != null ? converted : this.convertToMethodParams(params, method);
+			if (args == null) {
+				LOG.error("Cannot find method '{}' with required params", request.getMethod());
+				return new ErrorResponse(request.getId(), METHOD_NOT_FOUND);
+			}
+			return invocation.apply(this.call != null ? this.bind(method, args) : args);
+		};
+	}
 
-		for (MethodMetadata method : methodsForName) {
-			JsonRpcMethodExt me = method.getExtension(JsonRpcMethodExt.class);
-			if (me == null) {
-				// Method wasn't annotated for JSON-RPC invocation
-				continue;
+	/**
+	 * Invokes the method or waits for a call with the same params until the deadline of this call
+	 */
+	private Response coalesce(JsonRpcInFlightCalls<Response> inFlight, String key, Supplier<Response> call) {
+		ValueNode id = request.getId();
+		try {
+			return inFlight.execute(key, call, r -> withId(r, id), JsonRpcMethodInvocationHandler::isShareable, this.deadline);
+		} catch (TimeoutException e) {
+			return this.deadlineExceeded();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return this.handleError(e);
+		}
+	}
+
+	/**
+	 * Performs single JSON-RPC request with params already converted to the method arguments
+	 *
+	 * @param entry			resolved request method
+	 * @param method		method to invoke
+	 * @param methodParams	method arguments or null if params don't match the method
+	 * @return JSON-RPC response as a Java object
+	 */
+	public Response handle(JsonRpcDispatchEntry entry, JsonRpcMethodExt method, Object[] methodParams) {
+		return this.handleCall(true, entry, method, methodParams);
+	}
+
+	/**
+	 * Performs single JSON-RPC request with params already converted to the method arguments
+	 *
+	 * @param entry				resolved request method
+	 * @param method			method to invoke
+	 * @param methodParams		method arguments or null if params don't match the method
+	 * @param managementParams	management params ("#" and "." prefixed) of the request
+	 * @return JSON-RPC response as a Java object
+	 */
+	public Response handle(JsonRpcDispatchEntry entry, JsonRpcMethodExt method, Object[] methodParams, Map<String, JsonNode> managementParams) {
+		this.managementParams = managementParams;
+		return this.handleCall(true, entry, method, methodParams);
+	}
+
+	/**
+	 * Handles the request, recording metrics and calling the interceptors if they're set.
+	 * A failure of an interceptor gives "Internal error" response.
+	 * {@link net.inveed.jsonrpc.server.interceptor.IJsonRpcInterceptor#afterCall(JsonRpcCall)}
+	 * is called also if the handling fails with an exception.
+	 */
+	private Response handleCall(boolean bound, JsonRpcDispatchEntry entry, JsonRpcMethodExt method, Object[] methodParams) {
+		if (!this.interceptors.isEmpty()) {
+			this.call = new JsonRpcCall(this.request, this.requestContext, this.managementParams);
+		}
+		JsonRpcMetrics metrics = this.configuration.getMetrics();
+		long start = 0;
+		long allocated = 0;
+		if (metrics != null) {
+			start = System.nanoTime();
+			allocated = metrics.getCurrentThreadAllocatedBytes();
+		}
+		Response response = null;
+		try {
+			try {
+				response = bound ? this.handleBound(entry, method, methodParams) : this.handleParams();
+			} catch (JsonRpcInterceptorException e) {
+				response = this.interceptorFailed(e);
+			}
+			if (this.call != null) {
+				this.call.setResponse(response);
+				try {
+					this.interceptors.beforeSerialize(this.call);
+					response = this.call.getResponse();
+				} catch (JsonRpcInterceptorException e) {
+					response = this.interceptorFailed(e);
+					this.call.setResponse(response);
+				}
+			}
+		} finally {
+			if (this.call != null) {
+				try {
+					this.interceptors.afterCall(this.call);
+				} catch (JsonRpcInterceptorException e) {
+					LOG.error("Interceptor has failed after handling method " + request.getMethod(), e);
+				}
 			}
+			if (metrics != null) {
+				this.record(metrics, start, allocated, response);
+			}
+		}
+		return response;
+	}
 
-			List<ParameterMetadata> requiredParams = method.getParams();
-		
-			//TODO: тут бы надо учитывать точность совпадения параметров запроса с параметрами метода.
-		
-			methodParams = convertToMethodParams(notNullParams, requiredParams);
-			if (methodParams != null) {
-				selectedMethod = method;
-				break;
+	/**
+	 * @return call passed to the interceptors or null if there are no interceptors
+	 */
+	JsonRpcCall getCall() {
+		return this.call;
+	}
+
+	private ErrorResponse interceptorFailed(JsonRpcInterceptorException e) {
+		LOG.error("Interceptor has failed on method " + request.getMethod(), e);
+		return new ErrorResponse(request.getId(), INTERNAL_ERROR, 500);
+	}
+
+	private Response handleBound(JsonRpcDispatchEntry entry, JsonRpcMethodExt method, Object[] methodParams) {
+		ErrorResponse invalid = this.validate();
+		if (invalid == null) {
+			invalid = this.applyManagementParams();
+		}
+		if (invalid != null) {
+			return invalid;
+		}
+
+		LOG.debug("Handling JSON-RPC request for method {} with bound params", request.getMethod());
+		if (this.call != null) {
+			this.interceptors.afterParse(this.call);
+			this.call.setEntry(entry);
+			this.interceptors.afterResolve(this.call);
+		}
+
+		Object serviceInstance = entry.getServiceInstance();
+		if (serviceInstance == null) {
+			LOG.warn("Cannot find service for method {}", request.getMethod());
+			return new ErrorResponse(request.getId(), METHOD_NOT_FOUND);
+		}
+		if (methodParams == null) {
+			LOG.error("Cannot find method '{}' with required params in a {}", entry.getMethodName(), serviceInstance.getClass());
+			return new ErrorResponse(request.getId(), METHOD_NOT_FOUND);
+		}
+		this.enter(method);
+		final Object[] args = this.call != null ? this.bind(method, methodParams) : methodParams;
+		return this.execute(method, () -> this.invoke(serviceInstance, method, args));
+	}
+
+	/**
+	 * Invokes the method if the deadline of the call hasn't passed and
+	 * the concurrency limit of the method admits the call
+	 *
+	 * @param invocation	invokes the method or waits for a call with the same params
+	 * @return JSON-RPC response, "Server overloaded" error if the call is rejected,
+	 *         "Deadline exceeded" error if the deadline has passed
+	 */
+	private Response execute(JsonRpcMethodExt method, Supplier<Response> invocation) {
+		if (this.isDeadlineExceeded()) {
+			return this.deadlineExceeded();
+		}
+		IJsonRpcConcurrencyLimiter limiter = method.getConcurrencyLimiter();
+		JsonRpcConcurrencyLimits limits = this.configuration.getConcurrencyLimits();
+		if (limiter == null && limits != null) {
+			limiter = limits.forMethod(method);
+		}
+		if (limiter == null) {
+			return invocation.get();
+		}
+		if (!limiter.tryAcquire()) {
+			LOG.debug("Rejected call of method {}: {} calls are running", request.getMethod(), limiter.getInFlight());
+			if (limits != null) {
+				limits.recordRejected();
 			}
+			return new ErrorResponse(request.getId(), SERVER_OVERLOADED, 503);
+		}
+		long start = System.nanoTime();
+		try {
+			return invocation.get();
+		} finally {
+			limiter.release(System.nanoTime() - start, this.isDeadlineExceeded());
 		}
+	}
 
-		if (selectedMethod == null) {
-			LOG.error("Cannot find method '{}' with required params in a {}", methodName, serviceInstance.getClass());
-			return new ErrorResponse(id, METHOD_NOT_FOUND);
+	/**
+	 * Passes the selected method and its arguments to the interceptors
+	 *
+	 * @return arguments to invoke the method with
+	 */
+	private Object[] bind(JsonRpcMethodExt method, Object[] methodParams) {
+		this.call.setMethod(method);
+		this.call.setArgs(methodParams);
+		this.interceptors.afterBind(this.call);
+		return this.call.getArgs();
+	}
+
+	/**
+	 * Invokes the method within the deadline of the call. The deadline is
+	 * available to the method through {@link Deadline#getCurrent()}.
+	 */
+	private Object invokeMethod(Object serviceInstance, JsonRpcMethodExt method, Object[] methodParams) throws Throwable {
+		Deadline deadline = this.deadline;
+		if (deadline == null) {
+			return this.invokeIntercepted(serviceInstance, method, methodParams);
+		}
+		Deadline previous = Deadline.getCurrent();
+		Deadline.setCurrent(deadline);
+		JsonRpcCallCanceller canceller = this.configuration.isDeadlineCancellation()
+				? JsonRpcCallCanceller.schedule(this.configuration.getDeadlineScheduler(), deadline)
+				: null;
+		try {
+			return this.invokeIntercepted(serviceInstance, method, methodParams);
+		} finally {
+			if (canceller != null && canceller.complete()) {
+				LOG.debug("Call of method {} was interrupted at the deadline", request.getMethod());
+			}
+			Deadline.setCurrent(previous);
+		}
+	}
+
+	/**
+	 * Invokes the method and passes the result to the interceptors
+	 */
+	private Object invokeIntercepted(Object serviceInstance, JsonRpcMethodExt method, Object[] methodParams) throws Throwable {
+		if (this.call == null) {
+			return method.getInvoker().invoke(serviceInstance, methodParams);
+		}
+		try {
+			Object result = method.getInvoker().invoke(serviceInstance, methodParams);
+			this.call.setResult(result);
+			return result;
+		} catch (Throwable t) {
+			this.call.setError(t);
+			throw t;
+		} finally {
+			this.interceptors.afterInvoke(this.call);
+		}
+	}
+
+	/**
+	 * Marks the method as being invoked in the metrics
+	 */
+	private void enter(JsonRpcMethodExt method) {
+		JsonRpcMetrics metrics = this.configuration.getMetrics();
+		if (metrics != null) {
+			this.methodMetrics = metrics.forMethod(method);
+			this.methodMetrics.enter();
 		}
+	}
+
+	/**
+	 * Records a handled request to the metrics of the invoked method
+	 * or to the unresolved metrics if no method was invoked
+	 */
+	private void record(JsonRpcMetrics metrics, long start, long allocatedBefore, Response response) {
+		long nanos = System.nanoTime() - start;
+		long allocated = allocatedBefore < 0 ? -1 : metrics.getCurrentThreadAllocatedBytes() - allocatedBefore;
+		JsonRpcMethodMetrics target = this.methodMetrics;
+		if (target == null) {
+			target = metrics.getUnresolved();
+		} else {
+			target.exit();
+		}
+		if (response instanceof ErrorResponse) {
+			target.recordError(nanos, ((ErrorResponse) response).getError().getCode(), allocated);
+		} else if (response == null) {
+			// Failed with an exception
+			target.recordError(nanos, INTERNAL_ERROR_CODE, allocated);
+		} else {
+			target.recordSuccess(nanos, allocated);
+		}
+	}
+
+	/**
+	 * Checks that the request is a valid JSON-RPC 2.0 request
+	 *
+	 * @return error response or null if the request is valid
+	 */
+	private ErrorResponse validate() {
+		ValueNode id     = request.getId();
+		JsonNode  params = request.getParams();
+
+		if (request.getProtocolVersion() == null || request.getMethod() == null) {
+			LOG.error("Not a JSON-RPC request: " + request);
+			return new ErrorResponse(id, INVALID_REQUEST);
+		}
+
+		if (!request.getProtocolVersion().equals(VERSION)) {
+			LOG.error("Not a JSON-RPC 2.0 request: " + request);
+			return new ErrorResponse(id, INVALID_REQUEST);
+		}
+
+		if (params != null && !params.isObject() && !params.isArray() && !params.isNull()) {
+			LOG.error("Params of request: '" + request + "' should be an object, an array or null");
+			return new ErrorResponse(id, INVALID_REQUEST);
+		}
+		return null;
+	}
+
+	private Response invoke(Object serviceInstance, JsonRpcMethodExt method, Object[] methodParams) {
+		ValueNode id = request.getId();
 
 		// METHOD INVOCATION
 		Object result;
 		try {
-			result = selectedMethod.getMethod().invoke(serviceInstance, methodParams);
+			result = this.invokeMethod(serviceInstance, method, methodParams);
+		} catch (JsonRpcInterceptorException e) {
+			throw e;
 		} catch (Throwable t) {
-			return this.handleError(t);
+			return this.isDeadlineExceeded() ? this.deadlineExceeded() : this.handleError(t);
+		}
+		if (this.isDeadlineExceeded()) {
+			// Nobody waits for the result, so it isn't serialized
+			return this.deadlineExceeded();
 		}
 		if (result == null) {
 			return new SuccessResponse(id, null);
@@ -212,18 +618,129 @@ public class JsonRpcMethodInvocationHandler {
 		// END: METHOD INVOCATION
 		
 		// JSON Serialization deep
-		int deep = 0;
-		JsonNode deepParam = this.managementParams.get("#deep");
-		if (deepParam != null) {
-			deep = deepParam.asInt();
-		}
+		int deep = this.getDeep();
 		
 		// Serializing result
-		JsonNode retNode = jsonConf.serializeToNode(result, deep);
+		if (this.configuration.isStreamingResponses()) {
+			return new DeferredSuccessResponse(id, result, deep, this.projection, jsonConf);
+		}
+		JsonNode retNode = this.serialize(result, deep);
 		return new SuccessResponse(id, retNode);
 	}
 
-	private ContainerNode<?> filterParams(ContainerNode<?> params) {
+	/**
+	 * Invokes a cacheable method and puts the serialized result to the cache.
+	 * Errors aren't cached.
+	 */
+	private Response invokeCacheable(Object serviceInstance, JsonRpcMethodExt method, Object[] methodParams, JsonRpcResultCache cache, String key) {
+		ValueNode id = request.getId();
+		Object result;
+		try {
+			result = this.invokeMethod(serviceInstance, method, methodParams);
+		} catch (JsonRpcInterceptorException e) {
+			throw e;
+		} catch (Throwable t) {
+			return this.isDeadlineExceeded() ? this.deadlineExceeded() : this.handleError(t);
+		}
+		if (this.isDeadlineExceeded()) {
+			return this.deadlineExceeded();
+		}
+		JsonNode retNode = result == null ? NullNode.getInstance() : this.serialize(result, this.getDeep());
+		try {
+			cache.put(key, this.mapper.writeValueAsBytes(retNode));
+		} catch (JsonProcessingException e) {
+			LOG.warn("Cannot cache result of method {}: {}", request.getMethod(), e.getMessage());
+		}
+		return new SuccessResponse(id, result == null ? null : retNode);
+	}
+
+	/**
+	 * Serializes the result to a JSON tree. If the call has "#fields" param,
+	 * only the requested fields are serialized and "#deep" doesn't apply.
+	 */
+	private JsonNode serialize(Object result, int deep) {
+		if (this.projection != null) {
+			return this.projection.serializeToNode(this.mapper, result);
+		}
+		return jsonConf.serializeToNode(result, deep);
+	}
+
+	private boolean isDeadlineExceeded() {
+		return this.deadline != null && this.deadline.isExpired();
+	}
+
+	private ErrorResponse deadlineExceeded() {
+		LOG.debug("Deadline of method {} has passed", request.getMethod());
+		return new ErrorResponse(request.getId(), DEADLINE_EXCEEDED, 504);
+	}
+
+	/**
+	 * Responses, which depend on the caller rather than on the params
+	 * (its deadline or its admission), aren't shared with the waiting calls
+	 */
+	private static boolean isShareable(Response response) {
+		if (response instanceof ErrorResponse) {
+			long code = ((ErrorResponse) response).getError().getCode();
+			return code != SERVER_OVERLOADED.getCode() && code != DEADLINE_EXCEEDED.getCode();
+		}
+		return true;
+	}
+
+	/**
+	 * Creates a copy of a response for another request
+	 */
+	private static Response withId(Response response, ValueNode id) {
+		if (response instanceof CachedSuccessResponse) {
+			return ((CachedSuccessResponse) response).withId(id);
+		}
+		if (response instanceof DeferredSuccessResponse) {
+			return ((DeferredSuccessResponse) response).withId(id);
+		}
+		if (response instanceof SuccessResponse) {
+			return new SuccessResponse(id, (JsonNode) ((SuccessResponse) response).getResult());
+		}
+		if (response instanceof ErrorResponse) {
+			ErrorResponse er = (ErrorResponse) response;
+			return new ErrorResponse(id, er.getError(), er.getHttpStatusCode());
+		}
+		return response;
+	}
+
+	private int getDeep() {
+		JsonNode deepParam = this.managementParams.get("#deep");
+		if (deepParam != null) {
+			return deepParam.asInt();
+		}
+		return 0;
+	}
+
+	/**
+	 * Applies "#deadline" and "#fields" management params of the call
+	 *
+	 * @return error response or null if the params are valid
+	 */
+	private ErrorResponse applyManagementParams() {
+		JsonNode deadlineParam = this.managementParams.get(Deadline.PARAM);
+		if (deadlineParam != null) {
+			this.deadline = Deadline.min(this.deadline, Deadline.parse(deadlineParam.asText()));
+		}
+		try {
+			this.projection = JsonRpcFieldProjection.parse(this.managementParams.get(JsonRpcFieldProjection.PARAM));
+		} catch (IllegalArgumentException e) {
+			LOG.error("Invalid fields of request '{}': {}", request, e.getMessage());
+			return new ErrorResponse(request.getId(), INVALID_PARAMS);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes management params ("#" and "." prefixed) from the request params
+	 * and keeps them for the handler
+	 *
+	 * @param params request params
+	 * @return params of the method
+	 */
+	private ContainerNode<?> filterParams(JsonNode params) {
 		if (params == null) {
 			return this.mapper.createObjectNode();
 		}
@@ -231,17 +748,16 @@ public class JsonRpcMethodInvocationHandler {
 			return this.mapper.createObjectNode();
 		}
 		if (params.isArray()) {
-			return params;
+			return (ContainerNode<?>) params;
 		}
 
 		if (params.isObject()) {
-			HashMap<String, JsonNode> serviceParams = new HashMap<>();
 			Iterator<Entry<String, JsonNode>> fields = params.fields();
 			ObjectNode ret = this.mapper.createObjectNode();
 			while (fields.hasNext()) {
 				Entry<String, JsonNode> e = fields.next();
 				if (e.getKey().startsWith("#") || e.getKey().startsWith(".")) {
-					serviceParams.put(e.getKey(), e.getValue());
+					this.managementParams.put(e.getKey(), e.getValue());
 				} else {
 					ret.set(e.getKey(), e.getValue());
 				}
@@ -261,7 +777,8 @@ public class JsonRpcMethodInvocationHandler {
 	 *            invoked method metadata
 	 * @return array of java objects for passing to the method
 	 */
-	private Object[] convertToMethodParams(ContainerNode<?> params, List<ParameterMetadata> requiredParams) {
+	private Object[] convertToMethodParams(ContainerNode<?> params, JsonRpcMethodExt method) {
+		List<JsonRpcMethodParamExt> requiredParams = method.getParams();
 		int methodParamsSize = requiredParams.size();
 		int jsonParamsSize = params.size();
 		// Check amount arguments
@@ -271,63 +788,38 @@ public class JsonRpcMethodInvocationHandler {
 
 		Object[] methodParams = new Object[methodParamsSize];
 		int processed = 0;
-		for (int index = 0; index < requiredParams.size(); index++) {
-			ParameterMetadata param = requiredParams.get(index);
-			Class<?> parameterType = param.getType();
-			String name;
-			JsonRpcMethodParamExt pext = param.getExtension(JsonRpcMethodParamExt.class);
-			if (pext != null) {
-				name = pext.getName();
-			} else {
-				name = param.getName();
-			}
+		for (int index = 0; index < methodParamsSize; index++) {
+			JsonRpcMethodParamExt param = requiredParams.get(index);
+			String name = param.getName();
 
 			JsonNode jsonNode;
-			if (name != null) {
-				jsonNode = params.isObject() ? params.get(name) : params.get(index);
+			if (params.isObject()) {
+				jsonNode = name != null ? params.get(name) : null;
 			} else {
-				if (params.isObject()) {
-					jsonNode = null;
-				} else {
-					jsonNode = params.get(index);
-				}
+				jsonNode = params.get(index);
 			}
 			// Handle omitted value
 			if (jsonNode == null || jsonNode.isNull()) {
-				if (pext != null) {
-					if (!pext.isRequired()) {
-						methodParams[index] = getDefaultValue(parameterType);
-						if (jsonNode != null) {
-							processed++;
-						}
-						continue;
-					} else {
-						return null;
-						// throw new IllegalArgumentException("Mandatory parameter '" + name + "' of a
-						// method is not set");
-					}
-				} else {
-					methodParams[index] = getDefaultValue(parameterType);
-					if (jsonNode != null) {
-						processed++;
-					}
-					continue;
+				if (param.isRequired()) {
+					return null;
+					// throw new IllegalArgumentException("Mandatory parameter '" + name + "' of a
+					// method is not set");
+				}
+				methodParams[index] = param.getDefaultValue();
+				if (jsonNode != null) {
+					processed++;
 				}
+				continue;
 			}
 
 			// Convert JSON object to an actual Java object
 			try {
 				if (param.getType() == String.class && jsonNode.isObject()) {
 					methodParams[index] = this.mapper.writeValueAsString(jsonNode);
-					processed++;
-					continue;
-				}
-				JsonParser jsonParser = this.mapper.treeAsTokens(jsonNode);
-				if (param.getType() == JsonParser.class) {
-					methodParams[index] = jsonParser;
+				} else if (param.getType() == JsonParser.class) {
+					methodParams[index] = this.mapper.treeAsTokens(jsonNode);
 				} else {
-					JavaType javaType = this.mapper.getTypeFactory().constructType(param.getGenericType());
-					methodParams[index] = this.mapper.readValue(jsonParser, javaType);
+					methodParams[index] = param.getReader(this.mapper).readValue(jsonNode);
 				}
 				processed++;
 			} catch (IOException e) {
@@ -343,15 +835,4 @@ public class JsonRpcMethodInvocationHandler {
 		return methodParams;
 	}
 
-	private Object getDefaultValue(Class<?> type) {
-		if (type == Optional.class) {
-			// If it's Guava optional then handle it as an absent value
-			return Optional.empty();
-		} else if (type.isPrimitive()) {
-			// If parameter is a primitive set the appropriate default value
-			return ReflectionUtils.defaultValue(type);
-		}
-		return null;
-	}
-
 }
@@ -8,6 +8,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import net.inveed.jsonrpc.core.annotation.JsonRpcRequestScope;
+import net.inveed.jsonrpc.core.trace.TraceParent;
 import net.inveed.jsonrpc.server.IJsonRpcRequestContext;
 
 @JsonRpcRequestScope
@@ -15,6 +16,7 @@ public class JsonRpcRequestContext implements IJsonRpcRequestContext, Closeable
 	private final ArrayList<Closeable> closeables = new ArrayList<>();
 	private HttpServletRequest  httpServletRequest;
 	private HttpServletResponse httpServletResponse;
+	private volatile TraceParent traceParent;
 	
 	@Override
 	public void registerCloseable(Closeable o) {
@@ -50,4 +52,14 @@ public class JsonRpcRequestContext implements IJsonRpcRequestContext, Closeable
 	public HttpServletResponse getHttpServletResponse() {
 		return this.httpServletResponse;
 	}
+
+	@Override
+	public void setTraceParent(TraceParent traceParent) {
+		this.traceParent = traceParent;
+	}
+
+	@Override
+	public TraceParent getTraceParent() {
+		return this.traceParent;
+	}
 }
@@ -1,10 +1,20 @@
 package net.inveed.jsonrpc.server.servlet;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 
+import net.inveed.jsonrpc.core.deadline.Deadline;
 import net.inveed.jsonrpc.core.domain.*;
+import net.inveed.jsonrpc.server.IJsonRpcRequestContext;
 import net.inveed.jsonrpc.server.IJsonRpcServiceProvider;
+import net.inveed.jsonrpc.server.JsonRpcRequestScopeSingleton;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
+import net.inveed.jsonrpc.server.JsonRpcWireFormat;
+import net.inveed.jsonrpc.server.interceptor.JsonRpcCall;
+import net.inveed.jsonrpc.server.interceptor.JsonRpcInterceptorException;
 import net.inveed.rest.jpa.jackson.JsonConfiguration;
 
 import org.slf4j.Logger;
@@ -14,6 +24,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
 
 public class JsonRpcRequestHandler {
 
@@ -25,6 +38,15 @@ public class JsonRpcRequestHandler {
 
 	private final JsonConfiguration mapper;
 	private final IJsonRpcServiceProvider serviceProvider;
+	private final JsonRpcServerConfiguration configuration;
+	private JsonRpcRequestScopeSingleton requestScope;
+	private IJsonRpcRequestContext requestContext;
+	private Deadline deadline;
+	private JsonRpcWireFormat wireFormat = JsonRpcWireFormat.JSON;
+	/**
+	 * Handled calls waiting for {@link #afterSerialize()}, batch elements may be added concurrently
+	 */
+	private final Queue<JsonRpcCall> calls = new ConcurrentLinkedQueue<>();
 
 	/**
 	 * Init JSON-RPC server
@@ -33,8 +55,57 @@ public class JsonRpcRequestHandler {
 	 * @param serviceProvider	Service Provider
 	 */
 	public JsonRpcRequestHandler(JsonConfiguration mapper, IJsonRpcServiceProvider serviceProvider) {
+		this(mapper, serviceProvider, new JsonRpcServerConfiguration());
+	}
+
+	/**
+	 * Init JSON-RPC server
+	 * 
+	 * @param mapper			JSON Configuration
+	 * @param serviceProvider	Service Provider
+	 * @param configuration		Request processing settings
+	 */
+	public JsonRpcRequestHandler(JsonConfiguration mapper, IJsonRpcServiceProvider serviceProvider, JsonRpcServerConfiguration configuration) {
 		this.mapper = mapper;
 		this.serviceProvider = serviceProvider;
+		this.configuration = configuration;
+	}
+
+	/**
+	 * Sets the request scope, which should be visible to the batch elements
+	 * handled by the batch executor
+	 * 
+	 * @param requestScope request scope
+	 */
+	public void setRequestScope(JsonRpcRequestScopeSingleton requestScope) {
+		this.requestScope = requestScope;
+	}
+
+	/**
+	 * @param requestContext context of the HTTP request, passed to the interceptors
+	 */
+	public void setRequestContext(IJsonRpcRequestContext requestContext) {
+		this.requestContext = requestContext;
+	}
+
+	/**
+	 * @param deadline deadline of the whole request, shared by the elements of a batch
+	 */
+	public void setDeadline(Deadline deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * @param wireFormat format of the request body, JSON by default
+	 */
+	public void setWireFormat(JsonRpcWireFormat wireFormat) {
+		this.wireFormat = wireFormat;
+	}
+
+	private JsonParser createParser(InputStream inputStream) throws IOException {
+		JsonParser p = this.wireFormat.getFactory(mapper.getMapper()).createParser(inputStream);
+		p.setCodec(mapper.getMapper());
+		return p;
 	}
 
 	/**
@@ -45,9 +116,19 @@ public class JsonRpcRequestHandler {
 	 * @return {@link Response} or list of responses
 	 */
 	public Object handle(InputStream inputStream) {
+		if (this.configuration.isStreamingRequests()) {
+			return this.handleStreaming(inputStream);
+		}
 		JsonNode rootRequest;
 		try {
-			rootRequest = mapper.getMapper().readTree(inputStream);
+			if (this.wireFormat.isTextual()) {
+				rootRequest = mapper.getMapper().readTree(inputStream);
+			} else {
+				rootRequest = mapper.getMapper().readTree(this.createParser(inputStream));
+				if (rootRequest == null) {
+					throw new JsonParseException(null, "No content to map due to end-of-input");
+				}
+			}
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("Request : {}", mapper.getMapper().writeValueAsString(rootRequest));
 			}
@@ -58,6 +139,56 @@ public class JsonRpcRequestHandler {
 		return this.handle(rootRequest);
 	}
 
+	/**
+	 * Reads requests with a streaming parser, binding params directly to the
+	 * method arguments, and handles them.
+	 * 
+	 * @param inputStream HTTP Input Stream
+	 * @return {@link Response} or list of responses
+	 */
+	private Object handleStreaming(InputStream inputStream) {
+		JsonRpcStreamingRequestReader reader = new JsonRpcStreamingRequestReader(mapper.getMapper(), this.serviceProvider);
+		List<JsonRpcBoundRequest> requests = new ArrayList<>();
+		boolean batch;
+		try (JsonParser p = this.createParser(inputStream)) {
+			JsonToken t = p.nextToken();
+			if (t == null) {
+				LOG.error(PARSE_ERROR.getMessage() + ": empty request");
+				return new ErrorResponse(PARSE_ERROR, 400);
+			}
+			batch = t == JsonToken.START_ARRAY;
+			if (batch) {
+				while (p.nextToken() != JsonToken.END_ARRAY) {
+					requests.add(reader.read(p));
+				}
+			} else {
+				requests.add(reader.read(p));
+			}
+		} catch (IOException e) {
+			LOG.error(PARSE_ERROR.getMessage(), e);
+			return new ErrorResponse(PARSE_ERROR, 400);
+		}
+
+		if (!batch) {
+			JsonRpcBoundRequest request = requests.get(0);
+			Response response = handleSingleRequest(request);
+			return isNotification(request, response) ? null : response;
+		} else if (requests.size() > 0) {
+			List<Supplier<Response>> elements = new ArrayList<>();
+			for (JsonRpcBoundRequest request : requests) {
+				elements.add(() -> {
+					Response response = handleSingleRequest(request);
+					return isNotification(request, response) ? null : response;
+				});
+			}
+			List<Response> responses = this.handleBatch(elements);
+			return responses.size() > 0 ? responses.toArray(new Response[0]) : null;
+		}
+
+		LOG.error("Invalid JSON-RPC request: empty batch");
+		return new ErrorResponse(INVALID_REQUEST, 400);
+	}
+
 	/**
 	 * 
 	 * @param 	rootRequest Request
@@ -69,16 +200,17 @@ public class JsonRpcRequestHandler {
 			Response response = handleSingleRequest(rootRequest);
 			return isNotification(rootRequest, response) ? null : response;
 		} else if (rootRequest.isArray() && rootRequest.size() > 0) {
-			List<Response> responses = new ArrayList<>();
+			List<Supplier<Response>> elements = new ArrayList<>();
 			for (JsonNode request : (ArrayNode) rootRequest) {
-				if (!request.isObject()) {
-					responses.add(new ErrorResponse(INVALID_REQUEST, 400));
-				}
-				Response response = handleSingleRequest(request);
-				if (!isNotification(request, response)) {
-					responses.add(response);
-				}
+				elements.add(() -> {
+					if (!request.isObject()) {
+						return new ErrorResponse(INVALID_REQUEST, 400);
+					}
+					Response response = handleSingleRequest(request);
+					return isNotification(request, response) ? null : response;
+				});
 			}
+			List<Response> responses = this.handleBatch(elements);
 			return responses.size() > 0 ? responses.toArray(new Response[0]) : null;
 		}
 
@@ -86,6 +218,31 @@ public class JsonRpcRequestHandler {
 		return new ErrorResponse(INVALID_REQUEST, 400);
 	}
 
+	/**
+	 * Handles elements of a batch one after another or with the batch executor
+	 * 
+	 * @param elements batch elements, returning null for notifications
+	 * @return responses to return to the client
+	 */
+	private List<Response> handleBatch(List<Supplier<Response>> elements) {
+		if (this.configuration.getBatchExecutor() != null && elements.size() > 1) {
+			JsonRpcBatchExecutor executor = new JsonRpcBatchExecutor(
+					this.configuration.getBatchExecutor(),
+					this.configuration.getBatchParallelism(),
+					this.configuration.isBatchCompletionOrder(),
+					this.requestScope);
+			return executor.execute(elements);
+		}
+		List<Response> responses = new ArrayList<>();
+		for (Supplier<Response> element : elements) {
+			Response response = element.get();
+			if (response != null) {
+				responses.add(response);
+			}
+		}
+		return responses;
+	}
+
 	/**
 	 * Check if request is a "notification request" according to the standard.
 	 *
@@ -97,17 +254,23 @@ public class JsonRpcRequestHandler {
 	 */
 	private static boolean isNotification(JsonNode requestNode, Response response) {
 		// Notification request doesn't have "id" field
-		if (requestNode.get("id") == null) {
-			if (response instanceof SuccessResponse) {
+		return requestNode.get("id") == null && isNotificationResponse(response);
+	}
+
+	private static boolean isNotification(JsonRpcBoundRequest request, Response response) {
+		return request.isValid() && request.isNotification() && isNotificationResponse(response);
+	}
+
+	private static boolean isNotificationResponse(Response response) {
+		if (response instanceof SuccessResponse) {
+			return true;
+		} else if (response instanceof ErrorResponse) {
+			// Notification request should be a valid JSON-RPC request.
+			// So if we get "Parse error" or "Invalid request"
+			// we can't consider the request as a notification
+			long errorCode = ((ErrorResponse) response).getError().getCode();
+			if (errorCode != PARSE_ERROR.getCode() && errorCode != INVALID_REQUEST.getCode()) {
 				return true;
-			} else if (response instanceof ErrorResponse) {
-				// Notification request should be a valid JSON-RPC request.
-				// So if we get "Parse error" or "Invalid request"
-				// we can't consider the request as a notification
-				long errorCode = ((ErrorResponse) response).getError().getCode();
-				if (errorCode != PARSE_ERROR.getCode() && errorCode != INVALID_REQUEST.getCode()) {
-					return true;
-				}
 			}
 		}
 		return false;
@@ -136,7 +299,61 @@ public class JsonRpcRequestHandler {
 		JsonRpcMethodInvocationHandler handler = new JsonRpcMethodInvocationHandler(
 				this.mapper, 
 				request,
-				this.serviceProvider);
-		return handler.handle();
+				this.serviceProvider,
+				this.configuration);
+		handler.setRequestContext(this.requestContext);
+		handler.setDeadline(this.deadline);
+		return this.handled(handler, handler.handle());
+	}
+
+	/**
+	 * Handles a request read by {@link JsonRpcStreamingRequestReader}
+	 *
+	 * @param request JSON-RPC request
+	 * @return JSON-RPC response as a Java object
+	 */
+	private Response handleSingleRequest(JsonRpcBoundRequest request) {
+		if (!request.isValid()) {
+			LOG.error("Invalid JSON-RPC request");
+			return new ErrorResponse(INVALID_REQUEST, 400);
+		}
+
+		JsonRpcMethodInvocationHandler handler = new JsonRpcMethodInvocationHandler(
+				this.mapper, 
+				request.getRequest(),
+				this.serviceProvider,
+				this.configuration);
+		handler.setRequestContext(this.requestContext);
+		handler.setDeadline(this.deadline);
+		if (request.isBound()) {
+			return this.handled(handler, handler.handle(request.getEntry(), request.getMethod(), request.getArgs(), request.getManagementParams()));
+		}
+		return this.handled(handler, handler.handle());
+	}
+
+	/**
+	 * Keeps the call of the handler for {@link #afterSerialize()}
+	 */
+	private Response handled(JsonRpcMethodInvocationHandler handler, Response response) {
+		if (handler.getCall() != null) {
+			this.calls.add(handler.getCall());
+		}
+		return response;
+	}
+
+	/**
+	 * Passes the calls handled by this handler to
+	 * {@link net.inveed.jsonrpc.server.interceptor.IJsonRpcInterceptor#afterSerialize(JsonRpcCall)}.
+	 * Should be called when the response is written, also if writing has failed.
+	 */
+	public void afterSerialize() {
+		JsonRpcCall call;
+		while ((call = this.calls.poll()) != null) {
+			try {
+				this.configuration.getInterceptorChain().afterSerialize(call);
+			} catch (JsonRpcInterceptorException e) {
+				LOG.error("Interceptor has failed after the response to " + call.getRequest().getMethod() + " was written", e);
+			}
+		}
 	}
 }
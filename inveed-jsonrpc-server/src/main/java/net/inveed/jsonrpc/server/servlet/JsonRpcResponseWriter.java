@@ -0,0 +1,92 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.inveed.jsonrpc.core.domain.ErrorResponse;
+import net.inveed.jsonrpc.core.domain.Response;
+import net.inveed.jsonrpc.core.domain.SuccessResponse;
+
+/**
+ * Writes JSON-RPC responses directly to an output stream with a {@link JsonGenerator}.
+ *
+ * Results of {@link DeferredSuccessResponse} are serialized straight into the
+ * generator, other responses are written as usual.
+ */
+public class JsonRpcResponseWriter {
+	private final ObjectMapper mapper;
+	private final JsonFactory factory;
+
+	public JsonRpcResponseWriter(ObjectMapper mapper) {
+		this(mapper, mapper.getFactory());
+	}
+
+	/**
+	 * 
+	 * @param mapper	object mapper for the values
+	 * @param factory	factory of the generator, e.g. of a binary format
+	 */
+	public JsonRpcResponseWriter(ObjectMapper mapper, JsonFactory factory) {
+		this.mapper = mapper;
+		this.factory = factory;
+	}
+
+	/**
+	 * Writes a response returned by {@link JsonRpcRequestHandler}
+	 *
+	 * @param out		output stream
+	 * @param response	{@link Response}, array of responses or null
+	 * @throws IOException if the response cannot be written
+	 */
+	public void write(OutputStream out, Object response) throws IOException {
+		try (JsonGenerator gen = this.factory.createGenerator(out, JsonEncoding.UTF8)) {
+			gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			gen.setCodec(this.mapper);
+			if (response instanceof Response[]) {
+				Response[] responses = (Response[]) response;
+				gen.writeStartArray(responses.length);
+				for (Response r : responses) {
+					this.write(gen, r);
+				}
+				gen.writeEndArray();
+			} else if (response instanceof Response) {
+				this.write(gen, (Response) response);
+			} else {
+				gen.writeObject(response);
+			}
+		}
+	}
+
+	private void write(JsonGenerator gen, Response response) throws IOException {
+		if (response == null) {
+			gen.writeNull();
+			return;
+		}
+		gen.writeStartObject();
+		gen.writeStringField("jsonrpc", response.getJsonrpc());
+		gen.writeFieldName("id");
+		if (response.getId() == null) {
+			gen.writeNull();
+		} else {
+			gen.writeTree(response.getId());
+		}
+		if (response instanceof DeferredSuccessResponse) {
+			gen.writeFieldName("result");
+			((DeferredSuccessResponse) response).writeResult(gen);
+		} else if (response instanceof CachedSuccessResponse && !JsonFactory.FORMAT_NAME_JSON.equals(this.factory.getFormatName())) {
+			// Cached JSON cannot be written raw to a binary format
+			gen.writeFieldName("result");
+			gen.writeTree(this.mapper.readTree(((CachedSuccessResponse) response).getSerializedResult()));
+		} else if (response instanceof SuccessResponse) {
+			gen.writeObjectField("result", ((SuccessResponse) response).getResult());
+		} else if (response instanceof ErrorResponse) {
+			gen.writeObjectField("error", ((ErrorResponse) response).getError());
+		}
+		gen.writeEndObject();
+	}
+}
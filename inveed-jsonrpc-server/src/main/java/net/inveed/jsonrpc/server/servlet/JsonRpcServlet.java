@@ -1,6 +1,9 @@
 package net.inveed.jsonrpc.server.servlet;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.servlet.ServletException;
@@ -11,21 +14,31 @@ import javax.servlet.http.HttpServletResponse;
 import org.glassfish.hk2.api.ServiceLocator;
 import org.glassfish.hk2.utilities.ServiceLocatorUtilities;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Joiner;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
 
 import net.inveed.jsonrpc.core.annotation.JsonRpcRequestScope;
+import net.inveed.jsonrpc.core.deadline.Deadline;
 import net.inveed.jsonrpc.core.domain.Response;
 import net.inveed.jsonrpc.server.HK2JsonRpcServiceProvider;
 import net.inveed.jsonrpc.server.IJsonRpcRequestContext;
 import net.inveed.jsonrpc.server.JsonRpcRequestScopeSingleton;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
+import net.inveed.jsonrpc.server.JsonRpcWireFormat;
+import net.inveed.jsonrpc.server.metrics.JsonRpcMetrics;
 import net.inveed.rest.jpa.jackson.JsonConfiguration;
 
 public class JsonRpcServlet extends HttpServlet {
 	private static final long serialVersionUID = -4715104121483183130L;
+	private static final Logger LOG = LoggerFactory.getLogger(JsonRpcServlet.class);
 
 	private final JsonConfiguration jsonConfig;
 	private final HK2JsonRpcServiceProvider serviceLocator;
+	private final JsonRpcServerConfiguration configuration = new JsonRpcServerConfiguration();
 	
 	public JsonRpcServlet() {
 		ServiceLocator sl = ServiceLocatorUtilities.createAndPopulateServiceLocator();
@@ -37,6 +50,7 @@ public class JsonRpcServlet extends HttpServlet {
 			@Override
 			protected void configure() {
 				bind(JsonRpcRequestContext.class).to(IJsonRpcRequestContext.class).proxy(false).proxyForSameScope(false).in(JsonRpcRequestScope.class);
+				bindFactory(HttpServletRequestFactory.class).to(HttpServletRequest.class).proxy(false).in(JsonRpcRequestScope.class);
 			}
 		});
 	}
@@ -44,6 +58,15 @@ public class JsonRpcServlet extends HttpServlet {
 	public ServiceLocator getServiceLocator() {
 		return this.serviceLocator.getServiceLocator();
 	}
+
+	public JsonRpcServerConfiguration getConfiguration() {
+		return this.configuration;
+	}
+
+	public JsonConfiguration getJsonConfiguration() {
+		return this.jsonConfig;
+	}
+
 	@Override
 	protected void doOptions(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
 		setCORSHeaders(req, resp);
@@ -69,56 +92,127 @@ public class JsonRpcServlet extends HttpServlet {
 				Joiner.on(", ").join(
 						Headers.HEADER_X_REQUEST_WITH,
 						Headers.HEADER_CONTENT_TYPE, 
+						Headers.HEADER_CONTENT_ENCODING,
+						Headers.HEADER_TRACEPARENT,
+						Headers.HEADER_DEADLINE,
 						Headers.HEADER_X_AUTH_TOKEN,
 						Headers.HEADER_COOKIE));
 	}
 	@Override
 	protected void doPost(final HttpServletRequest req, final HttpServletResponse resp) throws ServletException, IOException {
-		JsonRpcRequestScopeSingleton st = this.serviceLocator.getServiceLocator().getService(JsonRpcRequestScopeSingleton.class);
+		if (this.configuration.getAsyncExecutor() != null) {
+			if (req.isAsyncSupported()) {
+				new JsonRpcAsyncRequest(this, req, resp).start();
+				return;
+			}
+			LOG.warn("Async processing is not supported by the servlet registration, handling request synchronously");
+		}
+		this.handleRequest(req, resp, req.getInputStream(), resp.getOutputStream());
+	}
+
+	/**
+	 * Handles a request in a new request scope
+	 * 
+	 * @param req	HTTP request
+	 * @param resp	HTTP response
+	 * @param in	request body
+	 * @param out	stream for the response body
+	 */
+	void handleRequest(HttpServletRequest req, HttpServletResponse resp, InputStream in, OutputStream out) {
+		JsonRpcMetrics metrics = this.configuration.getMetrics();
+		if (metrics == null) {
+			this.handleEncoded(req, resp, in, out);
+			return;
+		}
+		CountingInputStream countingIn = new CountingInputStream(in);
+		CountingOutputStream countingOut = new CountingOutputStream(out);
+		try {
+			this.handleEncoded(req, resp, countingIn, countingOut);
+		} finally {
+			metrics.recordRequest(countingIn.getCount(), countingOut.getCount());
+		}
+	}
+
+	private void handleEncoded(final HttpServletRequest req, final HttpServletResponse resp, final InputStream in, final OutputStream out) {
+		final InputStream body;
+		try {
+			body = JsonRpcContentEncoding.decode(in, req.getHeader(Headers.HEADER_CONTENT_ENCODING),
+					this.configuration.getMaxDecodedRequestSize());
+		} catch (IOException e) {
+			LOG.warn("Cannot decode request body: {}", e.getMessage());
+			setCORSHeaders(req, resp);
+			resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+			return;
+		}
+		if (body == null) {
+			LOG.warn("Unsupported request content encoding: {}", req.getHeader(Headers.HEADER_CONTENT_ENCODING));
+			setCORSHeaders(req, resp);
+			resp.setStatus(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+			return;
+		}
+		final OutputStream encodedOut = this.encodeResponse(req, resp, out);
+
+		// Unknown content types are read as JSON
+		JsonRpcWireFormat format = this.configuration.findWireFormat(req.getContentType());
+		final JsonRpcWireFormat requestFormat = format == null ? JsonRpcWireFormat.JSON : format;
+		final JsonRpcWireFormat responseFormat = JsonRpcMediaTypes.select(req.getHeader(Headers.HEADER_ACCEPT),
+				this.configuration.getWireFormats(), requestFormat);
+		if (this.configuration.getWireFormats().size() > 1) {
+			resp.addHeader(Headers.HEADER_VARY, Headers.HEADER_ACCEPT);
+		}
+
+		final JsonRpcRequestScopeSingleton st = this.serviceLocator.getServiceLocator().getService(JsonRpcRequestScopeSingleton.class);
 		st.runInScope(new Runnable() {
 			@Override
 			public void run() {
-				getRpcServiceLocator().register(new AbstractBinder() {
-					@Override
-					protected void configure() {
-						bind(req).to(HttpServletRequest.class);
-					}
-				});
 				IJsonRpcRequestContext ctx = serviceLocator.getServiceLocator().getService(IJsonRpcRequestContext.class);
 				ctx.setHttpServletRequest(req);
 				ctx.setHttpServletResponse(resp);
 				
 				try {
-					final JsonRpcRequestHandler srv = new JsonRpcRequestHandler(jsonConfig, serviceLocator);
-					Object response = srv.handle(req.getInputStream());
+					final JsonRpcRequestHandler srv = new JsonRpcRequestHandler(jsonConfig, serviceLocator, configuration);
+					srv.setRequestScope(st);
+					srv.setRequestContext(ctx);
+					srv.setDeadline(Deadline.parse(req.getHeader(Headers.HEADER_DEADLINE)));
+					srv.setWireFormat(requestFormat);
+					Object response = srv.handle(body);
+					if (JsonRpcContentEncoding.isTooLarge(body)) {
+						// The request wasn't read completely, so nothing was called
+						LOG.warn("Decoded request body exceeds {} bytes", configuration.getMaxDecodedRequestSize());
+						setCORSHeaders(req, resp);
+						resp.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+						return;
+					}
 					
 					if (response instanceof Response) {
 						resp.setStatus(((Response) response).getHttpStatusCode());
-					} else if (resp instanceof List<?>) {
-						int status = 200;
-						for (Object o : (List<?>) resp) {
-							if (o instanceof Response) {
-								Response r = (Response) o;
-								if (r.getHttpStatusCode() == 200) {
-									continue;
-								}
-								if (r.getHttpStatusCode() == 403) {
-									status = 403;
-									break;
-								}
-								if (r.getHttpStatusCode() == 500) {
-									status = r.getHttpStatusCode();
-									break;
-								}
-								status = Math.max(r.getHttpStatusCode(), status);
-							}
-						}
-						resp.setStatus(status);
+					} else if (response instanceof Response[]) {
+						resp.setStatus(batchStatus(Arrays.asList((Response[]) response)));
+					} else if (response instanceof List<?>) {
+						resp.setStatus(batchStatus((List<?>) response));
 					}
 					
 					setCORSHeaders(req, resp);
-					jsonConfig.getMapper().writer().writeValue(resp.getOutputStream(), response);
-					resp.getOutputStream().flush();
+					resp.setContentType(responseFormat.getMediaType());
+					try {
+						// Cached JSON results are re-encoded for binary formats by the response writer
+						if (configuration.isStreamingResponses() || !responseFormat.isTextual()) {
+							new JsonRpcResponseWriter(jsonConfig.getMapper(), responseFormat.getFactory(jsonConfig.getMapper()))
+									.write(encodedOut, response);
+						} else {
+							jsonConfig.getMapper().writer().writeValue(encodedOut, response);
+						}
+						if (encodedOut instanceof JsonRpcCompressingOutputStream) {
+							((JsonRpcCompressingOutputStream) encodedOut).finish();
+						}
+						encodedOut.flush();
+					} finally {
+						if (encodedOut instanceof JsonRpcCompressingOutputStream) {
+							// The deflater isn't released by finish(), if writing has failed
+							((JsonRpcCompressingOutputStream) encodedOut).end();
+						}
+						srv.afterSerialize();
+					}
 				} catch (IOException e) {
 					e.printStackTrace();
 				} finally {
@@ -126,10 +220,73 @@ public class JsonRpcServlet extends HttpServlet {
 						ctx.close();
 					} catch (IOException e) {
 					}
+					if (body != in) {
+						// Releases the inflater of the decoded body
+						try {
+							body.close();
+						} catch (IOException e) {
+						}
+					}
 				}
 			}
 		});
-		
+	}
+	
+	/**
+	 * Aggregates HTTP statuses of the batch responses: 403 and 500 win,
+	 * otherwise the highest status is returned, e.g. 503 if some calls were rejected
+	 * 
+	 * @param responses	responses to the batch elements
+	 * @return HTTP status of the batch response
+	 */
+	static int batchStatus(List<?> responses) {
+		int status = 200;
+		for (Object o : responses) {
+			if (o instanceof Response) {
+				Response r = (Response) o;
+				if (r.getHttpStatusCode() == 200) {
+					continue;
+				}
+				if (r.getHttpStatusCode() == 403) {
+					status = 403;
+					break;
+				}
+				if (r.getHttpStatusCode() == 500) {
+					status = r.getHttpStatusCode();
+					break;
+				}
+				status = Math.max(r.getHttpStatusCode(), status);
+			}
+		}
+		return status;
+	}
+	
+	/**
+	 * Wraps the response stream to compress the response, if the client accepts it
+	 * 
+	 * @param req	HTTP request
+	 * @param resp	HTTP response
+	 * @param out	stream for the response body
+	 * @return stream to write the response body
+	 */
+	private OutputStream encodeResponse(HttpServletRequest req, final HttpServletResponse resp, OutputStream out) {
+		if (!this.configuration.isResponseCompression()) {
+			return out;
+		}
+		resp.addHeader(Headers.HEADER_VARY, Headers.HEADER_ACCEPT_ENCODING);
+		final String encoding = JsonRpcContentEncoding.negotiate(req.getHeader(Headers.HEADER_ACCEPT_ENCODING));
+		if (encoding == null) {
+			return out;
+		}
+		return new JsonRpcCompressingOutputStream(out, encoding,
+				this.configuration.getCompressionThreshold(),
+				this.configuration.getCompressionLevel(),
+				new Runnable() {
+					@Override
+					public void run() {
+						resp.setHeader(Headers.HEADER_CONTENT_ENCODING, encoding);
+					}
+				});
 	}
 	
 	public HK2JsonRpcServiceProvider getRpcServiceLocator() {
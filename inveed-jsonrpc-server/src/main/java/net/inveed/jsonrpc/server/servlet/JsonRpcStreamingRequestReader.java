@@ -0,0 +1,263 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ValueNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import net.inveed.jsonrpc.core.domain.Request;
+import net.inveed.jsonrpc.server.IJsonRpcServiceProvider;
+import net.inveed.jsonrpc.server.JsonRpcDispatchEntry;
+import net.inveed.jsonrpc.server.typeutils.JsonRpcMethodExt;
+import net.inveed.jsonrpc.server.typeutils.JsonRpcMethodParamExt;
+
+/**
+ * Reads JSON-RPC request objects with a streaming parser.
+ *
+ * The target method is resolved as soon as the "method" member is read. If it
+ * has a single JSON-RPC method, params are deserialized directly into the
+ * method argument types without building a JSON tree. Params, which come before
+ * the method, are buffered as tokens and bound after the whole object is read.
+ * Overloaded methods still get params as a JSON tree, because the overload
+ * is selected by trying to convert params.
+ */
+public class JsonRpcStreamingRequestReader {
+	private static final String JSONRPC = "jsonrpc";
+	private static final String METHOD = "method";
+	private static final String PARAMS = "params";
+	private static final String ID = "id";
+
+	private final ObjectMapper mapper;
+	private final IJsonRpcServiceProvider serviceProvider;
+
+	public JsonRpcStreamingRequestReader(ObjectMapper mapper, IJsonRpcServiceProvider serviceProvider) {
+		this.mapper = mapper;
+		this.serviceProvider = serviceProvider;
+	}
+
+	/**
+	 * Reads a single request. Parser should point to the start of a request object,
+	 * after reading it points to the end of the object.
+	 *
+	 * @param p JSON parser
+	 * @return request
+	 * @throws IOException if the input is not a valid JSON
+	 */
+	public JsonRpcBoundRequest read(JsonParser p) throws IOException {
+		if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+			p.skipChildren();
+			return new JsonRpcBoundRequest();
+		}
+
+		String version = null;
+		String method = null;
+		ValueNode id = null;
+		boolean hasId = false;
+		boolean valid = true;
+
+		JsonRpcDispatchEntry entry = null;
+		boolean hasParams = false;
+		JsonNode treeParams = null;
+		TokenBuffer bufferedParams = null;
+		Object[] args = null;
+		Map<String, JsonNode> managementParams = new HashMap<>();
+
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String field = p.getCurrentName();
+			JsonToken t = p.nextToken();
+			if (JSONRPC.equals(field)) {
+				version = this.readText(p);
+			} else if (METHOD.equals(field)) {
+				method = this.readText(p);
+				entry = method == null ? null : this.serviceProvider.resolve(method);
+			} else if (ID.equals(field)) {
+				hasId = true;
+				JsonNode idNode = this.mapper.readTree(p);
+				if (idNode == null || idNode.isNull()) {
+					id = NullNode.getInstance();
+				} else if (idNode.isValueNode()) {
+					id = (ValueNode) idNode;
+				} else {
+					valid = false;
+				}
+			} else if (PARAMS.equals(field)) {
+				hasParams = true;
+				if (t != JsonToken.START_OBJECT && t != JsonToken.START_ARRAY && t != JsonToken.VALUE_NULL) {
+					treeParams = this.mapper.readTree(p);
+				} else if (isBindable(entry)) {
+					args = this.bind(p, entry.getMethods().get(0), managementParams);
+				} else if (entry != null || method == null) {
+					// Method is unknown yet or overloaded
+					bufferedParams = new TokenBuffer(p);
+					bufferedParams.copyCurrentStructure(p);
+				} else {
+					// Method not found, params aren't needed
+					p.skipChildren();
+				}
+			} else {
+				if (this.mapper.isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)) {
+					valid = false;
+				}
+				p.skipChildren();
+			}
+		}
+
+		if (bufferedParams != null) {
+			JsonParser bp = bufferedParams.asParser(this.mapper);
+			bp.nextToken();
+			if (isBindable(entry)) {
+				args = this.bind(bp, entry.getMethods().get(0), managementParams);
+			} else {
+				treeParams = this.mapper.readTree(bp);
+			}
+		}
+
+		if (!valid) {
+			return new JsonRpcBoundRequest();
+		}
+		if (!hasParams || (treeParams == null && bufferedParams == null && !isBindable(entry))) {
+			treeParams = NullNode.getInstance();
+		}
+		Request request = new Request(version, method, treeParams, id);
+		if (treeParams != null) {
+			return new JsonRpcBoundRequest(request, !hasId, true, entry, null, null, Collections.<String, JsonNode>emptyMap());
+		}
+		return new JsonRpcBoundRequest(request, !hasId, true, entry, entry.getMethods().get(0), args, managementParams);
+	}
+
+	private static boolean isBindable(JsonRpcDispatchEntry entry) {
+		// Calls of cacheable and single-flight methods are identified by the JSON params
+		return entry != null && entry.getMethods().size() == 1 && !entry.getMethods().get(0).isKeyedByParams();
+	}
+
+	private String readText(JsonParser p) throws IOException {
+		if (p.getCurrentToken().isScalarValue()) {
+			return p.getCurrentToken() == JsonToken.VALUE_NULL ? null : p.getText();
+		}
+		p.skipChildren();
+		return null;
+	}
+
+	/**
+	 * Converts params to the method arguments. Follows the rules of
+	 * {@link JsonRpcMethodInvocationHandler} for the JSON tree params.
+	 *
+	 * @param p					parser pointing to the params start
+	 * @param method			target method
+	 * @param managementParams	map to put the management params to
+	 * @return method arguments or null if params don't match the method.
+	 * @throws IOException if the input is not a valid JSON
+	 */
+	private Object[] bind(JsonParser p, JsonRpcMethodExt method, Map<String, JsonNode> managementParams) throws IOException {
+		List<JsonRpcMethodParamExt> requiredParams = method.getParams();
+		int methodParamsSize = requiredParams.size();
+		Object[] methodParams = new Object[methodParamsSize];
+		boolean[] assigned = new boolean[methodParamsSize];
+		boolean matched = true;
+
+		JsonToken t = p.getCurrentToken();
+		if (t == JsonToken.START_ARRAY) {
+			int index = 0;
+			while (p.nextToken() != JsonToken.END_ARRAY) {
+				if (!matched || index >= methodParamsSize) {
+					// Too many params: skip the rest
+					matched = false;
+					p.skipChildren();
+					continue;
+				}
+				matched = this.bindValue(p, requiredParams.get(index), methodParams, index);
+				assigned[index] = true;
+				index++;
+			}
+		} else if (t == JsonToken.START_OBJECT) {
+			while (p.nextToken() == JsonToken.FIELD_NAME) {
+				String name = p.getCurrentName();
+				p.nextToken();
+				if (name.startsWith("#") || name.startsWith(".")) {
+					managementParams.put(name, this.mapper.readTree(p));
+					continue;
+				}
+				JsonRpcMethodParamExt param = matched ? method.findParam(name) : null;
+				if (param == null) {
+					// Unknown param
+					matched = false;
+					p.skipChildren();
+					continue;
+				}
+				matched = this.bindValue(p, param, methodParams, param.getIndex());
+				assigned[param.getIndex()] = true;
+			}
+		}
+		if (!matched) {
+			return null;
+		}
+
+		// Handle omitted values
+		for (int index = 0; index < methodParamsSize; index++) {
+			if (assigned[index]) {
+				continue;
+			}
+			JsonRpcMethodParamExt param = requiredParams.get(index);
+			if (param.isRequired()) {
+				return null;
+			}
+			methodParams[index] = param.getDefaultValue();
+		}
+		return methodParams;
+	}
+
+	/**
+	 * Converts a value the parser points to into a method argument.
+	 * Parser is left at the last token of the value, even if the value cannot be converted.
+	 *
+	 * @return {@code false} if the value cannot be converted
+	 */
+	private boolean bindValue(JsonParser p, JsonRpcMethodParamExt param, Object[] methodParams, int index) throws IOException {
+		JsonToken t = p.getCurrentToken();
+		if (t == JsonToken.VALUE_NULL) {
+			if (param.isRequired()) {
+				return false;
+			}
+			methodParams[index] = param.getDefaultValue();
+			return true;
+		}
+
+		JsonStreamContext parent = p.getParsingContext();
+		if (t.isStructStart()) {
+			parent = parent.getParent();
+		}
+		try {
+			if (param.getType() == String.class && t == JsonToken.START_OBJECT) {
+				methodParams[index] = this.mapper.writeValueAsString(this.mapper.readTree(p));
+			} else if (param.getType() == JsonParser.class) {
+				methodParams[index] = this.mapper.treeAsTokens(this.mapper.readTree(p));
+			} else {
+				methodParams[index] = param.getReader(this.mapper).readValue(p);
+			}
+			return true;
+		} catch (JsonParseException e) {
+			throw e;
+		} catch (JsonMappingException e) {
+			// Skip the rest of the value
+			while (p.getParsingContext() != parent || p.getCurrentToken().isStructStart()) {
+				if (p.nextToken() == null) {
+					throw e;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,438 @@
+package net.inveed.jsonrpc.server.socket;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glassfish.hk2.api.ServiceLocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ValueNode;
+
+import net.inveed.jsonrpc.core.domain.ErrorMessage;
+import net.inveed.jsonrpc.core.domain.ErrorResponse;
+import net.inveed.jsonrpc.server.HK2JsonRpcServiceProvider;
+import net.inveed.jsonrpc.server.IJsonRpcRequestContext;
+import net.inveed.jsonrpc.server.IJsonRpcServiceProvider;
+import net.inveed.jsonrpc.server.JsonRpcRequestScopeSingleton;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
+import net.inveed.jsonrpc.server.metrics.JsonRpcMetrics;
+import net.inveed.jsonrpc.server.servlet.JsonRpcRequestHandler;
+import net.inveed.jsonrpc.server.servlet.JsonRpcResponseWriter;
+import net.inveed.rest.jpa.jackson.JsonConfiguration;
+
+/**
+ * JSON-RPC endpoint over persistent TCP connections.
+ *
+ * Every line sent by a client is a JSON-RPC request or batch, every response is
+ * written back as a line. Requests of a connection are handled concurrently on
+ * the async executor of the configuration (or on a pool of the server), so the
+ * responses are written in completion order and the client correlates them by ids.
+ * Notifications get no response. Deadlines are passed in the {@code #deadline}
+ * management param, there are no headers. A request, which is rejected because
+ * the connection has too many requests in flight or the executor is saturated,
+ * gets "Server overloaded" errors for its ids.
+ *
+ * Requests are handled by {@link JsonRpcRequestHandler}. If the service provider
+ * is {@link HK2JsonRpcServiceProvider} with the request scope bound, e.g. the one
+ * of {@link net.inveed.jsonrpc.server.servlet.JsonRpcServlet}, every request runs
+ * in its own request scope without an HTTP request.
+ */
+public class JsonRpcSocketServer implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(JsonRpcSocketServer.class);
+	private static final int BUFFER_SIZE = 8192;
+	private static final ErrorMessage SERVER_OVERLOADED = new ErrorMessage(-32001, "Server overloaded");
+
+	private final JsonConfiguration mapper;
+	private final IJsonRpcServiceProvider serviceProvider;
+	private final JsonRpcServerConfiguration configuration;
+	private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger connectionCounter = new AtomicInteger();
+	private final ServiceLocator locator;
+	private final JsonRpcRequestScopeSingleton requestScope;
+	private int maxFrameSize = 16 * 1024 * 1024;
+	private int maxInFlight = 1024;
+
+	private ServerSocket serverSocket;
+	private Executor executor;
+	private ExecutorService ownExecutor;
+	private volatile boolean closed;
+
+	/**
+	 * @param mapper			JSON Configuration
+	 * @param serviceProvider	Service Provider
+	 * @param configuration		Request processing settings
+	 */
+	public JsonRpcSocketServer(JsonConfiguration mapper, IJsonRpcServiceProvider serviceProvider, JsonRpcServerConfiguration configuration) {
+		this.mapper = mapper;
+		this.serviceProvider = serviceProvider;
+		this.configuration = configuration;
+		this.locator = serviceProvider instanceof HK2JsonRpcServiceProvider
+				? ((HK2JsonRpcServiceProvider) serviceProvider).getServiceLocator()
+				: null;
+		this.requestScope = this.locator == null ? null : this.locator.getService(JsonRpcRequestScopeSingleton.class);
+	}
+
+	public int getMaxFrameSize() {
+		return this.maxFrameSize;
+	}
+
+	/**
+	 * @param maxFrameSize max size of a request line in bytes, a connection sending a bigger one is closed
+	 */
+	public void setMaxFrameSize(int maxFrameSize) {
+		if (maxFrameSize <= 0) {
+			throw new IllegalArgumentException("Max frame size should be positive");
+		}
+		this.maxFrameSize = maxFrameSize;
+	}
+
+	public int getMaxInFlight() {
+		return this.maxInFlight;
+	}
+
+	/**
+	 * @param maxInFlight max number of requests of a connection handled at a time,
+	 *                    further requests are rejected until some of them are completed
+	 */
+	public void setMaxInFlight(int maxInFlight) {
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("Max number of requests in flight should be positive");
+		}
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Starts accepting connections
+	 *
+	 * @param address address to listen, port 0 for any free port
+	 * @throws IOException if the address cannot be bound
+	 */
+	public synchronized void start(InetSocketAddress address) throws IOException {
+		if (this.serverSocket != null) {
+			throw new IllegalStateException("Server is already started");
+		}
+		this.executor = this.configuration.getAsyncExecutor();
+		if (this.executor == null) {
+			this.ownExecutor = Executors.newCachedThreadPool(daemonThreads("jsonrpc-socket-worker-"));
+			this.executor = this.ownExecutor;
+		}
+		this.serverSocket = new ServerSocket();
+		this.serverSocket.bind(address);
+		Thread acceptor = new Thread(this::accept, "jsonrpc-socket-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		LOG.info("JSON-RPC socket endpoint is listening on {}", this.serverSocket.getLocalSocketAddress());
+	}
+
+	/**
+	 * @return port the server is listening on
+	 */
+	public int getPort() {
+		return this.serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Stops accepting connections and closes the open ones. Requests being handled are not waited for.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		this.closed = true;
+		if (this.serverSocket != null) {
+			this.serverSocket.close();
+		}
+		for (Connection c : this.connections) {
+			c.close();
+		}
+		if (this.ownExecutor != null) {
+			this.ownExecutor.shutdown();
+		}
+	}
+
+	private void accept() {
+		while (!this.closed) {
+			Socket socket;
+			try {
+				socket = this.serverSocket.accept();
+			} catch (IOException e) {
+				if (!this.closed) {
+					LOG.error("Cannot accept a connection", e);
+				}
+				return;
+			}
+			try {
+				socket.setTcpNoDelay(true);
+				Connection c = new Connection(socket);
+				this.connections.add(c);
+				Thread reader = new Thread(c, "jsonrpc-socket-" + this.connectionCounter.incrementAndGet());
+				reader.setDaemon(true);
+				reader.start();
+			} catch (IOException e) {
+				LOG.warn("Cannot open a connection from {}: {}", socket.getRemoteSocketAddress(), e.getMessage());
+				closeQuietly(socket);
+			}
+		}
+	}
+
+	/**
+	 * Handles a request line and writes the response line, if there is a response
+	 */
+	private void handle(Connection c, byte[] frame) {
+		JsonRpcRequestScopeSingleton scope = this.requestScope;
+		if (scope == null) {
+			this.handle(c, frame, null, null);
+		} else {
+			scope.runInScope(() -> {
+				IJsonRpcRequestContext ctx = this.locator.getService(IJsonRpcRequestContext.class);
+				try {
+					this.handle(c, frame, scope, ctx);
+				} finally {
+					if (ctx != null) {
+						closeQuietly(ctx);
+					}
+				}
+			});
+		}
+	}
+
+	private void handle(Connection c, byte[] frame, JsonRpcRequestScopeSingleton scope, IJsonRpcRequestContext ctx) {
+		JsonRpcRequestHandler handler = new JsonRpcRequestHandler(this.mapper, this.serviceProvider, this.configuration);
+		handler.setRequestScope(scope);
+		handler.setRequestContext(ctx);
+		try {
+			Object result = handler.handle(new ByteArrayInputStream(frame));
+			ByteArrayOutputStream response = new ByteArrayOutputStream(BUFFER_SIZE);
+			if (result != null) {
+				try {
+					if (this.configuration.isStreamingResponses()) {
+						new JsonRpcResponseWriter(this.mapper.getMapper()).write(response, result);
+					} else {
+						this.mapper.getMapper().writer().writeValue(response, result);
+					}
+				} catch (IOException e) {
+					LOG.error("Cannot write a response", e);
+					response.reset();
+				}
+			}
+
+			JsonRpcMetrics metrics = this.configuration.getMetrics();
+			if (metrics != null) {
+				metrics.recordRequest(frame.length + 1, response.size() > 0 ? response.size() + 1 : 0);
+			}
+			if (response.size() > 0) {
+				c.write(response);
+			}
+		} finally {
+			handler.afterSerialize();
+		}
+	}
+
+	private static ThreadFactory daemonThreads(String prefix) {
+		AtomicInteger counter = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, prefix + counter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	private static void closeQuietly(Closeable c) {
+		try {
+			c.close();
+		} catch (IOException e) {
+		}
+	}
+
+	private final class Connection implements Runnable {
+		private final Socket socket;
+		private final InputStream in;
+		private final OutputStream out;
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.in = socket.getInputStream();
+			this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+		}
+
+		@Override
+		public void run() {
+			try {
+				ByteArrayOutputStream line = new ByteArrayOutputStream(BUFFER_SIZE);
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int len;
+				while ((len = this.in.read(buffer)) != -1) {
+					int start = 0;
+					for (int i = 0; i < len; i++) {
+						if (buffer[i] == '\n') {
+							line.write(buffer, start, i - start);
+							if (this.isTooBig(line)) {
+								return;
+							}
+							this.dispatch(line.toByteArray());
+							line.reset();
+							start = i + 1;
+						}
+					}
+					line.write(buffer, start, len - start);
+					if (this.isTooBig(line)) {
+						return;
+					}
+				}
+			} catch (SocketException e) {
+				// Closed by the client or the server
+			} catch (IOException e) {
+				LOG.warn("Cannot read from {}: {}", this.socket.getRemoteSocketAddress(), e.getMessage());
+			} finally {
+				this.close();
+			}
+		}
+
+		private boolean isTooBig(ByteArrayOutputStream line) {
+			if (line.size() <= maxFrameSize) {
+				return false;
+			}
+			LOG.warn("Request from {} is bigger than {} bytes, closing the connection", this.socket.getRemoteSocketAddress(), maxFrameSize);
+			return true;
+		}
+
+		private void dispatch(final byte[] frame) {
+			if (isBlank(frame)) {
+				return;
+			}
+			if (this.inFlight.incrementAndGet() > maxInFlight) {
+				this.inFlight.decrementAndGet();
+				LOG.debug("Request from {} is rejected: {} requests are in flight", this.socket.getRemoteSocketAddress(), maxInFlight);
+				this.reject(frame);
+				return;
+			}
+			try {
+				executor.execute(() -> {
+					try {
+						JsonRpcSocketServer.this.handle(this, frame);
+					} finally {
+						this.inFlight.decrementAndGet();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				this.inFlight.decrementAndGet();
+				LOG.warn("Request from {} is rejected: {}", this.socket.getRemoteSocketAddress(), e.getMessage());
+				this.reject(frame);
+			}
+		}
+
+		/**
+		 * Answers a request, which isn't handled, with "Server overloaded" errors for its ids,
+		 * so the client doesn't wait for it. A connection sending an unparseable request is closed.
+		 */
+		private void reject(byte[] frame) {
+			Object response;
+			try {
+				response = overloaded(mapper.getMapper().readTree(frame));
+			} catch (IOException e) {
+				LOG.warn("Cannot parse a rejected request from {}, closing the connection: {}", this.socket.getRemoteSocketAddress(), e.getMessage());
+				this.close();
+				return;
+			}
+			if (response == null) {
+				return;
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+			try {
+				mapper.getMapper().writeValue(out, response);
+			} catch (IOException e) {
+				LOG.error("Cannot write a response", e);
+				this.close();
+				return;
+			}
+			this.write(out);
+		}
+
+		/**
+		 * Writes a response line. JSON text has no line breaks, except the ones
+		 * of pretty printing, which are replaced with spaces.
+		 */
+		void write(ByteArrayOutputStream response) {
+			byte[] bytes = response.toByteArray();
+			for (int i = 0; i < bytes.length; i++) {
+				if (bytes[i] == '\n' || bytes[i] == '\r') {
+					bytes[i] = ' ';
+				}
+			}
+			synchronized (this.out) {
+				try {
+					this.out.write(bytes);
+					this.out.write('\n');
+					this.out.flush();
+				} catch (IOException e) {
+					LOG.warn("Cannot write to {}: {}", this.socket.getRemoteSocketAddress(), e.getMessage());
+					this.close();
+				}
+			}
+		}
+
+		void close() {
+			connections.remove(this);
+			closeQuietly(this.socket);
+		}
+	}
+
+	/**
+	 * @param request request or batch
+	 * @return "Server overloaded" errors for the ids of the request, null if there are no ids
+	 * @throws IOException if the request is neither an object nor an array
+	 */
+	private static Object overloaded(JsonNode request) throws IOException {
+		if (request != null && request.isObject()) {
+			return overloadedError(request.get("id"));
+		}
+		if (request == null || !request.isArray()) {
+			throw new IOException("Request should be an object or an array");
+		}
+		List<ErrorResponse> ret = new ArrayList<>();
+		for (JsonNode element : request) {
+			ErrorResponse response = element.isObject() ? overloadedError(element.get("id")) : null;
+			if (response != null) {
+				ret.add(response);
+			}
+		}
+		return ret.isEmpty() ? null : ret;
+	}
+
+	private static ErrorResponse overloadedError(JsonNode id) {
+		if (id == null || !id.isValueNode()) {
+			// Notification
+			return null;
+		}
+		return new ErrorResponse((ValueNode) id, SERVER_OVERLOADED, 503);
+	}
+
+	private static boolean isBlank(byte[] frame) {
+		for (byte b : frame) {
+			if (b != ' ' && b != '\t' && b != '\r') {
+				return false;
+			}
+		}
+		return true;
+	}
+}
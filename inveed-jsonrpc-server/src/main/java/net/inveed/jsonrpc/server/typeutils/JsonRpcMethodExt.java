@@ -1,8 +1,21 @@
 package net.inveed.jsonrpc.server.typeutils;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 
+import net.inveed.jsonrpc.core.annotation.JsonRpcCacheable;
+import net.inveed.jsonrpc.core.annotation.JsonRpcConcurrencyLimit;
 import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcSingleFlight;
+import net.inveed.jsonrpc.core.domain.Response;
+import net.inveed.jsonrpc.server.cache.JsonRpcInFlightCalls;
+import net.inveed.jsonrpc.server.cache.JsonRpcResultCache;
+import net.inveed.jsonrpc.server.invoker.IJsonRpcMethodInvoker;
+import net.inveed.jsonrpc.server.invoker.JsonRpcMethodInvokers;
+import net.inveed.jsonrpc.server.limit.IJsonRpcConcurrencyLimiter;
+import net.inveed.jsonrpc.server.limit.JsonRpcFixedLimiter;
 import net.inveed.commons.reflection.MethodMetadata;
 import net.inveed.commons.reflection.ParameterMetadata;
 import net.inveed.commons.reflection.ext.IMethodExtension;
@@ -14,6 +27,12 @@ public class JsonRpcMethodExt implements IMethodExtension {
 	private final String name;
 	
 	private HashMap<String, ParameterMetadata> namedParams = new HashMap<>();
+	private HashMap<String, JsonRpcMethodParamExt> wireParams = new HashMap<>();
+	private List<JsonRpcMethodParamExt> params = Collections.emptyList();
+	private IJsonRpcMethodInvoker invoker;
+	private JsonRpcResultCache resultCache;
+	private JsonRpcInFlightCalls<Response> inFlightCalls;
+	private IJsonRpcConcurrencyLimiter concurrencyLimiter;
 	
 	public JsonRpcMethodExt(MethodMetadata mm, JsonRpcTypeExt<?> jsonRpcTypeExt) {
 		this.method = mm;
@@ -32,14 +51,34 @@ public class JsonRpcMethodExt implements IMethodExtension {
 	}
 	
 	public void initialize() {
-		for (ParameterMetadata p : this.method.getParams()) {
-			JsonRpcMethodParamExt pe = new JsonRpcMethodParamExt(p, this);
+		List<ParameterMetadata> pml = this.method.getParams();
+		JsonRpcMethodParamExt[] pexts = new JsonRpcMethodParamExt[pml.size()];
+		for (int i = 0; i < pexts.length; i++) {
+			ParameterMetadata p = pml.get(i);
+			JsonRpcMethodParamExt pe = new JsonRpcMethodParamExt(p, this, i);
 			p.registerExtension(pe);
+			pexts[i] = pe;
 			
 			if (pe.getName() != null) {
 				this.namedParams.put(pe.getName().trim(), p);
+				this.wireParams.putIfAbsent(pe.getName(), pe);
 			}
 		}
+		this.params = Collections.unmodifiableList(Arrays.asList(pexts));
+		this.invoker = JsonRpcMethodInvokers.create(this.method.getMethod());
+		
+		JsonRpcCacheable ca = this.method.getAnnotation(JsonRpcCacheable.class);
+		if (ca != null) {
+			this.resultCache = new JsonRpcResultCache(ca);
+		}
+		JsonRpcSingleFlight sf = this.method.getAnnotation(JsonRpcSingleFlight.class);
+		if (sf != null) {
+			this.inFlightCalls = new JsonRpcInFlightCalls<>(sf.maxWait(), sf.unit());
+		}
+		JsonRpcConcurrencyLimit la = this.method.getAnnotation(JsonRpcConcurrencyLimit.class);
+		if (la != null) {
+			this.concurrencyLimiter = new JsonRpcFixedLimiter(la.value());
+		}
 	}
 	
 	public ParameterMetadata getNamedParam(String name) {
@@ -50,10 +89,76 @@ public class JsonRpcMethodExt implements IMethodExtension {
 		return this.namedParams.get(name);
 	}
 	
+	/**
+	 * @return parameters in the order of the method signature
+	 */
+	public List<JsonRpcMethodParamExt> getParams() {
+		return this.params;
+	}
+
+	/**
+	 * @param name parameter name as it comes in the request params
+	 * @return parameter or null if the method has no parameter with such name
+	 */
+	public JsonRpcMethodParamExt findParam(String name) {
+		return this.wireParams.get(name);
+	}
+
+	/**
+	 * @return JSON-RPC name of the method
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @return "service#method" name shared by the overloads, the class name
+	 *         is used if the service has no name
+	 */
+	public String getQualifiedName() {
+		String service = this.typeExt.getServiceName();
+		if (service == null) {
+			service = this.method.getMethod().getDeclaringClass().getSimpleName();
+		}
+		return service + "#" + this.name;
+	}
+
 	public MethodMetadata getMethod() {
 		return this.method;
 	}
 	
+	public IJsonRpcMethodInvoker getInvoker() {
+		return this.invoker;
+	}
+	
+	/**
+	 * @return cache of the method results or null if the method isn't {@link JsonRpcCacheable}
+	 */
+	public JsonRpcResultCache getResultCache() {
+		return this.resultCache;
+	}
+	
+	/**
+	 * @return calls of the method being executed now or null if the method isn't {@link JsonRpcSingleFlight}
+	 */
+	public JsonRpcInFlightCalls<Response> getInFlightCalls() {
+		return this.inFlightCalls;
+	}
+	
+	/**
+	 * @return static limiter of the method or null if the method has no {@link JsonRpcConcurrencyLimit}
+	 */
+	public IJsonRpcConcurrencyLimiter getConcurrencyLimiter() {
+		return this.concurrencyLimiter;
+	}
+	
+	/**
+	 * @return true if calls of the method are identified by the JSON params
+	 */
+	public boolean isKeyedByParams() {
+		return this.resultCache != null || this.inFlightCalls != null;
+	}
+	
 	public JsonRpcTypeExt<?> getTypeExt() {
 		return this.typeExt;
 	}
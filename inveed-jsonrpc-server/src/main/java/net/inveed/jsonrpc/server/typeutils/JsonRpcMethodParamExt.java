@@ -1,22 +1,50 @@
 package net.inveed.jsonrpc.server.typeutils;
 
+import java.util.Optional;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
 import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
 import net.inveed.commons.reflection.ParameterMetadata;
 import net.inveed.commons.reflection.ext.IParameterExtension;
+import net.inveed.commons.utils.ReflectionUtils;
 
 
+/**
+ * JSON-RPC method parameter. Everything needed to convert a JSON value to the
+ * argument is resolved once, when the method is initialized.
+ */
 public class JsonRpcMethodParamExt implements IParameterExtension {
 
+	private static final class CachedReader {
+		private final ObjectMapper mapper;
+		private final ObjectReader reader;
+
+		private CachedReader(ObjectMapper mapper, ObjectReader reader) {
+			this.mapper = mapper;
+			this.reader = reader;
+		}
+	}
+
 	private ParameterMetadata param;
 	private JsonRpcMethodExt method;
 	private String name;
 	private boolean required;
-	
-	public JsonRpcMethodParamExt(ParameterMetadata p, JsonRpcMethodExt jsonRpcMethodExt) {
+	private final int index;
+	private final Class<?> type;
+	private final JavaType javaType;
+	private final Object defaultValue;
+	private volatile CachedReader reader;
+
+	public JsonRpcMethodParamExt(ParameterMetadata p, JsonRpcMethodExt jsonRpcMethodExt, int index) {
 		this.param = p;
 		this.method = jsonRpcMethodExt;
+		this.index = index;
 		JsonRpcParam pa = this.param.getAnnotation(JsonRpcParam.class);
-		
+
 		if (pa != null) {
 			this.required = pa.required();
 			this.name = pa.value();
@@ -24,17 +52,77 @@ public class JsonRpcMethodParamExt implements IParameterExtension {
 			this.name = p.getName();
 			this.required = p.getType().isPrimitive();
 		}
+		this.type = p.getType();
+		this.javaType = TypeFactory.defaultInstance().constructType(p.getGenericType());
+		this.defaultValue = getDefaultValue(this.type);
 	}
 
 	public boolean isRequired() {
 		return this.required;
 	}
-	
+
 	public String getName() {
 		return this.name;
 	}
-	
+
+	/**
+	 * @return position of the parameter in the method signature
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+
+	public Class<?> getType() {
+		return this.type;
+	}
+
+	public JavaType getJavaType() {
+		return this.javaType;
+	}
+
+	/**
+	 * @return value passed to the method if the parameter is omitted or null
+	 */
+	public Object getDefaultValue() {
+		return this.defaultValue;
+	}
+
+	/**
+	 * Returns a reader of the parameter type. The reader is created once and
+	 * reused while the same mapper is used.
+	 *
+	 * @param mapper object mapper of the server
+	 * @return reader of the parameter type
+	 */
+	public ObjectReader getReader(ObjectMapper mapper) {
+		CachedReader ret = this.reader;
+		if (ret == null || ret.mapper != mapper) {
+			JavaType jt = this.javaType;
+			if (mapper.getTypeFactory() != TypeFactory.defaultInstance()) {
+				jt = mapper.getTypeFactory().constructType(this.param.getGenericType());
+			}
+			ret = new CachedReader(mapper, mapper.readerFor(jt));
+			this.reader = ret;
+		}
+		return ret.reader;
+	}
+
+	public ParameterMetadata getParam() {
+		return this.param;
+	}
+
 	public JsonRpcMethodExt getMethodExt() {
 		return this.method;
 	}
+
+	private static Object getDefaultValue(Class<?> type) {
+		if (type == Optional.class) {
+			// If it's Guava optional then handle it as an absent value
+			return Optional.empty();
+		} else if (type.isPrimitive()) {
+			// If parameter is a primitive set the appropriate default value
+			return ReflectionUtils.defaultValue(type);
+		}
+		return null;
+	}
 }
@@ -0,0 +1,277 @@
+package net.inveed.jsonrpc.server.typeutils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ContainerNode;
+
+/**
+ * Index of the JSON-RPC methods sharing a name, used to choose an overload
+ * before any params are deserialized.
+ *
+ * Positional params select the methods by arity: a method matches if it has at
+ * least as many params as the request and all its required params are passed.
+ * Named params select the methods having all the passed names and all the
+ * required names. The matching methods are ordered by how well the JSON values
+ * fit the param types, then by the number of omitted params, then by signature,
+ * so the order doesn't depend on the reflection order of methods.
+ */
+public class JsonRpcOverloadIndex {
+	private static final int SCORE_EXACT = 3;
+	private static final int SCORE_GENERIC = 2;
+	private static final int SCORE_COERCED = 1;
+	private static final int SCORE_UNLIKELY = 0;
+
+	private static final class Candidate {
+		private final JsonRpcMethodExt method;
+		private final int score;
+		private final int omitted;
+		private final int order;
+
+		private Candidate(JsonRpcMethodExt method, int score, int omitted, int order) {
+			this.method = method;
+			this.score = score;
+			this.omitted = omitted;
+			this.order = order;
+		}
+	}
+
+	private static final Comparator<Candidate> CANDIDATE_ORDER = Comparator
+			.comparingInt((Candidate c) -> -c.score)
+			.thenComparingInt(c -> c.omitted)
+			.thenComparingInt(c -> c.order);
+
+	private final List<JsonRpcMethodExt> methods;
+	private final List<List<JsonRpcMethodExt>> byArity;
+	private final Map<String, BitSet> byName = new HashMap<>();
+	private final List<Set<String>> requiredNames;
+
+	public JsonRpcOverloadIndex(Collection<JsonRpcMethodExt> methods) {
+		ArrayList<JsonRpcMethodExt> sorted = new ArrayList<>(methods);
+		sorted.sort(Comparator.comparing(m -> m.getMethod().getMethod().toGenericString()));
+		this.methods = Collections.unmodifiableList(sorted);
+
+		int maxArity = 0;
+		for (JsonRpcMethodExt m : sorted) {
+			maxArity = Math.max(maxArity, m.getParams().size());
+		}
+		List<List<JsonRpcMethodExt>> arities = new ArrayList<>(maxArity + 1);
+		for (int arity = 0; arity <= maxArity; arity++) {
+			ArrayList<JsonRpcMethodExt> matching = new ArrayList<>();
+			for (JsonRpcMethodExt m : sorted) {
+				if (arity <= m.getParams().size() && arity >= getMinArity(m)) {
+					matching.add(m);
+				}
+			}
+			arities.add(Collections.unmodifiableList(matching));
+		}
+		this.byArity = Collections.unmodifiableList(arities);
+
+		List<Set<String>> required = new ArrayList<>(sorted.size());
+		for (int i = 0; i < sorted.size(); i++) {
+			HashSet<String> names = new HashSet<>();
+			for (JsonRpcMethodParamExt p : sorted.get(i).getParams()) {
+				if (p.getName() != null) {
+					this.byName.computeIfAbsent(p.getName(), k -> new BitSet()).set(i);
+				}
+				if (p.isRequired()) {
+					names.add(p.getName());
+				}
+			}
+			required.add(names);
+		}
+		this.requiredNames = Collections.unmodifiableList(required);
+	}
+
+	private static int getMinArity(JsonRpcMethodExt m) {
+		List<JsonRpcMethodParamExt> params = m.getParams();
+		for (int i = params.size() - 1; i >= 0; i--) {
+			if (params.get(i).isRequired()) {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return all indexed methods ordered by signature
+	 */
+	public List<JsonRpcMethodExt> getMethods() {
+		return this.methods;
+	}
+
+	/**
+	 * @param arity number of positional params
+	 * @return methods accepting the number of params
+	 */
+	public List<JsonRpcMethodExt> getByArity(int arity) {
+		if (arity >= this.byArity.size()) {
+			return Collections.emptyList();
+		}
+		return this.byArity.get(arity);
+	}
+
+	/**
+	 * @param names names of the params
+	 * @return methods accepting the set of named params
+	 */
+	public List<JsonRpcMethodExt> getByNames(Collection<String> names) {
+		BitSet matching = new BitSet(this.methods.size());
+		matching.set(0, this.methods.size());
+		for (String name : names) {
+			BitSet withName = this.byName.get(name);
+			if (withName == null) {
+				return Collections.emptyList();
+			}
+			matching.and(withName);
+		}
+		ArrayList<JsonRpcMethodExt> ret = new ArrayList<>(matching.cardinality());
+		for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+			if (names.containsAll(this.requiredNames.get(i))) {
+				ret.add(this.methods.get(i));
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Selects the methods, which can accept the params, best match first
+	 *
+	 * @param params request params (object or array), without management params
+	 * @return ordered candidates, empty if no method accepts the params
+	 */
+	public List<JsonRpcMethodExt> select(ContainerNode<?> params) {
+		List<JsonRpcMethodExt> matching;
+		if (params.isArray()) {
+			matching = this.getByArity(params.size());
+		} else {
+			ArrayList<String> names = new ArrayList<>(params.size());
+			Iterator<String> it = params.fieldNames();
+			while (it.hasNext()) {
+				names.add(it.next());
+			}
+			matching = this.getByNames(names);
+		}
+		if (matching.size() < 2) {
+			return matching;
+		}
+
+		ArrayList<Candidate> candidates = new ArrayList<>(matching.size());
+		for (JsonRpcMethodExt m : matching) {
+			int score = 0;
+			int omitted = 0;
+			for (JsonRpcMethodParamExt p : m.getParams()) {
+				JsonNode value = params.isArray() ? params.get(p.getIndex()) : (p.getName() == null ? null : params.get(p.getName()));
+				if (value == null) {
+					omitted++;
+				} else {
+					score += score(value, p.getType());
+				}
+			}
+			candidates.add(new Candidate(m, score, omitted, this.methods.indexOf(m)));
+		}
+		candidates.sort(CANDIDATE_ORDER);
+
+		ArrayList<JsonRpcMethodExt> ret = new ArrayList<>(candidates.size());
+		for (Candidate c : candidates) {
+			ret.add(c.method);
+		}
+		return ret;
+	}
+
+	/**
+	 * Estimates how well a JSON value fits a java type without deserializing it
+	 *
+	 * @param value	JSON value
+	 * @param type	param type
+	 * @return score, bigger is better
+	 */
+	static int score(JsonNode value, Class<?> type) {
+		if (type == Object.class || type == JsonParser.class || JsonNode.class.isAssignableFrom(type)) {
+			return SCORE_GENERIC;
+		}
+		if (value.isNull()) {
+			return type.isPrimitive() ? SCORE_UNLIKELY : SCORE_GENERIC;
+		}
+		if (value.isTextual()) {
+			if (type == String.class || type == CharSequence.class || type.isEnum()) {
+				return SCORE_EXACT;
+			}
+			if (type == char.class || type == Character.class) {
+				return value.textValue().length() == 1 ? SCORE_EXACT : SCORE_UNLIKELY;
+			}
+			// Numbers, dates, UUIDs etc. may be parsed from strings
+			return type.isArray() || Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)
+					? SCORE_UNLIKELY : SCORE_COERCED;
+		}
+		if (value.isIntegralNumber()) {
+			if (isIntegral(type)) {
+				return SCORE_EXACT;
+			}
+			if (isFloating(type) || type == Number.class) {
+				return SCORE_GENERIC;
+			}
+			return type == String.class || type.isEnum() ? SCORE_COERCED : SCORE_UNLIKELY;
+		}
+		if (value.isNumber()) {
+			if (isFloating(type)) {
+				return SCORE_EXACT;
+			}
+			if (type == Number.class) {
+				return SCORE_GENERIC;
+			}
+			return isIntegral(type) || type == String.class ? SCORE_COERCED : SCORE_UNLIKELY;
+		}
+		if (value.isBoolean()) {
+			if (type == boolean.class || type == Boolean.class) {
+				return SCORE_EXACT;
+			}
+			return type == String.class ? SCORE_COERCED : SCORE_UNLIKELY;
+		}
+		if (value.isArray()) {
+			return type.isArray() || Collection.class.isAssignableFrom(type) ? SCORE_EXACT : SCORE_UNLIKELY;
+		}
+		if (value.isObject()) {
+			if (Map.class.isAssignableFrom(type) || !(isScalar(type) || type.isArray() || Collection.class.isAssignableFrom(type))) {
+				return SCORE_EXACT;
+			}
+			// Objects are passed to String params as JSON text
+			return type == String.class ? SCORE_GENERIC : SCORE_UNLIKELY;
+		}
+		return SCORE_UNLIKELY;
+	}
+
+	private static boolean isIntegral(Class<?> type) {
+		return type == int.class || type == Integer.class
+				|| type == long.class || type == Long.class
+				|| type == short.class || type == Short.class
+				|| type == byte.class || type == Byte.class
+				|| type == BigInteger.class;
+	}
+
+	private static boolean isFloating(Class<?> type) {
+		return type == double.class || type == Double.class
+				|| type == float.class || type == Float.class
+				|| type == BigDecimal.class;
+	}
+
+	private static boolean isScalar(Class<?> type) {
+		return type.isPrimitive() || type.isEnum()
+				|| type == String.class || type == CharSequence.class
+				|| Number.class.isAssignableFrom(type)
+				|| type == Boolean.class || type == Character.class;
+	}
+}
@@ -0,0 +1,97 @@
+package net.inveed.jsonrpc.server;
+
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+
+import junit.framework.TestCase;
+
+public class JsonRpcDispatchEntryTest extends TestCase {
+
+	@JsonRpcService("dispatch")
+	public static class DispatchService {
+		@JsonRpcMethod
+		public String echo(@JsonRpcParam("s") String s) {
+			return s;
+		}
+
+		@JsonRpcMethod
+		public String pick(@JsonRpcParam("v") long v) {
+			return "long";
+		}
+
+		@JsonRpcMethod
+		public String pick(@JsonRpcParam("v") String v) {
+			return "string";
+		}
+
+		public String hidden() {
+			return "hidden";
+		}
+	}
+
+	private HK2JsonRpcServiceProvider provider;
+	private IJsonRpcServiceProvider lookupProvider;
+
+	@Override
+	protected void setUp() {
+		this.provider = JsonRpcTestServices.provider(DispatchService.class);
+		// Same provider without a dispatch table: uses the default lookup
+		this.lookupProvider = new IJsonRpcServiceProvider() {
+			@Override
+			public String getMethodName(String requestMethod) {
+				return provider.getMethodName(requestMethod);
+			}
+
+			@Override
+			public Object getService(String requestMethod) {
+				return provider.getService(requestMethod);
+			}
+		};
+	}
+
+	public void testTableReturnsSameEntry() {
+		JsonRpcDispatchEntry entry = this.provider.resolve("dispatch#echo");
+		assertNotNull(entry);
+		assertEquals("echo", entry.getMethodName());
+		assertSame(entry, this.provider.resolve("dispatch#echo"));
+		// Service name is normalized
+		assertSame(entry, this.provider.resolve(" Dispatch #echo"));
+		assertTrue(entry.getServiceInstance() instanceof DispatchService);
+	}
+
+	public void testTableIndexesOverloads() {
+		JsonRpcDispatchEntry entry = this.provider.resolve("dispatch#pick");
+		assertEquals(2, entry.getMethods().size());
+		assertNotNull(entry.getOverloads());
+		assertNull(this.provider.resolve("dispatch#echo").getOverloads());
+	}
+
+	public void testTableUnknownMethod() {
+		assertNull(this.provider.resolve("dispatch#missing"));
+		assertNull(this.provider.resolve("dispatch#hidden"));
+		assertNull(this.provider.resolve("missing#echo"));
+		assertNull(this.provider.resolve("dispatch"));
+		assertNull(this.provider.resolve("dispatch#echo#echo"));
+	}
+
+	public void testLookupSharesMethods() {
+		JsonRpcDispatchEntry first = this.lookupProvider.resolve("dispatch#pick");
+		JsonRpcDispatchEntry second = this.lookupProvider.resolve("dispatch#pick");
+		assertNotNull(first);
+		assertSame(first.getMethods(), second.getMethods());
+		assertSame(first.getOverloads(), second.getOverloads());
+		assertSame(first.getServiceType(), second.getServiceType());
+		// Each lookup keeps the instance it was resolved with
+		Object instance = first.getServiceInstance();
+		assertSame(instance, first.getServiceInstance());
+		assertNotSame(instance, second.getServiceInstance());
+	}
+
+	public void testLookupUnknownMethod() {
+		assertNull(this.lookupProvider.resolve("dispatch#missing"));
+		assertNull(this.lookupProvider.resolve("dispatch#hidden"));
+		assertNull(this.lookupProvider.resolve("missing#echo"));
+		assertNull(this.lookupProvider.resolve("dispatch"));
+	}
+}
@@ -0,0 +1,42 @@
+package net.inveed.jsonrpc.server;
+
+import net.inveed.commons.reflection.BeanTypeDesc;
+import net.inveed.commons.reflection.JavaTypeRegistry;
+import net.inveed.jsonrpc.server.typeutils.JsonRpcTypeExt;
+
+/**
+ * Registers JSON-RPC services for the tests without a service locator
+ */
+public final class JsonRpcTestServices {
+
+	private JsonRpcTestServices() {
+	}
+
+	/**
+	 * Registers the JSON-RPC extension of a service type, if it's not registered yet
+	 *
+	 * @param type service type annotated with {@link net.inveed.jsonrpc.core.annotation.JsonRpcService}
+	 * @return bean type of the service
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static synchronized <T> BeanTypeDesc<T> register(Class<T> type) {
+		BeanTypeDesc<T> bt = (BeanTypeDesc<T>) JavaTypeRegistry.getType(type);
+		if (bt.getExtension(JsonRpcTypeExt.class) == null) {
+			JsonRpcTypeExt<T> ext = new JsonRpcTypeExt(bt);
+			bt.registerExtension(ext);
+			ext.initialize();
+		}
+		return bt;
+	}
+
+	/**
+	 * @param types service types
+	 * @return provider creating the service instances without a service locator
+	 */
+	public static HK2JsonRpcServiceProvider provider(Class<?>... types) {
+		for (Class<?> type : types) {
+			register(type);
+		}
+		return new HK2JsonRpcServiceProvider();
+	}
+}
@@ -0,0 +1,52 @@
+package net.inveed.jsonrpc.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class VirtualThreadsUtilTest extends TestCase {
+
+	private static int featureVersion() {
+		String version = System.getProperty("java.specification.version");
+		return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+	}
+
+	public void testSupportMatchesJvm() {
+		if (featureVersion() >= 21) {
+			assertTrue(VirtualThreadsUtil.isSupported());
+		} else if (featureVersion() < 19) {
+			assertFalse(VirtualThreadsUtil.isSupported());
+		}
+	}
+
+	public void testExecutorRunsTasks() throws Exception {
+		if (!VirtualThreadsUtil.isSupported()) {
+			try {
+				VirtualThreadsUtil.newExecutor();
+				fail();
+			} catch (UnsupportedOperationException e) {
+				// expected
+			}
+			return;
+		}
+		ExecutorService executor = VirtualThreadsUtil.newExecutor();
+		try {
+			Future<String> f = executor.submit(() -> Thread.currentThread().toString());
+			assertTrue(f.get(10, TimeUnit.SECONDS).contains("VirtualThread"));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testExecutionModeIsCheckedByConfiguration() {
+		JsonRpcServerConfiguration configuration = new JsonRpcServerConfiguration();
+		try {
+			configuration.setExecutionMode(JsonRpcExecutionMode.VIRTUAL_THREADS);
+			assertTrue(VirtualThreadsUtil.isSupported());
+		} catch (UnsupportedOperationException e) {
+			assertFalse(VirtualThreadsUtil.isSupported());
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package net.inveed.jsonrpc.server.cache;
+
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ContainerNode;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+import net.inveed.jsonrpc.server.JsonRpcDispatchEntry;
+import net.inveed.jsonrpc.server.JsonRpcTestServices;
+import net.inveed.jsonrpc.server.typeutils.JsonRpcMethodParamExt;
+
+public class JsonRpcCallKeyTest extends TestCase {
+
+	@JsonRpcService("keys")
+	public static class KeyService {
+		@JsonRpcMethod
+		public String find(@JsonRpcParam("a") String a, @JsonRpcParam(value = "b", required = false) Object b) {
+			return a;
+		}
+	}
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private List<JsonRpcMethodParamExt> params;
+
+	@Override
+	protected void setUp() {
+		this.params = JsonRpcDispatchEntry.findMethods(JsonRpcTestServices.register(KeyService.class), "find").get(0).getParams();
+	}
+
+	private String key(String params, int deep, String fields) throws Exception {
+		return JsonRpcCallKey.create(this.params, (ContainerNode<?>) this.mapper.readTree(params), deep, fields);
+	}
+
+	public void testPositionalAndNamedParamsGiveSameKey() throws Exception {
+		assertEquals(key("[\"x\", 1]", 1, null), key("{\"b\":1,\"a\":\"x\"}", 1, null));
+	}
+
+	public void testMissingAndNullParamsGiveSameKey() throws Exception {
+		assertEquals(key("[\"x\"]", 1, null), key("{\"a\":\"x\",\"b\":null}", 1, null));
+	}
+
+	public void testObjectFieldsAreSorted() throws Exception {
+		assertEquals(key("[\"x\", {\"p\":1,\"q\":[1,{\"s\":2,\"r\":3}]}]", 1, null),
+				key("[\"x\", {\"q\":[1,{\"r\":3,\"s\":2}],\"p\":1}]", 1, null));
+	}
+
+	public void testDifferentValuesGiveDifferentKeys() throws Exception {
+		assertFalse(key("[\"1\"]", 1, null).equals(key("[1]", 1, null)));
+		assertFalse(key("[\"x\", [1, 2]]", 1, null).equals(key("[\"x\", [2, 1]]", 1, null)));
+		assertFalse(key("[\"x\", {\"a,b\":1}]", 1, null).equals(key("[\"x\", {\"a\":1,\"b\":1}]", 1, null)));
+	}
+
+	public void testDeepAndFieldsArePartOfKey() throws Exception {
+		assertFalse(key("[\"x\"]", 1, null).equals(key("[\"x\"]", 2, null)));
+		assertFalse(key("[\"x\"]", 1, null).equals(key("[\"x\"]", 1, "id")));
+		assertFalse(key("[\"x\"]", 1, "id").equals(key("[\"x\"]", 1, "name")));
+	}
+}
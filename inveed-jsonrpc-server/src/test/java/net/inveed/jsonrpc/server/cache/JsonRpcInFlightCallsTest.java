@@ -0,0 +1,140 @@
+package net.inveed.jsonrpc.server.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.core.deadline.Deadline;
+
+public class JsonRpcInFlightCallsTest extends TestCase {
+
+	private ExecutorService executor;
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@Override
+	protected void setUp() {
+		this.executor = Executors.newCachedThreadPool();
+	}
+
+	@Override
+	protected void tearDown() {
+		this.release.countDown();
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Starts a call, which is running until {@link #release} and returns the value
+	 */
+	private Future<String> startBlocked(JsonRpcInFlightCalls<String> calls, String value) throws Exception {
+		Future<String> ret = this.executor.submit(() -> calls.execute("k", () -> {
+			await(this.release);
+			return value;
+		}, r -> "copy of " + r, r -> !r.startsWith("private"), null));
+		while (calls.size() == 0) {
+			Thread.sleep(1);
+		}
+		return ret;
+	}
+
+	private Future<String> startWaiting(JsonRpcInFlightCalls<String> calls, Supplier<String> call, Deadline deadline) throws Exception {
+		Future<String> ret = this.executor.submit(() -> calls.execute("k", call, r -> "copy of " + r, r -> true, deadline));
+		// Give the call time to start waiting
+		Thread.sleep(50);
+		return ret;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public void testWaitingCallGetsSharedResult() throws Exception {
+		JsonRpcInFlightCalls<String> calls = new JsonRpcInFlightCalls<>();
+		Future<String> first = this.startBlocked(calls, "result");
+		Future<String> second = this.startWaiting(calls, () -> "own", null);
+		this.release.countDown();
+		assertEquals("result", first.get(5, TimeUnit.SECONDS));
+		assertEquals("copy of result", second.get(5, TimeUnit.SECONDS));
+		assertEquals(1, calls.getExecuted());
+		assertEquals(1, calls.getCoalesced());
+		assertEquals(0, calls.size());
+	}
+
+	public void testNotShareableResultIsNotShared() throws Exception {
+		JsonRpcInFlightCalls<String> calls = new JsonRpcInFlightCalls<>();
+		Future<String> first = this.startBlocked(calls, "private result");
+		Future<String> second = this.startWaiting(calls, () -> "own", null);
+		this.release.countDown();
+		assertEquals("private result", first.get(5, TimeUnit.SECONDS));
+		assertEquals("own", second.get(5, TimeUnit.SECONDS));
+		assertEquals(2, calls.getExecuted());
+		assertEquals(0, calls.getCoalesced());
+	}
+
+	public void testFailedCallIsNotShared() throws Exception {
+		JsonRpcInFlightCalls<String> calls = new JsonRpcInFlightCalls<>();
+		Future<String> first = this.executor.submit(() -> calls.execute("k", () -> {
+			await(this.release);
+			throw new IllegalArgumentException("failed");
+		}, r -> r, r -> true, null));
+		while (calls.size() == 0) {
+			Thread.sleep(1);
+		}
+		Future<String> second = this.startWaiting(calls, () -> "own", null);
+		this.release.countDown();
+		try {
+			first.get(5, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+		assertEquals("own", second.get(5, TimeUnit.SECONDS));
+	}
+
+	public void testWaitingCallGivesUpAtDeadline() throws Exception {
+		JsonRpcInFlightCalls<String> calls = new JsonRpcInFlightCalls<>();
+		this.startBlocked(calls, "result");
+		long start = System.nanoTime();
+		try {
+			calls.execute("k", () -> "own", r -> r, r -> true, Deadline.after(20, TimeUnit.MILLISECONDS));
+			fail();
+		} catch (TimeoutException e) {
+		}
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		assertEquals(1, calls.getExecuted());
+	}
+
+	public void testExpiredDeadlineDoesNotWait() throws Exception {
+		JsonRpcInFlightCalls<String> calls = new JsonRpcInFlightCalls<>();
+		this.startBlocked(calls, "result");
+		try {
+			calls.execute("k", () -> "own", r -> r, r -> true, Deadline.after(-1, TimeUnit.MILLISECONDS));
+			fail();
+		} catch (TimeoutException e) {
+		}
+	}
+
+	public void testWaitingCallIsExecutedAfterMaxWait() throws Exception {
+		JsonRpcInFlightCalls<String> calls = new JsonRpcInFlightCalls<>(20, TimeUnit.MILLISECONDS);
+		this.startBlocked(calls, "result");
+		assertEquals("own", calls.execute("k", () -> "own", r -> r, r -> true, Deadline.after(1, TimeUnit.MINUTES)));
+		assertEquals(2, calls.getExecuted());
+		assertEquals(1, calls.size());
+	}
+
+	public void testDifferentKeysAreNotCoalesced() throws Exception {
+		JsonRpcInFlightCalls<String> calls = new JsonRpcInFlightCalls<>();
+		this.startBlocked(calls, "result");
+		assertEquals("other", calls.execute("other", () -> "other", r -> r, r -> true, null));
+		assertEquals(0, calls.getCoalesced());
+	}
+}
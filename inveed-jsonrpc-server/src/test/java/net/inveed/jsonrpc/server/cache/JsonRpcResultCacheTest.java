@@ -0,0 +1,59 @@
+package net.inveed.jsonrpc.server.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class JsonRpcResultCacheTest extends TestCase {
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	public void testHitReturnsStoredBytes() {
+		JsonRpcResultCache cache = new JsonRpcResultCache(1, TimeUnit.MINUTES, 10);
+		byte[] value = bytes("{\"a\":1}");
+		cache.put("k", value);
+		assertSame(value, cache.get("k"));
+		assertNull(cache.get("other"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	public void testLeastRecentlyUsedIsEvicted() {
+		JsonRpcResultCache cache = new JsonRpcResultCache(1, TimeUnit.MINUTES, 2);
+		cache.put("a", bytes("1"));
+		cache.put("b", bytes("2"));
+		assertNotNull(cache.get("a"));
+		cache.put("c", bytes("3"));
+		assertEquals(2, cache.size());
+		assertNotNull(cache.get("a"));
+		assertNull(cache.get("b"));
+		assertNotNull(cache.get("c"));
+		assertEquals(1, cache.getEvictions());
+	}
+
+	public void testExpiredResultIsEvicted() throws Exception {
+		JsonRpcResultCache cache = new JsonRpcResultCache(1, TimeUnit.MILLISECONDS, 10);
+		cache.put("k", bytes("1"));
+		Thread.sleep(5);
+		assertNull(cache.get("k"));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertEquals(1, cache.getMisses());
+	}
+
+	public void testInvalidSettings() {
+		try {
+			new JsonRpcResultCache(0, TimeUnit.SECONDS, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			new JsonRpcResultCache(1, TimeUnit.SECONDS, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package net.inveed.jsonrpc.server.invoker;
+
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+public class JsonRpcMethodInvokersTest extends TestCase {
+
+	public static class Target {
+		public int calls;
+
+		public long sum(long a, int b) {
+			return a + b;
+		}
+
+		public String concat(String a, String b, String c, String d, String e) {
+			return a + b + c + d + e;
+		}
+
+		public void touch() {
+			this.calls++;
+		}
+
+		public void fail(String message) {
+			throw new IllegalStateException(message);
+		}
+
+		public String tooMany(String a, String b, String c, String d, String e, String f) {
+			return a + b + c + d + e + f;
+		}
+
+		public static String hello(String name) {
+			return "hello " + name;
+		}
+	}
+
+	private static class Hidden {
+		public String value() {
+			return "hidden";
+		}
+	}
+
+	private static Method method(Class<?> type, String name) {
+		for (Method m : type.getDeclaredMethods()) {
+			if (m.getName().equals(name)) {
+				return m;
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	public void testSpunInvokerBoxesPrimitives() throws Throwable {
+		IJsonRpcMethodInvoker invoker = JsonRpcMethodInvokers.create(method(Target.class, "sum"));
+		assertTrue(invoker instanceof LambdaInvokers.Invoker2);
+		assertEquals(Long.valueOf(42), invoker.invoke(new Target(), new Object[] { 40L, 2 }));
+	}
+
+	public void testSpunInvokerOfMaxArity() throws Throwable {
+		IJsonRpcMethodInvoker invoker = JsonRpcMethodInvokers.create(method(Target.class, "concat"));
+		assertTrue(invoker instanceof LambdaInvokers.Invoker5);
+		assertEquals("abcde", invoker.invoke(new Target(), new Object[] { "a", "b", "c", "d", "e" }));
+	}
+
+	public void testVoidMethodReturnsNull() throws Throwable {
+		IJsonRpcMethodInvoker invoker = JsonRpcMethodInvokers.create(method(Target.class, "touch"));
+		assertTrue(invoker instanceof LambdaInvokers.VoidInvoker0);
+		Target target = new Target();
+		assertNull(invoker.invoke(target, new Object[0]));
+		assertEquals(1, target.calls);
+	}
+
+	public void testExceptionIsNotWrapped() throws Throwable {
+		IJsonRpcMethodInvoker invoker = JsonRpcMethodInvokers.create(method(Target.class, "fail"));
+		try {
+			invoker.invoke(new Target(), new Object[] { "boom" });
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("boom", e.getMessage());
+		}
+	}
+
+	public void testEachMethodGetsItsOwnClass() {
+		IJsonRpcMethodInvoker a = JsonRpcMethodInvokers.create(method(Target.class, "sum"));
+		IJsonRpcMethodInvoker b = JsonRpcMethodInvokers.create(method(Target.class, "sum"));
+		IJsonRpcMethodInvoker c = JsonRpcMethodInvokers.create(method(Target.class, "concat"));
+		assertNotSame(a.getClass(), c.getClass());
+		assertNotNull(b);
+	}
+
+	public void testUnsupportedMethodsUseMethodHandles() throws Throwable {
+		IJsonRpcMethodInvoker tooMany = JsonRpcMethodInvokers.create(method(Target.class, "tooMany"));
+		assertTrue(tooMany instanceof MethodHandleInvoker);
+		assertEquals("abcdef", tooMany.invoke(new Target(), new Object[] { "a", "b", "c", "d", "e", "f" }));
+
+		IJsonRpcMethodInvoker hello = JsonRpcMethodInvokers.create(method(Target.class, "hello"));
+		assertTrue(hello instanceof MethodHandleInvoker);
+		assertEquals("hello world", hello.invoke(null, new Object[] { "world" }));
+	}
+
+	public void testNonPublicClassIsNotSpun() throws Throwable {
+		Method m = method(Hidden.class, "value");
+		m.setAccessible(true);
+		IJsonRpcMethodInvoker invoker = JsonRpcMethodInvokers.create(m);
+		assertFalse(invoker instanceof LambdaInvokers.Invoker0);
+		assertEquals("hidden", invoker.invoke(new Hidden(), new Object[0]));
+	}
+}
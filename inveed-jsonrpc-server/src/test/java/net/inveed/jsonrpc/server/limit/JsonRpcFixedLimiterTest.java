@@ -0,0 +1,62 @@
+package net.inveed.jsonrpc.server.limit;
+
+import junit.framework.TestCase;
+
+public class JsonRpcFixedLimiterTest extends TestCase {
+
+	public void testAdmitsUpToLimit() {
+		JsonRpcFixedLimiter limiter = new JsonRpcFixedLimiter(2);
+		assertTrue(limiter.tryAcquire());
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+		assertEquals(2, limiter.getInFlight());
+
+		limiter.release(1000, false);
+		assertEquals(1, limiter.getInFlight());
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+		assertEquals(2, limiter.getLimit());
+	}
+
+	public void testLimitDoesNotChange() {
+		JsonRpcFixedLimiter limiter = new JsonRpcFixedLimiter(3);
+		assertTrue(limiter.tryAcquire());
+		limiter.release(1000000, true);
+		assertEquals(3, limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	public void testConcurrentCallsDoNotExceedLimit() throws Exception {
+		final JsonRpcFixedLimiter limiter = new JsonRpcFixedLimiter(4);
+		final int[] violations = new int[1];
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 20000; i++) {
+					if (limiter.tryAcquire()) {
+						if (limiter.getInFlight() > 4) {
+							synchronized (violations) {
+								violations[0]++;
+							}
+						}
+						limiter.release(1, false);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertEquals(0, violations[0]);
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	public void testLimitShouldBePositive() {
+		try {
+			new JsonRpcFixedLimiter(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package net.inveed.jsonrpc.server.limit;
+
+import junit.framework.TestCase;
+
+public class JsonRpcVegasLimiterTest extends TestCase {
+
+	/**
+	 * Runs a round of calls using the whole limit, completed with the latency
+	 */
+	private static void round(JsonRpcVegasLimiter limiter, long rtt, boolean dropped) {
+		int n = 0;
+		while (limiter.tryAcquire()) {
+			n++;
+		}
+		for (int i = 0; i < n; i++) {
+			limiter.release(rtt, dropped);
+		}
+	}
+
+	public void testLimitGrowsWithoutQueue() {
+		JsonRpcVegasLimiter limiter = new JsonRpcVegasLimiter(20, 1, 1000, 1.0, 1000);
+		round(limiter, 1000, false);
+		assertTrue(limiter.getLimit() > 20);
+		assertEquals(1000, limiter.getMinRtt());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	public void testLimitShrinksWithQueue() {
+		JsonRpcVegasLimiter limiter = new JsonRpcVegasLimiter(100, 1, 1000, 1.0, 1000);
+		// Measure the latency without load first
+		assertTrue(limiter.tryAcquire());
+		limiter.release(1000, false);
+		round(limiter, 10000, false);
+		assertTrue(String.valueOf(limiter.getLimit()), limiter.getLimit() < 100);
+	}
+
+	public void testLimitShrinksOnDrops() {
+		JsonRpcVegasLimiter limiter = new JsonRpcVegasLimiter(20, 1, 1000, 1.0, 1000);
+		assertTrue(limiter.tryAcquire());
+		limiter.release(1000, true);
+		assertTrue(limiter.getLimit() < 20);
+	}
+
+	public void testLimitStaysInBounds() {
+		JsonRpcVegasLimiter limiter = new JsonRpcVegasLimiter(10, 5, 30, 1.0, 1000);
+		for (int i = 0; i < 20; i++) {
+			round(limiter, 1000, false);
+		}
+		assertEquals(30, limiter.getLimit());
+		for (int i = 0; i < 100; i++) {
+			assertTrue(limiter.tryAcquire());
+			limiter.release(1000, true);
+		}
+		assertEquals(5, limiter.getLimit());
+	}
+
+	public void testIdleCallsDoNotChangeLimit() {
+		JsonRpcVegasLimiter limiter = new JsonRpcVegasLimiter(20, 1, 1000, 1.0, 1000);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(limiter.tryAcquire());
+			limiter.release(50000, false);
+		}
+		assertEquals(20, limiter.getLimit());
+	}
+
+	public void testMinRttIsProbedUnderLowLoad() {
+		JsonRpcVegasLimiter limiter = new JsonRpcVegasLimiter(20, 1, 1000, 1.0, 3);
+		assertTrue(limiter.tryAcquire());
+		limiter.release(1000, false);
+		assertEquals(1000, limiter.getMinRtt());
+		// The method has become slower, the min latency follows it after the probe interval
+		for (int i = 0; i < 3; i++) {
+			assertTrue(limiter.tryAcquire());
+			limiter.release(5000, false);
+		}
+		assertEquals(5000, limiter.getMinRtt());
+	}
+
+	public void testConcurrentReleasesKeepLimitConsistent() throws Exception {
+		final JsonRpcVegasLimiter limiter = new JsonRpcVegasLimiter(20, 2, 200, 0.5, 100);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final long rtt = 1000 + t * 3000;
+			final boolean drop = t == 0;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 20000; i++) {
+					if (limiter.tryAcquire()) {
+						limiter.release(rtt, drop && i % 10 == 0);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertEquals(0, limiter.getInFlight());
+		assertTrue(limiter.getLimit() >= 2 && limiter.getLimit() <= 200);
+	}
+
+	public void testInvalidSettings() {
+		try {
+			new JsonRpcVegasLimiter(0, 1, 10, 1.0, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			new JsonRpcVegasLimiter(5, 1, 10, 0, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			new JsonRpcVegasLimiter(5, 1, 10, 1.0, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package net.inveed.jsonrpc.server.metrics;
+
+import junit.framework.TestCase;
+
+public class JsonRpcLatencyHistogramTest extends TestCase {
+
+	public void testSmallValuesAreExact() {
+		for (int v = 0; v < 32; v++) {
+			assertEquals(v, JsonRpcLatencyHistogram.bucketOf(v));
+			assertEquals(v, JsonRpcLatencyHistogram.highestOf(v));
+		}
+	}
+
+	public void testBucketsCoverValues() {
+		long previous = -1;
+		for (long v = 0; v < (1L << 43); v = v < 4096 ? v + 1 : v + v / 97) {
+			int bucket = JsonRpcLatencyHistogram.bucketOf(v);
+			long highest = JsonRpcLatencyHistogram.highestOf(bucket);
+			assertTrue(v + " above bucket " + bucket, v <= highest);
+			if (bucket > 0) {
+				assertTrue(v + " below bucket " + bucket, v > JsonRpcLatencyHistogram.highestOf(bucket - 1));
+			}
+			// Relative error of a sub-bucket of 32 is below 1/32
+			assertTrue(v + " reported as " + highest, highest - v <= v / 32);
+			assertTrue(bucket >= previous);
+			previous = bucket;
+		}
+	}
+
+	public void testBucketBoundaries() {
+		// Values below 64 are exact, then every sub-bucket is twice wider than in the previous power of two
+		assertEquals(63, JsonRpcLatencyHistogram.bucketOf(63));
+		assertEquals(64, JsonRpcLatencyHistogram.bucketOf(64));
+		assertEquals(64, JsonRpcLatencyHistogram.bucketOf(65));
+		assertEquals(65, JsonRpcLatencyHistogram.bucketOf(66));
+		assertEquals(65, JsonRpcLatencyHistogram.highestOf(64));
+		assertEquals(96, JsonRpcLatencyHistogram.bucketOf(128));
+		assertEquals(131, JsonRpcLatencyHistogram.highestOf(96));
+	}
+
+	public void testHugeValuesGoToLastBucket() {
+		int last = JsonRpcLatencyHistogram.bucketOf(Long.MAX_VALUE);
+		assertEquals(last, JsonRpcLatencyHistogram.bucketOf(1L << 50));
+		assertEquals(last, JsonRpcLatencyHistogram.bucketOf((1L << 43) - 1));
+		assertTrue(last > JsonRpcLatencyHistogram.bucketOf(1L << 42));
+
+		JsonRpcLatencyHistogram h = new JsonRpcLatencyHistogram();
+		h.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, h.getMax());
+		assertEquals(Long.MAX_VALUE, h.getPercentile(100));
+	}
+
+	public void testPercentiles() {
+		JsonRpcLatencyHistogram h = new JsonRpcLatencyHistogram();
+		assertEquals(0, h.getPercentile(99));
+		for (long v = 1; v <= 1000; v++) {
+			h.record(v * 1000);
+		}
+		assertEquals(1000, h.getCount());
+		assertEquals(500500d, h.getMean(), 0.001);
+		assertEquals(1000000, h.getMax());
+		long p50 = h.getPercentile(50);
+		assertTrue(p50 >= 500000 && p50 <= 500000 * 33 / 32);
+		long p99 = h.getPercentile(99);
+		assertTrue(p99 >= 990000 && p99 <= 990000 * 33 / 32);
+		assertEquals(1000000, h.getPercentile(100));
+		assertTrue(h.getPercentile(0) >= 1000);
+	}
+
+	public void testNegativeValueIsZero() {
+		JsonRpcLatencyHistogram h = new JsonRpcLatencyHistogram();
+		h.record(-5);
+		assertEquals(1, h.getCount());
+		assertEquals(0, h.getMax());
+		assertEquals(0, h.getPercentile(50));
+	}
+}
@@ -0,0 +1,51 @@
+package net.inveed.jsonrpc.server.metrics;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class JsonRpcMethodMetricsTest extends TestCase {
+
+	public void testCallsAndErrors() {
+		JsonRpcMethodMetrics m = new JsonRpcMethodMetrics("svc#m");
+		m.enter();
+		assertEquals(1, m.getInFlight());
+		m.recordSuccess(1000, 64);
+		m.exit();
+		m.recordError(2000, -32602, -1);
+		m.recordError(3000, -32602, -1);
+		m.recordError(4000, -32001, -1);
+
+		assertEquals(0, m.getInFlight());
+		assertEquals(4, m.getCalls());
+		assertEquals(3, m.getErrors());
+		assertEquals(64, m.getAllocatedBytes());
+		Map<Long, Long> byCode = m.getErrorsByCode();
+		assertEquals(Long.valueOf(2), byCode.get(-32602L));
+		assertEquals(Long.valueOf(1), byCode.get(-32001L));
+		assertEquals(0, m.getOtherErrors());
+	}
+
+	public void testErrorCodesOverflowTable() {
+		JsonRpcMethodMetrics m = new JsonRpcMethodMetrics("svc#m");
+		for (int code = 1; code <= 20; code++) {
+			m.recordError(1, -32000 - code, -1);
+		}
+		assertEquals(16, m.getErrorsByCode().size());
+		assertEquals(4, m.getOtherErrors());
+		assertEquals(20, m.getErrors());
+	}
+
+	public void testSnapshot() {
+		JsonRpcMethodMetrics m = new JsonRpcMethodMetrics("svc#m");
+		m.recordSuccess(2000, 100);
+		m.recordSuccess(4000, 300);
+		JsonRpcMethodSnapshot s = m.getSnapshot();
+		assertEquals("svc#m", s.getName());
+		assertEquals(2, s.getCalls());
+		assertEquals(3d, s.getLatencyMean(), 0.001);
+		assertEquals(4d, s.getLatencyMax(), 0.001);
+		assertEquals(200, s.getAllocatedBytesPerCall());
+		assertEquals(0, s.getCacheHits());
+	}
+}
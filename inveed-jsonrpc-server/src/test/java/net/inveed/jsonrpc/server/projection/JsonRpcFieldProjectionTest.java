@@ -0,0 +1,180 @@
+package net.inveed.jsonrpc.server.projection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+import net.inveed.jsonrpc.core.domain.ErrorResponse;
+import net.inveed.jsonrpc.core.domain.Response;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
+import net.inveed.jsonrpc.server.JsonRpcTestServices;
+import net.inveed.jsonrpc.server.servlet.DeferredSuccessResponse;
+import net.inveed.jsonrpc.server.servlet.JsonRpcRequestHandler;
+import net.inveed.jsonrpc.server.servlet.JsonRpcResponseWriter;
+import net.inveed.rest.jpa.jackson.JsonConfiguration;
+
+public class JsonRpcFieldProjectionTest extends TestCase {
+
+	static volatile int secretCalls;
+
+	public static class Owner {
+		public String getName() {
+			return "ann";
+		}
+
+		public String getEmail() {
+			return "ann@example.com";
+		}
+	}
+
+	public static class Item {
+		public int getId() {
+			return 7;
+		}
+
+		public Owner getOwner() {
+			return new Owner();
+		}
+
+		public List<Owner> getWatchers() {
+			return Arrays.asList(new Owner(), new Owner());
+		}
+
+		public String getSecret() {
+			secretCalls++;
+			return "secret";
+		}
+	}
+
+	@JsonRpcService("projected")
+	public static class ProjectedService {
+		@JsonRpcMethod
+		public Item item() {
+			return new Item();
+		}
+	}
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private JsonRpcFieldProjection parse(String json) throws Exception {
+		return JsonRpcFieldProjection.parse(this.mapper.readTree(json));
+	}
+
+	private static void assertInvalid(String selection) {
+		try {
+			JsonRpcFieldProjection.parse(new TextNode(selection));
+			fail("Parsed '" + selection + "'");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	public void testParseString() {
+		JsonRpcFieldProjection p = JsonRpcFieldProjection.parse(new TextNode("id, name owner { name,email }"));
+		assertTrue(p.includes("id"));
+		assertTrue(p.includes("name"));
+		assertFalse(p.includes("email"));
+		assertNull(p.get("id"));
+		assertTrue(p.get("owner").includes("email"));
+		assertEquals("id,name,owner{email,name}", p.toString());
+	}
+
+	public void testDottedPathIsShortForm() {
+		assertEquals(JsonRpcFieldProjection.parse(new TextNode("owner { name }")).toString(),
+				JsonRpcFieldProjection.parse(new TextNode("owner.name")).toString());
+		assertEquals("a{b{c}}", JsonRpcFieldProjection.parse(new TextNode("a . b.c")).toString());
+	}
+
+	public void testParseArrayWithPointers() throws Exception {
+		JsonRpcFieldProjection p = this.parse("[\"id\", \"/owner/name\", \"/a~1b/c~0d\"]");
+		assertEquals("a/b{c~d},id,owner{name}", p.toString());
+	}
+
+	public void testSelectionsAreMerged() {
+		assertEquals("owner{email,name}", JsonRpcFieldProjection.parse(new TextNode("owner.name, owner.email")).toString());
+		// A field requested as a whole wins over its nested selection, in any order
+		assertEquals("owner", JsonRpcFieldProjection.parse(new TextNode("owner.name, owner")).toString());
+		assertEquals("owner", JsonRpcFieldProjection.parse(new TextNode("owner, owner { name }")).toString());
+	}
+
+	public void testCanonicalFormIgnoresOrder() {
+		assertEquals(JsonRpcFieldProjection.parse(new TextNode("b, a { y x }")).toString(),
+				JsonRpcFieldProjection.parse(new TextNode("a{x,y},b")).toString());
+	}
+
+	public void testNull() throws Exception {
+		assertNull(JsonRpcFieldProjection.parse(null));
+		assertNull(this.parse("null"));
+	}
+
+	public void testInvalidSelections() throws Exception {
+		assertInvalid("");
+		assertInvalid(" , ");
+		assertInvalid("owner {");
+		assertInvalid("owner { }");
+		assertInvalid("id }");
+		assertInvalid("owner.");
+		assertInvalid("{ name }");
+		for (String json : Arrays.asList("1", "{\"id\":true}", "[1]", "[\"/owner//name\"]")) {
+			try {
+				this.parse(json);
+				fail("Parsed " + json);
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	public void testApplyToTree() throws Exception {
+		JsonNode tree = this.mapper.readTree("[{\"id\":1,\"secret\":2,\"owner\":{\"name\":\"a\",\"email\":\"b\"},\"tags\":[1,2]},3]");
+		JsonNode ret = JsonRpcFieldProjection.parse(new TextNode("id owner.name tags")).apply(tree);
+		assertEquals(this.mapper.readTree("[{\"id\":1,\"owner\":{\"name\":\"a\"},\"tags\":[1,2]},3]"), ret);
+	}
+
+	public void testSerializeBean() throws Exception {
+		secretCalls = 0;
+		JsonNode ret = JsonRpcFieldProjection.parse(new TextNode("id, owner.name, watchers { email }"))
+				.serializeToNode(this.mapper, new Item());
+		assertEquals(this.mapper.readTree("{\"id\":7,\"owner\":{\"name\":\"ann\"},"
+				+ "\"watchers\":[{\"email\":\"ann@example.com\"},{\"email\":\"ann@example.com\"}]}"), ret);
+		// Getters of the fields, which weren't requested, are not called
+		assertEquals(0, secretCalls);
+	}
+
+	public void testWriteResponse() throws Exception {
+		secretCalls = 0;
+		JsonRpcFieldProjection p = JsonRpcFieldProjection.parse(new TextNode("id, owner.name"));
+		JsonConfiguration conf = new JsonConfiguration();
+		Response[] batch = new Response[] {
+				new DeferredSuccessResponse(IntNode.valueOf(1), new Item(), 0, p, conf),
+				new DeferredSuccessResponse(IntNode.valueOf(2), Arrays.asList(new Item(), new Item()), 0, p, conf),
+		};
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new JsonRpcResponseWriter(this.mapper).write(out, batch);
+		// The selection applies to the result, not to the envelope around it
+		String item = "{\"id\":7,\"owner\":{\"name\":\"ann\"}}";
+		assertEquals(this.mapper.readTree("[{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":" + item + "},"
+				+ "{\"jsonrpc\":\"2.0\",\"id\":2,\"result\":[" + item + "," + item + "]}]"),
+				this.mapper.readTree(out.toByteArray()));
+		assertEquals(0, secretCalls);
+	}
+
+	public void testInvalidSelectionIsInvalidParams() {
+		JsonRpcRequestHandler handler = new JsonRpcRequestHandler(new JsonConfiguration(),
+				JsonRpcTestServices.provider(ProjectedService.class), new JsonRpcServerConfiguration());
+		String request = "{\"jsonrpc\":\"2.0\",\"method\":\"projected#item\",\"params\":{\"#fields\":\"owner {\"},\"id\":1}";
+		Response response = (Response) handler.handle(new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)));
+		assertTrue(String.valueOf(response), response instanceof ErrorResponse);
+		assertEquals(-32602, ((ErrorResponse) response).getError().getCode());
+	}
+}
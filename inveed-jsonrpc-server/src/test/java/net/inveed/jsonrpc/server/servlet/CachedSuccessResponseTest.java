@@ -0,0 +1,33 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.IntNode;
+
+import junit.framework.TestCase;
+
+public class CachedSuccessResponseTest extends TestCase {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	public void testResultIsWrittenAsIs() throws Exception {
+		byte[] result = "{\"name\":\"été\",\"n\":[1,2]}".getBytes(StandardCharsets.UTF_8);
+		CachedSuccessResponse response = new CachedSuccessResponse(IntNode.valueOf(7), result);
+
+		// UTF-8 bytes and chars are written by different generators
+		JsonNode fromBytes = this.mapper.readTree(this.mapper.writeValueAsBytes(response));
+		JsonNode fromChars = this.mapper.readTree(this.mapper.writeValueAsString(response));
+		assertEquals(fromBytes, fromChars);
+		assertEquals(7, fromBytes.get("id").asInt());
+		assertEquals(this.mapper.readTree(result), fromBytes.get("result"));
+	}
+
+	public void testWithIdSharesResult() {
+		byte[] result = "1".getBytes(StandardCharsets.UTF_8);
+		CachedSuccessResponse response = new CachedSuccessResponse(IntNode.valueOf(1), result).withId(IntNode.valueOf(2));
+		assertSame(result, response.getSerializedResult());
+		assertEquals(2, response.getId().asInt());
+	}
+}
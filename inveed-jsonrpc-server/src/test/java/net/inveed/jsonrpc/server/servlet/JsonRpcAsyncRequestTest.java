@@ -0,0 +1,362 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+import net.inveed.jsonrpc.server.JsonRpcWireFormat;
+
+public class JsonRpcAsyncRequestTest extends TestCase {
+
+	static volatile CountDownLatch entered;
+	static volatile CountDownLatch interrupted;
+
+	@JsonRpcService(AsyncService.NAME)
+	public static class AsyncService {
+		public static final String NAME = "async";
+
+		@JsonRpcMethod
+		public String echo(@JsonRpcParam("s") String s) {
+			return s + "!";
+		}
+
+		@JsonRpcMethod
+		public String sleep() {
+			entered.countDown();
+			try {
+				Thread.sleep(10000);
+				return "woke";
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+				return "interrupted";
+			}
+		}
+	}
+
+	/**
+	 * Request body, passed to the read listener in small chunks
+	 */
+	private static class MockInputStream extends ServletInputStream {
+		private final byte[] data;
+		private int pos;
+
+		MockInputStream(byte[] data) {
+			this.data = data;
+		}
+
+		@Override
+		public boolean isFinished() {
+			return this.pos >= this.data.length;
+		}
+
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public void setReadListener(ReadListener listener) {
+			try {
+				listener.onDataAvailable();
+				if (this.isFinished()) {
+					listener.onAllDataRead();
+				}
+			} catch (Exception e) {
+				listener.onError(e);
+			}
+		}
+
+		@Override
+		public int read() {
+			return this.isFinished() ? -1 : this.data[this.pos++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (this.isFinished()) {
+				return -1;
+			}
+			int ret = Math.min(Math.min(len, 16), this.data.length - this.pos);
+			System.arraycopy(this.data, this.pos, b, off, ret);
+			this.pos += ret;
+			return ret;
+		}
+	}
+
+	/**
+	 * Response body, the write listener is called on another thread like on a container thread
+	 */
+	private static class MockOutputStream extends ServletOutputStream {
+		private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+		private volatile WriteListener listener;
+
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public void setWriteListener(WriteListener listener) {
+			this.listener = listener;
+			new Thread(() -> {
+				try {
+					listener.onWritePossible();
+				} catch (Exception e) {
+					listener.onError(e);
+				}
+			}).start();
+		}
+
+		@Override
+		public void write(int b) {
+			this.written.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			this.written.write(b, off, len);
+		}
+	}
+
+	/**
+	 * Exchange with the servlet: mock request, response and async context
+	 */
+	private class Exchange {
+		final MockInputStream in;
+		final MockOutputStream out = new MockOutputStream();
+		final Map<String, String> headers = new HashMap<>();
+		final List<AsyncListener> listeners = new ArrayList<>();
+		final CountDownLatch completed = new CountDownLatch(1);
+		final long contentLength;
+		volatile int status = 200;
+		volatile String contentType;
+		volatile int length = -1;
+		volatile boolean inputRead;
+		volatile String touchedAfterComplete;
+
+		Exchange(byte[] body, long contentLength) {
+			this.in = new MockInputStream(body);
+			this.contentLength = contentLength;
+		}
+
+		void post() throws Exception {
+			AsyncContext ctx = (AsyncContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { AsyncContext.class }, (proxy, method, args) -> {
+						switch (method.getName()) {
+						case "addListener":
+							this.listeners.add((AsyncListener) args[0]);
+							return null;
+						case "complete":
+							assertEquals("Completed twice", 1, this.completed.getCount());
+							this.completed.countDown();
+							return null;
+						default:
+							return null;
+						}
+					});
+			HttpServletRequest req = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+						switch (method.getName()) {
+						case "isAsyncSupported":
+							return true;
+						case "startAsync":
+							return ctx;
+						case "getContentLengthLong":
+							return this.contentLength;
+						case "getInputStream":
+							this.inputRead = true;
+							return this.in;
+						case "getContentType":
+							return JsonRpcWireFormat.MEDIA_TYPE_JSON;
+						default:
+							return method.getReturnType() == boolean.class ? false : null;
+						}
+					});
+			HttpServletResponse resp = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+						if (this.completed.getCount() == 0) {
+							this.touchedAfterComplete = method.getName();
+						}
+						switch (method.getName()) {
+						case "setStatus":
+							this.status = (Integer) args[0];
+							return null;
+						case "setContentType":
+							this.contentType = (String) args[0];
+							return null;
+						case "setContentLength":
+							this.length = (Integer) args[0];
+							return null;
+						case "setHeader":
+						case "addHeader":
+							this.headers.put((String) args[0], (String) args[1]);
+							return null;
+						case "getOutputStream":
+							return this.out;
+						default:
+							return method.getReturnType() == boolean.class ? false : null;
+						}
+					});
+			servlet.doPost(req, resp);
+		}
+
+		void timeout() throws Exception {
+			for (AsyncListener l : this.listeners) {
+				l.onTimeout(null);
+			}
+		}
+
+		void awaitCompleted() throws Exception {
+			assertTrue("Request is not completed", this.completed.await(5, TimeUnit.SECONDS));
+		}
+	}
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private JsonRpcServlet servlet;
+	private ExecutorService executor;
+
+	@Override
+	protected void setUp() {
+		entered = new CountDownLatch(1);
+		interrupted = new CountDownLatch(1);
+		this.executor = Executors.newCachedThreadPool();
+		this.servlet = new JsonRpcServlet();
+		this.servlet.getRpcServiceLocator().registerService(AsyncService.NAME, AsyncService.class);
+		this.servlet.getConfiguration().setAsyncExecutor(this.executor);
+	}
+
+	@Override
+	protected void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+	private static byte[] request(String method, String params) {
+		return ("{\"jsonrpc\":\"2.0\",\"method\":\"" + AsyncService.NAME + "#" + method + "\",\"params\":" + params + ",\"id\":1}")
+				.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private Exchange exchange(byte[] body) {
+		return new Exchange(body, body.length);
+	}
+
+	public void testReadHandleWrite() throws Exception {
+		Exchange e = this.exchange(request("echo", "{\"s\":\"" + new String(new char[100]).replace('\0', 'x') + "\"}"));
+		e.post();
+		e.awaitCompleted();
+		assertEquals(200, e.status);
+		assertEquals(JsonRpcWireFormat.MEDIA_TYPE_JSON, e.contentType);
+		// Headers set while handling are copied to the response
+		assertEquals("*", e.headers.get(Headers.HEADER_ACCESS_CONTROL_ALLOW_ORIGIN));
+		byte[] body = e.out.written.toByteArray();
+		assertEquals(body.length, e.length);
+		JsonNode response = this.mapper.readTree(body);
+		assertEquals(101, response.get("result").asText().length());
+		assertNull(e.touchedAfterComplete);
+	}
+
+	public void testRejectedByExecutor() throws Exception {
+		this.servlet.getConfiguration().setAsyncExecutor(command -> {
+			throw new RejectedExecutionException();
+		});
+		Exchange e = this.exchange(request("echo", "{\"s\":\"x\"}"));
+		e.post();
+		e.awaitCompleted();
+		assertEquals(503, e.status);
+		assertNull(e.out.listener);
+	}
+
+	public void testRequestTooLarge() throws Exception {
+		this.servlet.getConfiguration().setMaxRequestSize(32);
+		// Length is unknown, the body is read up to the limit
+		Exchange e = new Exchange(request("echo", "{\"s\":\"x\"}"), -1);
+		e.post();
+		e.awaitCompleted();
+		assertEquals(413, e.status);
+		assertTrue(e.in.pos <= 32 + 16);
+		assertFalse(e.in.isFinished());
+		assertNull(e.out.listener);
+
+		// Declared length is checked before reading
+		e = this.exchange(request("echo", "{\"s\":\"x\"}"));
+		e.post();
+		e.awaitCompleted();
+		assertEquals(413, e.status);
+		assertFalse(e.inputRead);
+	}
+
+	public void testTimeoutBeforeHandling() throws Exception {
+		List<Runnable> queued = new ArrayList<>();
+		this.servlet.getConfiguration().setAsyncExecutor(queued::add);
+		Exchange e = this.exchange(request("echo", "{\"s\":\"x\"}"));
+		e.post();
+		assertEquals(1, queued.size());
+		e.timeout();
+		e.awaitCompleted();
+		assertEquals(503, e.status);
+
+		// The request is not handled after the timeout
+		queued.get(0).run();
+		assertNull(e.out.listener);
+		assertNull(e.touchedAfterComplete);
+	}
+
+	public void testTimeoutDuringSlowMethod() throws Exception {
+		Exchange e = this.exchange(request("sleep", "{}"));
+		e.post();
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		e.timeout();
+		e.awaitCompleted();
+		assertEquals(503, e.status);
+
+		// The method is interrupted, its response is dropped
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+		this.executor.shutdown();
+		assertTrue(this.executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertNull(e.out.listener);
+		assertNull(e.touchedAfterComplete);
+	}
+
+	public void testTimeoutAfterResponseIsClaimed() throws Exception {
+		Exchange e = this.exchange(request("echo", "{\"s\":\"x\"}"));
+		e.post();
+		e.awaitCompleted();
+		// A late timeout doesn't change the written response
+		e.timeout();
+		assertEquals(200, e.status);
+		assertEquals("x!", this.mapper.readTree(e.out.written.toByteArray()).get("result").asText());
+	}
+
+	public void testInvalidMaxRequestSize() {
+		try {
+			this.servlet.getConfiguration().setMaxRequestSize(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+import net.inveed.jsonrpc.core.domain.ErrorResponse;
+import net.inveed.jsonrpc.core.domain.Response;
+import net.inveed.jsonrpc.core.domain.SuccessResponse;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
+import net.inveed.jsonrpc.server.JsonRpcTestServices;
+import net.inveed.rest.jpa.jackson.JsonConfiguration;
+
+public class JsonRpcBatchExecutorTest extends TestCase {
+
+	@JsonRpcService("batched")
+	public static class BatchedService {
+		@JsonRpcMethod
+		public String echo(@JsonRpcParam("s") String s) {
+			return s;
+		}
+
+		@JsonRpcMethod
+		public String fail() {
+			throw new IllegalStateException("Failed");
+		}
+	}
+
+	/**
+	 * Collects the tasks and runs them in the reverse order on another thread,
+	 * when all of them are submitted
+	 */
+	private static class ReverseExecutor implements Executor {
+		private final int size;
+		private final List<Runnable> tasks = new ArrayList<>();
+
+		ReverseExecutor(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public synchronized void execute(Runnable command) {
+			this.tasks.add(command);
+			if (this.tasks.size() == this.size) {
+				final List<Runnable> reversed = new ArrayList<>(this.tasks);
+				Collections.reverse(reversed);
+				new Thread(() -> reversed.forEach(Runnable::run)).start();
+			}
+		}
+	}
+
+	private ExecutorService pool;
+
+	@Override
+	protected void setUp() {
+		this.pool = Executors.newCachedThreadPool();
+	}
+
+	@Override
+	protected void tearDown() {
+		this.pool.shutdownNow();
+	}
+
+	private static Supplier<Response> respond(int id) {
+		return () -> new SuccessResponse(IntNode.valueOf(id), IntNode.valueOf(id));
+	}
+
+	private static List<Integer> ids(List<Response> responses) {
+		List<Integer> ret = new ArrayList<>();
+		for (Response r : responses) {
+			ret.add(r.getId() == null ? null : r.getId().asInt());
+		}
+		return ret;
+	}
+
+	private static List<Supplier<Response>> elements(int size) {
+		List<Supplier<Response>> ret = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			ret.add(respond(i));
+		}
+		return ret;
+	}
+
+	public void testCompletionOrder() {
+		JsonRpcBatchExecutor executor = new JsonRpcBatchExecutor(new ReverseExecutor(3), 0, true, null);
+		assertEquals("[2, 1, 0]", ids(executor.execute(elements(3))).toString());
+	}
+
+	public void testRequestOrder() {
+		JsonRpcBatchExecutor executor = new JsonRpcBatchExecutor(new ReverseExecutor(3), 0, false, null);
+		assertEquals("[0, 1, 2]", ids(executor.execute(elements(3))).toString());
+	}
+
+	public void testNotificationsAreOmitted() {
+		List<Supplier<Response>> elements = elements(3);
+		elements.set(1, () -> null);
+		for (boolean completionOrder : new boolean[] { true, false }) {
+			JsonRpcBatchExecutor executor = new JsonRpcBatchExecutor(this.pool, 0, completionOrder, null);
+			List<Integer> ids = ids(executor.execute(elements));
+			Collections.sort(ids);
+			assertEquals("[0, 2]", ids.toString());
+		}
+	}
+
+	public void testParallelismLimit() {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		List<Supplier<Response>> elements = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			final int id = i;
+			elements.add(() -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				return respond(id).get();
+			});
+		}
+		JsonRpcBatchExecutor executor = new JsonRpcBatchExecutor(this.pool, 2, false, null);
+		assertEquals("[0, 1, 2, 3, 4, 5, 6, 7]", ids(executor.execute(elements)).toString());
+		assertEquals(2, maxRunning.get());
+	}
+
+	public void testElementsRunInParallelWithoutLimit() {
+		final CyclicBarrier barrier = new CyclicBarrier(4);
+		List<Supplier<Response>> elements = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			final int id = i;
+			elements.add(() -> {
+				try {
+					// Passes only if all the elements run at the same time
+					barrier.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+					throw new IllegalStateException(e);
+				}
+				return respond(id).get();
+			});
+		}
+		JsonRpcBatchExecutor executor = new JsonRpcBatchExecutor(this.pool, 0, false, null);
+		assertEquals("[0, 1, 2, 3]", ids(executor.execute(elements)).toString());
+	}
+
+	public void testFailingElementDoesNotFailOthers() {
+		List<Supplier<Response>> elements = elements(3);
+		elements.set(1, () -> {
+			throw new IllegalStateException("Failed");
+		});
+		JsonRpcBatchExecutor executor = new JsonRpcBatchExecutor(this.pool, 0, false, null);
+		List<Response> responses = executor.execute(elements);
+		assertEquals(3, responses.size());
+		assertTrue(responses.get(0) instanceof SuccessResponse);
+		assertEquals(-32603, ((ErrorResponse) responses.get(1)).getError().getCode());
+		assertTrue(responses.get(2) instanceof SuccessResponse);
+	}
+
+	public void testRejectedElementRunsOnCallingThread() {
+		final Thread caller = Thread.currentThread();
+		final AtomicInteger onCaller = new AtomicInteger();
+		List<Supplier<Response>> elements = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			final int id = i;
+			elements.add(() -> {
+				if (Thread.currentThread() == caller) {
+					onCaller.incrementAndGet();
+				}
+				return respond(id).get();
+			});
+		}
+		Executor rejecting = command -> {
+			throw new RejectedExecutionException();
+		};
+		JsonRpcBatchExecutor executor = new JsonRpcBatchExecutor(rejecting, 0, false, null);
+		assertEquals("[0, 1, 2]", ids(executor.execute(elements)).toString());
+		assertEquals(3, onCaller.get());
+	}
+
+	public void testBatchRequestWithFailingMethod() {
+		JsonRpcServerConfiguration configuration = new JsonRpcServerConfiguration();
+		configuration.setBatchExecutor(this.pool);
+		configuration.setBatchParallelism(2);
+		configuration.setBatchCompletionOrder(false);
+		JsonRpcRequestHandler handler = new JsonRpcRequestHandler(new JsonConfiguration(),
+				JsonRpcTestServices.provider(BatchedService.class), configuration);
+		String request = "[{\"jsonrpc\":\"2.0\",\"method\":\"batched#echo\",\"params\":[\"a\"],\"id\":1},"
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"batched#fail\",\"id\":2},"
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"batched#echo\",\"params\":[\"n\"]},"
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"batched#echo\",\"params\":[\"c\"],\"id\":3}]";
+		Response[] responses = (Response[]) handler.handle(new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)));
+		assertEquals(3, responses.length);
+		assertEquals(1, responses[0].getId().asInt());
+		assertEquals("a", ((JsonNode) ((SuccessResponse) responses[0]).getResult()).asText());
+		assertEquals(2, responses[1].getId().asInt());
+		assertTrue(responses[1] instanceof ErrorResponse);
+		assertEquals(3, responses[2].getId().asInt());
+		assertTrue(responses[2] instanceof SuccessResponse);
+	}
+}
@@ -0,0 +1,260 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+
+public class JsonRpcContentEncodingTest extends TestCase {
+
+	@JsonRpcService(EncodedService.NAME)
+	public static class EncodedService {
+		public static final String NAME = "encoded";
+
+		@JsonRpcMethod
+		public String echo(@JsonRpcParam("s") String s) {
+			return s;
+		}
+	}
+
+	/**
+	 * Response captured by the test
+	 */
+	private static class Captured {
+		final Map<String, String> headers = new HashMap<>();
+		int status = 200;
+		byte[] body;
+	}
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private static byte[] text(int size) {
+		StringBuilder sb = new StringBuilder(size);
+		while (sb.length() < size) {
+			sb.append("jsonrpc ");
+		}
+		return sb.substring(0, size).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+			gz.write(data);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] deflate(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (DeflaterOutputStream def = new DeflaterOutputStream(out)) {
+			def.write(data);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] decode(byte[] data, String encoding, long max) throws IOException {
+		try (InputStream in = JsonRpcContentEncoding.decode(new ByteArrayInputStream(data), encoding, max)) {
+			return ByteStreams.toByteArray(in);
+		}
+	}
+
+	public void testNegotiate() {
+		assertNull(JsonRpcContentEncoding.negotiate(null));
+		assertNull(JsonRpcContentEncoding.negotiate("identity"));
+		assertEquals(Headers.ENCODING_GZIP, JsonRpcContentEncoding.negotiate("gzip, deflate"));
+		assertEquals(Headers.ENCODING_GZIP, JsonRpcContentEncoding.negotiate("x-gzip"));
+		assertEquals(Headers.ENCODING_DEFLATE, JsonRpcContentEncoding.negotiate("gzip;q=0.5, deflate"));
+		assertEquals(Headers.ENCODING_DEFLATE, JsonRpcContentEncoding.negotiate("gzip;q=0, *"));
+		assertEquals(Headers.ENCODING_GZIP, JsonRpcContentEncoding.negotiate("*"));
+		assertNull(JsonRpcContentEncoding.negotiate("*;q=0"));
+		assertNull(JsonRpcContentEncoding.negotiate("gzip;q=oops"));
+		assertEquals(Headers.ENCODING_GZIP, JsonRpcContentEncoding.negotiate(" GZIP ; q=0.8 , br"));
+	}
+
+	public void testBelowThresholdIsNotCompressed() throws IOException {
+		AtomicInteger started = new AtomicInteger();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonRpcCompressingOutputStream c = new JsonRpcCompressingOutputStream(out, Headers.ENCODING_GZIP, 100, -1, started::incrementAndGet);
+		c.write(text(100));
+		assertEquals(0, out.size());
+		c.finish();
+		assertFalse(c.isCompressed());
+		assertEquals(0, started.get());
+		assertEquals(new String(text(100), StandardCharsets.UTF_8), new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	public void testRoundTrip() throws IOException {
+		byte[] data = text(100000);
+		for (String encoding : new String[] { Headers.ENCODING_GZIP, Headers.ENCODING_DEFLATE }) {
+			AtomicInteger started = new AtomicInteger();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			JsonRpcCompressingOutputStream c = new JsonRpcCompressingOutputStream(out, encoding, 100, 9, started::incrementAndGet);
+			for (int i = 0; i < data.length; i += 1000) {
+				c.write(data, i, 1000);
+			}
+			c.finish();
+			assertTrue(c.isCompressed());
+			assertEquals(1, started.get());
+			assertTrue(out.size() < data.length / 10);
+			assertTrue(encoding, Arrays.equals(data, decode(out.toByteArray(), encoding, data.length)));
+		}
+	}
+
+	public void testEndAfterFailedWrite() throws IOException {
+		OutputStream failing = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("Connection reset");
+			}
+		};
+		JsonRpcCompressingOutputStream c = new JsonRpcCompressingOutputStream(failing, Headers.ENCODING_DEFLATE, 10, -1, null);
+		try {
+			c.write(text(100000));
+			c.finish();
+			fail("Writing should fail");
+		} catch (IOException e) {
+			// Expected
+		}
+		c.end();
+		c.end();
+		try {
+			c.write(1);
+			fail("Stream is ended");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	public void testDecode() throws IOException {
+		byte[] data = text(1000);
+		assertTrue(Arrays.equals(data, decode(gzip(data), "x-gzip", 1000)));
+		assertTrue(Arrays.equals(data, decode(deflate(data), " Deflate ", 1000)));
+		// Identity isn't limited by the decoded size
+		assertTrue(Arrays.equals(data, decode(data, "identity", 10)));
+		InputStream in = new ByteArrayInputStream(data);
+		assertSame(in, JsonRpcContentEncoding.decode(in, null, 10));
+		assertSame(in, JsonRpcContentEncoding.decode(in, "", 10));
+		assertNull(JsonRpcContentEncoding.decode(in, "br", 10));
+	}
+
+	public void testDecodeErrors() throws IOException {
+		try {
+			decode(text(100), Headers.ENCODING_GZIP, 1000);
+			fail("Not a gzip stream");
+		} catch (IOException e) {
+			// Expected
+		}
+		try {
+			decode(text(100), Headers.ENCODING_DEFLATE, 1000);
+			fail("Not a zlib stream");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	public void testDecodedSizeLimit() throws IOException {
+		byte[] data = text(100000);
+		InputStream body = JsonRpcContentEncoding.decode(new ByteArrayInputStream(gzip(data)), Headers.ENCODING_GZIP, 1000);
+		try {
+			ByteStreams.toByteArray(body);
+			fail("The limit is exceeded");
+		} catch (IOException e) {
+			assertTrue(JsonRpcContentEncoding.isTooLarge(body));
+		}
+		body = JsonRpcContentEncoding.decode(new ByteArrayInputStream(gzip(data)), Headers.ENCODING_GZIP, data.length);
+		assertEquals(data.length, ByteStreams.toByteArray(body).length);
+		assertFalse(JsonRpcContentEncoding.isTooLarge(body));
+	}
+
+	private Captured post(JsonRpcServlet servlet, byte[] body, String contentEncoding, String acceptEncoding) {
+		Map<String, String> headers = new HashMap<>();
+		headers.put(Headers.HEADER_CONTENT_ENCODING, contentEncoding);
+		headers.put(Headers.HEADER_ACCEPT_ENCODING, acceptEncoding);
+		HttpServletRequest req = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+					if ("getHeader".equals(method.getName())) {
+						return headers.get(args[0]);
+					}
+					return method.getReturnType() == boolean.class ? false : null;
+				});
+		Captured ret = new Captured();
+		HttpServletResponse resp = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+					if ("setStatus".equals(method.getName())) {
+						ret.status = (Integer) args[0];
+					} else if ("setHeader".equals(method.getName())) {
+						ret.headers.put((String) args[0], (String) args[1]);
+					}
+					return method.getReturnType() == boolean.class ? false : null;
+				});
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		servlet.handleRequest(req, resp, new ByteArrayInputStream(body), out);
+		ret.body = out.toByteArray();
+		return ret;
+	}
+
+	private static byte[] request(String s) {
+		return ("{\"jsonrpc\":\"2.0\",\"method\":\"" + EncodedService.NAME + "#echo\",\"params\":[\"" + s + "\"],\"id\":1}")
+				.getBytes(StandardCharsets.UTF_8);
+	}
+
+	public void testServletDecodesAndCompresses() throws Exception {
+		JsonRpcServlet servlet = new JsonRpcServlet();
+		servlet.getRpcServiceLocator().registerService(EncodedService.NAME, EncodedService.class);
+		servlet.getConfiguration().setResponseCompression(true);
+		String s = new String(text(5000), StandardCharsets.UTF_8);
+
+		Captured response = this.post(servlet, gzip(request(s)), Headers.ENCODING_GZIP, "deflate");
+		assertEquals(200, response.status);
+		assertEquals(Headers.ENCODING_DEFLATE, response.headers.get(Headers.HEADER_CONTENT_ENCODING));
+		byte[] decoded = decode(response.body, Headers.ENCODING_DEFLATE, Long.MAX_VALUE);
+		assertEquals(s, this.mapper.readTree(decoded).get("result").asText());
+
+		// Small responses are not compressed
+		response = this.post(servlet, request("x"), null, "gzip");
+		assertNull(response.headers.get(Headers.HEADER_CONTENT_ENCODING));
+		assertEquals("x", this.mapper.readTree(response.body).get("result").asText());
+	}
+
+	public void testServletRejectsInvalidEncoding() throws Exception {
+		JsonRpcServlet servlet = new JsonRpcServlet();
+		assertEquals(415, this.post(servlet, request("x"), "br", null).status);
+		assertEquals(400, this.post(servlet, request("x"), Headers.ENCODING_GZIP, null).status);
+	}
+
+	public void testServletRejectsTooLargeDecodedRequest() throws Exception {
+		JsonRpcServlet servlet = new JsonRpcServlet();
+		servlet.getRpcServiceLocator().registerService(EncodedService.NAME, EncodedService.class);
+		servlet.getConfiguration().setMaxDecodedRequestSize(1000);
+		byte[] request = request(new String(text(5000), StandardCharsets.UTF_8));
+		Captured response = this.post(servlet, gzip(request), Headers.ENCODING_GZIP, null);
+		assertEquals(413, response.status);
+		assertEquals(0, response.body.length);
+
+		servlet.getConfiguration().setStreamingRequests(true);
+		assertEquals(413, this.post(servlet, deflate(request), Headers.ENCODING_DEFLATE, null).status);
+
+		servlet.getConfiguration().setMaxDecodedRequestSize(request.length);
+		assertEquals(200, this.post(servlet, gzip(request), Headers.ENCODING_GZIP, null).status);
+	}
+}
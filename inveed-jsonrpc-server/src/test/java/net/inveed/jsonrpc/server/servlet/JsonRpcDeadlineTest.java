@@ -0,0 +1,207 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+import net.inveed.jsonrpc.core.annotation.JsonRpcSingleFlight;
+import net.inveed.jsonrpc.core.deadline.Deadline;
+import net.inveed.jsonrpc.core.domain.ErrorResponse;
+import net.inveed.jsonrpc.core.domain.Response;
+import net.inveed.jsonrpc.core.domain.SuccessResponse;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
+import net.inveed.jsonrpc.server.JsonRpcTestServices;
+import net.inveed.jsonrpc.server.limit.JsonRpcConcurrencyLimits;
+import net.inveed.jsonrpc.server.limit.JsonRpcFixedLimiter;
+import net.inveed.rest.jpa.jackson.JsonConfiguration;
+
+public class JsonRpcDeadlineTest extends TestCase {
+
+	static volatile CountDownLatch entered;
+	static volatile CountDownLatch release;
+
+	@JsonRpcService("deadlines")
+	public static class DeadlineService {
+		@JsonRpcMethod
+		public String echo(@JsonRpcParam("s") String s) {
+			return s;
+		}
+
+		@JsonRpcMethod
+		public String sleep(@JsonRpcParam("millis") long millis) throws InterruptedException {
+			Thread.sleep(millis);
+			return "woke";
+		}
+
+		@JsonRpcMethod
+		@JsonRpcSingleFlight
+		public String shared(@JsonRpcParam("s") String s) throws InterruptedException {
+			entered.countDown();
+			release.await();
+			return s;
+		}
+	}
+
+	private JsonRpcServerConfiguration configuration;
+	private JsonRpcRequestHandler handler;
+	private ExecutorService executor;
+
+	@Override
+	protected void setUp() {
+		this.configuration = new JsonRpcServerConfiguration();
+		this.handler = this.newHandler();
+		this.executor = Executors.newCachedThreadPool();
+		entered = new CountDownLatch(1);
+		release = new CountDownLatch(1);
+	}
+
+	@Override
+	protected void tearDown() {
+		release.countDown();
+		this.executor.shutdownNow();
+		Thread.interrupted();
+	}
+
+	private JsonRpcRequestHandler newHandler() {
+		return new JsonRpcRequestHandler(new JsonConfiguration(),
+				JsonRpcTestServices.provider(DeadlineService.class), this.configuration);
+	}
+
+	private static Response handle(JsonRpcRequestHandler handler, String method, String params) {
+		String request = "{\"jsonrpc\":\"2.0\",\"method\":\"deadlines#" + method + "\",\"params\":" + params + ",\"id\":1}";
+		return (Response) handler.handle(new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static long errorCode(Response response) {
+		assertTrue(String.valueOf(response), response instanceof ErrorResponse);
+		return ((ErrorResponse) response).getError().getCode();
+	}
+
+	public void testParse() {
+		Deadline d = Deadline.parse(" 10000 ");
+		assertFalse(d.isExpired());
+		long remaining = d.getRemaining(TimeUnit.MILLISECONDS);
+		assertTrue(String.valueOf(remaining), remaining > 9000 && remaining <= 10000);
+		assertTrue(Deadline.parse("0").isExpired());
+		assertTrue(Deadline.parse("-5").isExpired());
+		assertEquals("0", Deadline.parse("-5").toString());
+		assertNull(Deadline.parse(null));
+		assertNull(Deadline.parse("soon"));
+		assertNull(Deadline.parse("1.5"));
+	}
+
+	public void testMin() {
+		Deadline early = Deadline.after(1, TimeUnit.SECONDS);
+		Deadline late = Deadline.after(1, TimeUnit.HOURS);
+		assertSame(early, early.min(late));
+		assertSame(early, late.min(early));
+		assertSame(early, early.min(null));
+		assertSame(late, Deadline.min(null, late));
+		assertNull(Deadline.min(null, null));
+	}
+
+	public void testDeadlineParam() {
+		Response ok = handle(this.handler, "echo", "{\"s\":\"x\",\"#deadline\":\"10000\"}");
+		assertTrue(String.valueOf(ok), ok instanceof SuccessResponse);
+		assertEquals(-32002, errorCode(handle(this.newHandler(), "echo", "{\"s\":\"x\",\"#deadline\":0}")));
+		// A malformed deadline is ignored
+		ok = handle(this.newHandler(), "echo", "{\"s\":\"x\",\"#deadline\":\"soon\"}");
+		assertTrue(String.valueOf(ok), ok instanceof SuccessResponse);
+	}
+
+	public void testDeadlineParamDoesNotExtendRequestDeadline() {
+		this.handler.setDeadline(Deadline.after(0, TimeUnit.MILLISECONDS));
+		assertEquals(-32002, errorCode(handle(this.handler, "echo", "{\"s\":\"x\",\"#deadline\":\"10000\"}")));
+	}
+
+	public void testCallIsInterruptedAtDeadline() {
+		long start = System.nanoTime();
+		Response response = handle(this.handler, "sleep", "{\"millis\":10000,\"#deadline\":\"50\"}");
+		assertEquals(-32002, errorCode(response));
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		// The interrupt of the canceller doesn't leak to the handling thread
+		assertFalse(Thread.currentThread().isInterrupted());
+	}
+
+	public void testCallIsNotInterruptedWithoutCancellation() {
+		this.configuration.setDeadlineCancellation(false);
+		Response response = handle(this.newHandler(), "sleep", "{\"millis\":200,\"#deadline\":\"50\"}");
+		assertEquals(-32002, errorCode(response));
+	}
+
+	public void testCancellerInterruptsThread() throws InterruptedException {
+		ScheduledExecutorService scheduler = this.configuration.getDeadlineScheduler();
+		JsonRpcCallCanceller canceller = JsonRpcCallCanceller.schedule(scheduler, Deadline.after(20, TimeUnit.MILLISECONDS));
+		try {
+			Thread.sleep(10000);
+			fail("Not interrupted");
+		} catch (InterruptedException e) {
+			// Expected
+		}
+		assertTrue(canceller.complete());
+		assertFalse(Thread.currentThread().isInterrupted());
+	}
+
+	public void testCancellerKeepsForeignInterrupt() {
+		JsonRpcCallCanceller canceller = JsonRpcCallCanceller.schedule(this.configuration.getDeadlineScheduler(),
+				Deadline.after(1, TimeUnit.HOURS));
+		Thread.currentThread().interrupt();
+		canceller.run();
+		assertTrue(canceller.complete());
+		// The thread was interrupted by somebody else, the interrupt is kept
+		assertTrue(Thread.interrupted());
+	}
+
+	public void testCancellerDoesNotFireAfterComplete() {
+		JsonRpcCallCanceller canceller = JsonRpcCallCanceller.schedule(this.configuration.getDeadlineScheduler(),
+				Deadline.after(1, TimeUnit.HOURS));
+		assertFalse(canceller.complete());
+		canceller.run();
+		assertFalse(Thread.currentThread().isInterrupted());
+	}
+
+	public void testExpiredFollowerDoesNotWaitForLeader() throws Exception {
+		Future<Response> leader = this.executor.submit(() -> handle(this.newHandler(), "shared", "{\"s\":\"a\"}"));
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		assertEquals(-32002, errorCode(handle(this.handler, "shared", "{\"s\":\"a\",\"#deadline\":0}")));
+		// The follower waits for the leader no longer than its own deadline
+		long start = System.nanoTime();
+		assertEquals(-32002, errorCode(handle(this.newHandler(), "shared", "{\"s\":\"a\",\"#deadline\":\"50\"}")));
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		release.countDown();
+		assertTrue(leader.get(5, TimeUnit.SECONDS) instanceof SuccessResponse);
+	}
+
+	public void testFollowerIsAdmittedByLimiter() throws Exception {
+		JsonRpcConcurrencyLimits limits = new JsonRpcConcurrencyLimits(() -> new JsonRpcFixedLimiter(1));
+		this.configuration.setConcurrencyLimits(limits);
+		Future<Response> leader = this.executor.submit(() -> handle(this.newHandler(), "shared", "{\"s\":\"b\"}"));
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		// The follower would share the result of the leader, but it's still rejected by the limit
+		assertEquals(-32001, errorCode(handle(this.handler, "shared", "{\"s\":\"b\"}")));
+		assertEquals(1, limits.getRejected());
+		release.countDown();
+		Response response = leader.get(5, TimeUnit.SECONDS);
+		assertTrue(String.valueOf(response), response instanceof SuccessResponse);
+	}
+
+	public void testRejectedLeaderIsNotShared() throws Exception {
+		Future<Response> leader = this.executor.submit(() -> handle(this.newHandler(), "shared", "{\"s\":\"c\",\"#deadline\":\"100\"}"));
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		Future<Response> follower = this.executor.submit(() -> handle(this.newHandler(), "shared", "{\"s\":\"c\"}"));
+		// The leader gets "Deadline exceeded", the follower runs the call itself
+		assertEquals(-32002, errorCode(leader.get(5, TimeUnit.SECONDS)));
+		release.countDown();
+		Response response = follower.get(5, TimeUnit.SECONDS);
+		assertTrue(String.valueOf(response), response instanceof SuccessResponse);
+	}
+}
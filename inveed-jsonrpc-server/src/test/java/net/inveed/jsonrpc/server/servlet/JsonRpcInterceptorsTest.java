@@ -0,0 +1,228 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+import net.inveed.jsonrpc.core.domain.ErrorResponse;
+import net.inveed.jsonrpc.core.domain.Response;
+import net.inveed.jsonrpc.core.domain.SuccessResponse;
+import net.inveed.jsonrpc.core.trace.TraceParent;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
+import net.inveed.jsonrpc.server.JsonRpcTestServices;
+import net.inveed.jsonrpc.server.interceptor.IJsonRpcInterceptor;
+import net.inveed.jsonrpc.server.interceptor.JsonRpcCall;
+import net.inveed.jsonrpc.server.interceptor.TraceContextInterceptor;
+import net.inveed.rest.jpa.jackson.JsonConfiguration;
+
+public class JsonRpcInterceptorsTest extends TestCase {
+
+	@JsonRpcService("intercepted")
+	public static class InterceptedService {
+		@JsonRpcMethod
+		public String echo(@JsonRpcParam("s") String s) {
+			return s;
+		}
+
+		@JsonRpcMethod
+		public String trace() {
+			TraceParent tp = TraceParent.getCurrent();
+			return tp == null ? null : tp.getTraceId();
+		}
+
+		@JsonRpcMethod
+		public Unserializable unserializable() {
+			return new Unserializable();
+		}
+	}
+
+	public static class Unserializable {
+		public String getValue() {
+			throw new IllegalStateException("Cannot serialize");
+		}
+	}
+
+	/**
+	 * Records the phases and fails in the given one
+	 */
+	private static class Recorder implements IJsonRpcInterceptor {
+		private final String name;
+		private final String failIn;
+		private final List<String> log;
+
+		Recorder(String name, String failIn, List<String> log) {
+			this.name = name;
+			this.failIn = failIn;
+			this.log = log;
+		}
+
+		private void on(String phase) {
+			this.log.add(this.name + "." + phase);
+			if (phase.equals(this.failIn)) {
+				throw new IllegalStateException(this.name + " failed in " + phase);
+			}
+		}
+
+		@Override
+		public void afterParse(JsonRpcCall call) {
+			this.on("afterParse");
+		}
+
+		@Override
+		public void afterResolve(JsonRpcCall call) {
+			this.on("afterResolve");
+		}
+
+		@Override
+		public void afterBind(JsonRpcCall call) {
+			this.on("afterBind");
+		}
+
+		@Override
+		public void afterInvoke(JsonRpcCall call) {
+			this.on("afterInvoke");
+		}
+
+		@Override
+		public void beforeSerialize(JsonRpcCall call) {
+			this.on("beforeSerialize");
+		}
+
+		@Override
+		public void afterCall(JsonRpcCall call) {
+			this.on("afterCall");
+		}
+
+		@Override
+		public void afterSerialize(JsonRpcCall call) {
+			this.on("afterSerialize");
+		}
+	}
+
+	private final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+	private JsonRpcServerConfiguration configuration;
+	private JsonRpcRequestHandler handler;
+
+	@Override
+	protected void setUp() {
+		this.configuration = new JsonRpcServerConfiguration();
+		this.handler = new JsonRpcRequestHandler(new JsonConfiguration(),
+				JsonRpcTestServices.provider(InterceptedService.class), this.configuration);
+	}
+
+	private Object handle(String request) {
+		return this.handler.handle(new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private Response echo() {
+		return (Response) this.handle("{\"jsonrpc\":\"2.0\",\"method\":\"intercepted#echo\",\"params\":[\"x\"],\"id\":1}");
+	}
+
+	private static long errorCode(Response response) {
+		assertTrue(String.valueOf(response), response instanceof ErrorResponse);
+		return ((ErrorResponse) response).getError().getCode();
+	}
+
+	public void testPhasesAreCalledInOrder() {
+		this.configuration.addInterceptor(new Recorder("a", null, this.log));
+		this.configuration.addInterceptor(new Recorder("b", null, this.log));
+		Response response = this.echo();
+		assertTrue(response instanceof SuccessResponse);
+		assertEquals(Arrays.asList(
+				"a.afterParse", "b.afterParse",
+				"a.afterResolve", "b.afterResolve",
+				"a.afterBind", "b.afterBind",
+				"a.afterInvoke", "b.afterInvoke",
+				"b.beforeSerialize", "a.beforeSerialize",
+				"b.afterCall", "a.afterCall"), this.log);
+
+		// afterSerialize waits for the response to be written
+		this.log.clear();
+		this.handler.afterSerialize();
+		assertEquals(Arrays.asList("b.afterSerialize", "a.afterSerialize"), this.log);
+		this.log.clear();
+		this.handler.afterSerialize();
+		assertTrue(this.log.isEmpty());
+	}
+
+	public void testFailedInterceptorGivesInternalError() {
+		for (String phase : Arrays.asList("afterParse", "afterResolve", "afterBind", "afterInvoke", "beforeSerialize")) {
+			this.setUp();
+			this.log.clear();
+			this.configuration.addInterceptor(new Recorder("a", null, this.log));
+			this.configuration.addInterceptor(new Recorder("b", phase, this.log));
+			Response response = this.echo();
+			assertEquals(phase, -32603, errorCode(response));
+			assertEquals(1, response.getId().asInt());
+			// The response of the failed call is still built and completed
+			assertTrue(phase, this.log.contains("a.beforeSerialize"));
+			this.handler.afterSerialize();
+			assertTrue(phase, this.log.contains("a.afterSerialize"));
+		}
+	}
+
+	public void testFailedInterceptorDoesNotBreakBatch() {
+		this.configuration.addInterceptor(new IJsonRpcInterceptor() {
+			@Override
+			public void afterBind(JsonRpcCall call) {
+				if ("bad".equals(call.getArgs()[0])) {
+					throw new IllegalArgumentException("bad");
+				}
+			}
+		});
+		Response[] responses = (Response[]) this.handle("["
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"intercepted#echo\",\"params\":[\"bad\"],\"id\":1},"
+				+ "{\"jsonrpc\":\"2.0\",\"method\":\"intercepted#echo\",\"params\":[\"good\"],\"id\":2}]");
+		assertEquals(2, responses.length);
+		assertEquals(-32603, errorCode(responses[0]));
+		assertEquals("good", ((SuccessResponse) responses[1]).getResult().toString().replace("\"", ""));
+	}
+
+	public void testFailedAfterSerializeIsOnlyLogged() {
+		this.configuration.addInterceptor(new Recorder("a", null, this.log));
+		this.configuration.addInterceptor(new Recorder("b", "afterSerialize", this.log));
+		assertTrue(this.echo() instanceof SuccessResponse);
+		this.log.clear();
+		this.handler.afterSerialize();
+		assertEquals(Arrays.asList("b.afterSerialize", "a.afterSerialize"), this.log);
+	}
+
+	public void testFailedAfterCallIsOnlyLogged() {
+		this.configuration.addInterceptor(new Recorder("a", null, this.log));
+		this.configuration.addInterceptor(new Recorder("b", "afterCall", this.log));
+		assertTrue(this.echo() instanceof SuccessResponse);
+		assertTrue(this.log.contains("a.afterCall"));
+	}
+
+	public void testTraceContextIsRestoredAfterCall() {
+		this.configuration.addInterceptor(new TraceContextInterceptor());
+		String traceId = "4bf92f3577b34da6a3ce929d0e0e4736";
+		Response response = (Response) this.handle("{\"jsonrpc\":\"2.0\",\"method\":\"intercepted#trace\",\"params\":{\".trace\":\"00-"
+				+ traceId + "-00f067aa0ba902b7-01\"},\"id\":1}");
+		assertEquals(traceId, ((SuccessResponse) response).getResult().toString().replace("\"", ""));
+		assertNull(TraceParent.getCurrent());
+	}
+
+	public void testTraceContextIsRestoredWhenCallFails() {
+		this.configuration.addInterceptor(new Recorder("a", null, this.log));
+		this.configuration.addInterceptor(new TraceContextInterceptor());
+		String request = "{\"jsonrpc\":\"2.0\",\"method\":\"intercepted#unserializable\",\"params\":{\".trace\":\"00-"
+				+ "4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01\"},\"id\":1}";
+		try {
+			this.handle(request);
+			fail("The result cannot be serialized");
+		} catch (RuntimeException e) {
+			// Expected
+		}
+		assertNull(TraceParent.getCurrent());
+		assertTrue(this.log.contains("a.afterCall"));
+		assertFalse(this.log.contains("a.beforeSerialize"));
+	}
+}
@@ -0,0 +1,170 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+import net.inveed.jsonrpc.core.domain.ErrorMessage;
+import net.inveed.jsonrpc.core.domain.ErrorResponse;
+import net.inveed.jsonrpc.core.domain.Response;
+import net.inveed.jsonrpc.core.domain.SuccessResponse;
+import net.inveed.jsonrpc.server.interceptor.IJsonRpcInterceptor;
+import net.inveed.jsonrpc.server.interceptor.JsonRpcCall;
+import net.inveed.jsonrpc.server.limit.IJsonRpcConcurrencyLimiter;
+import net.inveed.jsonrpc.server.limit.JsonRpcConcurrencyLimits;
+
+public class JsonRpcLoadSheddingTest extends TestCase {
+
+	static final AtomicInteger converted = new AtomicInteger();
+
+	public static class Payload {
+		private String value;
+
+		public Payload() {
+			converted.incrementAndGet();
+		}
+
+		public String getValue() {
+			return this.value;
+		}
+
+		public void setValue(String value) {
+			this.value = value;
+		}
+	}
+
+	@JsonRpcService(ShedService.NAME)
+	public static class ShedService {
+		public static final String NAME = "shed";
+
+		@JsonRpcMethod
+		public String put(@JsonRpcParam("p") Payload p) {
+			return p.getValue();
+		}
+	}
+
+	/**
+	 * Admits the calls while it's open
+	 */
+	private static class SwitchLimiter implements IJsonRpcConcurrencyLimiter {
+		volatile boolean open = true;
+
+		@Override
+		public boolean tryAcquire() {
+			return this.open;
+		}
+
+		@Override
+		public void release(long rttNanos, boolean dropped) {
+		}
+
+		@Override
+		public int getLimit() {
+			return this.open ? Integer.MAX_VALUE : 0;
+		}
+
+		@Override
+		public int getInFlight() {
+			return 0;
+		}
+	}
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final SwitchLimiter limiter = new SwitchLimiter();
+	private final AtomicInteger bound = new AtomicInteger();
+	private JsonRpcServlet servlet;
+
+	@Override
+	protected void setUp() {
+		converted.set(0);
+		this.servlet = new JsonRpcServlet();
+		this.servlet.getRpcServiceLocator().registerService(ShedService.NAME, ShedService.class);
+		this.servlet.getConfiguration().setConcurrencyLimits(new JsonRpcConcurrencyLimits(() -> this.limiter));
+		this.servlet.getConfiguration().addInterceptor(new IJsonRpcInterceptor() {
+			@Override
+			public void afterBind(JsonRpcCall call) {
+				bound.incrementAndGet();
+			}
+		});
+	}
+
+	private static String request(int id, String value) {
+		return "{\"jsonrpc\":\"2.0\",\"method\":\"" + ShedService.NAME + "#put\",\"params\":{\"p\":{\"value\":\"" + value
+				+ "\"}},\"id\":" + id + "}";
+	}
+
+	/**
+	 * @return HTTP status and the response body
+	 */
+	private Object[] post(String body) throws Exception {
+		int[] status = { 200 };
+		HttpServletRequest req = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+					return method.getReturnType() == boolean.class ? false : null;
+				});
+		HttpServletResponse resp = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+					if ("setStatus".equals(method.getName())) {
+						status[0] = (Integer) args[0];
+					}
+					return method.getReturnType() == boolean.class ? false : null;
+				});
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.servlet.handleRequest(req, resp, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out);
+		return new Object[] { status[0], this.mapper.readTree(out.toByteArray()) };
+	}
+
+	public void testRejectedCallIsNotBound() throws Exception {
+		Object[] response = this.post(request(1, "a"));
+		assertEquals(200, response[0]);
+		assertEquals("a", ((JsonNode) response[1]).get("result").asText());
+		assertEquals(1, converted.get());
+		assertEquals(1, this.bound.get());
+
+		this.limiter.open = false;
+		response = this.post(request(2, "b"));
+		assertEquals(503, response[0]);
+		assertEquals(-32001, ((JsonNode) response[1]).get("error").get("code").asInt());
+		// The params of the rejected call are neither converted nor passed to the interceptors
+		assertEquals(1, converted.get());
+		assertEquals(1, this.bound.get());
+	}
+
+	public void testRejectedBatchGetsServiceUnavailable() throws Exception {
+		this.limiter.open = false;
+		Object[] response = this.post("[" + request(1, "a") + "," + request(2, "b") + "]");
+		assertEquals(503, response[0]);
+		JsonNode batch = (JsonNode) response[1];
+		assertEquals(2, batch.size());
+		assertEquals(-32001, batch.get(0).get("error").get("code").asInt());
+		assertEquals(-32001, batch.get(1).get("error").get("code").asInt());
+		assertEquals(0, converted.get());
+
+		this.limiter.open = true;
+		assertEquals(200, this.post("[" + request(1, "a") + "," + request(2, "b") + "]")[0]);
+	}
+
+	public void testBatchStatus() {
+		Response ok = new SuccessResponse(null, null);
+		Response overloaded = new ErrorResponse(null, new ErrorMessage(-32001, "Server overloaded"), 503);
+		Response forbidden = new ErrorResponse(null, new ErrorMessage(-32000, "Forbidden"), 403);
+		Response failed = new ErrorResponse(null, new ErrorMessage(-32603, "Internal error"), 500);
+		assertEquals(200, JsonRpcServlet.batchStatus(Arrays.asList(ok, ok)));
+		assertEquals(503, JsonRpcServlet.batchStatus(Arrays.asList(ok, overloaded)));
+		assertEquals(403, JsonRpcServlet.batchStatus(Arrays.asList(overloaded, forbidden)));
+		assertEquals(500, JsonRpcServlet.batchStatus(Arrays.asList(failed, overloaded)));
+	}
+}
@@ -0,0 +1,149 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.core.annotation.JsonRpcCacheable;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+import net.inveed.jsonrpc.server.JsonRpcWireFormat;
+
+public class JsonRpcServletWireFormatTest extends TestCase {
+
+	@JsonRpcService(WireService.NAME)
+	public static class WireService {
+		public static final String NAME = "wire";
+
+		@JsonRpcMethod
+		public String echo(@JsonRpcParam("s") String s) {
+			return s + "!";
+		}
+
+		@JsonRpcMethod
+		@JsonRpcCacheable(ttl = 1, unit = TimeUnit.MINUTES)
+		public String cached(@JsonRpcParam("s") String s) {
+			return s + "?";
+		}
+	}
+
+	private final ObjectMapper json = new ObjectMapper();
+	private final ObjectMapper smile = new ObjectMapper(new SmileFactory());
+	private JsonRpcServlet servlet;
+
+	/**
+	 * Response captured by the test
+	 */
+	private static class Captured {
+		String contentType;
+		int status = 200;
+		byte[] body;
+	}
+
+	@Override
+	protected void setUp() {
+		this.servlet = new JsonRpcServlet();
+		this.servlet.getRpcServiceLocator().registerService(WireService.NAME, WireService.class);
+	}
+
+	private byte[] request(ObjectMapper mapper, String method, String s) throws Exception {
+		ObjectNode req = this.json.createObjectNode();
+		req.put("jsonrpc", "2.0");
+		req.put("method", WireService.NAME + "#" + method);
+		req.putObject("params").put("s", s);
+		req.put("id", 1);
+		return mapper.writeValueAsBytes(req);
+	}
+
+	private Captured post(byte[] body, String contentType, String accept) {
+		Map<String, String> headers = new HashMap<>();
+		headers.put(Headers.HEADER_CONTENT_TYPE, contentType);
+		headers.put(Headers.HEADER_ACCEPT, accept);
+		HttpServletRequest req = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getHeader":
+						return headers.get(args[0]);
+					case "getContentType":
+						return contentType;
+					default:
+						return method.getReturnType() == boolean.class ? false : null;
+					}
+				});
+		Captured ret = new Captured();
+		HttpServletResponse resp = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+					if ("setContentType".equals(method.getName())) {
+						ret.contentType = (String) args[0];
+					} else if ("setStatus".equals(method.getName())) {
+						ret.status = (Integer) args[0];
+					}
+					return method.getReturnType() == boolean.class ? false : null;
+				});
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.servlet.handleRequest(req, resp, new ByteArrayInputStream(body), out);
+		ret.body = out.toByteArray();
+		return ret;
+	}
+
+	private void assertSmileResult(Captured response, String expected) throws Exception {
+		assertEquals(JsonRpcWireFormat.MEDIA_TYPE_SMILE, response.contentType);
+		assertEquals(200, response.status);
+		// Smile documents start with ":)\n"
+		assertEquals(':', response.body[0]);
+		assertEquals(')', response.body[1]);
+		JsonNode node = this.smile.readTree(response.body);
+		assertEquals(expected, node.get("result").asText());
+		assertEquals(1, node.get("id").asInt());
+	}
+
+	public void testSmileRequestGetsSmileResponse() throws Exception {
+		Captured response = this.post(this.request(this.smile, "echo", "hi"), JsonRpcWireFormat.MEDIA_TYPE_SMILE, null);
+		this.assertSmileResult(response, "hi!");
+	}
+
+	public void testSmileRequestWithStreaming() throws Exception {
+		this.servlet.getConfiguration().setStreamingRequests(true);
+		this.servlet.getConfiguration().setStreamingResponses(true);
+		Captured response = this.post(this.request(this.smile, "echo", "hi"), JsonRpcWireFormat.MEDIA_TYPE_SMILE, null);
+		this.assertSmileResult(response, "hi!");
+	}
+
+	public void testResponseFormatFollowsAccept() throws Exception {
+		Captured response = this.post(this.request(this.json, "echo", "a"), JsonRpcWireFormat.MEDIA_TYPE_JSON,
+				JsonRpcWireFormat.MEDIA_TYPE_SMILE);
+		this.assertSmileResult(response, "a!");
+
+		response = this.post(this.request(this.smile, "echo", "b"), JsonRpcWireFormat.MEDIA_TYPE_SMILE,
+				JsonRpcWireFormat.MEDIA_TYPE_JSON);
+		assertEquals(JsonRpcWireFormat.MEDIA_TYPE_JSON, response.contentType);
+		assertEquals("b!", this.json.readTree(response.body).get("result").asText());
+	}
+
+	public void testUnknownContentTypeIsReadAsJson() throws Exception {
+		Captured response = this.post(this.request(this.json, "echo", "c"), "text/plain", null);
+		assertEquals(JsonRpcWireFormat.MEDIA_TYPE_JSON, response.contentType);
+		assertEquals("c!", this.json.readTree(response.body).get("result").asText());
+	}
+
+	public void testCachedResultIsWrittenAsSmile() throws Exception {
+		byte[] request = this.request(this.smile, "cached", "x");
+		this.assertSmileResult(this.post(request, JsonRpcWireFormat.MEDIA_TYPE_SMILE, null), "x?");
+		this.assertSmileResult(this.post(request, JsonRpcWireFormat.MEDIA_TYPE_SMILE, null), "x?");
+		Captured response = this.post(this.request(this.json, "cached", "x"), JsonRpcWireFormat.MEDIA_TYPE_JSON, null);
+		assertEquals("x?", this.json.readTree(response.body).get("result").asText());
+	}
+}
@@ -0,0 +1,95 @@
+package net.inveed.jsonrpc.server.servlet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+import net.inveed.jsonrpc.server.IJsonRpcServiceProvider;
+import net.inveed.jsonrpc.server.JsonRpcTestServices;
+
+public class JsonRpcStreamingRequestReaderTest extends TestCase {
+
+	@JsonRpcService("streaming")
+	public static class StreamingService {
+		@JsonRpcMethod
+		public String describe(@JsonRpcParam("id") long id, @JsonRpcParam("tags") List<String> tags,
+				@JsonRpcParam(value = "note", required = false) String note) {
+			return id + ":" + tags + ":" + note;
+		}
+
+		@JsonRpcMethod
+		public String pick(@JsonRpcParam("v") long v) {
+			return "long";
+		}
+
+		@JsonRpcMethod
+		public String pick(@JsonRpcParam("v") String v) {
+			return "string";
+		}
+	}
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private JsonRpcStreamingRequestReader reader;
+
+	@Override
+	protected void setUp() {
+		IJsonRpcServiceProvider provider = JsonRpcTestServices.provider(StreamingService.class);
+		this.reader = new JsonRpcStreamingRequestReader(this.mapper, provider);
+	}
+
+	private JsonRpcBoundRequest read(String json) throws IOException {
+		JsonParser p = this.mapper.getFactory().createParser(json);
+		p.nextToken();
+		JsonRpcBoundRequest ret = this.reader.read(p);
+		assertNull("Parser should be left at the end of the request", p.nextToken());
+		return ret;
+	}
+
+	public void testPositionalParamsAfterMethodAreBound() throws IOException {
+		JsonRpcBoundRequest r = read("{\"jsonrpc\":\"2.0\",\"method\":\"streaming#describe\",\"params\":[42,[\"a\",\"b\"]],\"id\":1}");
+		assertTrue(r.isValid());
+		assertTrue(r.isBound());
+		assertEquals("describe", r.getMethod().getName());
+		assertEquals(Arrays.asList(42L, Arrays.asList("a", "b"), null), Arrays.asList(r.getArgs()));
+		assertEquals(1, r.getId().asInt());
+	}
+
+	public void testNamedParamsBeforeMethodAreBuffered() throws IOException {
+		JsonRpcBoundRequest r = read("{\"params\":{\"tags\":[],\"note\":\"n\",\"id\":7,\"#deadline\":100},\"method\":\"streaming#describe\",\"jsonrpc\":\"2.0\",\"id\":\"x\"}");
+		assertTrue(r.isBound());
+		assertEquals(Arrays.asList(7L, Arrays.asList(), "n"), Arrays.asList(r.getArgs()));
+		assertEquals(100, r.getManagementParams().get("#deadline").asInt());
+	}
+
+	public void testMissingRequiredParamIsNotBound() throws IOException {
+		JsonRpcBoundRequest r = read("{\"jsonrpc\":\"2.0\",\"method\":\"streaming#describe\",\"params\":{\"id\":1},\"id\":1}");
+		assertTrue(r.isValid());
+		assertNull(r.getArgs());
+	}
+
+	public void testUnconvertibleValueIsSkipped() throws IOException {
+		JsonRpcBoundRequest r = read("{\"jsonrpc\":\"2.0\",\"method\":\"streaming#describe\",\"params\":[{\"x\":[1,{}]},[\"a\"]],\"id\":1}");
+		assertTrue(r.isValid());
+		assertNull(r.getArgs());
+	}
+
+	public void testOverloadedMethodGetsTreeParams() throws IOException {
+		JsonRpcBoundRequest r = read("{\"jsonrpc\":\"2.0\",\"method\":\"streaming#pick\",\"params\":{\"v\":\"s\"},\"id\":1}");
+		assertTrue(r.isValid());
+		assertFalse(r.isBound());
+		assertEquals("s", r.getRequest().getParams().get("v").asText());
+	}
+
+	public void testNotificationAndInvalidId() throws IOException {
+		assertTrue(read("{\"jsonrpc\":\"2.0\",\"method\":\"streaming#describe\",\"params\":[1,[]]}").isNotification());
+		assertFalse(read("{\"jsonrpc\":\"2.0\",\"method\":\"streaming#describe\",\"params\":[1,[]],\"id\":{}}").isValid());
+		assertFalse(read("[1,2]").isValid());
+	}
+}
@@ -0,0 +1,194 @@
+package net.inveed.jsonrpc.server.socket;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.client.transport.SocketTransport;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+import net.inveed.jsonrpc.core.deadline.Deadline;
+import net.inveed.jsonrpc.server.JsonRpcServerConfiguration;
+import net.inveed.jsonrpc.server.JsonRpcTestServices;
+import net.inveed.rest.jpa.jackson.JsonConfiguration;
+
+public class JsonRpcSocketServerTest extends TestCase {
+
+	static volatile CountDownLatch release;
+
+	@JsonRpcService("sock")
+	public static class SocketService {
+		@JsonRpcMethod
+		public String echo(@JsonRpcParam("s") String s) {
+			return s;
+		}
+
+		@JsonRpcMethod
+		public long sleep(@JsonRpcParam("millis") long millis) throws InterruptedException {
+			Thread.sleep(millis);
+			return millis;
+		}
+
+		@JsonRpcMethod
+		public boolean block() throws InterruptedException {
+			return release.await(10, TimeUnit.SECONDS);
+		}
+	}
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private JsonRpcSocketServer server;
+	private SocketTransport transport;
+
+	@Override
+	protected void setUp() throws IOException {
+		release = new CountDownLatch(1);
+		this.server = new JsonRpcSocketServer(new JsonConfiguration(),
+				JsonRpcTestServices.provider(SocketService.class), new JsonRpcServerConfiguration());
+		this.server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		this.transport = new SocketTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.server.getPort()), 1);
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		release.countDown();
+		this.transport.close();
+		this.server.close();
+	}
+
+	private CompletableFuture<JsonNode> call(Object id, String method, String params) {
+		String request = "{\"jsonrpc\":\"2.0\",\"method\":\"sock#" + method + "\",\"params\":" + params
+				+ ",\"id\":" + (id instanceof String ? "\"" + id + "\"" : id) + "}";
+		byte[] bytes = request.getBytes(StandardCharsets.UTF_8);
+		return this.transport.passAsync(out -> out.write(bytes), in -> this.mapper.readTree(in));
+	}
+
+	private static JsonNode get(CompletableFuture<JsonNode> future) throws Exception {
+		return future.get(5, TimeUnit.SECONDS);
+	}
+
+	private static Throwable failure(CompletableFuture<JsonNode> future) throws Exception {
+		try {
+			JsonNode response = get(future);
+			fail("The call should fail, but got " + response);
+			return null;
+		} catch (ExecutionException e) {
+			return e.getCause();
+		}
+	}
+
+	public void testPipelining() throws Exception {
+		List<CompletableFuture<JsonNode>> calls = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			calls.add(this.call(i, "echo", "[\"m" + i + "\"]"));
+		}
+		for (int i = 0; i < calls.size(); i++) {
+			JsonNode response = get(calls.get(i));
+			assertEquals(i, response.get("id").asInt());
+			assertEquals("m" + i, response.get("result").asText());
+		}
+	}
+
+	public void testOutOfOrderResponses() throws Exception {
+		List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+		CompletableFuture<JsonNode> slow = this.call("slow", "sleep", "[500]");
+		slow.thenRun(() -> completed.add("slow"));
+		CompletableFuture<JsonNode> fast = this.call("fast", "sleep", "[0]");
+		fast.thenRun(() -> completed.add("fast"));
+		assertEquals(0, get(fast).get("result").asInt());
+		assertFalse(slow.isDone());
+		assertEquals(500, get(slow).get("result").asInt());
+		assertEquals("[fast, slow]", completed.toString());
+	}
+
+	public void testDuplicateIdIsRejected() throws Exception {
+		CompletableFuture<JsonNode> first = this.call(7, "sleep", "[300]");
+		Throwable e = failure(this.call(7, "echo", "[\"x\"]"));
+		assertTrue(String.valueOf(e), e instanceof IOException);
+		assertEquals(300, get(first).get("result").asInt());
+		// The id is free again
+		assertEquals("y", get(this.call(7, "echo", "[\"y\"]")).get("result").asText());
+	}
+
+	public void testDeadlineFailsCallAndLateResponseIsDropped() throws Exception {
+		CompletableFuture<JsonNode> late;
+		Deadline.setCurrent(Deadline.after(50, TimeUnit.MILLISECONDS));
+		try {
+			late = this.call(1, "sleep", "[300]");
+		} finally {
+			Deadline.setCurrent(null);
+		}
+		long start = System.nanoTime();
+		assertTrue(failure(late) instanceof SocketTimeoutException);
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(300));
+
+		// The late response arrives while another call is outstanding on the same connection
+		CompletableFuture<JsonNode> other = this.call(2, "sleep", "[500]");
+		assertEquals(500, get(other).get("result").asInt());
+		assertEquals("z", get(this.call(3, "echo", "[\"z\"]")).get("result").asText());
+	}
+
+	public void testExpiredDeadlineIsNotSent() throws Exception {
+		Deadline.setCurrent(Deadline.after(0, TimeUnit.MILLISECONDS));
+		try {
+			assertTrue(failure(this.call(1, "echo", "[\"x\"]")) instanceof SocketTimeoutException);
+		} finally {
+			Deadline.setCurrent(null);
+		}
+	}
+
+	public void testReconnectAfterServerClosesConnection() throws Exception {
+		assertEquals("a", get(this.call(1, "echo", "[\"a\"]")).get("result").asText());
+		this.server.setMaxFrameSize(1024);
+		CompletableFuture<JsonNode> outstanding = this.call(2, "sleep", "[2000]");
+		char[] big = new char[2048];
+		Arrays.fill(big, 'x');
+		CompletableFuture<JsonNode> oversized = this.call(3, "echo", "[\"" + new String(big) + "\"]");
+		// The server closes the connection, its outstanding calls fail
+		assertTrue(failure(oversized) instanceof IOException);
+		assertTrue(failure(outstanding) instanceof IOException);
+		assertEquals("b", get(this.call(4, "echo", "[\"b\"]")).get("result").asText());
+	}
+
+	public void testResponseWithoutIdClosesConnection() throws Exception {
+		CompletableFuture<JsonNode> outstanding = this.call(1, "sleep", "[2000]");
+		// The client sees the first id of the request, the server the last one, which is invalid,
+		// so the server answers with an error without id, which can't be matched to a call
+		CompletableFuture<JsonNode> invalid = this.call("x\",\"id\":{\"a\":1},\"x\":\"", "echo", "[\"x\"]");
+		assertTrue(failure(invalid) instanceof IOException);
+		assertTrue(failure(outstanding) instanceof IOException);
+		assertEquals("c", get(this.call(2, "echo", "[\"c\"]")).get("result").asText());
+	}
+
+	public void testRequestsOverLimitAreOverloaded() throws Exception {
+		this.server.setMaxInFlight(1);
+		// Requests of a connection are read in order, the first one is in flight when the second one is read
+		CompletableFuture<JsonNode> blocked = this.call(1, "block", "[]");
+		JsonNode rejected = get(this.call(2, "echo", "[\"x\"]"));
+		assertEquals(2, rejected.get("id").asInt());
+		assertEquals(-32001, rejected.get("error").get("code").asInt());
+		release.countDown();
+		assertTrue(get(blocked).get("result").asBoolean());
+		// The request is completed after its response is written
+		long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		JsonNode response;
+		do {
+			response = get(this.call(3, "echo", "[\"x\"]"));
+		} while (response.has("error") && System.nanoTime() < end);
+		assertEquals("x", response.get("result").asText());
+	}
+}
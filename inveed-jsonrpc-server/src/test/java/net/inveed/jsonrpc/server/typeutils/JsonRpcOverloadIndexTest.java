@@ -0,0 +1,109 @@
+package net.inveed.jsonrpc.server.typeutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ContainerNode;
+
+import junit.framework.TestCase;
+import net.inveed.jsonrpc.core.annotation.JsonRpcMethod;
+import net.inveed.jsonrpc.core.annotation.JsonRpcParam;
+import net.inveed.jsonrpc.core.annotation.JsonRpcService;
+import net.inveed.jsonrpc.server.JsonRpcDispatchEntry;
+import net.inveed.jsonrpc.server.JsonRpcTestServices;
+
+public class JsonRpcOverloadIndexTest extends TestCase {
+
+	public static class Dto {
+		public int a;
+	}
+
+	@JsonRpcService("overloads")
+	public static class OverloadService {
+		@JsonRpcMethod
+		public String pick(@JsonRpcParam("v") long v) {
+			return "long";
+		}
+
+		@JsonRpcMethod
+		public String pick(@JsonRpcParam("v") String v) {
+			return "string";
+		}
+
+		@JsonRpcMethod
+		public String pick(@JsonRpcParam("v") Dto v) {
+			return "dto";
+		}
+
+		@JsonRpcMethod
+		public String pick(@JsonRpcParam("v") List<Long> v) {
+			return "list";
+		}
+
+		@JsonRpcMethod
+		public String pick(@JsonRpcParam("v") double v, @JsonRpcParam(value = "w", required = false) String w) {
+			return "double";
+		}
+	}
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private JsonRpcOverloadIndex index;
+
+	@Override
+	protected void setUp() {
+		this.index = new JsonRpcOverloadIndex(
+				JsonRpcDispatchEntry.findMethods(JsonRpcTestServices.register(OverloadService.class), "pick"));
+	}
+
+	private List<String> select(String params) throws Exception {
+		List<String> ret = new ArrayList<>();
+		for (JsonRpcMethodExt m : this.index.select((ContainerNode<?>) this.mapper.readTree(params))) {
+			ret.add(m.getMethod().getMethod().getParameterTypes()[0].getSimpleName());
+		}
+		return ret;
+	}
+
+	public void testBestMatchComesFirst() throws Exception {
+		assertEquals("long", select("[1]").get(0));
+		assertEquals("String", select("[\"s\"]").get(0));
+		assertEquals("Dto", select("{\"v\":{\"a\":1}}").get(0));
+		assertEquals("List", select("{\"v\":[1,2]}").get(0));
+		assertEquals("double", select("[1.5]").get(0));
+	}
+
+	public void testOmittedParamsLoseTies() throws Exception {
+		// long and double both accept an integer, but double omits "w"
+		List<String> ret = select("[1]");
+		assertTrue(ret.indexOf("long") < ret.indexOf("double"));
+	}
+
+	public void testSelectionByArityAndNames() throws Exception {
+		assertEquals(Arrays.asList("double"), select("[1, \"w\"]"));
+		assertEquals(Arrays.asList("double"), select("{\"v\":1,\"w\":\"x\"}"));
+		assertTrue(select("[1, 2, 3]").isEmpty());
+		assertTrue(select("{\"x\":1}").isEmpty());
+		assertTrue(select("{\"w\":\"x\"}").isEmpty());
+	}
+
+	public void testOrderIsStable() throws Exception {
+		assertEquals(select("[null]"), select("[null]"));
+		assertEquals(5, this.index.getMethods().size());
+	}
+
+	public void testScore() throws Exception {
+		assertTrue(JsonRpcOverloadIndex.score(this.mapper.readTree("1"), long.class)
+				> JsonRpcOverloadIndex.score(this.mapper.readTree("1"), double.class));
+		assertTrue(JsonRpcOverloadIndex.score(this.mapper.readTree("1.5"), double.class)
+				> JsonRpcOverloadIndex.score(this.mapper.readTree("1.5"), long.class));
+		assertTrue(JsonRpcOverloadIndex.score(this.mapper.readTree("\"x\""), char.class)
+				> JsonRpcOverloadIndex.score(this.mapper.readTree("\"xy\""), char.class));
+		assertTrue(JsonRpcOverloadIndex.score(this.mapper.readTree("null"), Long.class)
+				> JsonRpcOverloadIndex.score(this.mapper.readTree("null"), long.class));
+		assertTrue(JsonRpcOverloadIndex.score(this.mapper.readTree("[]"), List.class)
+				> JsonRpcOverloadIndex.score(this.mapper.readTree("[]"), Dto.class));
+		assertTrue(JsonRpcOverloadIndex.score(this.mapper.readTree("true"), boolean.class)
+				> JsonRpcOverloadIndex.score(this.mapper.readTree("true"), String.class));
+	}
+}
@@ -0,0 +1,115 @@
+package net.inveed.jsonrpc.core.deadline;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time after which nobody waits for the result of a call.
+ *
+ * On the wire a deadline is sent as the remaining time in milliseconds, so
+ * clocks of the client and the server don't have to be synchronized. The
+ * deadline of the call handled by the current thread is kept in
+ * {@link #getCurrent()}, so outgoing calls inherit it.
+ */
+public final class Deadline {
+	/**
+	 * HTTP header with the remaining time of a request in milliseconds
+	 */
+	public static final String HEADER = "X-JsonRpc-Deadline";
+
+	/**
+	 * Management param of a JSON-RPC request with the remaining time in milliseconds
+	 */
+	public static final String PARAM = "#deadline";
+
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+	private final long nanoTime;
+
+	private Deadline(long nanoTime) {
+		this.nanoTime = nanoTime;
+	}
+
+	/**
+	 * @param timeout	time from now
+	 * @param unit		unit of the timeout
+	 * @return deadline after the timeout
+	 */
+	public static Deadline after(long timeout, TimeUnit unit) {
+		return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+	}
+
+	/**
+	 * Parses a deadline received from the wire
+	 * 
+	 * @param remainingMillis remaining time in milliseconds
+	 * @return deadline or null if the value isn't a number
+	 */
+	public static Deadline parse(String remainingMillis) {
+		if (remainingMillis == null) {
+			return null;
+		}
+		try {
+			return after(Long.parseLong(remainingMillis.trim()), TimeUnit.MILLISECONDS);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param unit unit of the result
+	 * @return time left before the deadline, negative if it has passed
+	 */
+	public long getRemaining(TimeUnit unit) {
+		return unit.convert(this.nanoTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	public boolean isExpired() {
+		return this.nanoTime - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * @param other another deadline, may be null
+	 * @return the earlier one of the deadlines
+	 */
+	public Deadline min(Deadline other) {
+		if (other == null || this.nanoTime - other.nanoTime <= 0) {
+			return this;
+		}
+		return other;
+	}
+
+	/**
+	 * @param a deadline or null
+	 * @param b deadline or null
+	 * @return the earlier one of the deadlines, null if both are null
+	 */
+	public static Deadline min(Deadline a, Deadline b) {
+		return a == null ? b : a.min(b);
+	}
+
+	/**
+	 * @return deadline of the call handled by the current thread or null
+	 */
+	public static Deadline getCurrent() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @param deadline deadline of the call handled by the current thread, null to clear it
+	 */
+	public static void setCurrent(Deadline deadline) {
+		if (deadline == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(deadline);
+		}
+	}
+
+	/**
+	 * @return remaining time in milliseconds to send on the wire, 0 if the deadline has passed
+	 */
+	@Override
+	public String toString() {
+		return Long.toString(Math.max(0, this.getRemaining(TimeUnit.MILLISECONDS)));
+	}
+}
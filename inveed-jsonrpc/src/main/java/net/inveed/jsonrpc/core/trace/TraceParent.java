@@ -0,0 +1,167 @@
+package net.inveed.jsonrpc.core.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * W3C Trace Context "traceparent" value: version, trace id, parent span id and flags,
+ * e.g. {@code 00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01}.
+ *
+ * The trace parent of the call being handled by the current thread is kept in
+ * {@link #getCurrent()}, so outgoing calls can continue the same trace.
+ */
+public final class TraceParent {
+	/**
+	 * HTTP header with the trace parent
+	 */
+	public static final String HEADER = "traceparent";
+
+	/**
+	 * Management param of a JSON-RPC request with the trace parent
+	 */
+	public static final String PARAM = ".trace";
+
+	private static final int LENGTH = 55;
+	private static final String VERSION = "00";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static final ThreadLocal<TraceParent> CURRENT = new ThreadLocal<>();
+
+	private final String value;
+
+	private TraceParent(String value) {
+		this.value = value;
+	}
+
+	/**
+	 * Parses a traceparent value
+	 * 
+	 * @param value header or param value
+	 * @return trace parent or null if the value isn't a valid traceparent
+	 */
+	public static TraceParent parse(String value) {
+		if (value == null) {
+			return null;
+		}
+		value = value.trim();
+		// Future versions may append fields after the flags
+		if (value.length() < LENGTH || (value.length() > LENGTH && value.charAt(LENGTH) != '-')) {
+			return null;
+		}
+		if (value.charAt(2) != '-' || value.charAt(35) != '-' || value.charAt(52) != '-') {
+			return null;
+		}
+		if (!isHex(value, 0, 2) || value.startsWith("ff") || (value.startsWith(VERSION) && value.length() > LENGTH)) {
+			return null;
+		}
+		if (!isHex(value, 3, 35) || isZero(value, 3, 35)) {
+			return null;
+		}
+		if (!isHex(value, 36, 52) || isZero(value, 36, 52)) {
+			return null;
+		}
+		if (!isHex(value, 53, 55)) {
+			return null;
+		}
+		return new TraceParent(value.length() == LENGTH ? value : value.substring(0, LENGTH));
+	}
+
+	/**
+	 * @return trace parent of a new sampled trace
+	 */
+	public static TraceParent newRoot() {
+		ThreadLocalRandom r = ThreadLocalRandom.current();
+		StringBuilder sb = new StringBuilder(LENGTH).append(VERSION).append('-');
+		appendHex(sb, r.nextLong() | 1);
+		appendHex(sb, r.nextLong());
+		sb.append('-');
+		appendHex(sb, r.nextLong() | 1);
+		sb.append("-01");
+		return new TraceParent(sb.toString());
+	}
+
+	/**
+	 * @return trace parent for an outgoing call: the same trace and flags with a new parent span id
+	 */
+	public TraceParent newChild() {
+		StringBuilder sb = new StringBuilder(LENGTH).append(VERSION).append('-')
+				.append(this.value, 3, 36);
+		appendHex(sb, ThreadLocalRandom.current().nextLong() | 1);
+		sb.append(this.value, 52, LENGTH);
+		return new TraceParent(sb.toString());
+	}
+
+	public String getTraceId() {
+		return this.value.substring(3, 35);
+	}
+
+	public String getParentId() {
+		return this.value.substring(36, 52);
+	}
+
+	/**
+	 * @return {@code true} if the caller has recorded the trace
+	 */
+	public boolean isSampled() {
+		return (Character.digit(this.value.charAt(54), 16) & 1) != 0;
+	}
+
+	/**
+	 * @return trace parent of the call handled by the current thread or null
+	 */
+	public static TraceParent getCurrent() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @param traceParent trace parent of the call handled by the current thread, null to clear it
+	 */
+	public static void setCurrent(TraceParent traceParent) {
+		if (traceParent == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(traceParent);
+		}
+	}
+
+	private static boolean isHex(String s, int from, int to) {
+		for (int i = from; i < to; i++) {
+			char c = s.charAt(i);
+			if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isZero(String s, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (s.charAt(i) != '0') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void appendHex(StringBuilder sb, long v) {
+		for (int shift = 60; shift >= 0; shift -= 4) {
+			sb.append(HEX[(int) (v >>> shift) & 0xf]);
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof TraceParent && ((TraceParent) obj).value.equals(this.value);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.value.hashCode();
+	}
+
+	/**
+	 * @return traceparent value
+	 */
+	@Override
+	public String toString() {
+		return this.value;
+	}
+}